@@ -0,0 +1,103 @@
+package com.sismics.docs.core.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decryption throughput, with the derived key from the cache and with a key derivation per stream as before.
+ * Run with:
+ * mvn -P dev,jmh -pl docs-core test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp docs-core/target/test-classes:docs-core/target/classes:$(cat docs-core/target/cp.txt) org.openjdk.jmh.Main EncryptionUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionUtilBenchmark {
+    /**
+     * Size of the decrypted stream, a thumbnail and a document.
+     */
+    @Param({"16384", "1048576"})
+    private int size;
+
+    /**
+     * Private key.
+     */
+    private String privateKey;
+
+    /**
+     * Encrypted data.
+     */
+    private byte[] data;
+
+    /**
+     * Read buffer.
+     */
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() throws Exception {
+        privateKey = EncryptionUtil.generatePrivateKey();
+        byte[] plain = new byte[size];
+        new Random(42).nextBytes(plain);
+        try (InputStream is = new CipherInputStream(new ByteArrayInputStream(plain), EncryptionUtil.getEncryptionCipher(privateKey))) {
+            data = is.readAllBytes();
+        }
+        buffer = new byte[8192];
+    }
+
+    @Benchmark
+    public long decryptCachedKey() throws Exception {
+        try (InputStream is = EncryptionUtil.decryptInputStream(new ByteArrayInputStream(data), privateKey)) {
+            return read(is);
+        }
+    }
+
+    @Benchmark
+    public long decryptDerivedKey() throws Exception {
+        PBEKeySpec keySpec = new PBEKeySpec(privateKey.toCharArray(), "LEpxZmm2SMu2PeKzPNrar2rhVAS6LrrgvXKeL9uyXC4vgKHg".getBytes(), 2000, 256);
+        SecretKey key = SecretKeyFactory.getInstance("PBEWITHSHA256AND256BITAES-CBC-BC").generateSecret(keySpec);
+        Cipher cipher = Cipher.getInstance("AES/CTR/NOPADDING");
+        cipher.init(Cipher.DECRYPT_MODE, key);
+        try (InputStream is = new CipherInputStream(new ByteArrayInputStream(data), cipher)) {
+            return read(is);
+        }
+    }
+
+    /**
+     * Read a stream fully.
+     *
+     * @param is Stream
+     * @return Number of bytes read
+     * @throws Exception e
+     */
+    private long read(InputStream is) throws Exception {
+        long total = 0;
+        int n;
+        while ((n = is.read(buffer)) != -1) {
+            total += n;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,74 @@
+package com.sismics.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preparation of a skewed page for OCR, with the adaptive scaling and downsampled deskew
+ * and with the upscaling to 3500px and full size deskew as before.
+ * Run with:
+ * mvn -P dev,jmh -pl docs-core test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp docs-core/target/test-classes:docs-core/target/classes:$(cat docs-core/target/cp.txt) org.openjdk.jmh.Main OcrImageUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OcrImageUtilBenchmark {
+    /**
+     * Resolution of the scanned letter page, in DPI.
+     */
+    @Param({"150", "300", "600"})
+    private int dpi;
+
+    /**
+     * Scanned page.
+     */
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        int width = dpi * 17 / 2;
+        int height = dpi * 11;
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLACK);
+        g.rotate(Math.toRadians(2), width / 2.0, height / 2.0);
+        g.setFont(new Font(Font.SERIF, Font.PLAIN, dpi / 6));
+        for (int y = dpi; y < height - dpi; y += dpi / 4) {
+            g.drawString("All human beings are born free and equal in dignity and rights.", dpi, y);
+        }
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage prepare() {
+        return OcrImageUtil.prepare(image);
+    }
+
+    @Benchmark
+    public BufferedImage resizeAndDeskew() {
+        BufferedImage resizedImage = Scalr.resize(image, Scalr.Method.AUTOMATIC, Scalr.Mode.AUTOMATIC, 3500, Scalr.OP_ANTIALIAS, Scalr.OP_GRAYSCALE);
+        ImageDeskew imageDeskew = new ImageDeskew(resizedImage);
+        BufferedImage deskewedImage = Scalr.rotate(resizedImage, - imageDeskew.getSkewAngle(), Scalr.OP_ANTIALIAS, Scalr.OP_GRAYSCALE);
+        resizedImage.flush();
+        return deskewedImage;
+    }
+}
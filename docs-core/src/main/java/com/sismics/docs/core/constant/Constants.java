@@ -83,6 +83,98 @@ public class Constants {
      */
     public static final String BCRYPT_WORK_ENV = "DOCS_BCRYPT_WORK";
 
+    /**
+     * Lucene near-real-time indexing environment variables.
+     * The refresh interval is in milliseconds, the commit interval in seconds.
+     */
+    public static final String LUCENE_REFRESH_INTERVAL_ENV = "DOCS_LUCENE_REFRESH_INTERVAL";
+    public static final String LUCENE_COMMIT_INTERVAL_ENV = "DOCS_LUCENE_COMMIT_INTERVAL";
+    public static final String LUCENE_COMMIT_POLICY_ENV = "DOCS_LUCENE_COMMIT_POLICY";
+
+    /**
+     * Minimum interval between two rebuilds of the search suggester (in seconds) environment variable.
+     */
+    public static final String LUCENE_SUGGESTER_REBUILD_INTERVAL_ENV = "DOCS_LUCENE_SUGGESTER_REBUILD_INTERVAL";
+
+    /**
+     * Search highlighting budget environment variables.
+     * The maximum length is in characters of content per document, the maximum time in milliseconds per search.
+     */
+    public static final String LUCENE_HIGHLIGHT_MAX_LENGTH_ENV = "DOCS_LUCENE_HIGHLIGHT_MAX_LENGTH";
+    public static final String LUCENE_HIGHLIGHT_MAX_TIME_ENV = "DOCS_LUCENE_HIGHLIGHT_MAX_TIME";
+
+    /**
+     * Number of threads indexing while the search index is rebuilt environment variable.
+     */
+    public static final String LUCENE_REBUILD_THREADS_ENV = "DOCS_LUCENE_REBUILD_THREADS";
+
+    /**
+     * Size of the in-memory cache of the fresh Lucene segments (in MB, 0 to disable) environment variable.
+     */
+    public static final String LUCENE_NRT_CACHE_SIZE_ENV = "DOCS_LUCENE_NRT_CACHE_SIZE";
+
+    /**
+     * Lifecycle of the JPA persistence context environment variable (CLEAR by default, or REQUEST).
+     */
+    public static final String PERSISTENCE_CONTEXT_MODE_ENV = "DOCS_PERSISTENCE_CONTEXT_MODE";
+
+    /**
+     * Second-level cache environment variables.
+     * The maximum size is in entries per cache region, the time to live in seconds.
+     */
+    public static final String CACHE_MAX_SIZE_ENV = "DOCS_CACHE_MAX_SIZE";
+    public static final String CACHE_TTL_ENV = "DOCS_CACHE_TTL";
+
+    /**
+     * Authenticated principal cache environment variables.
+     * The maximum size is in entries, the time to live in seconds (0 to disable).
+     */
+    public static final String PRINCIPAL_CACHE_MAX_SIZE_ENV = "DOCS_PRINCIPAL_CACHE_MAX_SIZE";
+    public static final String PRINCIPAL_CACHE_TTL_ENV = "DOCS_PRINCIPAL_CACHE_TTL";
+
+    /**
+     * JWT issuer keys cache environment variables.
+     * The time to live and the minimum time between two fetches of the keys of an issuer are in seconds.
+     */
+    public static final String JWKS_CACHE_TTL_ENV = "DOCS_JWKS_CACHE_TTL";
+    public static final String JWKS_MIN_REFRESH_INTERVAL_ENV = "DOCS_JWKS_MIN_REFRESH_INTERVAL";
+
+    /**
+     * Number of keys derived from the users private keys kept in memory (0 to disable) environment variable.
+     */
+    public static final String ENCRYPTION_KEY_CACHE_SIZE_ENV = "DOCS_ENCRYPTION_KEY_CACHE_SIZE";
+
+    /**
+     * ZIP export environment variables.
+     * The number of threads decrypting the files, and the number of files decrypted ahead of the one being written.
+     */
+    public static final String EXPORT_THREADS_ENV = "DOCS_EXPORT_THREADS";
+    public static final String EXPORT_PREFETCH_ENV = "DOCS_EXPORT_PREFETCH";
+
+    /**
+     * File processing environment variables.
+     * The number of files processed at once, and the number of queued files above which uploads are refused.
+     */
+    public static final String PROCESSING_THREADS_ENV = "DOCS_PROCESSING_THREADS";
+    public static final String PROCESSING_QUEUE_SIZE_ENV = "DOCS_PROCESSING_QUEUE_SIZE";
+
+    /**
+     * OCR environment variables.
+     * The number of images recognized at once across all files, and the time limit in seconds for one image.
+     */
+    public static final String OCR_THREADS_ENV = "DOCS_OCR_THREADS";
+    public static final String OCR_TIMEOUT_ENV = "DOCS_OCR_TIMEOUT";
+
+    /**
+     * Maximum size in bytes of the cache of extracted contents, 0 to disable it.
+     */
+    public static final String EXTRACTION_CACHE_SIZE_ENV = "DOCS_EXTRACTION_CACHE_SIZE";
+
+    /**
+     * Maximum size in bytes of the cache of PDF exports, the oldest exports are deleted above it.
+     */
+    public static final String PDF_EXPORT_CACHE_SIZE_ENV = "DOCS_PDF_EXPORT_CACHE_SIZE";
+
     /**
      * Expiration time of the password recovery in hours.
      */
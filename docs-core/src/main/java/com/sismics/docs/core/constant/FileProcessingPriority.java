@@ -0,0 +1,21 @@
+package com.sismics.docs.core.constant;
+
+/**
+ * Priority of a file processing, from the highest to the lowest.
+ */
+public enum FileProcessingPriority {
+    /**
+     * File uploaded by a user waiting for it.
+     */
+    UPLOAD,
+
+    /**
+     * File processed again on demand.
+     */
+    REPROCESS,
+
+    /**
+     * Files imported or processed in bulk.
+     */
+    BATCH
+}
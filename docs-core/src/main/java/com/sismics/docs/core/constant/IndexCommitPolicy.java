@@ -0,0 +1,18 @@
+package com.sismics.docs.core.constant;
+
+/**
+ * Durability policy of the search index.
+ */
+public enum IndexCommitPolicy {
+    /**
+     * Commit the index after each mutation.
+     * Slow but nothing has to be replayed after a crash.
+     */
+    IMMEDIATE,
+
+    /**
+     * Commit the index periodically.
+     * Mutations not yet committed are journaled and replayed from the database after a crash.
+     */
+    BATCHED
+}
@@ -0,0 +1,19 @@
+package com.sismics.docs.core.constant;
+
+/**
+ * Lifecycle of the JPA persistence context of a request.
+ */
+public enum PersistenceContextMode {
+    /**
+     * Entities stay cached for the whole request.
+     * Changes are flushed before the queries reading the modified tables, and at commit.
+     * Opt-in, the entities already loaded are not refreshed by the bulk updates.
+     */
+    REQUEST,
+
+    /**
+     * Flush and clear the persistence context each time the entity manager is accessed.
+     * Disables the first-level cache, default mode.
+     */
+    CLEAR
+}
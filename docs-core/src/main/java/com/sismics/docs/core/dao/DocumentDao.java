@@ -45,16 +45,16 @@ public class DocumentDao {
     }
     
     /**
-     * Returns the list of all active documents.
+     * Returns a page of active document IDs, in ascending order.
      *
-     * @param offset Offset
+     * @param afterId Last ID of the previous page, null for the first page
      * @param limit Limit
-     * @return List of documents
+     * @return List of document IDs
      */
-    public List<Document> findAll(int offset, int limit) {
+    public List<String> findIdsAfter(String afterId, int limit) {
         EntityManager em = ThreadLocalContext.get().getEntityManager();
-        TypedQuery<Document> q = em.createQuery("select d from Document d where d.deleteDate is null", Document.class);
-        q.setFirstResult(offset);
+        TypedQuery<String> q = em.createQuery("select d.id from Document d where d.deleteDate is null and d.id > :afterId order by d.id", String.class);
+        q.setParameter("afterId", afterId == null ? "" : afterId);
         q.setMaxResults(limit);
         return q.getResultList();
     }
@@ -188,6 +188,19 @@ public class DocumentDao {
         }
     }
     
+    /**
+     * Returns active documents by their IDs.
+     *
+     * @param idList Document IDs
+     * @return List of documents
+     */
+    public List<Document> getByIds(List<String> idList) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        TypedQuery<Document> q = em.createQuery("select d from Document d where d.id in :ids and d.deleteDate is null", Document.class);
+        q.setParameter("ids", idList);
+        return q.getResultList();
+    }
+
     /**
      * Update a document and log the action.
      * 
@@ -196,12 +209,12 @@ public class DocumentDao {
      * @return Updated document
      */
     public Document update(Document document, String userId) {
+        // Get the document, unless it is still managed by the persistence context
         EntityManager em = ThreadLocalContext.get().getEntityManager();
-
-        // Get the document
-        TypedQuery<Document> q = em.createQuery("select d from Document d where d.id = :id and d.deleteDate is null", Document.class);
-        q.setParameter("id", document.getId());
-        Document documentDb = q.getSingleResult();
+        Document documentDb = em.contains(document) ? document : getById(document.getId());
+        if (documentDb == null) {
+            throw new NoResultException();
+        }
 
         // Update the document
         documentDb.setTitle(document.getTitle());
@@ -232,8 +245,15 @@ public class DocumentDao {
      */
     public void updateFileId(Document document) {
         EntityManager em = ThreadLocalContext.get().getEntityManager();
+        if (em.contains(document)) {
+            // The managed document is written once at flush time
+            document.setUpdateDate(new Date());
+            return;
+        }
+
         Query query = em.createNativeQuery("update T_DOCUMENT d set DOC_IDFILE_C = :fileId, DOC_UPDATEDATE_D = :updateDate where d.DOC_ID_C = :id");
-        query.setParameter("updateDate", new Date());
+        document.setUpdateDate(new Date());
+        query.setParameter("updateDate", document.getUpdateDate());
         query.setParameter("fileId", document.getFileId());
         query.setParameter("id", document.getId());
         query.executeUpdate();
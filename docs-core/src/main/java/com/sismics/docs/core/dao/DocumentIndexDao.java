@@ -0,0 +1,157 @@
+package com.sismics.docs.core.dao;
+
+import com.sismics.docs.core.constant.MetadataType;
+import com.sismics.docs.core.dao.dto.DocumentIndexDto;
+import com.sismics.docs.core.dao.dto.DocumentMetadataDto;
+import com.sismics.util.context.ThreadLocalContext;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Document index DAO, reading the data denormalized in the search index.
+ */
+public class DocumentIndexDao {
+    /**
+     * Returns the data of documents to denormalize in the search index.
+     *
+     * @param documentIdList Document IDs
+     * @return Data indexed by document ID
+     */
+    public Map<String, DocumentIndexDto> getIndexDtoMap(Collection<String> documentIdList) {
+        Map<String, DocumentIndexDto> documentIndexDtoMap = new HashMap<>();
+        for (String documentId : documentIdList) {
+            documentIndexDtoMap.put(documentId, new DocumentIndexDto());
+        }
+        if (documentIdList.isEmpty()) {
+            return documentIndexDtoMap;
+        }
+
+        addReadTargets(documentIndexDtoMap, documentIdList);
+        addTags(documentIndexDtoMap, documentIdList);
+        addMimeTypes(documentIndexDtoMap, documentIdList);
+        addShareCounts(documentIndexDtoMap, documentIdList);
+        addRouteTargets(documentIndexDtoMap, documentIdList);
+        addMetadata(documentIndexDtoMap, documentIdList);
+        return documentIndexDtoMap;
+    }
+
+    /**
+     * Add the read permissions given directly on the documents.
+     *
+     * @param documentIndexDtoMap Data indexed by document ID
+     * @param documentIdList Document IDs
+     */
+    private void addReadTargets(Map<String, DocumentIndexDto> documentIndexDtoMap, Collection<String> documentIdList) {
+        List<Object[]> resultList = getResultList("select a.ACL_SOURCEID_C, a.ACL_TARGETID_C from T_ACL a " +
+                " where a.ACL_SOURCEID_C in (:documentIdList) and a.ACL_PERM_C = 'READ' and a.ACL_DELETEDATE_D is null", documentIdList);
+        for (Object[] o : resultList) {
+            documentIndexDtoMap.get((String) o[0]).getReadTargetIdSet().add((String) o[1]);
+        }
+    }
+
+    /**
+     * Add the tags and the read permissions given through them.
+     *
+     * @param documentIndexDtoMap Data indexed by document ID
+     * @param documentIdList Document IDs
+     */
+    private void addTags(Map<String, DocumentIndexDto> documentIndexDtoMap, Collection<String> documentIdList) {
+        List<Object[]> resultList = getResultList("select dt.DOT_IDDOCUMENT_C, dt.DOT_IDTAG_C, a.ACL_TARGETID_C from T_DOCUMENT_TAG dt " +
+                " left join T_ACL a on a.ACL_SOURCEID_C = dt.DOT_IDTAG_C and a.ACL_PERM_C = 'READ' and a.ACL_DELETEDATE_D is null " +
+                " where dt.DOT_IDDOCUMENT_C in (:documentIdList) and dt.DOT_DELETEDATE_D is null", documentIdList);
+        for (Object[] o : resultList) {
+            DocumentIndexDto documentIndexDto = documentIndexDtoMap.get((String) o[0]);
+            documentIndexDto.getTagIdSet().add((String) o[1]);
+            if (o[2] != null) {
+                documentIndexDto.getReadTargetIdSet().add((String) o[2]);
+            }
+        }
+    }
+
+    /**
+     * Add the MIME types of the files.
+     *
+     * @param documentIndexDtoMap Data indexed by document ID
+     * @param documentIdList Document IDs
+     */
+    private void addMimeTypes(Map<String, DocumentIndexDto> documentIndexDtoMap, Collection<String> documentIdList) {
+        List<Object[]> resultList = getResultList("select f.FIL_IDDOC_C, f.FIL_MIMETYPE_C from T_FILE f " +
+                " where f.FIL_IDDOC_C in (:documentIdList) and f.FIL_DELETEDATE_D is null", documentIdList);
+        for (Object[] o : resultList) {
+            if (o[1] != null) {
+                documentIndexDtoMap.get((String) o[0]).getMimeTypeSet().add((String) o[1]);
+            }
+        }
+    }
+
+    /**
+     * Add the number of shares.
+     *
+     * @param documentIndexDtoMap Data indexed by document ID
+     * @param documentIdList Document IDs
+     */
+    private void addShareCounts(Map<String, DocumentIndexDto> documentIndexDtoMap, Collection<String> documentIdList) {
+        List<Object[]> resultList = getResultList("select a.ACL_SOURCEID_C, count(s.SHA_ID_C) from T_SHARE s, T_ACL a " +
+                " where a.ACL_TARGETID_C = s.SHA_ID_C and a.ACL_SOURCEID_C in (:documentIdList) " +
+                " and a.ACL_DELETEDATE_D is null and s.SHA_DELETEDATE_D is null group by a.ACL_SOURCEID_C", documentIdList);
+        for (Object[] o : resultList) {
+            documentIndexDtoMap.get((String) o[0]).setShareCount(((Number) o[1]).intValue());
+        }
+    }
+
+    /**
+     * Add the target of the current route step.
+     *
+     * @param documentIndexDtoMap Data indexed by document ID
+     * @param documentIdList Document IDs
+     */
+    private void addRouteTargets(Map<String, DocumentIndexDto> documentIndexDtoMap, Collection<String> documentIdList) {
+        List<Object[]> resultList = getResultList("select r.RTE_IDDOCUMENT_C, rs.RTP_IDTARGET_C from T_ROUTE_STEP rs " +
+                " join T_ROUTE r on r.RTE_ID_C = rs.RTP_IDROUTE_C and r.RTE_DELETEDATE_D is null " +
+                " where r.RTE_IDDOCUMENT_C in (:documentIdList) and rs.RTP_DELETEDATE_D is null and rs.RTP_ENDDATE_D is null " +
+                " order by rs.RTP_ORDER_N desc", documentIdList);
+        for (Object[] o : resultList) {
+            // Ordered by step, the first pending step wins
+            documentIndexDtoMap.get((String) o[0]).setRouteTargetId((String) o[1]);
+        }
+    }
+
+    /**
+     * Add the custom metadata values.
+     *
+     * @param documentIndexDtoMap Data indexed by document ID
+     * @param documentIdList Document IDs
+     */
+    private void addMetadata(Map<String, DocumentIndexDto> documentIndexDtoMap, Collection<String> documentIdList) {
+        List<Object[]> resultList = getResultList("select dm.DME_IDDOCUMENT_C, dm.DME_IDMETADATA_C, dm.DME_VALUE_C, m.MET_TYPE_C from T_DOCUMENT_METADATA dm " +
+                " join T_METADATA m on m.MET_ID_C = dm.DME_IDMETADATA_C and m.MET_DELETEDATE_D is null " +
+                " where dm.DME_IDDOCUMENT_C in (:documentIdList) and dm.DME_VALUE_C is not null", documentIdList);
+        for (Object[] o : resultList) {
+            documentIndexDtoMap.get((String) o[0]).getMetadataList().add(new DocumentMetadataDto()
+                    .setDocumentId((String) o[0])
+                    .setMetadataId((String) o[1])
+                    .setValue((String) o[2])
+                    .setType(MetadataType.valueOf((String) o[3])));
+        }
+    }
+
+    /**
+     * Run a native query on a list of documents.
+     *
+     * @param sql SQL query, with a documentIdList parameter
+     * @param documentIdList Document IDs
+     * @return Rows
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object[]> getResultList(String sql, Collection<String> documentIdList) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query q = em.createNativeQuery(sql);
+        q.setParameter("documentIdList", documentIdList);
+        return q.getResultList();
+    }
+}
@@ -59,6 +59,32 @@ public class FileDao {
         return q.getResultList();
     }
     
+    /**
+     * Returns a page of active file IDs, in ascending order.
+     *
+     * @param afterId Last ID of the previous page, null for the first page
+     * @param limit Limit
+     * @return List of file IDs
+     */
+    public List<String> findIdsAfter(String afterId, int limit) {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        TypedQuery<String> q = em.createQuery("select f.id from File f where f.deleteDate is null and f.id > :afterId order by f.id", String.class);
+        q.setParameter("afterId", afterId == null ? "" : afterId);
+        q.setMaxResults(limit);
+        return q.getResultList();
+    }
+
+    /**
+     * Returns the number of active files.
+     *
+     * @return Number of files
+     */
+    public long getFileCount() {
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        Query query = em.createNativeQuery("select count(f.FIL_ID_C) from T_FILE f where f.FIL_DELETEDATE_D is null");
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
     /**
      * Returns the list of all files from a user.
      * 
@@ -148,12 +174,11 @@ public class FileDao {
      * @return Updated file
      */
     public File update(File file) {
-        EntityManager em = ThreadLocalContext.get().getEntityManager();
-        
         // Get the file
-        TypedQuery<File> q = em.createQuery("select f from File f where f.id = :id and f.deleteDate is null", File.class);
-        q.setParameter("id", file.getId());
-        File fileDb = q.getSingleResult();
+        File fileDb = getActiveById(file.getId());
+        if (fileDb == null) {
+            throw new NoResultException();
+        }
 
         // Update the file
         fileDb.setDocumentId(file.getDocumentId());
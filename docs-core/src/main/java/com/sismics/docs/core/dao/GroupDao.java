@@ -190,7 +190,7 @@ public class GroupDao {
         // Perform the search
         QueryParam queryParam = QueryUtil.getSortedQueryParam(new QueryParam(sb.toString(), parameterMap), sortCriteria);
         @SuppressWarnings("unchecked")
-        List<Object[]> l = QueryUtil.getNativeQuery(queryParam).getResultList();
+        List<Object[]> l = QueryUtil.getCachedNativeQuery(queryParam, "T_GROUP", "T_USER_GROUP").getResultList();
         
         // Assemble results
         List<GroupDto> groupDtoList = new ArrayList<>();
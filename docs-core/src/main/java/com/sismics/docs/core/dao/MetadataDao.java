@@ -129,7 +129,7 @@ public class MetadataDao {
         // Perform the search
         QueryParam queryParam = QueryUtil.getSortedQueryParam(new QueryParam(sb.toString(), parameterMap), sortCriteria);
         @SuppressWarnings("unchecked")
-        List<Object[]> l = QueryUtil.getNativeQuery(queryParam).getResultList();
+        List<Object[]> l = QueryUtil.getCachedNativeQuery(queryParam, "T_METADATA").getResultList();
 
         // Assemble results
         List<MetadataDto> dtoList = new ArrayList<>();
@@ -1,10 +1,12 @@
 package com.sismics.docs.core.dao;
 
 import com.google.common.collect.Sets;
-import com.sismics.util.context.ThreadLocalContext;
+import com.sismics.docs.core.util.jpa.QueryParam;
+import com.sismics.docs.core.util.jpa.QueryUtil;
 
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -21,12 +23,12 @@ public class RoleBaseFunctionDao {
      */
     @SuppressWarnings("unchecked")
     public Set<String> findByRoleId(Set<String> roleIdSet) {
-        EntityManager em = ThreadLocalContext.get().getEntityManager();
         StringBuilder sb = new StringBuilder("select rbf.RBF_IDBASEFUNCTION_C from T_ROLE_BASE_FUNCTION rbf, T_ROLE r");
         sb.append(" where rbf.RBF_IDROLE_C in (:roleIdSet) and rbf.RBF_DELETEDATE_D is null");
         sb.append(" and r.ROL_ID_C = rbf.RBF_IDROLE_C and r.ROL_DELETEDATE_D is null");
-        Query q = em.createNativeQuery(sb.toString());
-        q.setParameter("roleIdSet", roleIdSet);
+        Map<String, Object> parameterMap = new HashMap<>();
+        parameterMap.put("roleIdSet", roleIdSet);
+        Query q = QueryUtil.getCachedNativeQuery(new QueryParam(sb.toString(), parameterMap), "T_ROLE_BASE_FUNCTION", "T_ROLE");
         return Sets.newHashSet(q.getResultList());
     }
 }
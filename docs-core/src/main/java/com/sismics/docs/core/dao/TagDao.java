@@ -204,8 +204,12 @@ public class TagDao {
 
         // Perform the search
         QueryParam queryParam = QueryUtil.getSortedQueryParam(new QueryParam(sb.toString(), parameterMap), sortCriteria);
+        // Tags of a document change too often to be worth caching
+        Query query = criteria.getDocumentId() == null
+                ? QueryUtil.getCachedNativeQuery(queryParam, "T_TAG", "T_USER", "T_ACL")
+                : QueryUtil.getNativeQuery(queryParam);
         @SuppressWarnings("unchecked")
-        List<Object[]> l = QueryUtil.getNativeQuery(queryParam).getResultList();
+        List<Object[]> l = query.getResultList();
 
         // Assemble results
         List<TagDto> tagDtoList = new ArrayList<>();
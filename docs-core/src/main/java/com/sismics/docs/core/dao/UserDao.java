@@ -22,6 +22,7 @@ import com.sismics.util.context.ThreadLocalContext;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
 import java.sql.Timestamp;
 import java.util.*;
 
@@ -217,6 +218,26 @@ public class UserDao {
         }
     }
     
+    /**
+     * Gets the private keys of users.
+     *
+     * @param idList Users IDs
+     * @return Private keys by user ID
+     */
+    public Map<String, String> getPrivateKeyMap(Collection<String> idList) {
+        Map<String, String> privateKeyMap = new HashMap<>();
+        if (idList.isEmpty()) {
+            return privateKeyMap;
+        }
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        TypedQuery<Object[]> q = em.createQuery("select u.id, u.privateKey from User u where u.id in :ids", Object[].class);
+        q.setParameter("ids", idList);
+        for (Object[] o : q.getResultList()) {
+            privateKeyMap.put((String) o[0], (String) o[1]);
+        }
+        return privateKeyMap;
+    }
+
     /**
      * Gets an active user by its username.
      * 
@@ -88,6 +88,11 @@ public class DocumentCriteria {
      */
     private List<String> titleList = new ArrayList<>();
 
+    /**
+     * Custom metadata values, all of them must match.
+     */
+    private List<DocumentMetadataCriteria> metadataList = new ArrayList<>();
+
     public List<String> getTargetIdList() {
         return targetIdList;
     }
@@ -195,4 +200,8 @@ public class DocumentCriteria {
     public List<String> getTitleList() {
         return titleList;
     }
+
+    public List<DocumentMetadataCriteria> getMetadataList() {
+        return metadataList;
+    }
 }
@@ -0,0 +1,79 @@
+package com.sismics.docs.core.dao.criteria;
+
+import com.sismics.docs.core.constant.MetadataType;
+
+/**
+ * Criteria on a custom metadata value of a document.
+ * Either an exact value or a range is searched, ranges are only supported on numeric and date metadata.
+ */
+public class DocumentMetadataCriteria {
+    /**
+     * Metadata ID.
+     */
+    private String metadataId;
+
+    /**
+     * Metadata type.
+     */
+    private MetadataType type;
+
+    /**
+     * Exact value.
+     */
+    private String value;
+
+    /**
+     * Minimum value (inclusive), null if unbounded.
+     */
+    private String min;
+
+    /**
+     * Maximum value (inclusive), null if unbounded.
+     */
+    private String max;
+
+    public String getMetadataId() {
+        return metadataId;
+    }
+
+    public DocumentMetadataCriteria setMetadataId(String metadataId) {
+        this.metadataId = metadataId;
+        return this;
+    }
+
+    public MetadataType getType() {
+        return type;
+    }
+
+    public DocumentMetadataCriteria setType(MetadataType type) {
+        this.type = type;
+        return this;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public DocumentMetadataCriteria setValue(String value) {
+        this.value = value;
+        return this;
+    }
+
+    public String getMin() {
+        return min;
+    }
+
+    public DocumentMetadataCriteria setMin(String min) {
+        this.min = min;
+        return this;
+    }
+
+    public String getMax() {
+        return max;
+    }
+
+    public DocumentMetadataCriteria setMax(String max) {
+        this.max = max;
+        return this;
+    }
+}
@@ -0,0 +1,27 @@
+package com.sismics.docs.core.dao.dto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Facets of a document search, counted on the whole result set.
+ */
+public class DocumentFacetsDto {
+    /**
+     * Number of matching documents by tag ID.
+     */
+    private Map<String, Integer> tagCountMap = new HashMap<>();
+
+    /**
+     * Facets of the custom metadata by metadata ID.
+     */
+    private Map<String, MetadataFacetDto> metadataFacetMap = new HashMap<>();
+
+    public Map<String, Integer> getTagCountMap() {
+        return tagCountMap;
+    }
+
+    public Map<String, MetadataFacetDto> getMetadataFacetMap() {
+        return metadataFacetMap;
+    }
+}
@@ -0,0 +1,75 @@
+package com.sismics.docs.core.dao.dto;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Document data denormalized in the search index.
+ */
+public class DocumentIndexDto {
+    /**
+     * Targets allowed to read the document, directly or through a tag.
+     */
+    private Set<String> readTargetIdSet = new HashSet<>();
+
+    /**
+     * Tag IDs.
+     */
+    private Set<String> tagIdSet = new HashSet<>();
+
+    /**
+     * MIME types of the files.
+     */
+    private Set<String> mimeTypeSet = new HashSet<>();
+
+    /**
+     * Number of shares.
+     */
+    private int shareCount;
+
+    /**
+     * Target of the current route step.
+     */
+    private String routeTargetId;
+
+    /**
+     * Custom metadata values.
+     */
+    private List<DocumentMetadataDto> metadataList = new ArrayList<>();
+
+    public Set<String> getReadTargetIdSet() {
+        return readTargetIdSet;
+    }
+
+    public Set<String> getTagIdSet() {
+        return tagIdSet;
+    }
+
+    public Set<String> getMimeTypeSet() {
+        return mimeTypeSet;
+    }
+
+    public int getShareCount() {
+        return shareCount;
+    }
+
+    public DocumentIndexDto setShareCount(int shareCount) {
+        this.shareCount = shareCount;
+        return this;
+    }
+
+    public String getRouteTargetId() {
+        return routeTargetId;
+    }
+
+    public DocumentIndexDto setRouteTargetId(String routeTargetId) {
+        this.routeTargetId = routeTargetId;
+        return this;
+    }
+
+    public List<DocumentMetadataDto> getMetadataList() {
+        return metadataList;
+    }
+}
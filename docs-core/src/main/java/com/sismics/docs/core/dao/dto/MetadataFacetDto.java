@@ -0,0 +1,77 @@
+package com.sismics.docs.core.dao.dto;
+
+import com.sismics.docs.core.constant.MetadataType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Facet of a custom metadata.
+ * Values are counted on string and boolean metadata, numeric and date metadata only have their bounds.
+ */
+public class MetadataFacetDto {
+    /**
+     * Metadata type.
+     */
+    private MetadataType type;
+
+    /**
+     * Number of matching documents having a value.
+     */
+    private int count;
+
+    /**
+     * Number of matching documents by value, most frequent first.
+     */
+    private Map<String, Integer> valueCountMap = new LinkedHashMap<>();
+
+    /**
+     * Minimum value.
+     */
+    private Number min;
+
+    /**
+     * Maximum value.
+     */
+    private Number max;
+
+    public MetadataType getType() {
+        return type;
+    }
+
+    public MetadataFacetDto setType(MetadataType type) {
+        this.type = type;
+        return this;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public MetadataFacetDto setCount(int count) {
+        this.count = count;
+        return this;
+    }
+
+    public Map<String, Integer> getValueCountMap() {
+        return valueCountMap;
+    }
+
+    public Number getMin() {
+        return min;
+    }
+
+    public MetadataFacetDto setMin(Number min) {
+        this.min = min;
+        return this;
+    }
+
+    public Number getMax() {
+        return max;
+    }
+
+    public MetadataFacetDto setMax(Number max) {
+        this.max = max;
+        return this;
+    }
+}
@@ -1,6 +1,7 @@
 package com.sismics.docs.core.event;
 
 import com.google.common.base.MoreObjects;
+import com.sismics.docs.core.constant.FileProcessingPriority;
 
 import java.nio.file.Path;
 
@@ -25,6 +26,16 @@ public abstract class FileEvent extends UserEvent {
      */
     private Path unencryptedFile;
 
+    /**
+     * Processing priority.
+     */
+    private FileProcessingPriority priority = FileProcessingPriority.UPLOAD;
+
+    /**
+     * True to extract the content again instead of reading it from the cache.
+     */
+    private boolean bypassCache;
+
     public String getFileId() {
         return fileId;
     }
@@ -50,11 +61,29 @@ public abstract class FileEvent extends UserEvent {
         return this;
     }
 
+    public FileProcessingPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(FileProcessingPriority priority) {
+        this.priority = priority;
+    }
+
+    public boolean isBypassCache() {
+        return bypassCache;
+    }
+
+    public void setBypassCache(boolean bypassCache) {
+        this.bypassCache = bypassCache;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
             .add("fileId", fileId)
             .add("language", language)
+            .add("priority", priority)
+            .add("bypassCache", bypassCache)
             .toString();
     }
 }
\ No newline at end of file
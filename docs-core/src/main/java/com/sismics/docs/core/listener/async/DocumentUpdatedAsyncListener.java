@@ -10,6 +10,7 @@ import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.docs.core.model.jpa.Contributor;
 import com.sismics.docs.core.model.jpa.Document;
 import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.util.PdfUtil;
 import com.sismics.docs.core.util.TransactionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +40,9 @@ public class DocumentUpdatedAsyncListener {
             log.info("Document updated event: " + event.toString());
         }
 
+        // The files or metadata may have changed, the cached PDF exports are outdated
+        PdfUtil.deleteCachedPdf(event.getDocumentId());
+
         TransactionUtil.handle(() -> {
             // Get the document
             DocumentDao documentDao = new DocumentDao();
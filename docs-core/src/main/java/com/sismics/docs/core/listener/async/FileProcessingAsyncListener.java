@@ -12,6 +12,7 @@ import com.sismics.docs.core.model.jpa.File;
 import com.sismics.docs.core.model.jpa.User;
 import com.sismics.docs.core.util.DirectoryUtil;
 import com.sismics.docs.core.util.EncryptionUtil;
+import com.sismics.docs.core.util.ExtractionCacheUtil;
 import com.sismics.docs.core.util.FileUtil;
 import com.sismics.docs.core.util.TransactionUtil;
 import com.sismics.docs.core.util.format.FormatHandler;
@@ -53,7 +54,7 @@ public class FileProcessingAsyncListener {
             log.info("File created event: " + event.toString());
         }
 
-        processFile(event, true);
+        submit(event, true);
     }
 
     /**
@@ -66,12 +67,23 @@ public class FileProcessingAsyncListener {
     public void on(final FileUpdatedAsyncEvent event) {
         log.info("File updated event: " + event.toString());
 
-        processFile(event, false);
+        submit(event, false);
+    }
+
+    /**
+     * Queue a file on the file processing service, the asynchronous bus is not held while the file is processed.
+     *
+     * @param event File event
+     * @param isFileCreated True if the file was just created
+     */
+    private void submit(FileEvent event, boolean isFileCreated) {
+        AppContext.getInstance().getFileProcessingService().submit(event.getPriority(), event.getUserId(),
+                () -> processFile(event, isFileCreated));
     }
 
     /**
      * Process a file :
-     * Generate thumbnails
+     * Generate thumbnails and PDF rendition
      * Extract and save text content
      *
      * @param event File event
@@ -170,17 +182,78 @@ public class FileProcessingAsyncListener {
             log.error("Unable to generate thumbnails for: " + file, e);
         }
 
+        // Generate a PDF rendition reused by the PDF exports
+        generatePdfRendition(event, user, file, formatHandler);
+
+        // Look for the content already extracted from the same data, unless a new extraction is forced
+        String cacheKey = getCacheKey(event, file, formatHandler);
+        String content = event.isBypassCache() ? null : ExtractionCacheUtil.get(cacheKey);
+
         // Extract text content from the file
-        long startTime = System.currentTimeMillis();
-        String content = null;
-        log.info("Start extracting content from: " + file);
+        if (content == null) {
+            long startTime = System.currentTimeMillis();
+            log.info("Start extracting content from: " + file);
+            try {
+                content = formatHandler.extractContent(event.getLanguage(), event.getUnencryptedFile(),
+                        progress -> FileUtil.setProcessingProgress(file.getId(), progress));
+                if (formatHandler.isContentComplete()) {
+                    ExtractionCacheUtil.put(cacheKey, content);
+                }
+            } catch (Throwable e) {
+                log.error("Error extracting content from: " + file, e);
+            }
+            log.info(MessageFormat.format("File content extracted in {0}ms: " + file.getId(), System.currentTimeMillis() - startTime));
+        } else {
+            log.info("File content found in the extraction cache: " + file.getId());
+        }
+
+        // Release the file loaded by the format handler
         try {
-            content = formatHandler.extractContent(event.getLanguage(), event.getUnencryptedFile());
+            formatHandler.close();
         } catch (Throwable e) {
-            log.error("Error extracting content from: " + file, e);
+            log.error("Error closing the format handler of: " + file, e);
         }
-        log.info(MessageFormat.format("File content extracted in {0}ms: " + file.getId(), System.currentTimeMillis() - startTime));
 
         return content;
     }
+
+    /**
+     * Generate an encrypted PDF rendition of a file.
+     *
+     * @param event File event
+     * @param user User whom created the file
+     * @param file Fresh file
+     * @param formatHandler Format handler of the file
+     */
+    private void generatePdfRendition(FileEvent event, User user, File file, FormatHandler formatHandler) {
+        try {
+            Path pdfFile = formatHandler.generatePdf(event.getUnencryptedFile());
+            if (pdfFile != null) {
+                Cipher cipher = EncryptionUtil.getEncryptionCipher(user.getPrivateKey());
+                Path outputFile = DirectoryUtil.getStorageDirectory().resolve(file.getId() + "_pdf");
+                try (OutputStream outputStream = new CipherOutputStream(Files.newOutputStream(outputFile), cipher)) {
+                    Files.copy(pdfFile, outputStream);
+                }
+            }
+        } catch (Throwable e) {
+            log.error("Unable to generate a PDF rendition for: " + file, e);
+        }
+    }
+
+    /**
+     * Returns the extraction cache key of a file.
+     *
+     * @param event File event
+     * @param file Fresh file
+     * @param formatHandler Format handler of the file
+     * @return Cache key, null if it can't be computed
+     */
+    private String getCacheKey(FileEvent event, File file, FormatHandler formatHandler) {
+        try {
+            return ExtractionCacheUtil.getKey(event.getUnencryptedFile(), event.getLanguage(), formatHandler);
+        } catch (Throwable e) {
+            log.error("Unable to compute the extraction cache key of: " + file, e);
+            return null;
+        }
+    }
 }
@@ -8,9 +8,11 @@ import com.sismics.docs.core.constant.Constants;
 import com.sismics.docs.core.dao.UserDao;
 import com.sismics.docs.core.listener.async.*;
 import com.sismics.docs.core.model.jpa.User;
+import com.sismics.docs.core.service.FileProcessingService;
 import com.sismics.docs.core.service.FileService;
 import com.sismics.docs.core.service.FileSizeService;
 import com.sismics.docs.core.service.InboxService;
+import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.util.PdfUtil;
 import com.sismics.docs.core.util.indexing.IndexingHandler;
 import com.sismics.util.ClasspathScanner;
@@ -21,6 +23,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -71,17 +74,54 @@ public class AppContext {
      */
     private FileSizeService fileSizeService;
 
+    /**
+     * File processing service.
+     */
+    private FileProcessingService fileProcessingService;
+
     /**
      * Asynchronous executors.
      */
     private List<ThreadPoolExecutor> asyncExecutorList;
 
+    /**
+     * Executor decrypting the files of the ZIP exports.
+     */
+    private ExecutorService exportExecutor;
+
+    /**
+     * Executor recognizing the pages of the files, shared by all files to bound the OCR concurrency.
+     */
+    private ExecutorService ocrExecutor;
+
     /**
      * Start the application context.
      */
     private void startUp() {
         resetEventBus();
 
+        // Start export executor, first as the context can be used by the services before it is fully started
+        int exportThreadCount = ConfigUtil.getEnvIntegerValue(Constants.EXPORT_THREADS_ENV,
+                Math.max(Runtime.getRuntime().availableProcessors() / 2, 2));
+        exportExecutor = Executors.newFixedThreadPool(exportThreadCount, runnable -> {
+            Thread thread = new Thread(runnable, "ZIP export");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Start OCR executor
+        int ocrThreadCount = ConfigUtil.getEnvIntegerValue(Constants.OCR_THREADS_ENV, Runtime.getRuntime().availableProcessors());
+        ocrExecutor = Executors.newFixedThreadPool(ocrThreadCount, runnable -> {
+            Thread thread = new Thread(runnable, "OCR");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Start file processing service, before the services importing files
+        fileProcessingService = new FileProcessingService();
+        fileProcessingService.startAsync();
+        fileProcessingService.awaitRunning();
+
         // Start indexing handler
         try {
             List<Class<? extends IndexingHandler>> indexingHandlerList = Lists.newArrayList(
@@ -202,6 +242,9 @@ public class AppContext {
         for (ThreadPoolExecutor executor : asyncExecutorList) {
             queueSize += executor.getTaskCount() - executor.getCompletedTaskCount();
         }
+        if (fileProcessingService != null) {
+            queueSize += fileProcessingService.getTaskCount();
+        }
         return queueSize;
     }
 
@@ -225,15 +268,25 @@ public class AppContext {
         return fileService;
     }
 
+    public FileProcessingService getFileProcessingService() {
+        return fileProcessingService;
+    }
+
+    public ExecutorService getExportExecutor() {
+        return exportExecutor;
+    }
+
+    public ExecutorService getOcrExecutor() {
+        return ocrExecutor;
+    }
+
     public void shutDown() {
-        for (ExecutorService executor : asyncExecutorList) {
-            // Shutdown executor, don't accept any more tasks (can cause error with nested events)
-            try {
-                executor.shutdown();
-                executor.awaitTermination(1, TimeUnit.MINUTES);
-            } catch (InterruptedException e) {
-                // NOP
-            }
+        shutDownAsyncExecutors();
+
+        if (fileProcessingService != null) {
+            // The processed files are indexed, stop before the indexing handler
+            fileProcessingService.stopAsync();
+            fileProcessingService.awaitTerminated();
         }
 
         if (indexingHandler != null) {
@@ -253,6 +306,29 @@ public class AppContext {
             fileSizeService.stopAsync();
         }
 
+        if (exportExecutor != null) {
+            exportExecutor.shutdownNow();
+        }
+
+        if (ocrExecutor != null) {
+            ocrExecutor.shutdownNow();
+        }
+
         instance = null;
     }
+
+    /**
+     * Shutdown the asynchronous executors, waiting for the running events.
+     */
+    private void shutDownAsyncExecutors() {
+        for (ExecutorService executor : asyncExecutorList) {
+            // Shutdown executor, don't accept any more tasks (can cause error with nested events)
+            try {
+                executor.shutdown();
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                // NOP
+            }
+        }
+    }
 }
@@ -2,10 +2,13 @@ package com.sismics.docs.core.model.jpa;
 
 import java.util.Date;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import com.google.common.base.MoreObjects;
 
@@ -16,6 +19,8 @@ import com.google.common.base.MoreObjects;
  */
 @Entity
 @Table(name = "T_GROUP")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Group implements Loggable {
     /**
      * Group ID.
@@ -4,6 +4,8 @@ import com.google.common.base.MoreObjects;
 import com.sismics.docs.core.constant.MetadataType;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.Date;
 
 /**
@@ -13,6 +15,8 @@ import java.util.Date;
  */
 @Entity
 @Table(name = "T_METADATA")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Metadata implements Loggable {
     /**
      * Metadata ID.
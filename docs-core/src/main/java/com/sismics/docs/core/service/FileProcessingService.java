@@ -0,0 +1,260 @@
+package com.sismics.docs.core.service;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.constant.FileProcessingPriority;
+import com.sismics.docs.core.util.ConfigUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * File processing service.
+ * Files are processed on dedicated threads, separated from the asynchronous event bus,
+ * by order of priority then in turn for each user, so that a bulk import doesn't hold back everyone else.
+ */
+public class FileProcessingService extends AbstractIdleService {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(FileProcessingService.class);
+
+    /**
+     * Number of files processed at once, 0 to process them synchronously.
+     */
+    private final int threadCount;
+
+    /**
+     * Number of queued files above which the service is saturated.
+     */
+    private final int queueSize;
+
+    /**
+     * Lock on the queues.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signaled when a task is queued.
+     */
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Queued tasks by priority, then by user in the order they are served.
+     */
+    private final List<LinkedHashMap<String, Deque<Runnable>>> queueList = new ArrayList<>();
+
+    /**
+     * Number of queued tasks.
+     */
+    private int queuedCount;
+
+    /**
+     * Number of running tasks.
+     */
+    private int runningCount;
+
+    /**
+     * True once the service is shutting down, the threads stop when the queues are empty.
+     */
+    private boolean draining;
+
+    /**
+     * Processing threads.
+     */
+    private ExecutorService executor;
+
+    /**
+     * Constructor of FileProcessingService, configured from the environment.
+     */
+    public FileProcessingService() {
+        this(ConfigUtil.getEnvIntegerValue(Constants.PROCESSING_THREADS_ENV, Math.max(Runtime.getRuntime().availableProcessors() / 2, 2)),
+                ConfigUtil.getEnvIntegerValue(Constants.PROCESSING_QUEUE_SIZE_ENV, 1000));
+    }
+
+    /**
+     * Constructor of FileProcessingService.
+     *
+     * @param threadCount Number of files processed at once, 0 to process them synchronously
+     * @param queueSize Number of queued files above which the service is saturated
+     */
+    public FileProcessingService(int threadCount, int queueSize) {
+        this.threadCount = threadCount;
+        this.queueSize = queueSize;
+        for (int i = 0; i < FileProcessingPriority.values().length; i++) {
+            queueList.add(new LinkedHashMap<>());
+        }
+    }
+
+    @Override
+    protected void startUp() {
+        log.info("File processing service starting up with " + threadCount + " threads");
+        if (threadCount <= 0) {
+            return;
+        }
+
+        executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "File processing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threadCount; i++) {
+            executor.execute(this::processTasks);
+        }
+    }
+
+    @Override
+    protected void shutDown() throws InterruptedException {
+        log.info("File processing service shutting down");
+        if (executor == null) {
+            return;
+        }
+
+        // Process the queued files before stopping, for a limited time
+        lock.lock();
+        try {
+            draining = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            log.warn(getTaskCount() + " files not processed before shutting down");
+            executor.shutdownNow();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Queue a file processing.
+     *
+     * @param priority Priority
+     * @param userId ID of the user requesting the processing
+     * @param task Processing task
+     */
+    public void submit(FileProcessingPriority priority, String userId, Runnable task) {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+
+        lock.lock();
+        try {
+            queueList.get(priority.ordinal()).computeIfAbsent(userId, key -> new ArrayDeque<>()).add(task);
+            queuedCount++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true if too many files are waiting to be processed to accept new ones.
+     *
+     * @return True if the service is saturated
+     */
+    public boolean isSaturated() {
+        lock.lock();
+        try {
+            return queuedCount >= queueSize;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of files queued or being processed.
+     *
+     * @return Number of tasks
+     */
+    public int getTaskCount() {
+        lock.lock();
+        try {
+            return queuedCount + runningCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Process the queued tasks until the service is shut down.
+     */
+    private void processTasks() {
+        while (true) {
+            Runnable task;
+            try {
+                task = take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == null) {
+                return;
+            }
+
+            try {
+                task.run();
+            } catch (Throwable e) {
+                log.error("Error processing a file", e);
+            } finally {
+                lock.lock();
+                try {
+                    runningCount--;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for the next task: the first user with the highest priority is served
+     * and goes to the end of the line if more of its tasks are queued.
+     *
+     * @return Task, null if the service is shutting down and nothing is queued
+     * @throws InterruptedException e
+     */
+    private Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queuedCount == 0) {
+                if (draining) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+
+            for (Map<String, Deque<Runnable>> userQueueMap : queueList) {
+                Iterator<Map.Entry<String, Deque<Runnable>>> iterator = userQueueMap.entrySet().iterator();
+                if (!iterator.hasNext()) {
+                    continue;
+                }
+
+                Map.Entry<String, Deque<Runnable>> userQueue = iterator.next();
+                iterator.remove();
+                Runnable task = userQueue.getValue().poll();
+                if (!userQueue.getValue().isEmpty()) {
+                    userQueueMap.put(userQueue.getKey(), userQueue.getValue());
+                }
+                queuedCount--;
+                runningCount++;
+                return task;
+            }
+            throw new IllegalStateException("No queued task");
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.sismics.docs.core.service;
 
 import com.google.common.util.concurrent.AbstractScheduledService;
 import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.docs.core.constant.FileProcessingPriority;
 import com.sismics.docs.core.dao.TagDao;
 import com.sismics.docs.core.dao.criteria.TagCriteria;
 import com.sismics.docs.core.dao.dto.TagDto;
 import com.sismics.docs.core.event.DocumentCreatedAsyncEvent;
+import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.docs.core.model.jpa.Document;
 import com.sismics.docs.core.model.jpa.Tag;
 import com.sismics.docs.core.util.ConfigUtil;
@@ -59,6 +61,11 @@ public class InboxService extends AbstractScheduledService {
     
     @Override
     protected void runOneIteration() {
+        if (AppContext.getInstance().getFileProcessingService().isSaturated()) {
+            log.info("File processing saturated, inbox synchronization postponed");
+            return;
+        }
+
         try {
             syncInbox();
         } catch (Throwable e) {
@@ -260,7 +267,7 @@ public class InboxService extends AbstractScheduledService {
         // Add files to the document
         for (EmailUtil.FileContent fileContent : mailContent.getFileContentList()) {
             FileUtil.createFile(fileContent.getName(), null, fileContent.getFile(), fileContent.getSize(),
-                    document.getLanguage(), "admin", document.getId());
+                    document.getLanguage(), "admin", document.getId(), FileProcessingPriority.BATCH);
         }
 
         if (ConfigUtil.getConfigBooleanValue(ConfigType.INBOX_DELETE_IMPORTED)) {
@@ -3,6 +3,8 @@ package com.sismics.docs.core.util;
 import com.sismics.docs.core.constant.ConfigType;
 import com.sismics.docs.core.dao.ConfigDao;
 import com.sismics.docs.core.model.jpa.Config;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ResourceBundle;
 
@@ -11,6 +13,11 @@ import java.util.ResourceBundle;
  *
  */
 public class ConfigUtil {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ConfigUtil.class);
+
     /**
      * Returns the textual value of a configuration parameter.
      *
@@ -88,4 +95,76 @@ public class ConfigUtil {
             return defaultValue;
         }
     }
+
+    /**
+     * Returns the textual value of an environment variable with a default value.
+     *
+     * @param envName Name of the environment variable
+     * @param defaultValue Default value to return if the environment variable is undefined
+     * @return Textual value of the environment variable
+     */
+    public static String getEnvStringValue(String envName, String defaultValue) {
+        String value = System.getenv(envName);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+
+    /**
+     * Returns the integer value of an environment variable with a default value.
+     *
+     * @param envName Name of the environment variable
+     * @param defaultValue Default value to return if the environment variable is undefined or invalid
+     * @return Integer value of the environment variable
+     */
+    public static int getEnvIntegerValue(String envName, int defaultValue) {
+        long value = getEnvLongValue(envName, defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            log.warn(envName + " is out of range. Falling back to " + defaultValue + ".");
+            return defaultValue;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Returns the long value of an environment variable with a default value.
+     *
+     * @param envName Name of the environment variable
+     * @param defaultValue Default value to return if the environment variable is undefined or invalid
+     * @return Long value of the environment variable
+     */
+    public static long getEnvLongValue(String envName, long defaultValue) {
+        String value = getEnvStringValue(envName, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            log.warn(envName + " needs to be a number. Falling back to " + defaultValue + ".");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns the enum value of an environment variable with a default value.
+     *
+     * @param envName Name of the environment variable
+     * @param defaultValue Default value to return if the environment variable is undefined or invalid
+     * @param <E> Type of the enum
+     * @return Enum value of the environment variable, case insensitive
+     */
+    public static <E extends Enum<E>> E getEnvEnumValue(String envName, E defaultValue) {
+        String value = getEnvStringValue(envName, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(defaultValue.getDeclaringClass(), value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            log.warn(envName + " is unknown: " + value + ". Falling back to " + defaultValue + ".");
+            return defaultValue;
+        }
+    }
 }
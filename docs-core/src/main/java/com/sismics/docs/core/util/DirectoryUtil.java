@@ -68,6 +68,43 @@ public class DirectoryUtil {
         return getDataSubDirectory("lucene");
     }
     
+    /**
+     * Returns the lucene journal directory.
+     *
+     * @return Lucene journal directory.
+     */
+    public static Path getLuceneJournalDirectory() {
+        return getDataSubDirectory("lucene_journal");
+    }
+
+    /**
+     * Returns the directory where the lucene index is rebuilt.
+     *
+     * @return Lucene rebuild directory.
+     */
+    public static Path getLuceneRebuildDirectory() {
+        return getDataSubDirectory("lucene_rebuild");
+    }
+
+    /**
+     * Returns the directory where the lucene index is moved while swapped with a rebuilt one.
+     * Not created, it only exists during the swap.
+     *
+     * @return Previous lucene index directory.
+     */
+    public static Path getLucenePreviousDirectory() {
+        return getBaseDataDirectory().resolve("lucene_previous");
+    }
+
+    /**
+     * Returns the directory journaling the mutations while the lucene index is rebuilt.
+     *
+     * @return Lucene rebuild journal directory.
+     */
+    public static Path getLuceneRebuildJournalDirectory() {
+        return getDataSubDirectory("lucene_rebuild_journal");
+    }
+
     /**
      * Returns the storage directory.
      * 
@@ -77,6 +114,24 @@ public class DirectoryUtil {
         return getDataSubDirectory("storage");
     }
     
+    /**
+     * Returns the directory caching the PDF exports of the documents.
+     *
+     * @return PDF export directory.
+     */
+    public static Path getPdfExportDirectory() {
+        return getDataSubDirectory("pdf_export");
+    }
+
+    /**
+     * Returns the directory caching the contents extracted from the files.
+     *
+     * @return Extraction cache directory.
+     */
+    public static Path getExtractionCacheDirectory() {
+        return getDataSubDirectory("extraction_cache");
+    }
+
     /**
      * Returns the log directory.
      * 
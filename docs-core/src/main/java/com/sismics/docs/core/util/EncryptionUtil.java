@@ -1,22 +1,36 @@
 package com.sismics.docs.core.util;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.io.ByteStreams;
+import com.sismics.docs.core.constant.Constants;
 import com.sismics.docs.core.model.context.AppContext;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+import org.bouncycastle.jcajce.provider.symmetric.util.BCPBEKey;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
-import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.Security;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Encryption utilities.
@@ -28,11 +42,29 @@ public class EncryptionUtil {
      * Salt.
      */
     private static final String SALT = "LEpxZmm2SMu2PeKzPNrar2rhVAS6LrrgvXKeL9uyXC4vgKHg";
+
+    /**
+     * AES block size, the counter is incremented for each block.
+     */
+    private static final int BLOCK_SIZE = 16;
+
+    /**
+     * Keys derived from the private keys, null if disabled.
+     * Evicted keys are zeroed.
+     */
+    private static final Cache<String, DerivedKey> derivedKeyCache;
     
     static {
         // Initialize Bouncy Castle provider
         Security.insertProviderAt(new BouncyCastleProvider(), 1);
         Security.removeProvider("SunRsaSign");
+
+        long derivedKeyCacheSize = ConfigUtil.getEnvLongValue(Constants.ENCRYPTION_KEY_CACHE_SIZE_ENV, 1000);
+        derivedKeyCache = derivedKeyCacheSize > 0 ? CacheBuilder.newBuilder()
+                .maximumSize(derivedKeyCacheSize)
+                .expireAfterAccess(1, TimeUnit.HOURS)
+                .removalListener((RemovalListener<String, DerivedKey>) notification -> notification.getValue().destroy())
+                .build() : null;
     }
     
     /**
@@ -58,7 +90,32 @@ public class EncryptionUtil {
      * @throws Exception  e
      */
     public static InputStream decryptInputStream(InputStream is, String privateKey) throws Exception {
-        return new CipherInputStream(is, getCipher(privateKey, Cipher.DECRYPT_MODE));
+        return new CipherInputStream(is, getCipher(privateKey, Cipher.DECRYPT_MODE, 0));
+    }
+
+    /**
+     * Decrypt an InputStream from an offset using the specified private key.
+     * The stream must be positioned at the offset in the encrypted data,
+     * the counter is computed for this offset so that the preceding data is not decrypted.
+     *
+     * @param is InputStream positioned at the offset
+     * @param privateKey Private key
+     * @param offset Offset in the encrypted data
+     * @return Decrypted stream starting at the offset
+     * @throws Exception e
+     */
+    public static InputStream decryptInputStream(InputStream is, String privateKey, long offset) throws Exception {
+        Cipher cipher = getCipher(privateKey, Cipher.DECRYPT_MODE, offset / BLOCK_SIZE);
+        int blockOffset = (int) (offset % BLOCK_SIZE);
+        if (blockOffset == 0) {
+            return new CipherInputStream(is, cipher);
+        }
+
+        // The stream starts in the middle of a block, pad the beginning of the block and skip it once decrypted
+        InputStream cipherInputStream = new CipherInputStream(
+                new SequenceInputStream(new ByteArrayInputStream(new byte[blockOffset]), is), cipher);
+        ByteStreams.skipFully(cipherInputStream, blockOffset);
+        return cipherInputStream;
     }
 
     /**
@@ -77,7 +134,7 @@ public class EncryptionUtil {
 
         Path tmpFile = AppContext.getInstance().getFileService().createTemporaryFile();
         try (InputStream is = Files.newInputStream(file)) {
-            Files.copy(new CipherInputStream(is, getCipher(privateKey, Cipher.DECRYPT_MODE)), tmpFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.copy(new CipherInputStream(is, getCipher(privateKey, Cipher.DECRYPT_MODE, 0)), tmpFile, StandardCopyOption.REPLACE_EXISTING);
         }
         return tmpFile;
     }
@@ -93,23 +150,130 @@ public class EncryptionUtil {
         if (Strings.isNullOrEmpty(privateKey)) {
             throw new IllegalArgumentException("The private key is null or empty");
         }
-        return getCipher(privateKey, Cipher.ENCRYPT_MODE);
+        return getCipher(privateKey, Cipher.ENCRYPT_MODE, 0);
     }
     
     /**
      * Initialize a Cipher.
+     * The key derivation is the expensive part, so the derived key is cached and only the cipher is initialized.
      * 
      * @param privateKey Private key
      * @param mode Mode (encrypt or decrypt)
+     * @param block Index of the first block
      * @return Cipher
      * @throws Exception e
      */
-    private static Cipher getCipher(String privateKey, int mode) throws Exception {
-        PBEKeySpec keySpec = new PBEKeySpec(privateKey.toCharArray(), SALT.getBytes(), 2000, 256);
-        SecretKeyFactory skf = SecretKeyFactory.getInstance("PBEWITHSHA256AND256BITAES-CBC-BC");
-        SecretKey desKey = skf.generateSecret(keySpec);
+    private static Cipher getCipher(String privateKey, int mode, long block) throws Exception {
         Cipher cipher = Cipher.getInstance("AES/CTR/NOPADDING");
-        cipher.init(mode, desKey);
+        if (derivedKeyCache != null) {
+            DerivedKey derivedKey = derivedKeyCache.get(privateKey, () -> deriveKey(privateKey));
+            if (derivedKey.init(cipher, mode, block)) {
+                return cipher;
+            }
+        }
+
+        // Cache disabled, or key evicted and zeroed in the meantime
+        DerivedKey derivedKey = deriveKey(privateKey);
+        derivedKey.init(cipher, mode, block);
+        derivedKey.destroy();
         return cipher;
     }
+
+    /**
+     * Derive the AES key and IV from a private key.
+     *
+     * @param privateKey Private key
+     * @return Derived key
+     * @throws GeneralSecurityException e
+     */
+    private static DerivedKey deriveKey(String privateKey) throws GeneralSecurityException {
+        PBEKeySpec keySpec = new PBEKeySpec(privateKey.toCharArray(), SALT.getBytes(), 2000, 256);
+        try {
+            SecretKeyFactory skf = SecretKeyFactory.getInstance("PBEWITHSHA256AND256BITAES-CBC-BC");
+            BCPBEKey pbeKey = (BCPBEKey) skf.generateSecret(keySpec);
+            ParametersWithIV param = (ParametersWithIV) pbeKey.getParam();
+            byte[] key = ((KeyParameter) param.getParameters()).getKey();
+            DerivedKey derivedKey = new DerivedKey(key.clone(), param.getIV().clone());
+            Arrays.fill(key, (byte) 0);
+            pbeKey.destroy();
+            return derivedKey;
+        } finally {
+            keySpec.clearPassword();
+        }
+    }
+
+    /**
+     * AES key and IV derived from a private key.
+     */
+    private static class DerivedKey {
+        /**
+         * AES key.
+         */
+        private final byte[] key;
+
+        /**
+         * IV.
+         */
+        private final byte[] iv;
+
+        /**
+         * True if zeroed.
+         */
+        private boolean destroyed;
+
+        /**
+         * Constructor of DerivedKey.
+         *
+         * @param key AES key
+         * @param iv IV
+         */
+        private DerivedKey(byte[] key, byte[] iv) {
+            this.key = key;
+            this.iv = iv;
+        }
+
+        /**
+         * Initialize a cipher with this key.
+         *
+         * @param cipher Cipher
+         * @param mode Mode (encrypt or decrypt)
+         * @param block Index of the first block, added to the initial counter
+         * @return False if the key has been zeroed
+         * @throws GeneralSecurityException e
+         */
+        private synchronized boolean init(Cipher cipher, int mode, long block) throws GeneralSecurityException {
+            if (destroyed) {
+                return false;
+            }
+            cipher.init(mode, new SecretKeySpec(key, "AES"), new IvParameterSpec(block == 0 ? iv : addCounter(iv, block)));
+            return true;
+        }
+
+        /**
+         * Add a number of blocks to a big-endian counter.
+         *
+         * @param counter Initial counter
+         * @param block Number of blocks
+         * @return New counter
+         */
+        private static byte[] addCounter(byte[] counter, long block) {
+            byte[] result = counter.clone();
+            long carry = block;
+            for (int i = result.length - 1; i >= 0 && carry != 0; i--) {
+                long sum = (result[i] & 0xFF) + (carry & 0xFF);
+                result[i] = (byte) sum;
+                carry = (carry >>> 8) + (sum >>> 8);
+            }
+            return result;
+        }
+
+        /**
+         * Zero the key.
+         */
+        private synchronized void destroy() {
+            Arrays.fill(key, (byte) 0);
+            Arrays.fill(iv, (byte) 0);
+            destroyed = true;
+        }
+    }
 }
@@ -0,0 +1,288 @@
+package com.sismics.docs.core.util;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.util.format.FormatHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the text content extracted from the files, keyed by the hash of their data,
+ * so that processing the same data again doesn't extract it again.
+ * The entries are encrypted with a key derived from the data, so they can only be read with the original file,
+ * and are named after another hash of it. The least recently used entries are evicted when the cache is full.
+ */
+public class ExtractionCacheUtil {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ExtractionCacheUtil.class);
+
+    /**
+     * Version of the extraction, to increment when the extracted content changes.
+     */
+    private static final int EXTRACTION_VERSION = 2;
+
+    /**
+     * Maximum size of the cache in bytes, 0 to disable it.
+     */
+    private static final long MAX_SIZE = ConfigUtil.getEnvLongValue(Constants.EXTRACTION_CACHE_SIZE_ENV, 100_000_000L);
+
+    /**
+     * Current size of the cache in bytes, -1 until the cache directory has been read.
+     */
+    private static long size = -1;
+
+    /**
+     * Number of contents found in the cache.
+     */
+    private static final AtomicLong hitCount = new AtomicLong();
+
+    /**
+     * Number of contents not found in the cache.
+     */
+    private static final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Length in bytes of the initialization vector of an entry.
+     */
+    private static final int IV_LENGTH = 12;
+
+    /**
+     * Length in bits of the authentication tag of an entry.
+     */
+    private static final int TAG_LENGTH = 128;
+
+    /**
+     * Compute the cache key of the content of a file.
+     * The key is also the encryption key of the cached content, it must not be stored.
+     *
+     * @param file Unencrypted file
+     * @param language Language
+     * @param formatHandler Format handler extracting the content
+     * @return Cache key, null if the cache is disabled
+     * @throws IOException e
+     */
+    public static String getKey(Path file, String language, FormatHandler formatHandler) throws IOException {
+        if (MAX_SIZE <= 0) {
+            return null;
+        }
+
+        // The OCR setting changes the content extracted from images
+        String fileHash = com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.sha256()).toString();
+        return Hashing.sha256().newHasher()
+                .putInt(EXTRACTION_VERSION)
+                .putString(fileHash, StandardCharsets.UTF_8)
+                .putString(formatHandler.getClass().getName(), StandardCharsets.UTF_8)
+                .putBoolean(language != null)
+                .putString(language == null ? "" : language, StandardCharsets.UTF_8)
+                .putBoolean(ConfigUtil.getConfigBooleanValue(ConfigType.OCR_ENABLED, true))
+                .hash().toString();
+    }
+
+    /**
+     * Returns a cached content.
+     *
+     * @param key Cache key
+     * @return Content, null if not cached
+     */
+    public static String get(String key) {
+        if (key == null) {
+            return null;
+        }
+
+        Path cachedFile = getCachedFile(key);
+        try {
+            byte[] data = Files.readAllBytes(cachedFile);
+            Cipher cipher = getCipher(Cipher.DECRYPT_MODE, key, Arrays.copyOf(data, IV_LENGTH));
+            String content = new String(cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
+            Files.setLastModifiedTime(cachedFile, FileTime.fromMillis(System.currentTimeMillis()));
+            hitCount.incrementAndGet();
+            return content;
+        } catch (NoSuchFileException e) {
+            missCount.incrementAndGet();
+            return null;
+        } catch (IOException | GeneralSecurityException e) {
+            log.warn("Error reading the cached content " + cachedFile.getFileName(), e);
+            missCount.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Cache a content, replacing the previous one, and evict the least recently used contents if the cache is full.
+     *
+     * @param key Cache key
+     * @param content Content
+     */
+    public static void put(String key, String content) {
+        if (key == null || content == null) {
+            return;
+        }
+
+        Path cacheDirectory = DirectoryUtil.getExtractionCacheDirectory();
+        Path cachedFile = getCachedFile(key);
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            new SecureRandom().nextBytes(iv);
+            byte[] encrypted = getCipher(Cipher.ENCRYPT_MODE, key, iv).doFinal(content.getBytes(StandardCharsets.UTF_8));
+            long entrySize = IV_LENGTH + encrypted.length;
+            if (entrySize > MAX_SIZE) {
+                return;
+            }
+
+            synchronized (ExtractionCacheUtil.class) {
+                if (size < 0) {
+                    size = getDirectorySize(cacheDirectory);
+                }
+                long previousSize = Files.exists(cachedFile) ? Files.size(cachedFile) : 0;
+
+                // Write the content next to the cached file, then move it in place at once
+                Path tmpFile = Files.createTempFile(cacheDirectory, "content", ".tmp");
+                try {
+                    try (OutputStream outputStream = Files.newOutputStream(tmpFile)) {
+                        outputStream.write(iv);
+                        outputStream.write(encrypted);
+                    }
+                    Files.move(tmpFile, cachedFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    Files.deleteIfExists(tmpFile);
+                }
+                size += entrySize - previousSize;
+
+                if (size > MAX_SIZE) {
+                    evict(cacheDirectory);
+                }
+            }
+        } catch (IOException | GeneralSecurityException e) {
+            log.warn("Error caching the content " + cachedFile.getFileName(), e);
+        }
+    }
+
+    /**
+     * Returns the number of contents found in the cache.
+     *
+     * @return Hit count
+     */
+    public static long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns the number of contents not found in the cache.
+     *
+     * @return Miss count
+     */
+    public static long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Returns the file of a cached content, named after a hash of the key.
+     *
+     * @param key Cache key
+     * @return Cached file
+     */
+    private static Path getCachedFile(String key) {
+        String name = Hashing.sha256().newHasher()
+                .putString("name", StandardCharsets.UTF_8)
+                .putString(key, StandardCharsets.UTF_8)
+                .hash().toString();
+        return DirectoryUtil.getExtractionCacheDirectory().resolve(name);
+    }
+
+    /**
+     * Returns a cipher of the cached contents, encrypting with the key itself.
+     *
+     * @param mode Cipher mode
+     * @param key Cache key
+     * @param iv Initialization vector
+     * @return Cipher
+     * @throws GeneralSecurityException e
+     */
+    private static Cipher getCipher(int mode, String key, byte[] iv) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(mode, new SecretKeySpec(HashCode.fromString(key).asBytes(), "AES"), new GCMParameterSpec(TAG_LENGTH, iv));
+        return cipher;
+    }
+
+    /**
+     * Delete the least recently used contents until the cache is at 90% of its maximum size.
+     *
+     * @param cacheDirectory Cache directory
+     * @throws IOException e
+     */
+    private static void evict(Path cacheDirectory) throws IOException {
+        List<Path> cachedFileList = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(cacheDirectory)) {
+            directoryStream.forEach(cachedFileList::add);
+        }
+        cachedFileList.sort(Comparator.comparingLong(ExtractionCacheUtil::getLastModifiedTime));
+
+        for (Path cachedFile : cachedFileList) {
+            if (size <= MAX_SIZE * 9 / 10) {
+                break;
+            }
+            try {
+                long fileSize = Files.size(cachedFile);
+                Files.delete(cachedFile);
+                size -= fileSize;
+            } catch (NoSuchFileException e) {
+                // NOP
+            }
+        }
+    }
+
+    /**
+     * Returns the last modified time of a cached file.
+     *
+     * @param cachedFile Cached file
+     * @return Last modified time, 0 if unknown
+     */
+    private static long getLastModifiedTime(Path cachedFile) {
+        try {
+            return Files.getLastModifiedTime(cachedFile).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the size of the files of a directory.
+     *
+     * @param directory Directory
+     * @return Size in bytes
+     * @throws IOException e
+     */
+    private static long getDirectorySize(Path directory) throws IOException {
+        long directorySize = 0;
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+            for (Path file : directoryStream) {
+                directorySize += Files.size(file);
+            }
+        }
+        return directorySize;
+    }
+}
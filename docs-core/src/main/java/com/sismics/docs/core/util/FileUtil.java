@@ -2,8 +2,8 @@ package com.sismics.docs.core.util;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
-import com.google.common.io.CharStreams;
 import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.constant.FileProcessingPriority;
 import com.sismics.docs.core.dao.FileDao;
 import com.sismics.docs.core.dao.UserDao;
 import com.sismics.docs.core.event.DocumentUpdatedAsyncEvent;
@@ -11,8 +11,7 @@ import com.sismics.docs.core.event.FileCreatedAsyncEvent;
 import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.docs.core.model.jpa.File;
 import com.sismics.docs.core.model.jpa.User;
-import com.sismics.util.ImageDeskew;
-import com.sismics.util.Scalr;
+import com.sismics.util.OcrImageUtil;
 import com.sismics.util.context.ThreadLocalContext;
 import com.sismics.util.io.InputStreamReaderThread;
 import com.sismics.util.mime.MimeTypeUtil;
@@ -29,11 +28,12 @@ import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * File entity utilities.
@@ -47,9 +47,14 @@ public class FileUtil {
     private static final Logger log = LoggerFactory.getLogger(FileUtil.class);
 
     /**
-     * File ID of files currently being processed.
+     * Progress in percent of the files currently being processed, by file ID.
      */
-    private static final Set<String> processingFileSet = Collections.synchronizedSet(new HashSet<>());
+    private static final Map<String, Integer> processingFileMap = new ConcurrentHashMap<>();
+
+    /**
+     * Time limit in seconds to recognize an image.
+     */
+    private static final long OCR_TIMEOUT = ConfigUtil.getEnvLongValue(Constants.OCR_TIMEOUT_ENV, 300);
     
     /**
      * Optical character recognition on an image.
@@ -60,27 +65,35 @@ public class FileUtil {
      * @throws Exception e
      */
     public static String ocrFile(String language, BufferedImage image) throws Exception {
-        // Upscale, grayscale and deskew the image
-        BufferedImage resizedImage = Scalr.resize(image, Scalr.Method.AUTOMATIC, Scalr.Mode.AUTOMATIC, 3500, Scalr.OP_ANTIALIAS, Scalr.OP_GRAYSCALE);
+        // Scale, grayscale and deskew the image
+        BufferedImage preparedImage = OcrImageUtil.prepare(image);
         image.flush();
-        ImageDeskew imageDeskew = new ImageDeskew(resizedImage);
-        BufferedImage deskewedImage = Scalr.rotate(resizedImage, - imageDeskew.getSkewAngle(), Scalr.OP_ANTIALIAS, Scalr.OP_GRAYSCALE);
-        resizedImage.flush();
         Path tmpFile = AppContext.getInstance().getFileService().createTemporaryFile();
-        ImageIO.write(deskewedImage, "tiff", tmpFile.toFile());
+        ImageIO.write(preparedImage, "tiff", tmpFile.toFile());
+        preparedImage.flush();
 
+        // The text is written to a file, so that the process can be killed without waiting on its output
+        Path outputFile = AppContext.getInstance().getFileService().createTemporaryFile();
         List<String> result = Lists.newLinkedList(Arrays.asList("tesseract", tmpFile.toAbsolutePath().toString(), "stdout", "-l", language));
-        ProcessBuilder pb = new ProcessBuilder(result);
+        ProcessBuilder pb = new ProcessBuilder(result).redirectOutput(outputFile.toFile());
         Process process = pb.start();
 
         // Consume the process error stream
         final String commandName = pb.command().get(0);
         new InputStreamReaderThread(process.getErrorStream(), commandName).start();
 
-        // Consume the data as text
-        try (InputStream is = process.getInputStream()) {
-            return CharStreams.toString(new InputStreamReader(is, StandardCharsets.UTF_8));
+        // Wait for the text
+        try {
+            if (!process.waitFor(OCR_TIMEOUT, TimeUnit.SECONDS)) {
+                throw new IOException("OCR timed out after " + OCR_TIMEOUT + "s");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("OCR failed with exit code " + process.exitValue());
+            }
+        } finally {
+            process.destroyForcibly();
         }
+        return new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8);
     }
 
     /**
@@ -92,6 +105,7 @@ public class FileUtil {
         Path storedFile = DirectoryUtil.getStorageDirectory().resolve(fileId);
         Path webFile = DirectoryUtil.getStorageDirectory().resolve(fileId + "_web");
         Path thumbnailFile = DirectoryUtil.getStorageDirectory().resolve(fileId + "_thumb");
+        Path pdfFile = DirectoryUtil.getStorageDirectory().resolve(fileId + "_pdf");
         
         if (Files.exists(storedFile)) {
             Files.delete(storedFile);
@@ -102,6 +116,9 @@ public class FileUtil {
         if (Files.exists(thumbnailFile)) {
             Files.delete(thumbnailFile);
         }
+        if (Files.exists(pdfFile)) {
+            Files.delete(pdfFile);
+        }
     }
 
     /**
@@ -114,10 +131,12 @@ public class FileUtil {
      * @param language File language, can be null if associated to no document
      * @param userId User ID creating the file
      * @param documentId Associated document ID or null if no document
+     * @param priority Processing priority
      * @return File ID
      * @throws Exception e
      */
-    public static String createFile(String name, String previousFileId, Path unencryptedFile, long fileSize, String language, String userId, String documentId) throws Exception {
+    public static String createFile(String name, String previousFileId, Path unencryptedFile, long fileSize, String language, String userId, String documentId,
+                                    FileProcessingPriority priority) throws Exception {
         // Validate mime type
         String mimeType;
         try {
@@ -203,6 +222,7 @@ public class FileUtil {
         fileCreatedAsyncEvent.setLanguage(language);
         fileCreatedAsyncEvent.setFileId(file.getId());
         fileCreatedAsyncEvent.setUnencryptedFile(unencryptedFile);
+        fileCreatedAsyncEvent.setPriority(priority);
         ThreadLocalContext.get().addAsyncEvent(fileCreatedAsyncEvent);
 
         if (documentId != null) {
@@ -221,7 +241,7 @@ public class FileUtil {
      * @param fileId File ID
      */
     public static void startProcessingFile(String fileId) {
-        processingFileSet.add(fileId);
+        processingFileMap.put(fileId, 0);
         log.info("Processing started for file: " + fileId);
     }
 
@@ -231,7 +251,7 @@ public class FileUtil {
      * @param fileId File ID
      */
     public static void endProcessingFile(String fileId) {
-        processingFileSet.remove(fileId);
+        processingFileMap.remove(fileId);
         log.info("Processing ended for file: " + fileId);
     }
 
@@ -242,7 +262,27 @@ public class FileUtil {
      * @return True if the file is processing
      */
     public static boolean isProcessingFile(String fileId) {
-        return processingFileSet.contains(fileId);
+        return processingFileMap.containsKey(fileId);
+    }
+
+    /**
+     * Update the progress of a file processing.
+     *
+     * @param fileId File ID
+     * @param progress Progress in percent
+     */
+    public static void setProcessingProgress(String fileId, int progress) {
+        processingFileMap.computeIfPresent(fileId, (key, value) -> progress);
+    }
+
+    /**
+     * Return the progress of a file processing.
+     *
+     * @param fileId File ID
+     * @return Progress in percent, null if the file is not processing
+     */
+    public static Integer getProcessingProgress(String fileId) {
+        return processingFileMap.get(fileId);
     }
 
     /**
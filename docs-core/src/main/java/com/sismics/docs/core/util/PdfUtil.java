@@ -1,6 +1,8 @@
 package com.sismics.docs.core.util;
 
 import com.google.common.base.Strings;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Closer;
 import com.google.common.io.Resources;
@@ -10,6 +12,7 @@ import com.sismics.docs.core.dao.dto.DocumentDto;
 import com.sismics.docs.core.model.jpa.File;
 import com.sismics.docs.core.util.format.FormatHandler;
 import com.sismics.docs.core.util.format.FormatHandlerUtil;
+import com.sismics.docs.core.util.format.PdfFormatHandler;
 import com.sismics.docs.core.util.pdf.PdfPage;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -18,13 +21,20 @@ import org.apache.pdfbox.pdmodel.font.DocsPDType1Font;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.crypto.Cipher;
+import javax.crypto.CipherOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
@@ -39,6 +49,21 @@ public class PdfUtil {
      */
     private static final Logger log = LoggerFactory.getLogger(PdfUtil.class);
 
+    /**
+     * Version of the PDF exports, to increment when the conversion changes.
+     */
+    private static final int CACHE_VERSION = 1;
+
+    /**
+     * Maximum size of the cached PDF exports in bytes.
+     */
+    private static final long CACHE_MAX_SIZE = ConfigUtil.getEnvLongValue(Constants.PDF_EXPORT_CACHE_SIZE_ENV, 1_000_000_000L);
+
+    /**
+     * Current size of the cached PDF exports in bytes, -1 until the cache directory has been read.
+     */
+    private static long cacheSize = -1;
+
     /**
      * Convert a document and its files to a merged PDF file.
      * 
@@ -103,9 +128,16 @@ public class PdfUtil {
             
             // Add files
             for (File file : fileList) {
-                Path storedFile = DirectoryUtil.getStorageDirectory().resolve(file.getId());
+                // Append the PDF rendition generated while processing the file if there is one
+                Path renditionFile = DirectoryUtil.getStorageDirectory().resolve(file.getId() + "_pdf");
+                if (Files.exists(renditionFile)) {
+                    Path unencryptedFile = EncryptionUtil.decryptFile(renditionFile, file.getPrivateKey());
+                    new PdfFormatHandler().appendToPdf(unencryptedFile, doc, fitImageToPage, margin, memUsageSettings, closer);
+                    continue;
+                }
 
                 // Decrypt the file to a temporary file
+                Path storedFile = DirectoryUtil.getStorageDirectory().resolve(file.getId());
                 Path unencryptedFile = EncryptionUtil.decryptFile(storedFile, file.getPrivateKey());
                 FormatHandler formatHandler = FormatHandlerUtil.find(file.getMimeType());
                 if (formatHandler != null) {
@@ -118,6 +150,213 @@ public class PdfUtil {
         }
     }
 
+    /**
+     * Returns the cached PDF export of a document, converting it if it is not cached yet.
+     * The cached file is encrypted with the private key of the document owner.
+     * The files are identified by their ID, which changes with each new version,
+     * so the cache stays valid as long as the same files and options are exported.
+     * The oldest exports are deleted when the cache is full.
+     *
+     * @param documentDto Document DTO
+     * @param fileList List of files
+     * @param fitImageToPage Fit images to the page
+     * @param metadata Add a page with metadata
+     * @param margin Margins in millimeters
+     * @param privateKey Private key of the document owner
+     * @return Encrypted PDF file
+     * @throws Exception e
+     */
+    public static Path getCachedPdf(DocumentDto documentDto, List<File> fileList,
+            boolean fitImageToPage, boolean metadata, int margin, String privateKey) throws Exception {
+        Path documentDirectory = DirectoryUtil.getPdfExportDirectory().resolve(documentDto.getId());
+        Path cachedFile = documentDirectory.resolve(getCacheKey(documentDto, fileList, fitImageToPage, metadata, margin));
+        if (Files.exists(cachedFile)) {
+            return cachedFile;
+        }
+
+        // Convert the document next to the cached file, then move it in place at once
+        Files.createDirectories(documentDirectory);
+        Path tmpFile = Files.createTempFile(documentDirectory, "export", ".tmp");
+        try {
+            Cipher cipher = EncryptionUtil.getEncryptionCipher(privateKey);
+            try (OutputStream outputStream = new CipherOutputStream(Files.newOutputStream(tmpFile), cipher)) {
+                convertToPdf(documentDto, fileList, fitImageToPage, metadata, margin, outputStream);
+            }
+            Files.move(tmpFile, cachedFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+        addToCacheSize(cachedFile);
+        return cachedFile;
+    }
+
+    /**
+     * Count a new PDF export in the size of the cache, and delete the oldest exports if the cache is full.
+     *
+     * @param cachedFile New cached file, never deleted
+     * @throws IOException e
+     */
+    private static synchronized void addToCacheSize(Path cachedFile) throws IOException {
+        List<Path> cachedFileList = getCachedFileList();
+        if (cacheSize < 0) {
+            cacheSize = 0;
+            for (Path file : cachedFileList) {
+                cacheSize += getFileSize(file);
+            }
+        } else {
+            cacheSize += getFileSize(cachedFile);
+        }
+        if (cacheSize <= CACHE_MAX_SIZE) {
+            return;
+        }
+
+        // Delete the oldest exports until the cache is at 90% of its maximum size
+        cachedFileList.sort(Comparator.comparingLong(PdfUtil::getLastModifiedTime));
+        for (Path file : cachedFileList) {
+            if (cacheSize <= CACHE_MAX_SIZE * 9 / 10) {
+                break;
+            }
+            if (!file.equals(cachedFile)) {
+                long fileSize = getFileSize(file);
+                if (Files.deleteIfExists(file)) {
+                    cacheSize -= fileSize;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the cached PDF exports of all documents.
+     *
+     * @return Cached files
+     * @throws IOException e
+     */
+    private static List<Path> getCachedFileList() throws IOException {
+        List<Path> cachedFileList = new ArrayList<>();
+        try (DirectoryStream<Path> documentDirectoryList = Files.newDirectoryStream(DirectoryUtil.getPdfExportDirectory(), Files::isDirectory)) {
+            for (Path documentDirectory : documentDirectoryList) {
+                try (DirectoryStream<Path> fileList = Files.newDirectoryStream(documentDirectory, file -> !file.toString().endsWith(".tmp"))) {
+                    fileList.forEach(cachedFileList::add);
+                } catch (NoSuchFileException e) {
+                    // The exports of this document have just been deleted
+                }
+            }
+        }
+        return cachedFileList;
+    }
+
+    /**
+     * Returns the size of a cached file.
+     *
+     * @param file Cached file
+     * @return Size in bytes, 0 if it doesn't exist anymore
+     */
+    private static long getFileSize(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Returns the last modified time of a cached file.
+     *
+     * @param file Cached file
+     * @return Last modified time, 0 if unknown
+     */
+    private static long getLastModifiedTime(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Delete the cached PDF exports of a document.
+     *
+     * @param documentId Document ID
+     */
+    public static void deleteCachedPdf(String documentId) {
+        Path documentDirectory = DirectoryUtil.getPdfExportDirectory().resolve(documentId);
+        if (!Files.exists(documentDirectory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> cachedFileList = Files.newDirectoryStream(documentDirectory)) {
+            long deletedSize = 0;
+            for (Path cachedFile : cachedFileList) {
+                long fileSize = getFileSize(cachedFile);
+                if (Files.deleteIfExists(cachedFile)) {
+                    deletedSize += fileSize;
+                }
+            }
+            removeFromCacheSize(deletedSize);
+            Files.deleteIfExists(documentDirectory);
+        } catch (IOException e) {
+            // A cached file may be written concurrently, it will be deleted on the next update
+            log.warn("Unable to delete the cached PDF exports of the document " + documentId, e);
+        }
+    }
+
+    /**
+     * Remove deleted PDF exports from the size of the cache.
+     *
+     * @param deletedSize Size of the deleted files in bytes
+     */
+    private static synchronized void removeFromCacheSize(long deletedSize) {
+        if (cacheSize >= 0) {
+            cacheSize = Math.max(cacheSize - deletedSize, 0);
+        }
+    }
+
+    /**
+     * Compute the key of a PDF export in the cache.
+     *
+     * @param documentDto Document DTO
+     * @param fileList List of files
+     * @param fitImageToPage Fit images to the page
+     * @param metadata Add a page with metadata
+     * @param margin Margins in millimeters
+     * @return Cache key
+     */
+    private static String getCacheKey(DocumentDto documentDto, List<File> fileList,
+            boolean fitImageToPage, boolean metadata, int margin) {
+        Hasher hasher = Hashing.sha256().newHasher()
+                .putInt(CACHE_VERSION)
+                .putBoolean(fitImageToPage)
+                .putBoolean(metadata)
+                .putInt(margin)
+                .putInt(fileList.size());
+        for (File file : fileList) {
+            putString(hasher, file.getId());
+        }
+        if (metadata) {
+            // The metadata page is part of the export
+            for (String value : new String[] { documentDto.getTitle(), documentDto.getDescription(), documentDto.getSubject(),
+                    documentDto.getIdentifier(), documentDto.getPublisher(), documentDto.getFormat(), documentDto.getSource(),
+                    documentDto.getType(), documentDto.getCoverage(), documentDto.getRights(), documentDto.getLanguage(),
+                    documentDto.getCreator() }) {
+                putString(hasher, value);
+            }
+            hasher.putLong(documentDto.getCreateTimestamp());
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Add a nullable string to a hash, delimited from the next one.
+     *
+     * @param hasher Hasher
+     * @param value String
+     */
+    private static void putString(Hasher hasher, String value) {
+        hasher.putBoolean(value == null)
+                .putInt(Strings.nullToEmpty(value).length())
+                .putUnencodedChars(Strings.nullToEmpty(value));
+    }
+
     /**
      * Register fonts.
      */
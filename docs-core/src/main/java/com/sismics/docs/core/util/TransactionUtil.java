@@ -7,6 +7,8 @@ import org.slf4j.LoggerFactory;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 /**
  * Database transaction utils.
@@ -78,6 +80,9 @@ public class TransactionUtil {
             }
         }
 
+        // Run the actions waiting for the changes of this request to be visible to the others
+        context.runAfterTransactionActions();
+
         // Fire all pending async events after request transaction commit.
         // This way, all modifications done during this request are available in the listeners.
         context.fireAllAsyncEvents();
@@ -85,6 +90,23 @@ public class TransactionUtil {
         ThreadLocalContext.cleanup();
     }
     
+    /**
+     * Read from the database in a transactionnal context.
+     *
+     * @param supplier Reading process
+     * @param <T> Result type
+     * @return Result
+     * @throws IllegalStateException If the reading process failed
+     */
+    public static <T> T read(Supplier<T> supplier) {
+        AtomicReference<T> result = new AtomicReference<>();
+        handle(() -> result.set(supplier.get()));
+        if (result.get() == null) {
+            throw new IllegalStateException("Error reading from the database");
+        }
+        return result.get();
+    }
+
     /**
      * Commits the current transaction, and flushes the changes to the database.
      */
@@ -0,0 +1,161 @@
+package com.sismics.docs.core.util;
+
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.model.jpa.File;
+import com.sismics.util.mime.MimeTypeUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * ZIP export utilities.
+ */
+public class ZipUtil {
+    /**
+     * Number of files decrypted ahead of the one being written.
+     */
+    private static final int PREFETCH_COUNT = ConfigUtil.getEnvIntegerValue(Constants.EXPORT_PREFETCH_ENV, 4);
+
+    /**
+     * Write files to a ZIP stream.
+     * The next files are decrypted on the export executor while the current one is written,
+     * files already compressed are stored instead of being deflated again.
+     * The ZIP64 format is used when the entries or the archive are too large.
+     *
+     * @param fileList Files
+     * @param privateKeyMap Private keys of the owners of the files, by user ID
+     * @param outputStream Output stream
+     * @throws IOException e
+     */
+    public static void writeZip(List<File> fileList, Map<String, String> privateKeyMap, OutputStream outputStream) throws IOException {
+        Deque<Future<DecryptedFile>> pendingList = new ArrayDeque<>();
+        int prefetchIndex = 0;
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
+            for (int index = 0; index < fileList.size(); index++) {
+                // Keep the next files decrypting
+                for (; prefetchIndex < fileList.size() && prefetchIndex <= index + PREFETCH_COUNT; prefetchIndex++) {
+                    File file = fileList.get(prefetchIndex);
+                    pendingList.add(AppContext.getInstance().getExportExecutor().submit(
+                            () -> decryptFile(file, privateKeyMap.get(file.getUserId()))));
+                }
+
+                // Add the decrypted file to the ZIP stream
+                DecryptedFile decryptedFile = getDecryptedFile(pendingList.poll());
+                try {
+                    File file = fileList.get(index);
+                    ZipEntry zipEntry = new ZipEntry(index + "-" + file.getFullName(Integer.toString(index)));
+                    if (MimeTypeUtil.isCompressed(file.getMimeType())) {
+                        zipEntry.setMethod(ZipEntry.STORED);
+                        zipEntry.setSize(decryptedFile.size);
+                        zipEntry.setCompressedSize(decryptedFile.size);
+                        zipEntry.setCrc(decryptedFile.crc);
+                    }
+                    zipOutputStream.putNextEntry(zipEntry);
+                    Files.copy(decryptedFile.path, zipOutputStream);
+                    zipOutputStream.closeEntry();
+                } finally {
+                    Files.deleteIfExists(decryptedFile.path);
+                }
+            }
+        } finally {
+            // The export has been interrupted, the files decrypted in the meantime are not needed anymore
+            for (Future<DecryptedFile> future : pendingList) {
+                if (!future.cancel(true)) {
+                    try {
+                        Files.deleteIfExists(getDecryptedFile(future).path);
+                    } catch (IOException e) {
+                        // NOP
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Decrypt a file to a temporary file.
+     *
+     * @param file File
+     * @param privateKey Private key of the owner of the file
+     * @return Decrypted file
+     * @throws Exception e
+     */
+    private static DecryptedFile decryptFile(File file, String privateKey) throws Exception {
+        Path storedFile = DirectoryUtil.getStorageDirectory().resolve(file.getId());
+        Path tmpFile = AppContext.getInstance().getFileService().createTemporaryFile();
+        CRC32 crc = new CRC32();
+        try (InputStream decryptedStream = new CheckedInputStream(
+                EncryptionUtil.decryptInputStream(Files.newInputStream(storedFile), privateKey), crc)) {
+            long size = Files.copy(decryptedStream, tmpFile, StandardCopyOption.REPLACE_EXISTING);
+            return new DecryptedFile(tmpFile, size, crc.getValue());
+        } catch (Exception e) {
+            Files.deleteIfExists(tmpFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for a file to be decrypted.
+     *
+     * @param future Decryption task
+     * @return Decrypted file
+     * @throws IOException e
+     */
+    private static DecryptedFile getDecryptedFile(Future<DecryptedFile> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error decrypting a file", e.getCause());
+        }
+    }
+
+    /**
+     * Decrypted temporary file.
+     */
+    private static class DecryptedFile {
+        /**
+         * Temporary file.
+         */
+        private final Path path;
+
+        /**
+         * Size.
+         */
+        private final long size;
+
+        /**
+         * CRC-32 checksum.
+         */
+        private final long crc;
+
+        /**
+         * Constructor of DecryptedFile.
+         *
+         * @param path Temporary file
+         * @param size Size
+         * @param crc CRC-32 checksum
+         */
+        private DecryptedFile(Path path, long size, long crc) {
+            this.path = path;
+            this.size = size;
+            this.crc = crc;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.sismics.docs.core.util.action;
 
+import com.sismics.docs.core.constant.FileProcessingPriority;
 import com.sismics.docs.core.dao.FileDao;
 import com.sismics.docs.core.dao.UserDao;
 import com.sismics.docs.core.dao.dto.DocumentDto;
 import com.sismics.docs.core.event.FileUpdatedAsyncEvent;
 import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.docs.core.model.jpa.User;
 import com.sismics.docs.core.util.DirectoryUtil;
 import com.sismics.docs.core.util.EncryptionUtil;
@@ -35,6 +37,12 @@ public class ProcessFilesAction implements Action {
 
         try {
             for (File file : fileList) {
+                // Don't queue more files while too many are waiting to be processed
+                if (AppContext.getInstance().getFileProcessingService().isSaturated()) {
+                    log.warn("File processing saturated, the remaining files of the document " + documentDto.getId() + " are not processed again");
+                    break;
+                }
+
                 // Get the creating user
                 UserDao userDao = new UserDao();
                 User user = userDao.getById(file.getUserId());
@@ -50,6 +58,7 @@ public class ProcessFilesAction implements Action {
                 event.setLanguage(documentDto.getLanguage());
                 event.setFileId(file.getId());
                 event.setUnencryptedFile(unencryptedFile);
+                event.setPriority(FileProcessingPriority.BATCH);
                 ThreadLocalContext.get().addAsyncEvent(event);
             }
         } catch (Exception e) {
@@ -5,14 +5,17 @@ import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 
 import java.awt.image.BufferedImage;
+import java.io.Closeable;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.function.IntConsumer;
 
 /**
  * A format handler.
  *
  * @author bgamard
  */
-public interface FormatHandler {
+public interface FormatHandler extends Closeable {
     /**
      * Returns true if this format handler can handle this MIME type.
      *
@@ -40,6 +43,28 @@ public interface FormatHandler {
      */
     String extractContent(String language, Path file) throws Exception;
 
+    /**
+     * Extract text content, reporting the progress of long extractions.
+     *
+     * @param language Language
+     * @param file File
+     * @param progress Receives the progress in percent
+     * @return Text content
+     * @throws Exception e
+     */
+    default String extractContent(String language, Path file, IntConsumer progress) throws Exception {
+        return extractContent(language, file);
+    }
+
+    /**
+     * Returns false if a part of the content could not be extracted, like a page which could not be recognized.
+     *
+     * @return True if the last content extracted is complete
+     */
+    default boolean isContentComplete() {
+        return true;
+    }
+
     /**
      * Append to a PDF.
      *
@@ -52,4 +77,24 @@ public interface FormatHandler {
      * @throws Exception e
      */
     void appendToPdf(Path file, PDDocument doc, boolean fitImageToPage, int margin, MemoryUsageSetting memUsageSettings, Closer closer) throws Exception;
+
+    /**
+     * Generate a PDF rendition, stored with the file and appended to the PDF exports instead of converting the file again.
+     *
+     * @param file File
+     * @return PDF file, null if the file is appended directly
+     * @throws Exception e
+     */
+    default Path generatePdf(Path file) throws Exception {
+        return null;
+    }
+
+    /**
+     * Release what has been loaded to handle the file.
+     *
+     * @throws IOException e
+     */
+    @Override
+    default void close() throws IOException {
+    }
 }
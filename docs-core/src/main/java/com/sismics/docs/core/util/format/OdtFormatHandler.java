@@ -49,6 +49,11 @@ public class OdtFormatHandler implements FormatHandler {
         new PdfFormatHandler().appendToPdf(getGeneratedPdf(file), doc, fitImageToPage, margin, memUsageSettings, closer);
     }
 
+    @Override
+    public Path generatePdf(Path file) throws Exception {
+        return getGeneratedPdf(file);
+    }
+
     /**
      * Generate a PDF from this ODT.
      *
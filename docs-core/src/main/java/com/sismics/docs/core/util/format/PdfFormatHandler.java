@@ -1,6 +1,7 @@
 package com.sismics.docs.core.util.format;
 
 import com.google.common.io.Closer;
+import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.docs.core.util.FileUtil;
 import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.constant.ConfigType;
@@ -15,9 +16,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.awt.image.BufferedImage;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
 
 /**
  * PDF format handler.
@@ -30,6 +36,31 @@ public class PdfFormatHandler implements FormatHandler {
      */
     private static final Logger log = LoggerFactory.getLogger(PdfFormatHandler.class);
 
+    /**
+     * Number of rendered pages of a PDF waiting to be recognized.
+     */
+    private static final int OCR_PAGES_AHEAD = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Main memory used by a loaded PDF.
+     */
+    private static final long MAX_MAIN_MEMORY = 10_000_000L;
+
+    /**
+     * Cached PDF loaded file.
+     */
+    private PDDocument pdfDocument;
+
+    /**
+     * Renderer of the cached PDF.
+     */
+    private PDFRenderer renderer;
+
+    /**
+     * False if a page of the last content extracted could not be recognized.
+     */
+    private boolean contentComplete = true;
+
     @Override
     public boolean accept(String mimeType) {
         return mimeType.equals(MimeType.APPLICATION_PDF);
@@ -37,41 +68,109 @@ public class PdfFormatHandler implements FormatHandler {
 
     @Override
     public BufferedImage generateThumbnail(Path file) throws Exception {
-        try (InputStream inputStream = Files.newInputStream(file);
-             PDDocument pdfDocument = PDDocument.load(inputStream)) {
-            PDFRenderer renderer = new PDFRenderer(pdfDocument);
-            return renderer.renderImage(0);
-        }
+        loadPdf(file);
+        return renderer.renderImage(0);
     }
 
     @Override
     public String extractContent(String language, Path file) {
-        String content = null;
-        try (InputStream inputStream = Files.newInputStream(file);
-             PDDocument pdfDocument = PDDocument.load(inputStream)) {
-            content = new PDFTextStripper().getText(pdfDocument);
+        return extractContent(language, file, progress -> {});
+    }
+
+    /**
+     * Extract the text layer page by page, pages without text are recognized by OCR.
+     */
+    @Override
+    public String extractContent(String language, Path file, IntConsumer progress) {
+        contentComplete = true;
+        try {
+            return extractPages(language, loadPdf(file), progress);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.error("Error while extracting text from the PDF", e);
         }
+        contentComplete = false;
+        return null;
+    }
+
+    @Override
+    public boolean isContentComplete() {
+        return contentComplete;
+    }
+
+    /**
+     * Extract the text of the pages of a PDF, or OCR them on the OCR executor shared by all files if they have no text.
+     * The pages are extracted and rendered one after the other as PDFBox is not thread safe,
+     * a bounded number of them waiting to be recognized, and the text is assembled in the page order.
+     *
+     * @param language Language to OCR, null to not OCR
+     * @param pdfDocument PDF document
+     * @param progress Receives the progress in percent
+     * @return Content extracted
+     * @throws Exception e
+     */
+    private String extractPages(String language, PDDocument pdfDocument, IntConsumer progress) throws Exception {
+        boolean ocr = language != null && ConfigUtil.getConfigBooleanValue(ConfigType.OCR_ENABLED, true);
+        PDFTextStripper textStripper = new PDFTextStripper();
+        int pageCount = pdfDocument.getNumberOfPages();
+        Deque<Future<String>> pendingList = new ArrayDeque<>();
+        StringBuilder sb = new StringBuilder();
+        int donePageCount = 0;
+        try {
+            for (int pageIndex = 0; pageIndex < pageCount; pageIndex++) {
+                if (pendingList.size() >= OCR_PAGES_AHEAD) {
+                    appendPage(sb, pendingList.poll(), ++donePageCount, pageCount, progress);
+                }
 
-        // No text content, try to OCR it
-        if (language != null && content != null && content.trim().isEmpty() && ConfigUtil.getConfigBooleanValue(ConfigType.OCR_ENABLED, true)) {
-            StringBuilder sb = new StringBuilder();
-            try (InputStream inputStream = Files.newInputStream(file);
-                 PDDocument pdfDocument = PDDocument.load(inputStream)) {
-                PDFRenderer renderer = new PDFRenderer(pdfDocument);
-                for (int pageIndex = 0; pageIndex < pdfDocument.getNumberOfPages(); pageIndex++) {
-                    log.info("OCR page " + (pageIndex + 1) + "/" + pdfDocument.getNumberOfPages() + " of PDF file containing only images");
-                    sb.append(" ");
-                    sb.append(FileUtil.ocrFile(language, renderer.renderImageWithDPI(pageIndex, 300, ImageType.GRAY)));
+                // Text layer of the page
+                int page = pageIndex + 1;
+                textStripper.setStartPage(page);
+                textStripper.setEndPage(page);
+                String text = textStripper.getText(pdfDocument);
+                if (!ocr || !text.trim().isEmpty()) {
+                    pendingList.add(CompletableFuture.completedFuture(text));
+                    continue;
                 }
-                return sb.toString();
-            } catch (Exception e) {
-                log.error("Error while OCR-izing the PDF", e);
+
+                // No text on this page, try to OCR it
+                BufferedImage image = renderer.renderImageWithDPI(pageIndex, 300, ImageType.GRAY);
+                pendingList.add(AppContext.getInstance().getOcrExecutor().submit(() -> {
+                    log.info("OCR page " + page + "/" + pageCount + " of PDF file without text");
+                    return " " + FileUtil.ocrFile(language, image);
+                }));
+            }
+
+            while (!pendingList.isEmpty()) {
+                appendPage(sb, pendingList.poll(), ++donePageCount, pageCount, progress);
+            }
+        } finally {
+            // Stop recognizing the remaining pages if the processing is interrupted
+            for (Future<String> future : pendingList) {
+                future.cancel(true);
             }
         }
+        return sb.toString();
+    }
 
-        return content;
+    /**
+     * Wait for the text of a page and append it, a page which could not be recognized is left empty.
+     *
+     * @param sb Text of the previous pages
+     * @param future OCR of the page
+     * @param page Page number
+     * @param pageCount Number of pages
+     * @param progress Receives the progress in percent
+     * @throws InterruptedException e
+     */
+    private void appendPage(StringBuilder sb, Future<String> future, int page, int pageCount, IntConsumer progress) throws InterruptedException {
+        try {
+            sb.append(future.get());
+        } catch (ExecutionException e) {
+            log.error("Error while OCR-izing the page " + page + " of the PDF", e.getCause());
+            contentComplete = false;
+        }
+        progress.accept(page * 100 / pageCount);
     }
 
     @Override
@@ -81,4 +180,29 @@ public class PdfFormatHandler implements FormatHandler {
         PDFMergerUtility pdfMergerUtility = new PDFMergerUtility();
         pdfMergerUtility.appendDocument(doc, mergeDoc);
     }
+
+    @Override
+    public void close() throws IOException {
+        if (pdfDocument != null) {
+            pdfDocument.close();
+            pdfDocument = null;
+            renderer = null;
+        }
+    }
+
+    /**
+     * Load the PDF once for the thumbnail and the text extraction, directly from the file
+     * and with a bounded memory usage, the rest going to a scratch file.
+     *
+     * @param file File
+     * @return PDF document
+     * @throws IOException e
+     */
+    private PDDocument loadPdf(Path file) throws IOException {
+        if (pdfDocument == null) {
+            pdfDocument = PDDocument.load(file.toFile(), MemoryUsageSetting.setupMixed(MAX_MAIN_MEMORY));
+            renderer = new PDFRenderer(pdfDocument);
+        }
+        return pdfDocument;
+    }
 }
@@ -1,6 +1,7 @@
 package com.sismics.docs.core.util.format;
 
 import com.google.common.io.Closer;
+import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.util.mime.MimeType;
 import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -70,6 +71,16 @@ public class PptxFormatHandler implements FormatHandler {
         }
     }
 
+    @Override
+    public Path generatePdf(Path file) throws Exception {
+        Path pdfFile = AppContext.getInstance().getFileService().createTemporaryFile();
+        try (PDDocument doc = new PDDocument(); Closer closer = Closer.create()) {
+            appendToPdf(file, doc, false, 0, MemoryUsageSetting.setupMainMemoryOnly(), closer);
+            doc.save(pdfFile.toFile());
+        }
+        return pdfFile;
+    }
+
     private XMLSlideShow loadPPtxFile(Path file) throws Exception {
         if (slideShow == null) {
             try (InputStream inputStream = Files.newInputStream(file)) {
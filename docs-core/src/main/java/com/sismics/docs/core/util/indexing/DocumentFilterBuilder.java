@@ -0,0 +1,176 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.dao.criteria.DocumentMetadataCriteria;
+import com.sismics.docs.core.util.SecurityUtil;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Builder of the index filters matching the document search criteria, except fulltext.
+ */
+final class DocumentFilterBuilder {
+    /**
+     * Private constructor.
+     */
+    private DocumentFilterBuilder() {
+    }
+
+    /**
+     * Add the search criteria, except fulltext, to a query.
+     *
+     * @param query Query
+     * @param criteria Search criteria
+     */
+    static void addFilters(BooleanQuery.Builder query, DocumentCriteria criteria) {
+        if (!SecurityUtil.skipAclCheck(criteria.getTargetIdList())) {
+            // Read permission is enough for searching
+            query.add(new TermInSetQuery("acl_read", toBytesRefList(criteria.getTargetIdList())), BooleanClause.Occur.FILTER);
+        }
+        addDateFilter(query, "create_date", criteria.getCreateDateMin(), criteria.getCreateDateMax());
+        addDateFilter(query, "update_date", criteria.getUpdateDateMin(), criteria.getUpdateDateMax());
+        if (!criteria.getTitleList().isEmpty()) {
+            query.add(new TermInSetQuery("title_exact", toBytesRefList(criteria.getTitleList())), BooleanClause.Occur.FILTER);
+        }
+        addTagFilters(query, criteria);
+        if (criteria.getShared() != null && criteria.getShared()) {
+            query.add(LongPoint.newRangeQuery("share_count", 1, Long.MAX_VALUE), BooleanClause.Occur.FILTER);
+        }
+        addTermFilter(query, "mime_type", criteria.getMimeType());
+        addTermFilter(query, "language", criteria.getLanguage());
+        addTermFilter(query, "creator_id", criteria.getCreatorId());
+        if (criteria.getActiveRoute() != null && criteria.getActiveRoute()) {
+            query.add(new TermInSetQuery("route_target_id", toBytesRefList(criteria.getTargetIdList())), BooleanClause.Occur.FILTER);
+        }
+        for (DocumentMetadataCriteria metadataCriteria : criteria.getMetadataList()) {
+            query.add(getMetadataQuery(metadataCriteria), BooleanClause.Occur.FILTER);
+        }
+    }
+
+    /**
+     * Add a filter on a date range to a query.
+     *
+     * @param query Query
+     * @param field Field
+     * @param min Minimum date, null if unbounded
+     * @param max Maximum date, null if unbounded
+     */
+    private static void addDateFilter(BooleanQuery.Builder query, String field, Date min, Date max) {
+        if (min != null || max != null) {
+            query.add(LongPoint.newRangeQuery(field,
+                    min == null ? Long.MIN_VALUE : min.getTime(),
+                    max == null ? Long.MAX_VALUE : max.getTime()), BooleanClause.Occur.FILTER);
+        }
+    }
+
+    /**
+     * Add a filter on an exact value to a query.
+     *
+     * @param query Query
+     * @param field Field
+     * @param value Value, null if not filtered
+     */
+    private static void addTermFilter(BooleanQuery.Builder query, String field, String value) {
+        if (value != null) {
+            query.add(new TermQuery(new Term(field, value)), BooleanClause.Occur.FILTER);
+        }
+    }
+
+    /**
+     * Add the filters on included and excluded tags to a query.
+     *
+     * @param query Query
+     * @param criteria Search criteria
+     */
+    private static void addTagFilters(BooleanQuery.Builder query, DocumentCriteria criteria) {
+        for (List<String> tagIdList : criteria.getTagIdList()) {
+            query.add(new TermInSetQuery("tag_id", toBytesRefList(tagIdList)), BooleanClause.Occur.FILTER);
+        }
+        for (List<String> tagIdList : criteria.getExcludedTagIdList()) {
+            for (String tagId : tagIdList) {
+                query.add(new TermQuery(new Term("tag_id", tagId)), BooleanClause.Occur.MUST_NOT);
+            }
+        }
+    }
+
+    /**
+     * Returns the query matching a custom metadata criteria.
+     *
+     * @param metadataCriteria Metadata criteria
+     * @return Query
+     */
+    private static Query getMetadataQuery(DocumentMetadataCriteria metadataCriteria) {
+        String field = LuceneIndexingHandler.getMetadataField(metadataCriteria.getMetadataId());
+        String value = metadataCriteria.getValue();
+        try {
+            switch (metadataCriteria.getType()) {
+                case BOOLEAN:
+                    return new TermQuery(new Term(field, String.valueOf(Boolean.parseBoolean(value))));
+                case INTEGER:
+                case DATE:
+                    return getLongQuery(field, metadataCriteria);
+                case FLOAT:
+                    return getDoubleQuery(field, metadataCriteria);
+                default:
+                    return new TermQuery(new Term(field, value == null ? "" : value));
+            }
+        } catch (NumberFormatException e) {
+            return new MatchNoDocsQuery("Invalid metadata value");
+        }
+    }
+
+    /**
+     * Returns the query matching an integer or date metadata criteria, on its value or its range.
+     *
+     * @param field Field
+     * @param metadataCriteria Metadata criteria
+     * @return Query
+     */
+    private static Query getLongQuery(String field, DocumentMetadataCriteria metadataCriteria) {
+        if (metadataCriteria.getValue() != null) {
+            return LongPoint.newExactQuery(field, Long.parseLong(metadataCriteria.getValue()));
+        }
+        return LongPoint.newRangeQuery(field,
+                metadataCriteria.getMin() == null ? Long.MIN_VALUE : Long.parseLong(metadataCriteria.getMin()),
+                metadataCriteria.getMax() == null ? Long.MAX_VALUE : Long.parseLong(metadataCriteria.getMax()));
+    }
+
+    /**
+     * Returns the query matching a float metadata criteria, on its value or its range.
+     *
+     * @param field Field
+     * @param metadataCriteria Metadata criteria
+     * @return Query
+     */
+    private static Query getDoubleQuery(String field, DocumentMetadataCriteria metadataCriteria) {
+        if (metadataCriteria.getValue() != null) {
+            return DoublePoint.newExactQuery(field, Double.parseDouble(metadataCriteria.getValue()));
+        }
+        return DoublePoint.newRangeQuery(field,
+                metadataCriteria.getMin() == null ? Double.NEGATIVE_INFINITY : Double.parseDouble(metadataCriteria.getMin()),
+                metadataCriteria.getMax() == null ? Double.POSITIVE_INFINITY : Double.parseDouble(metadataCriteria.getMax()));
+    }
+
+    /**
+     * Convert strings to index terms.
+     *
+     * @param valueCollection Strings
+     * @return Terms
+     */
+    static List<BytesRef> toBytesRefList(Collection<String> valueCollection) {
+        return valueCollection.stream().map(BytesRef::new).collect(Collectors.toList());
+    }
+}
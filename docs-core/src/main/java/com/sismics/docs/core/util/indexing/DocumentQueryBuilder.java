@@ -0,0 +1,215 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.google.common.base.Strings;
+import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.util.jpa.SortCriteria;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builder of the index queries matching the document search criteria.
+ */
+class DocumentQueryBuilder {
+    /**
+     * Analyzers by language.
+     */
+    private final LanguageAnalyzers languageAnalyzers;
+
+    /**
+     * Fulltext query on files, null if the search is not fulltext.
+     */
+    private Query fileQuery;
+
+    /**
+     * Constructor.
+     *
+     * @param languageAnalyzers Analyzers by language
+     */
+    DocumentQueryBuilder(LanguageAnalyzers languageAnalyzers) {
+        this.languageAnalyzers = languageAnalyzers;
+    }
+
+    /**
+     * Build the query matching the documents.
+     * The documents having a matching file are resolved on the searcher, the query is only valid on it.
+     *
+     * @param searcher Index searcher
+     * @param criteria Search criteria
+     * @return Query
+     * @throws Exception e
+     */
+    Query build(IndexSearcher searcher, DocumentCriteria criteria) throws Exception {
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("doctype", "document")), BooleanClause.Occur.FILTER);
+        if (!Strings.isNullOrEmpty(criteria.getSimpleSearch()) || !Strings.isNullOrEmpty(criteria.getFullSearch())) {
+            query.add(buildFulltextQuery(searcher, criteria), BooleanClause.Occur.MUST);
+        }
+        DocumentFilterBuilder.addFilters(query, criteria);
+        return query.build();
+    }
+
+    /**
+     * Returns the fulltext query on files of the last built query.
+     *
+     * @return Query, null if the search is not fulltext
+     */
+    Query getFileQuery() {
+        return fileQuery;
+    }
+
+    /**
+     * Build the fulltext query, searching in all fields of the documents and of their files.
+     *
+     * @param searcher Index searcher
+     * @param criteria Search criteria
+     * @return Query
+     * @throws Exception e
+     */
+    private Query buildFulltextQuery(IndexSearcher searcher, DocumentCriteria criteria) throws Exception {
+        // The fulltext query searches in all fields
+        String searchQuery = criteria.getSimpleSearch() + " " + criteria.getFullSearch();
+        Analyzer analyzer = languageAnalyzers.getStandardAnalyzer();
+
+        // Search on documents metadata
+        BooleanQuery.Builder documentQuery = new BooleanQuery.Builder()
+                .add(buildQueryParser(analyzer, "title").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "description").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "subject").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "identifier").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "publisher").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "format").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "source").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "type").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "coverage").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "rights").parse(searchQuery), BooleanClause.Occur.SHOULD);
+
+        // Search on files
+        BooleanQuery.Builder fileQueryBuilder = new BooleanQuery.Builder()
+                .add(buildQueryParser(analyzer, "filename").parse(searchQuery), BooleanClause.Occur.SHOULD)
+                .add(buildQueryParser(analyzer, "content").parse(criteria.getFullSearch()), BooleanClause.Occur.SHOULD);
+
+        // Also search with the stemming and stopwords of each language
+        for (String language : getSearchLanguages(searcher, criteria)) {
+            Analyzer languageAnalyzer = languageAnalyzers.getAnalyzer(language);
+            documentQuery.add(buildQueryParser(languageAnalyzer, LanguageAnalyzers.getField("title", language)).parse(searchQuery), BooleanClause.Occur.SHOULD);
+            documentQuery.add(buildQueryParser(languageAnalyzer, LanguageAnalyzers.getField("description", language)).parse(searchQuery), BooleanClause.Occur.SHOULD);
+            fileQueryBuilder.add(buildQueryParser(languageAnalyzer, LanguageAnalyzers.getField("content", language)).parse(criteria.getFullSearch()), BooleanClause.Occur.SHOULD);
+        }
+        fileQuery = fileQueryBuilder.build();
+
+        // Documents having a matching file
+        JoinQuery fileDocumentQuery = JoinQuery.create(searcher, new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("doctype", "file")), BooleanClause.Occur.FILTER)
+                .add(fileQuery, BooleanClause.Occur.MUST)
+                .build(), "document_id", "id");
+
+        BooleanQuery.Builder fulltextQuery = new BooleanQuery.Builder()
+                .add(documentQuery.build(), BooleanClause.Occur.SHOULD);
+        if (!fileDocumentQuery.isEmpty()) {
+            fulltextQuery.add(fileDocumentQuery, BooleanClause.Occur.SHOULD);
+        }
+        return fulltextQuery.build();
+    }
+
+    /**
+     * Returns the languages to search in.
+     *
+     * @param searcher Index searcher
+     * @param criteria Search criteria
+     * @return Language codes having an analyzer
+     * @throws IOException e
+     */
+    private List<String> getSearchLanguages(IndexSearcher searcher, DocumentCriteria criteria) throws IOException {
+        List<String> languageList = new ArrayList<>();
+        if (criteria.getLanguage() != null) {
+            if (languageAnalyzers.hasAnalyzer(criteria.getLanguage())) {
+                languageList.add(criteria.getLanguage());
+            }
+            return languageList;
+        }
+
+        // Only the languages present in the index
+        Terms terms = MultiTerms.getTerms(searcher.getIndexReader(), "language");
+        if (terms != null) {
+            TermsEnum termsEnum = terms.iterator();
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                String language = term.utf8ToString();
+                if (languageAnalyzers.hasAnalyzer(language)) {
+                    languageList.add(language);
+                }
+            }
+        }
+        return languageList;
+    }
+
+    /**
+     * Returns the index sort matching the columns of the select query.
+     *
+     * @param sortCriteria Sort criteria
+     * @return Sort
+     */
+    static Sort getSort(SortCriteria sortCriteria) {
+        SortField idSortField = new SortField("id", SortField.Type.STRING);
+        if (sortCriteria == null) {
+            return new Sort(idSortField);
+        }
+
+        boolean reverse = !sortCriteria.isAsc();
+        SortField sortField;
+        switch (sortCriteria.getColumn()) {
+            case 1:
+                sortField = new SortField("title_exact", SortField.Type.STRING, reverse);
+                break;
+            case 2:
+                sortField = new SortField("description_sort", SortField.Type.STRING, reverse);
+                break;
+            case 3:
+                sortField = new SortField("create_date", SortField.Type.LONG, reverse);
+                break;
+            case 4:
+                sortField = new SortField("language", SortField.Type.STRING, reverse);
+                break;
+            case 5:
+                sortField = new SortField("share_count", SortField.Type.LONG, reverse);
+                break;
+            case 8:
+                sortField = new SortField("update_date", SortField.Type.LONG, reverse);
+                break;
+            default:
+                // Sort by ID, also when the column is not indexed
+                return new Sort(new SortField("id", SortField.Type.STRING, reverse));
+        }
+
+        // Documents are also sorted by ID to keep the pagination stable
+        return new Sort(sortField, idSortField);
+    }
+
+    /**
+     * Build a query parser for searching.
+     *
+     * @param analyzer Analyzer
+     * @param field Field
+     * @return Query parser
+     */
+    private SimpleQueryParser buildQueryParser(Analyzer analyzer, String field) {
+        SimpleQueryParser simpleQueryParser = new SimpleQueryParser(analyzer, field);
+        simpleQueryParser.setDefaultOperator(BooleanClause.Occur.MUST); // AND all the terms
+        return simpleQueryParser;
+    }
+}
@@ -0,0 +1,306 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.sismics.docs.core.constant.MetadataType;
+import com.sismics.docs.core.dao.dto.DocumentFacetsDto;
+import com.sismics.docs.core.dao.dto.MetadataFacetDto;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.util.NumericUtils;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collector counting the tags and custom metadata values of the matching documents.
+ * Values are counted by ordinal in each segment, and only resolved once per segment.
+ */
+class FacetCollector extends SimpleCollector {
+    /**
+     * Maximum number of values returned by string and boolean metadata facet.
+     */
+    private static final int MAX_FACET_VALUES = 20;
+
+    /**
+     * Facets (updated by side effects).
+     */
+    private final DocumentFacetsDto facets;
+
+    /**
+     * Counters by metadata ID.
+     */
+    private final Map<String, MetadataCounter> metadataCounterMap = new HashMap<>();
+
+    /**
+     * Tag counter.
+     */
+    private final OrdinalCounter tagCounter;
+
+    /**
+     * Constructor.
+     *
+     * @param facets Facets (updated by side effects)
+     * @param metadataTypeMap Type of the existing metadata by ID
+     */
+    FacetCollector(DocumentFacetsDto facets, Map<String, MetadataType> metadataTypeMap) {
+        this.facets = facets;
+        tagCounter = new OrdinalCounter("tag_id", facets.getTagCountMap());
+        for (Map.Entry<String, MetadataType> entry : metadataTypeMap.entrySet()) {
+            metadataCounterMap.put(entry.getKey(), new MetadataCounter(LuceneIndexingHandler.getMetadataField(entry.getKey()), entry.getValue()));
+        }
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+        tagCounter.setNextReader(context);
+        for (MetadataCounter metadataCounter : metadataCounterMap.values()) {
+            metadataCounter.setNextReader(context);
+        }
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        tagCounter.collect(doc);
+        for (MetadataCounter metadataCounter : metadataCounterMap.values()) {
+            metadataCounter.collect(doc);
+        }
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return ScoreMode.COMPLETE_NO_SCORES;
+    }
+
+    /**
+     * Fill the facets once all documents are collected.
+     *
+     * @throws IOException e
+     */
+    void finish() throws IOException {
+        tagCounter.flush();
+        for (Map.Entry<String, MetadataCounter> entry : metadataCounterMap.entrySet()) {
+            MetadataFacetDto metadataFacetDto = entry.getValue().finish();
+            if (metadataFacetDto != null) {
+                facets.getMetadataFacetMap().put(entry.getKey(), metadataFacetDto);
+            }
+        }
+    }
+
+    /**
+     * Counter of the values of a sorted set doc values field.
+     */
+    private static class OrdinalCounter {
+        /**
+         * Field name.
+         */
+        private final String field;
+
+        /**
+         * Number of documents by value (updated by side effects).
+         */
+        private final Map<String, Integer> countMap;
+
+        /**
+         * Values of the current segment.
+         */
+        private SortedSetDocValues values;
+
+        /**
+         * Number of documents by ordinal in the current segment.
+         */
+        private int[] ordinalCounts;
+
+        /**
+         * Number of documents having a value.
+         */
+        private int count;
+
+        /**
+         * Constructor.
+         *
+         * @param field Field name
+         * @param countMap Number of documents by value (updated by side effects)
+         */
+        OrdinalCounter(String field, Map<String, Integer> countMap) {
+            this.field = field;
+            this.countMap = countMap;
+        }
+
+        /**
+         * Move to the next segment.
+         *
+         * @param context Segment
+         * @throws IOException e
+         */
+        void setNextReader(LeafReaderContext context) throws IOException {
+            flush();
+            values = DocValues.getSortedSet(context.reader(), field);
+            ordinalCounts = new int[(int) values.getValueCount()];
+        }
+
+        /**
+         * Count the values of a document.
+         *
+         * @param doc Document
+         * @throws IOException e
+         */
+        void collect(int doc) throws IOException {
+            if (values.advanceExact(doc)) {
+                count++;
+                for (long ord = values.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = values.nextOrd()) {
+                    ordinalCounts[(int) ord]++;
+                }
+            }
+        }
+
+        /**
+         * Resolve the values counted in the current segment.
+         *
+         * @throws IOException e
+         */
+        void flush() throws IOException {
+            if (values == null) {
+                return;
+            }
+            for (int ord = 0; ord < ordinalCounts.length; ord++) {
+                if (ordinalCounts[ord] > 0) {
+                    countMap.merge(values.lookupOrd(ord).utf8ToString(), ordinalCounts[ord], Integer::sum);
+                }
+            }
+            values = null;
+        }
+    }
+
+    /**
+     * Counter of a custom metadata.
+     */
+    private static class MetadataCounter {
+        /**
+         * Field name.
+         */
+        private final String field;
+
+        /**
+         * Metadata type.
+         */
+        private final MetadataType type;
+
+        /**
+         * Counter of string and boolean values.
+         */
+        private final OrdinalCounter ordinalCounter;
+
+        /**
+         * Number of documents by value of string and boolean metadata.
+         */
+        private final Map<String, Integer> valueCountMap = new HashMap<>();
+
+        /**
+         * Numeric values of the current segment.
+         */
+        private SortedNumericDocValues numericValues;
+
+        /**
+         * Number of documents having a numeric value.
+         */
+        private int numericCount;
+
+        /**
+         * Minimum numeric value, sortable encoding of doubles for float metadata.
+         */
+        private long min = Long.MAX_VALUE;
+
+        /**
+         * Maximum numeric value, sortable encoding of doubles for float metadata.
+         */
+        private long max = Long.MIN_VALUE;
+
+        /**
+         * Constructor.
+         *
+         * @param field Field name
+         * @param type Metadata type
+         */
+        MetadataCounter(String field, MetadataType type) {
+            this.field = field;
+            this.type = type;
+            ordinalCounter = isNumeric() ? null : new OrdinalCounter(field, valueCountMap);
+        }
+
+        /**
+         * Returns true if the metadata is indexed as a number.
+         *
+         * @return True if numeric
+         */
+        private boolean isNumeric() {
+            return type == MetadataType.INTEGER || type == MetadataType.FLOAT || type == MetadataType.DATE;
+        }
+
+        /**
+         * Move to the next segment.
+         *
+         * @param context Segment
+         * @throws IOException e
+         */
+        void setNextReader(LeafReaderContext context) throws IOException {
+            if (ordinalCounter != null) {
+                ordinalCounter.setNextReader(context);
+            } else {
+                numericValues = DocValues.getSortedNumeric(context.reader(), field);
+            }
+        }
+
+        /**
+         * Count the values of a document.
+         *
+         * @param doc Document
+         * @throws IOException e
+         */
+        void collect(int doc) throws IOException {
+            if (ordinalCounter != null) {
+                ordinalCounter.collect(doc);
+            } else if (numericValues.advanceExact(doc)) {
+                numericCount++;
+                for (int i = 0; i < numericValues.docValueCount(); i++) {
+                    long value = numericValues.nextValue();
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+        }
+
+        /**
+         * Build the facet.
+         *
+         * @return Facet, null if no document has a value
+         * @throws IOException e
+         */
+        MetadataFacetDto finish() throws IOException {
+            MetadataFacetDto metadataFacetDto = new MetadataFacetDto().setType(type);
+            if (ordinalCounter != null) {
+                ordinalCounter.flush();
+                metadataFacetDto.setCount(ordinalCounter.count);
+                valueCountMap.entrySet().stream()
+                        .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                        .limit(MAX_FACET_VALUES)
+                        .forEach(entry -> metadataFacetDto.getValueCountMap().put(entry.getKey(), entry.getValue()));
+            } else {
+                metadataFacetDto.setCount(numericCount);
+                if (numericCount > 0) {
+                    if (type == MetadataType.FLOAT) {
+                        metadataFacetDto.setMin(NumericUtils.sortableLongToDouble(min))
+                                .setMax(NumericUtils.sortableLongToDouble(max));
+                    } else {
+                        metadataFacetDto.setMin(min).setMax(max);
+                    }
+                }
+            }
+            return metadataFacetDto.getCount() == 0 ? null : metadataFacetDto;
+        }
+    }
+}
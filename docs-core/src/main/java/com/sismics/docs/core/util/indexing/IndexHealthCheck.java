@@ -0,0 +1,163 @@
+package com.sismics.docs.core.util.indexing;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Index health check.
+ * At startup, only the last commit point and the footers of its files are verified,
+ * the checksums of the whole index are verified later in the background.
+ */
+public class IndexHealthCheck {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(IndexHealthCheck.class);
+
+    /**
+     * Health check state.
+     */
+    public enum State {
+        /**
+         * Waiting for the background check.
+         */
+        PENDING,
+
+        /**
+         * Checking in the background.
+         */
+        RUNNING,
+
+        /**
+         * Every checksum is valid.
+         */
+        CLEAN,
+
+        /**
+         * The index is corrupt.
+         */
+        CORRUPT,
+
+        /**
+         * The check was interrupted by an index swap or a shutdown.
+         */
+        ABORTED
+    }
+
+    /**
+     * Current state.
+     */
+    private volatile State state = State.PENDING;
+
+    /**
+     * Start timestamp of the background check.
+     */
+    private volatile Long startTimestamp;
+
+    /**
+     * End timestamp of the background check.
+     */
+    private volatile Long endTimestamp;
+
+    /**
+     * Error message.
+     */
+    private volatile String message;
+
+    /**
+     * Quickly verify the last commit of an index.
+     * The commit point is fully verified, the segment files are only checked for truncation.
+     *
+     * @param directory Lucene directory
+     * @return Last commit
+     * @throws IOException e
+     */
+    public static SegmentInfos checkCommit(Directory directory) throws IOException {
+        SegmentInfos segmentInfos = SegmentInfos.readLatestCommit(directory);
+        for (SegmentCommitInfo segmentCommitInfo : segmentInfos) {
+            for (String file : segmentCommitInfo.files()) {
+                try (IndexInput input = directory.openInput(file, IOContext.READONCE)) {
+                    CodecUtil.retrieveChecksum(input);
+                }
+            }
+        }
+        return segmentInfos;
+    }
+
+    /**
+     * Verify the checksums of every file of a commit.
+     *
+     * @param commit Index commit, protected from deletion during the check
+     * @return False if the index is corrupt
+     */
+    public boolean checkIntegrity(IndexCommit commit) {
+        state = State.RUNNING;
+        startTimestamp = System.currentTimeMillis();
+        log.info("Checking the index integrity");
+        try (DirectoryReader reader = DirectoryReader.open(commit)) {
+            for (LeafReaderContext context : reader.leaves()) {
+                context.reader().checkIntegrity();
+            }
+            finish(State.CLEAN, null);
+            log.info("Index integrity checked in {}ms", endTimestamp - startTimestamp);
+        } catch (AlreadyClosedException e) {
+            finish(State.ABORTED, e.getMessage());
+        } catch (Exception e) {
+            log.error("The index is corrupt", e);
+            finish(State.CORRUPT, e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Mark the check as finished.
+     *
+     * @param state Final state
+     * @param message Error message
+     */
+    private void finish(State state, String message) {
+        this.message = message;
+        endTimestamp = System.currentTimeMillis();
+        this.state = state;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the result as JSON.
+     *
+     * @return Result
+     */
+    public JsonObjectBuilder toJson() {
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("state", state.name().toLowerCase(Locale.ENGLISH));
+        if (startTimestamp != null) {
+            json.add("start_timestamp", startTimestamp);
+        }
+        if (endTimestamp != null) {
+            json.add("end_timestamp", endTimestamp);
+        }
+        if (message != null) {
+            json.add("message", message);
+        }
+        return json;
+    }
+}
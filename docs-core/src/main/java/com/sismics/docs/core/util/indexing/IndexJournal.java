@@ -0,0 +1,185 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Journal of the index mutations not yet committed.
+ * Each mutated ID is appended to the current journal file, which is rotated before
+ * an index commit and deleted once this commit succeeded.
+ * Journal files remaining on startup mean that the index is behind the database.
+ */
+public class IndexJournal {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(IndexJournal.class);
+
+    /**
+     * Journal file name pattern.
+     */
+    private static final Pattern JOURNAL_FILE_PATTERN = Pattern.compile("journal-(\\d+)\\.log");
+
+    /**
+     * Journal directory.
+     */
+    private final Path directory;
+
+    /**
+     * Journal files left by a previous run.
+     */
+    private final List<Path> pendingFileList = new ArrayList<>();
+
+    /**
+     * Current journal generation.
+     */
+    private long generation;
+
+    /**
+     * Current journal file.
+     */
+    private Path currentFile;
+
+    /**
+     * Current journal writer.
+     */
+    private BufferedWriter writer;
+
+    /**
+     * True if at least one ID has been recorded in the current journal file.
+     */
+    private boolean dirty;
+
+    /**
+     * Open the journal in a directory.
+     *
+     * @param directory Journal directory
+     * @throws IOException e
+     */
+    public IndexJournal(Path directory) throws IOException {
+        this.directory = directory;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                Matcher matcher = JOURNAL_FILE_PATTERN.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    pendingFileList.add(path);
+                    generation = Math.max(generation, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        open();
+    }
+
+    /**
+     * Returns the IDs journaled by a previous run and never committed.
+     *
+     * @return Set of IDs
+     * @throws IOException e
+     */
+    public synchronized Set<String> getPendingIdSet() throws IOException {
+        Set<String> idSet = new LinkedHashSet<>();
+        for (Path path : pendingFileList) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    idSet.add(line.trim());
+                }
+            }
+        }
+        return idSet;
+    }
+
+    /**
+     * Discard the journal files left by a previous run.
+     * To be called once they have been replayed and committed.
+     */
+    public synchronized void discardPending() {
+        for (Path path : pendingFileList) {
+            discard(path);
+        }
+        pendingFileList.clear();
+    }
+
+    /**
+     * Record a mutated ID in the current journal file.
+     *
+     * @param id ID
+     * @throws IOException e
+     */
+    public synchronized void record(String id) throws IOException {
+        writer.write(id);
+        writer.newLine();
+        writer.flush();
+        dirty = true;
+    }
+
+    /**
+     * Switch to a new journal file.
+     *
+     * @return Previous journal file, to discard after the next commit, or null if it was empty
+     * @throws IOException e
+     */
+    public synchronized Path rotate() throws IOException {
+        if (!dirty) {
+            return null;
+        }
+        Path previousFile = currentFile;
+        writer.close();
+        open();
+        return previousFile;
+    }
+
+    /**
+     * Discard a journal file.
+     *
+     * @param path Journal file
+     */
+    public void discard(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.error("Unable to delete the index journal file: " + path, e);
+        }
+    }
+
+    /**
+     * Close the journal.
+     * The current journal file is kept if it contains uncommitted mutations.
+     */
+    public synchronized void close() {
+        try {
+            writer.close();
+            if (!dirty) {
+                Files.deleteIfExists(currentFile);
+            }
+        } catch (IOException e) {
+            log.error("Error closing the index journal", e);
+        }
+    }
+
+    /**
+     * Open a new journal file.
+     *
+     * @throws IOException e
+     */
+    private void open() throws IOException {
+        generation++;
+        dirty = false;
+        currentFile = directory.resolve("journal-" + generation + ".log");
+        writer = Files.newBufferedWriter(currentFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,283 @@
+package com.sismics.docs.core.util.indexing;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipeline indexing entities by chunks of IDs.
+ * A producer reads the IDs in ascending order and queues them by chunks in a bounded queue,
+ * workers load and index the chunks in parallel. A checkpoint is regularly taken on the last ID
+ * below which every chunk is indexed, so that an interrupted run can be resumed from it.
+ */
+public class IndexRebuildPipeline {
+    /**
+     * Marker of the end of the queue.
+     */
+    private static final Chunk END = new Chunk(-1, Collections.emptyList());
+
+    /**
+     * Number of workers.
+     */
+    private final int threadCount;
+
+    /**
+     * Number of IDs per chunk.
+     */
+    private final int chunkSize;
+
+    /**
+     * Minimum interval between two checkpoints (in milliseconds).
+     */
+    private final long checkpointInterval;
+
+    /**
+     * Constructor.
+     *
+     * @param threadCount Number of workers
+     * @param chunkSize Number of IDs per chunk
+     * @param checkpointInterval Minimum interval between two checkpoints (in milliseconds)
+     */
+    public IndexRebuildPipeline(int threadCount, int chunkSize, long checkpointInterval) {
+        this.threadCount = threadCount;
+        this.chunkSize = chunkSize;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Index all IDs after a given one.
+     *
+     * @param afterId Start after this ID, null to start from the beginning
+     * @param reader Reader of the chunks of IDs
+     * @param indexer Indexer of a chunk
+     * @param checkpointHandler Handler of the checkpoints
+     * @throws Exception e
+     */
+    public void run(String afterId, ChunkReader reader, ChunkIndexer indexer, CheckpointHandler checkpointHandler) throws Exception {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(threadCount * 2);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Frontier frontier = new Frontier(afterId);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount, runnable -> {
+            Thread thread = new Thread(runnable, "Lucene rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threadCount; i++) {
+            executor.execute(() -> consume(queue, indexer, frontier, failure));
+        }
+
+        try {
+            long sequence = 0;
+            String lastId = afterId;
+            String checkpointId = afterId;
+            long checkpointTime = System.currentTimeMillis();
+            List<String> idList;
+            do {
+                idList = reader.read(lastId, chunkSize);
+                if (!idList.isEmpty()) {
+                    lastId = idList.get(idList.size() - 1);
+                    frontier.produce(sequence, lastId);
+                    queue.put(new Chunk(sequence++, idList));
+                }
+
+                if (System.currentTimeMillis() - checkpointTime >= checkpointInterval) {
+                    String frontierId = frontier.getLastId();
+                    if (!Objects.equals(frontierId, checkpointId)) {
+                        checkpointHandler.checkpoint(frontierId);
+                        checkpointId = frontierId;
+                    }
+                    checkpointTime = System.currentTimeMillis();
+                }
+            } while (idList.size() == chunkSize && failure.get() == null);
+        } finally {
+            stopWorkers(queue, executor);
+        }
+
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Index the queued chunks until the end of the queue.
+     *
+     * @param queue Queue of chunks
+     * @param indexer Indexer of a chunk
+     * @param frontier Frontier of the indexed chunks
+     * @param failure First failure of the workers
+     */
+    private void consume(BlockingQueue<Chunk> queue, ChunkIndexer indexer, Frontier frontier, AtomicReference<Exception> failure) {
+        try {
+            Chunk chunk;
+            while ((chunk = queue.take()) != END) {
+                if (failure.get() != null) {
+                    // Drain the queue to unblock the producer
+                    continue;
+                }
+                try {
+                    indexer.index(chunk.idList);
+                    frontier.complete(chunk.sequence);
+                } catch (Exception e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop the workers once the queued chunks are indexed.
+     *
+     * @param queue Queue of chunks
+     * @param executor Executor of the workers
+     * @throws InterruptedException e
+     */
+    private void stopWorkers(BlockingQueue<Chunk> queue, ExecutorService executor) throws InterruptedException {
+        for (int i = 0; i < threadCount; i++) {
+            queue.put(END);
+        }
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reader of the chunks of IDs.
+     */
+    public interface ChunkReader {
+        /**
+         * Read the next chunk of IDs, in ascending order.
+         *
+         * @param afterId Last ID of the previous chunk, null for the first chunk
+         * @param limit Maximum number of IDs
+         * @return List of IDs
+         * @throws Exception e
+         */
+        List<String> read(String afterId, int limit) throws Exception;
+    }
+
+    /**
+     * Indexer of a chunk.
+     */
+    public interface ChunkIndexer {
+        /**
+         * Index a chunk of IDs.
+         *
+         * @param idList List of IDs
+         * @throws Exception e
+         */
+        void index(List<String> idList) throws Exception;
+    }
+
+    /**
+     * Handler of the checkpoints.
+     */
+    public interface CheckpointHandler {
+        /**
+         * Make the progress durable.
+         *
+         * @param lastId Every ID up to this one is indexed
+         * @throws Exception e
+         */
+        void checkpoint(String lastId) throws Exception;
+    }
+
+    /**
+     * Chunk of IDs.
+     */
+    private static class Chunk {
+        /**
+         * Sequence number.
+         */
+        private final long sequence;
+
+        /**
+         * List of IDs.
+         */
+        private final List<String> idList;
+
+        /**
+         * Constructor.
+         *
+         * @param sequence Sequence number
+         * @param idList List of IDs
+         */
+        private Chunk(long sequence, List<String> idList) {
+            this.sequence = sequence;
+            this.idList = idList;
+        }
+    }
+
+    /**
+     * Last ID below which every chunk is indexed.
+     * Chunks complete out of order, the frontier advances over the contiguous completed ones.
+     */
+    private static class Frontier {
+        /**
+         * Last ID of the produced chunks not yet passed, by sequence number.
+         */
+        private final Map<Long, String> lastIdMap = new HashMap<>();
+
+        /**
+         * Sequence numbers of the completed chunks not yet passed.
+         */
+        private final Set<Long> completedSet = new HashSet<>();
+
+        /**
+         * Sequence number of the next chunk to pass.
+         */
+        private long nextSequence;
+
+        /**
+         * Last ID passed.
+         */
+        private String lastId;
+
+        /**
+         * Constructor.
+         *
+         * @param lastId Initial last ID
+         */
+        private Frontier(String lastId) {
+            this.lastId = lastId;
+        }
+
+        /**
+         * Register a produced chunk.
+         *
+         * @param sequence Sequence number
+         * @param lastId Last ID of the chunk
+         */
+        private synchronized void produce(long sequence, String lastId) {
+            lastIdMap.put(sequence, lastId);
+        }
+
+        /**
+         * Register a completed chunk.
+         *
+         * @param sequence Sequence number
+         */
+        private synchronized void complete(long sequence) {
+            completedSet.add(sequence);
+            while (completedSet.remove(nextSequence)) {
+                lastId = lastIdMap.remove(nextSequence);
+                nextSequence++;
+            }
+        }
+
+        private synchronized String getLastId() {
+            return lastId;
+        }
+    }
+}
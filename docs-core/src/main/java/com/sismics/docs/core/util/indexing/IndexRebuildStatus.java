@@ -0,0 +1,96 @@
+package com.sismics.docs.core.util.indexing;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of an index rebuild.
+ */
+public class IndexRebuildStatus {
+    /**
+     * Start timestamp.
+     */
+    private final long startTimestamp = System.currentTimeMillis();
+
+    /**
+     * End timestamp, null while running.
+     */
+    private volatile Long endTimestamp;
+
+    /**
+     * True if the rebuild failed.
+     */
+    private volatile boolean failed;
+
+    /**
+     * Number of documents to index.
+     */
+    private volatile long documentTotal;
+
+    /**
+     * Number of files to index.
+     */
+    private volatile long fileTotal;
+
+    /**
+     * Number of documents indexed.
+     */
+    private final AtomicLong documentIndexed = new AtomicLong();
+
+    /**
+     * Number of files indexed.
+     */
+    private final AtomicLong fileIndexed = new AtomicLong();
+
+    public void setDocumentTotal(long documentTotal) {
+        this.documentTotal = documentTotal;
+    }
+
+    public void setFileTotal(long fileTotal) {
+        this.fileTotal = fileTotal;
+    }
+
+    public void addDocumentIndexed(long count) {
+        documentIndexed.addAndGet(count);
+    }
+
+    public void addFileIndexed(long count) {
+        fileIndexed.addAndGet(count);
+    }
+
+    public boolean isRunning() {
+        return endTimestamp == null;
+    }
+
+    /**
+     * Mark the rebuild as finished.
+     *
+     * @param failed True if the rebuild failed
+     */
+    public void finish(boolean failed) {
+        this.failed = failed;
+        endTimestamp = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the progress as JSON.
+     *
+     * @return Progress
+     */
+    public JsonObjectBuilder toJson() {
+        JsonObjectBuilder json = Json.createObjectBuilder()
+                .add("running", isRunning())
+                .add("failed", failed)
+                .add("start_timestamp", startTimestamp)
+                .add("document_total", documentTotal)
+                .add("document_indexed", documentIndexed.get())
+                .add("file_total", fileTotal)
+                .add("file_indexed", fileIndexed.get());
+        if (endTimestamp != null) {
+            json.add("end_timestamp", endTimestamp);
+        }
+        return json;
+    }
+}
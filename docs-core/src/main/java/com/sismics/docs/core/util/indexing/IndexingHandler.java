@@ -3,10 +3,12 @@ package com.sismics.docs.core.util.indexing;
 import com.sismics.docs.core.constant.PermType;
 import com.sismics.docs.core.dao.criteria.DocumentCriteria;
 import com.sismics.docs.core.dao.dto.DocumentDto;
+import com.sismics.docs.core.dao.dto.DocumentFacetsDto;
 import com.sismics.docs.core.model.jpa.Document;
 import com.sismics.docs.core.model.jpa.File;
 import com.sismics.docs.core.util.jpa.PaginatedList;
 import com.sismics.docs.core.util.jpa.SortCriteria;
+import jakarta.json.JsonObjectBuilder;
 
 import java.util.List;
 
@@ -36,23 +38,12 @@ public interface IndexingHandler {
     void shutDown();
 
     /**
-     * Clear the index.
-     */
-    void clearIndex();
-
-    /**
-     * Index a list of documents.
-     *
-     * @param documentList All documents
-     */
-    void createDocuments(List<Document> documentList);
-
-    /**
-     * Index a list of files.
+     * Rebuild the index from the database.
+     * Searches keep using the current index meanwhile.
      *
-     * @param fileList All files
+     * @throws Exception e
      */
-    void createFiles(List<File> fileList);
+    void rebuildIndex() throws Exception;
 
     /**
      * Index a new document.
@@ -112,9 +103,18 @@ public interface IndexingHandler {
      *
      * @param paginatedList List of documents (updated by side effects)
      * @param suggestionList Suggestion of search query (updated by side effects)
+     * @param facets Facets of the whole result set (updated by side effects), null if not needed
      * @param criteria Search criteria
      * @param sortCriteria Sort criteria
      * @throws Exception e
      */
-    void findByCriteria(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception;
+    void findByCriteria(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, DocumentFacetsDto facets,
+                        DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception;
+
+    /**
+     * Returns the status of the indexing handler, for monitoring purposes.
+     *
+     * @return Status
+     */
+    JsonObjectBuilder getStatus();
 }
@@ -0,0 +1,244 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Query matching the index documents referenced by the index documents matching another query,
+ * e.g. the documents having a matching file.
+ * The join is resolved while collecting the matches, one bit per index document and per distinct value,
+ * so the memory used doesn't depend on the number of matches. The query is only valid on the searcher it was created with.
+ */
+public class JoinQuery extends Query {
+    /**
+     * Matching index documents, by segment, null when a segment has none.
+     */
+    private final FixedBitSet[] bitSets;
+
+    /**
+     * Description of the join.
+     */
+    private final String description;
+
+    /**
+     * Constructor.
+     *
+     * @param bitSets Matching index documents, by segment
+     * @param description Description of the join
+     */
+    private JoinQuery(FixedBitSet[] bitSets, String description) {
+        this.bitSets = bitSets;
+        this.description = description;
+    }
+
+    /**
+     * Create a join query.
+     *
+     * @param searcher Searcher
+     * @param fromQuery Query matching the referencing index documents
+     * @param fromField Sorted doc values field of the referencing index documents containing the reference
+     * @param toField Indexed field of the referenced index documents
+     * @return Join query
+     * @throws IOException e
+     */
+    public static JoinQuery create(IndexSearcher searcher, Query fromQuery, String fromField, String toField) throws IOException {
+        List<LeafReaderContext> leafList = searcher.getIndexReader().leaves();
+        JoinCollector collector = new JoinCollector(leafList, fromField, toField);
+        searcher.search(fromQuery, collector);
+        collector.join();
+        return new JoinQuery(collector.bitSets, fromQuery + " " + fromField + "->" + toField);
+    }
+
+    /**
+     * Returns true if no index document matches.
+     *
+     * @return True if empty
+     */
+    public boolean isEmpty() {
+        for (FixedBitSet bitSet : bitSets) {
+            if (bitSet != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+        return new ConstantScoreWeight(this, boost) {
+            @Override
+            public Scorer scorer(LeafReaderContext context) {
+                FixedBitSet bitSet = context.ord < bitSets.length ? bitSets[context.ord] : null;
+                if (bitSet == null) {
+                    return null;
+                }
+                DocIdSetIterator iterator = new BitSetIterator(bitSet, bitSet.cardinality());
+                return new ConstantScoreScorer(this, score(), scoreMode, iterator);
+            }
+
+            @Override
+            public boolean isCacheable(LeafReaderContext context) {
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        visitor.visitLeaf(this);
+    }
+
+    @Override
+    public String toString(String field) {
+        return "JoinQuery(" + description + ")";
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return sameClassAs(other) && bitSets == ((JoinQuery) other).bitSets;
+    }
+
+    @Override
+    public int hashCode() {
+        return classHash() + System.identityHashCode(bitSets);
+    }
+
+    /**
+     * Collector of the references, resolved to the referenced index documents at the end of each segment.
+     */
+    private static class JoinCollector extends SimpleCollector {
+        /**
+         * Segments of the index.
+         */
+        private final List<LeafReaderContext> leafList;
+
+        /**
+         * Field of the references.
+         */
+        private final String fromField;
+
+        /**
+         * Field of the referenced index documents.
+         */
+        private final String toField;
+
+        /**
+         * Referenced index documents, by segment.
+         */
+        private final FixedBitSet[] bitSets;
+
+        /**
+         * References of the current segment.
+         */
+        private SortedDocValues values;
+
+        /**
+         * Ordinals of the references collected in the current segment.
+         */
+        private FixedBitSet ordBitSet;
+
+        /**
+         * Postings of the referenced index documents, reused from one term to the other.
+         */
+        private PostingsEnum postingsEnum;
+
+        /**
+         * Constructor.
+         *
+         * @param leafList Segments of the index
+         * @param fromField Field of the references
+         * @param toField Field of the referenced index documents
+         */
+        JoinCollector(List<LeafReaderContext> leafList, String fromField, String toField) {
+            this.leafList = leafList;
+            this.fromField = fromField;
+            this.toField = toField;
+            this.bitSets = new FixedBitSet[leafList.size()];
+        }
+
+        @Override
+        protected void doSetNextReader(LeafReaderContext context) throws IOException {
+            join();
+            values = DocValues.getSorted(context.reader(), fromField);
+            ordBitSet = new FixedBitSet(Math.max(values.getValueCount(), 1));
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            if (values.advanceExact(doc)) {
+                ordBitSet.set(values.ordValue());
+            }
+        }
+
+        @Override
+        public ScoreMode scoreMode() {
+            return ScoreMode.COMPLETE_NO_SCORES;
+        }
+
+        /**
+         * Resolve the references collected in the current segment.
+         *
+         * @throws IOException e
+         */
+        void join() throws IOException {
+            if (ordBitSet == null) {
+                return;
+            }
+
+            TermsEnum[] termsEnums = new TermsEnum[leafList.size()];
+            for (LeafReaderContext leaf : leafList) {
+                Terms terms = leaf.reader().terms(toField);
+                termsEnums[leaf.ord] = terms == null ? null : terms.iterator();
+            }
+
+            BitSetIterator ordIterator = new BitSetIterator(ordBitSet, 0);
+            for (int ord = ordIterator.nextDoc(); ord != DocIdSetIterator.NO_MORE_DOCS; ord = ordIterator.nextDoc()) {
+                BytesRef value = values.lookupOrd(ord);
+                for (LeafReaderContext leaf : leafList) {
+                    TermsEnum termsEnum = termsEnums[leaf.ord];
+                    if (termsEnum != null && termsEnum.seekExact(value)) {
+                        markDocuments(leaf, termsEnum);
+                    }
+                }
+            }
+            ordBitSet = null;
+        }
+
+        /**
+         * Mark the index documents of a segment containing the current term.
+         *
+         * @param leaf Segment
+         * @param termsEnum Terms positioned on the term
+         * @throws IOException e
+         */
+        private void markDocuments(LeafReaderContext leaf, TermsEnum termsEnum) throws IOException {
+            if (bitSets[leaf.ord] == null) {
+                bitSets[leaf.ord] = new FixedBitSet(leaf.reader().maxDoc());
+            }
+            postingsEnum = termsEnum.postings(postingsEnum, PostingsEnum.NONE);
+            for (int doc = postingsEnum.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postingsEnum.nextDoc()) {
+                bitSets[leaf.ord].set(doc);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.ar.ArabicAnalyzer;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.analysis.cz.CzechAnalyzer;
+import org.apache.lucene.analysis.da.DanishAnalyzer;
+import org.apache.lucene.analysis.de.GermanAnalyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.analysis.fi.FinnishAnalyzer;
+import org.apache.lucene.analysis.fr.FrenchAnalyzer;
+import org.apache.lucene.analysis.hi.HindiAnalyzer;
+import org.apache.lucene.analysis.hu.HungarianAnalyzer;
+import org.apache.lucene.analysis.it.ItalianAnalyzer;
+import org.apache.lucene.analysis.lv.LatvianAnalyzer;
+import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.nl.DutchAnalyzer;
+import org.apache.lucene.analysis.no.NorwegianAnalyzer;
+import org.apache.lucene.analysis.pt.PortugueseAnalyzer;
+import org.apache.lucene.analysis.ru.RussianAnalyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.sv.SwedishAnalyzer;
+import org.apache.lucene.analysis.th.ThaiAnalyzer;
+import org.apache.lucene.analysis.tr.TurkishAnalyzer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Analyzers of the document languages.
+ * Text fields are indexed with the standard analyzer, and again in a sub-field
+ * analyzed with the stemming and stopwords of the document language (e.g. content_fra).
+ * Analyzers are thread-safe, they are created once and shared by indexing and searching.
+ */
+public class LanguageAnalyzers {
+    /**
+     * Text fields also indexed in a language sub-field.
+     */
+    public static final List<String> LANGUAGE_FIELD_LIST = Collections.unmodifiableList(Arrays.asList("title", "description", "content"));
+
+    /**
+     * Analyzer of the fields without language.
+     */
+    private final Analyzer standardAnalyzer = new StandardAnalyzer();
+
+    /**
+     * Analyzers indexed by language code.
+     * Languages without a dedicated analyzer in Lucene are not indexed in sub-fields.
+     */
+    private final Map<String, Analyzer> analyzerMap = new HashMap<>();
+
+    /**
+     * Analyzer used by the index writer, delegating to the language analyzers for the sub-fields.
+     */
+    private final Analyzer indexAnalyzer;
+
+    /**
+     * Constructor.
+     */
+    public LanguageAnalyzers() {
+        analyzerMap.put("eng", new EnglishAnalyzer());
+        analyzerMap.put("fra", new FrenchAnalyzer());
+        analyzerMap.put("ita", new ItalianAnalyzer());
+        analyzerMap.put("deu", new GermanAnalyzer());
+        analyzerMap.put("spa", new SpanishAnalyzer());
+        analyzerMap.put("por", new PortugueseAnalyzer());
+        analyzerMap.put("rus", new RussianAnalyzer());
+        analyzerMap.put("ara", new ArabicAnalyzer());
+        analyzerMap.put("hin", new HindiAnalyzer());
+        analyzerMap.put("tha", new ThaiAnalyzer());
+        analyzerMap.put("nld", new DutchAnalyzer());
+        analyzerMap.put("tur", new TurkishAnalyzer());
+        analyzerMap.put("hun", new HungarianAnalyzer());
+        analyzerMap.put("fin", new FinnishAnalyzer());
+        analyzerMap.put("swe", new SwedishAnalyzer());
+        analyzerMap.put("lav", new LatvianAnalyzer());
+        analyzerMap.put("dan", new DanishAnalyzer());
+        analyzerMap.put("nor", new NorwegianAnalyzer());
+        analyzerMap.put("ces", new CzechAnalyzer());
+
+        // CJK scripts are not separated by spaces, they are indexed as bigrams
+        Analyzer cjkAnalyzer = new CJKAnalyzer();
+        analyzerMap.put("chi_sim", cjkAnalyzer);
+        analyzerMap.put("chi_tra", cjkAnalyzer);
+        analyzerMap.put("jpn", cjkAnalyzer);
+        analyzerMap.put("kor", cjkAnalyzer);
+
+        Map<String, Analyzer> fieldAnalyzerMap = new HashMap<>();
+        for (Map.Entry<String, Analyzer> entry : analyzerMap.entrySet()) {
+            for (String field : LANGUAGE_FIELD_LIST) {
+                fieldAnalyzerMap.put(getField(field, entry.getKey()), entry.getValue());
+            }
+        }
+        indexAnalyzer = new PerFieldAnalyzerWrapper(standardAnalyzer, fieldAnalyzerMap);
+    }
+
+    /**
+     * Returns the name of the language sub-field of a field.
+     *
+     * @param field Field name
+     * @param language Language code
+     * @return Sub-field name
+     */
+    public static String getField(String field, String language) {
+        return field + "_" + language;
+    }
+
+    /**
+     * Returns true if a language is indexed in sub-fields.
+     *
+     * @param language Language code
+     * @return True if the language has an analyzer
+     */
+    public boolean hasAnalyzer(String language) {
+        return language != null && analyzerMap.containsKey(language);
+    }
+
+    /**
+     * Returns the analyzer of a language.
+     *
+     * @param language Language code
+     * @return Analyzer, null if the language has none
+     */
+    public Analyzer getAnalyzer(String language) {
+        return language == null ? null : analyzerMap.get(language);
+    }
+
+    public Analyzer getStandardAnalyzer() {
+        return standardAnalyzer;
+    }
+
+    public Analyzer getIndexAnalyzer() {
+        return indexAnalyzer;
+    }
+}
@@ -3,70 +3,123 @@ package com.sismics.docs.core.util.indexing;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.constant.IndexCommitPolicy;
+import com.sismics.docs.core.constant.MetadataType;
 import com.sismics.docs.core.constant.PermType;
 import com.sismics.docs.core.dao.ConfigDao;
+import com.sismics.docs.core.dao.DocumentDao;
+import com.sismics.docs.core.dao.DocumentIndexDao;
+import com.sismics.docs.core.dao.FileDao;
+import com.sismics.docs.core.dao.MetadataDao;
 import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.dao.criteria.MetadataCriteria;
 import com.sismics.docs.core.dao.dto.DocumentDto;
+import com.sismics.docs.core.dao.dto.DocumentFacetsDto;
+import com.sismics.docs.core.dao.dto.DocumentIndexDto;
+import com.sismics.docs.core.dao.dto.DocumentMetadataDto;
+import com.sismics.docs.core.dao.dto.MetadataDto;
 import com.sismics.docs.core.event.RebuildIndexAsyncEvent;
 import com.sismics.docs.core.model.context.AppContext;
 import com.sismics.docs.core.model.jpa.Config;
 import com.sismics.docs.core.model.jpa.Document;
 import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.util.DirectoryUtil;
 import com.sismics.docs.core.util.SecurityUtil;
+import com.sismics.docs.core.util.TransactionUtil;
 import com.sismics.docs.core.util.jpa.PaginatedList;
 import com.sismics.docs.core.util.jpa.PaginatedLists;
 import com.sismics.docs.core.util.jpa.QueryParam;
+import com.sismics.docs.core.util.jpa.QueryUtil;
 import com.sismics.docs.core.util.jpa.SortCriteria;
 import com.sismics.util.ClasspathScanner;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+import org.apache.lucene.document.DoublePoint;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
-import org.apache.lucene.index.CheckIndex;
 import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
 import org.apache.lucene.index.Term;
-import org.apache.lucene.queryparser.simple.SimpleQueryParser;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.search.highlight.Highlighter;
-import org.apache.lucene.search.highlight.QueryScorer;
-import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
-import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
-import org.apache.lucene.search.spell.LuceneDictionary;
-import org.apache.lucene.search.suggest.Lookup;
-import org.apache.lucene.search.suggest.analyzing.FuzzySuggester;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.LengthGoalBreakIterator;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.NRTCachingDirectory;
+import org.apache.lucene.store.NativeFSLockFactory;
 import org.apache.lucene.store.NoLockFactory;
 import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.Timestamp;
+import java.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Lucene indexing handler.
- * Documents and files are indexed in Lucene, but only used for fulltext search.
- * Other search criteria are still using the database.
+ * Documents and files are indexed in Lucene. Fulltext searches are filtered, sorted and paginated
+ * in the index, then only the current page is fetched from the database.
+ * Mutations are visible to searches after a bounded refresh lag (near-real-time),
+ * and committed to the directory according to the configured commit policy.
  *
  * @author bgamard
  */
@@ -78,20 +131,185 @@ public class LuceneIndexingHandler implements IndexingHandler {
     private static final Logger log = LoggerFactory.getLogger(LuceneIndexingHandler.class);
 
     /**
-     * Lucene directory.
+     * Version of the indexed fields, the index is rebuilt when it changes.
      */
-    private Directory directory;
+    private static final String INDEX_VERSION = "5";
+
+    /**
+     * Commit data key of the index version.
+     */
+    private static final String INDEX_VERSION_KEY = "version";
+
+    /**
+     * Maximum size of the merged segments kept in memory by the NRT cache (in MB).
+     */
+    private static final double NRT_CACHE_MAX_MERGE_SIZE = 5;
+
+    /**
+     * Commit user data key of the progress of an index rebuild.
+     */
+    private static final String REBUILD_CHECKPOINT_KEY = "rebuild_checkpoint";
+
+    /**
+     * Number of documents or files indexed at once while rebuilding the index.
+     */
+    private static final int REBUILD_CHUNK_SIZE = 100;
+
+    /**
+     * Minimum interval between two checkpoints of an index rebuild (in milliseconds).
+     */
+    private static final long REBUILD_CHECKPOINT_INTERVAL = 30000;
+
+    /**
+     * Maximum number of file hits considered to highlight a page of documents.
+     */
+    private static final int MAX_HIGHLIGHT_HITS = 1000;
+
+    /**
+     * Target length of a highlight (in characters).
+     */
+    private static final int HIGHLIGHT_LENGTH = 100;
 
     /**
-     * Directory reader.
+     * Content field type, offsets are indexed to highlight without analyzing the content again.
      */
-    private DirectoryReader directoryReader;
+    private static final FieldType CONTENT_FIELD_TYPE = new FieldType(TextField.TYPE_STORED);
+
+    static {
+        CONTENT_FIELD_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        CONTENT_FIELD_TYPE.freeze();
+    }
+
+    /**
+     * Content language sub-field type, the content is only stored once in the content field.
+     */
+    private static final FieldType CONTENT_LANGUAGE_FIELD_TYPE = new FieldType(TextField.TYPE_NOT_STORED);
+
+    static {
+        CONTENT_LANGUAGE_FIELD_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        CONTENT_LANGUAGE_FIELD_TYPE.freeze();
+    }
+
+    /**
+     * Analyzers shared by indexing and searching.
+     */
+    private final LanguageAnalyzers languageAnalyzers = new LanguageAnalyzers();
+
+    /**
+     * Lucene directory.
+     */
+    private Directory directory;
 
     /**
      * Index writer.
      */
     private IndexWriter indexWriter;
 
+    /**
+     * Health check of the index found at startup, null if there was none.
+     */
+    private volatile IndexHealthCheck healthCheck;
+
+    /**
+     * Background health check executor.
+     */
+    private ExecutorService healthCheckExecutor;
+
+    /**
+     * Lucene storage: RAM, FILE or MMAP.
+     */
+    private String luceneStorage;
+
+    /**
+     * Size of the NRT cache in front of the file storage (in MB), 0 if disabled.
+     */
+    private int nrtCacheSize;
+
+    /**
+     * Near-real-time searcher manager.
+     */
+    private volatile SearcherManager searcherManager;
+
+    /**
+     * Thread refreshing the searcher manager.
+     */
+    private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+    /**
+     * Sequence number of the latest write to the index.
+     */
+    private final AtomicLong lastSequenceNumber = new AtomicLong(-1);
+
+    /**
+     * Search terms suggester.
+     */
+    private SearchSuggester searchSuggester;
+
+    /**
+     * Executor committing the index periodically.
+     */
+    private ScheduledExecutorService commitExecutor;
+
+    /**
+     * Index commit policy.
+     */
+    private IndexCommitPolicy commitPolicy;
+
+    /**
+     * Journal of the mutations not yet committed (null if not needed).
+     */
+    private IndexJournal indexJournal;
+
+    /**
+     * Lock preventing the journal rotation while a mutation is journaled.
+     */
+    private final ReadWriteLock journalLock = new ReentrantReadWriteLock();
+
+    /**
+     * Maximum length of content highlighted per document (in characters).
+     */
+    private int highlightMaxLength;
+
+    /**
+     * Maximum time spent highlighting a page of documents (in milliseconds).
+     */
+    private long highlightMaxTime;
+
+    /**
+     * Maximum interval between two searcher refreshes (in milliseconds).
+     */
+    private long refreshInterval;
+
+    /**
+     * Minimum interval between two suggester rebuilds (in seconds).
+     */
+    private long suggesterRebuildInterval;
+
+    /**
+     * Lock preventing searches from acquiring a searcher while the index is swapped.
+     */
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+
+    /**
+     * Progress of the running or last index rebuild, null if none since startup.
+     */
+    private volatile IndexRebuildStatus rebuildStatus;
+
+    /**
+     * IDs mutated while the index is rebuilt, to catch up with before swapping.
+     */
+    private final Set<String> rebuildMutatedIdSet = ConcurrentHashMap.newKeySet();
+
+    /**
+     * True while mutations must be tracked for a running or resumable rebuild.
+     */
+    private volatile boolean rebuildTracking;
+
+    /**
+     * Journal of the IDs mutated since a resumable rebuild started, null if the rebuild cannot be resumed.
+     */
+    private volatile IndexJournal rebuildJournal;
+
     @Override
     public boolean accept() {
         // Embedded Lucene can always start
@@ -100,172 +318,1040 @@ public class LuceneIndexingHandler implements IndexingHandler {
 
     @Override
     public void startUp() throws Exception {
+        boolean rebuild;
         try {
-            initLucene();
+            rebuild = initLucene();
         } catch (Exception e) {
             // An error occurred initializing Lucene, the index is out of date or broken, delete everything
             log.info("Unable to initialize Lucene, cleaning up the index: " + e.getMessage());
-            Path luceneDirectory = DirectoryUtil.getLuceneDirectory();
-            Files.walk(luceneDirectory)
-                    .sorted(Comparator.reverseOrder())
-                    .map(Path::toFile)
-                    .forEach(java.io.File::delete);
+            if (indexWriter != null) {
+                // Release the lock
+                indexWriter.rollback();
+            }
+            if (directory != null) {
+                directory.close();
+            }
+            deleteDirectory(DirectoryUtil.getLuceneDirectory());
+            deleteDirectory(DirectoryUtil.getLuceneJournalDirectory());
 
             // Re-initialize and schedule a full reindex
             initLucene();
+            rebuild = true;
+        }
+
+        replayJournal();
+        startScheduler();
+
+        if (!(directory instanceof RAMDirectory) && getRebuildCheckpoint() != null) {
+            // Resume the rebuild interrupted by the last shutdown, tracking the mutations until then
+            log.info("Resuming the interrupted index rebuild");
+            openRebuildJournal();
+            rebuild = true;
+        }
+        if (rebuild) {
             RebuildIndexAsyncEvent rebuildIndexAsyncEvent = new RebuildIndexAsyncEvent();
             AppContext.getInstance().getAsyncEventBus().post(rebuildIndexAsyncEvent);
+        } else if (!(directory instanceof RAMDirectory)) {
+            startHealthCheck();
+        }
+    }
+
+    /**
+     * Verify the integrity of the whole index in the background.
+     * The index is rebuilt if it is corrupt.
+     */
+    private void startHealthCheck() {
+        IndexHealthCheck healthCheck = new IndexHealthCheck();
+        this.healthCheck = healthCheck;
+        healthCheckExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Lucene health check");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        healthCheckExecutor.execute(() -> {
+            // Keep the checked commit from being deleted by the writer meanwhile
+            IndexWriter writer = indexWriter;
+            SnapshotDeletionPolicy deletionPolicy = (SnapshotDeletionPolicy) writer.getConfig().getIndexDeletionPolicy();
+            IndexCommit commit;
+            try {
+                commit = deletionPolicy.snapshot();
+            } catch (Exception e) {
+                log.error("Unable to snapshot the index to check", e);
+                return;
+            }
+
+            boolean clean;
+            try {
+                clean = healthCheck.checkIntegrity(commit);
+            } finally {
+                try {
+                    deletionPolicy.release(commit);
+                    writer.deleteUnusedFiles();
+                } catch (Exception e) {
+                    // The index has been swapped or closed
+                    log.debug("Unable to release the checked commit", e);
+                }
+            }
+            if (!clean) {
+                RebuildIndexAsyncEvent rebuildIndexAsyncEvent = new RebuildIndexAsyncEvent();
+                AppContext.getInstance().getAsyncEventBus().post(rebuildIndexAsyncEvent);
+            }
+        });
+    }
+
+    /**
+     * Open the index.
+     *
+     * @return True if the index is new and must be populated
+     * @throws Exception e
+     */
+    private boolean initLucene() throws Exception {
+        ConfigDao configDao = new ConfigDao();
+        Config luceneStorageConfig = configDao.getById(ConfigType.LUCENE_DIRECTORY_STORAGE);
+        luceneStorage = luceneStorageConfig == null ? "MMAP" : luceneStorageConfig.getValue();
+        nrtCacheSize = ConfigUtil.getEnvIntegerValue(Constants.LUCENE_NRT_CACHE_SIZE_ENV, 0);
+        commitPolicy = ConfigUtil.getEnvEnumValue(Constants.LUCENE_COMMIT_POLICY_ENV, IndexCommitPolicy.BATCHED);
+
+        directory = openStorage();
+
+        // Check the last commit and the index version, and rebuild it if necessary
+        boolean indexExists = DirectoryReader.indexExists(directory);
+        if (indexExists) {
+            log.info("Checking the last index commit and version");
+            String indexVersion = IndexHealthCheck.checkCommit(directory).getUserData().get(INDEX_VERSION_KEY);
+            if (!INDEX_VERSION.equals(indexVersion)) {
+                throw new Exception("Index version " + indexVersion + " is outdated");
+            }
+        }
+
+        // Create an index writer
+        indexWriter = createIndexWriter(directory);
+        indexWriter.setLiveCommitData(Collections.singletonMap(INDEX_VERSION_KEY, INDEX_VERSION).entrySet());
+
+        // Searchers are opened from the writer to see uncommitted changes
+        searcherManager = new SearcherManager(indexWriter, null);
+
+        // Journal uncommitted mutations, only useful if the index survives a restart
+        if (commitPolicy == IndexCommitPolicy.BATCHED && !(directory instanceof RAMDirectory)) {
+            indexJournal = new IndexJournal(DirectoryUtil.getLuceneJournalDirectory());
+        }
+        return !indexExists;
+    }
+
+    /**
+     * Open the directory of the configured storage, memory mapped file storage by default.
+     *
+     * @return Lucene directory
+     * @throws IOException e
+     */
+    private Directory openStorage() throws IOException {
+        switch (luceneStorage) {
+            case "RAM":
+                log.info("Using RAM Lucene storage");
+                return new RAMDirectory();
+            case "FILE":
+            case "MMAP":
+                Path luceneDirectory = DirectoryUtil.getLuceneDirectory();
+                log.info("Using {} Lucene storage: {}, NRT cache: {}MB", luceneStorage, luceneDirectory, nrtCacheSize);
+                recoverRebuild(luceneDirectory);
+                return openDirectory(luceneDirectory);
+            default:
+                throw new IllegalStateException("Unknown Lucene storage: " + luceneStorage);
+        }
+    }
+
+    /**
+     * Open a file storage directory.
+     * The MMAP storage maps the index in memory and locks it natively,
+     * the FILE storage reads it with NIO and does not lock it (for filesystems without locking support).
+     *
+     * @param path Directory path
+     * @return Lucene directory
+     * @throws IOException e
+     */
+    private Directory openDirectory(Path path) throws IOException {
+        Directory fsDirectory;
+        if (luceneStorage.equals("MMAP")) {
+            fsDirectory = new MMapDirectory(path, NativeFSLockFactory.INSTANCE);
+        } else {
+            fsDirectory = new NIOFSDirectory(path, NoLockFactory.INSTANCE);
+        }
+        if (nrtCacheSize > 0) {
+            // Keep the small fresh segments in memory until committed
+            return new NRTCachingDirectory(fsDirectory, NRT_CACHE_MAX_MERGE_SIZE, nrtCacheSize);
+        }
+        return fsDirectory;
+    }
+
+    /**
+     * Create an index writer.
+     *
+     * @param directory Lucene directory
+     * @return Index writer
+     * @throws IOException e
+     */
+    private IndexWriter createIndexWriter(Directory directory) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(languageAnalyzers.getIndexAnalyzer());
+        config.setCommitOnClose(true);
+        config.setMergeScheduler(new ConcurrentMergeScheduler());
+        config.setIndexDeletionPolicy(new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy()));
+        return new IndexWriter(directory, config);
+    }
+
+    /**
+     * Clean up after an index rebuild interrupted by a shutdown.
+     *
+     * @param luceneDirectory Lucene directory
+     * @throws IOException e
+     */
+    private void recoverRebuild(Path luceneDirectory) throws IOException {
+        Path previousDirectory = DirectoryUtil.getLucenePreviousDirectory();
+        if (Files.isDirectory(previousDirectory)) {
+            boolean empty;
+            try (Stream<Path> stream = Files.list(luceneDirectory)) {
+                empty = !stream.findAny().isPresent();
+            }
+            if (empty) {
+                // Interrupted while swapping, restore the previous index
+                log.info("Restoring the index replaced by an interrupted rebuild");
+                Files.delete(luceneDirectory);
+                Files.move(previousDirectory, luceneDirectory, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                deleteDirectory(previousDirectory);
+            }
+        }
+        if (getRebuildCheckpoint() == null) {
+            deleteDirectory(DirectoryUtil.getLuceneRebuildDirectory());
+            deleteDirectory(DirectoryUtil.getLuceneRebuildJournalDirectory());
+        }
+    }
+
+    /**
+     * Returns the checkpoint of an interrupted index rebuild.
+     *
+     * @return Checkpoint, null if there is no rebuild to resume
+     */
+    private String getRebuildCheckpoint() {
+        try (Directory rebuildDirectory = new NIOFSDirectory(DirectoryUtil.getLuceneRebuildDirectory(), NoLockFactory.INSTANCE)) {
+            if (!DirectoryReader.indexExists(rebuildDirectory)) {
+                return null;
+            }
+            Map<String, String> userData = SegmentInfos.readLatestCommit(rebuildDirectory).getUserData();
+            if (!INDEX_VERSION.equals(userData.get(INDEX_VERSION_KEY))) {
+                return null;
+            }
+            return userData.get(REBUILD_CHECKPOINT_KEY);
+        } catch (IOException e) {
+            log.warn("Unable to read the checkpoint of the interrupted index rebuild", e);
+            return null;
+        }
+    }
+
+    /**
+     * Start tracking the mutations durably for a resumable rebuild.
+     * The mutations already journaled are tracked again.
+     *
+     * @throws IOException e
+     */
+    private void openRebuildJournal() throws IOException {
+        journalLock.writeLock().lock();
+        try {
+            if (rebuildJournal != null) {
+                rebuildJournal.close();
+            }
+            rebuildJournal = new IndexJournal(DirectoryUtil.getLuceneRebuildJournalDirectory());
+            rebuildMutatedIdSet.addAll(rebuildJournal.getPendingIdSet());
+            rebuildTracking = true;
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Stop tracking the mutations for a rebuild.
+     *
+     * @throws IOException e
+     */
+    private void closeRebuildJournal() throws IOException {
+        journalLock.writeLock().lock();
+        try {
+            rebuildTracking = false;
+            rebuildMutatedIdSet.clear();
+            if (rebuildJournal != null) {
+                rebuildJournal.close();
+                rebuildJournal = null;
+            }
+            deleteDirectory(DirectoryUtil.getLuceneRebuildJournalDirectory());
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete a directory and its content.
+     *
+     * @param path Directory
+     * @throws IOException e
+     */
+    private static void deleteDirectory(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> stream = Files.walk(path)) {
+            stream.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(java.io.File::delete);
+        }
+    }
+
+    /**
+     * Replay the mutations journaled but not committed by a previous run.
+     * The current state of each mutated document or file is read from the database.
+     *
+     * @throws IOException e
+     */
+    private void replayJournal() throws IOException {
+        if (indexJournal == null) {
+            return;
+        }
+
+        Set<String> idSet = indexJournal.getPendingIdSet();
+        if (!idSet.isEmpty()) {
+            log.info("The index is behind the database, replaying {} mutations", idSet.size());
+            if (!reindex(indexWriter, idSet)) {
+                // Keep the journal for the next startup
+                return;
+            }
+            commit();
+        }
+        indexJournal.discardPending();
+    }
+
+    /**
+     * Index the current state of documents or files from the database.
+     *
+     * @param writer Index writer
+     * @param idCollection Document or file IDs, those not found in the database are deleted from the index
+     * @return True if successful
+     */
+    private boolean reindex(IndexWriter writer, Collection<String> idCollection) {
+        if (idCollection.isEmpty()) {
+            return true;
+        }
+
+        AtomicBoolean reindexed = new AtomicBoolean();
+        TransactionUtil.handle(() -> {
+            DocumentDao documentDao = new DocumentDao();
+            FileDao fileDao = new FileDao();
+            try {
+                for (String id : idCollection) {
+                    Document document = documentDao.getById(id);
+                    File file = document == null ? fileDao.getActiveById(id) : null;
+                    if (document != null) {
+                        DocumentIndexDto documentIndexDto = new DocumentIndexDao().getIndexDtoMap(Collections.singletonList(id)).get(id);
+                        writer.updateDocument(new Term("id", id), getDocumentFromDocument(document, documentIndexDto));
+                    } else if (file != null) {
+                        writer.updateDocument(new Term("id", id), getDocumentFromFile(file, getFileLanguage(file)));
+                    } else {
+                        writer.deleteDocuments(new Term("id", id));
+                    }
+                }
+                reindexed.set(true);
+            } catch (IOException e) {
+                log.error("Error indexing from the database", e);
+            }
+        });
+        return reindexed.get();
+    }
+
+    /**
+     * Start the background refresh and commit.
+     */
+    private void startScheduler() {
+        refreshInterval = ConfigUtil.getEnvLongValue(Constants.LUCENE_REFRESH_INTERVAL_ENV, 1000);
+        suggesterRebuildInterval = ConfigUtil.getEnvLongValue(Constants.LUCENE_SUGGESTER_REBUILD_INTERVAL_ENV, 60);
+        highlightMaxLength = ConfigUtil.getEnvIntegerValue(Constants.LUCENE_HIGHLIGHT_MAX_LENGTH_ENV, 50000);
+        highlightMaxTime = ConfigUtil.getEnvLongValue(Constants.LUCENE_HIGHLIGHT_MAX_TIME_ENV, 500);
+        startRefresh();
+
+        if (commitPolicy == IndexCommitPolicy.BATCHED) {
+            long commitInterval = ConfigUtil.getEnvLongValue(Constants.LUCENE_COMMIT_INTERVAL_ENV, 60);
+            commitExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Lucene commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            commitExecutor.scheduleWithFixedDelay(this::commit, commitInterval, commitInterval, TimeUnit.SECONDS);
+        }
+        log.info("Lucene index refreshed every {}ms, commit policy: {}", refreshInterval, commitPolicy);
+    }
+
+    /**
+     * Start refreshing the searchers and the suggester of the current index.
+     */
+    private void startRefresh() {
+        reopenThread = new ControlledRealTimeReopenThread<>(indexWriter, searcherManager, refreshInterval / 1000d, 0);
+        reopenThread.setName("Lucene NRT refresh");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+
+        searchSuggester = new SearchSuggester(searcherManager, suggesterRebuildInterval);
+        searchSuggester.startUp();
+    }
+
+    /**
+     * Stop refreshing the searchers and the suggester.
+     */
+    private void stopRefresh() {
+        if (searchSuggester != null) {
+            searchSuggester.shutDown();
+        }
+        if (reopenThread != null) {
+            reopenThread.close();
+        }
+    }
+
+    /**
+     * Acquire a searcher on the current index.
+     *
+     * @return Index searcher, to release after use
+     * @throws IOException e
+     */
+    private IndexSearcher acquireSearcher() throws IOException {
+        swapLock.readLock().lock();
+        try {
+            return searcherManager.acquire();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Release a searcher.
+     * The searcher manager is not used because the index may have been swapped since.
+     *
+     * @param searcher Index searcher
+     * @throws IOException e
+     */
+    private void releaseSearcher(IndexSearcher searcher) throws IOException {
+        searcher.getIndexReader().decRef();
+    }
+
+    /**
+     * Commit the index writer, and discard the journal of the committed mutations.
+     */
+    private synchronized void commit() {
+        Path journalFile = null;
+        if (indexJournal != null) {
+            journalLock.writeLock().lock();
+            try {
+                journalFile = indexJournal.rotate();
+            } catch (IOException e) {
+                log.error("Cannot rotate the index journal", e);
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+        }
+
+        try {
+            indexWriter.commit();
+            if (journalFile != null) {
+                indexJournal.discard(journalFile);
+            }
+        } catch (IOException e) {
+            log.error("Cannot commit index writer", e);
+        }
+    }
+
+    @Override
+    public void shutDown() {
+        stopRefresh();
+        if (healthCheckExecutor != null) {
+            healthCheckExecutor.shutdownNow();
+        }
+        if (commitExecutor != null) {
+            commitExecutor.shutdown();
+            try {
+                commitExecutor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                // NOP
+            }
+        }
+        closeIndex();
+    }
+
+    /**
+     * Commit and close the index, its journals and its directory.
+     */
+    private void closeIndex() {
+        if (searcherManager != null) {
+            try {
+                searcherManager.close();
+            } catch (IOException e) {
+                log.error("Error closing the searcher manager", e);
+            }
+        }
+        if (indexWriter != null) {
+            commit();
+            try {
+                indexWriter.close();
+            } catch (IOException e) {
+                log.error("Error closing the index writer, index may be corrupt", e);
+            }
+        }
+        if (indexJournal != null) {
+            indexJournal.close();
+        }
+        if (rebuildJournal != null) {
+            rebuildJournal.close();
+        }
+        if (directory != null) {
+            try {
+                directory.close();
+            } catch (IOException e) {
+                log.error("Error closing Lucene index", e);
+            }
+        }
+    }
+
+    @Override
+    public void rebuildIndex() throws Exception {
+        IndexRebuildStatus status = new IndexRebuildStatus();
+        synchronized (this) {
+            if (rebuildStatus != null && rebuildStatus.isRunning()) {
+                log.warn("The index is already being rebuilt");
+                return;
+            }
+            rebuildStatus = status;
+        }
+
+        // Searches and mutations keep using the current index while a new one is built aside
+        boolean durable = !(directory instanceof RAMDirectory);
+        String checkpoint = durable ? getRebuildCheckpoint() : null;
+        Directory rebuildDirectory = openRebuildDirectory(durable, checkpoint);
+
+        IndexWriter rebuildWriter = null;
+        try {
+            rebuildWriter = createIndexWriter(rebuildDirectory);
+            populate(rebuildWriter, status, checkpoint);
+
+            catchUpAndSwap(rebuildDirectory, rebuildWriter, status);
+            log.info("Index rebuilt");
+        } catch (Exception e) {
+            // A durable rebuild is resumed from its last checkpoint next time
+            status.finish(true);
+            abortRebuild(rebuildDirectory, rebuildWriter, durable);
+            throw e;
+        }
+    }
+
+    /**
+     * Catch up with the mutations done meanwhile, then swap without letting new ones in.
+     *
+     * @param rebuildDirectory Rebuild directory
+     * @param rebuildWriter Rebuild index writer
+     * @param status Rebuild progress (updated by side effects)
+     * @throws IOException e
+     */
+    private void catchUpAndSwap(Directory rebuildDirectory, IndexWriter rebuildWriter, IndexRebuildStatus status) throws IOException {
+        if (!reindex(rebuildWriter, drainRebuildMutatedIds())) {
+            throw new IOException("Error catching up with the index mutations");
+        }
+        synchronized (this) {
+            journalLock.writeLock().lock();
+            try {
+                if (!reindex(rebuildWriter, drainRebuildMutatedIds())) {
+                    throw new IOException("Error catching up with the index mutations");
+                }
+                swap(rebuildDirectory, rebuildWriter);
+                closeRebuildJournal();
+                status.finish(false);
+            } finally {
+                journalLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Open the directory of the index rebuilt aside, and start tracking the mutations done meanwhile.
+     *
+     * @param durable True if the rebuild survives a restart
+     * @param checkpoint Checkpoint to resume from, null to start from scratch
+     * @return Rebuild directory
+     * @throws IOException e
+     */
+    private Directory openRebuildDirectory(boolean durable, String checkpoint) throws IOException {
+        if (checkpoint != null) {
+            log.info("Resuming the index rebuild from: {}", checkpoint);
+            openRebuildJournal();
+            return openDirectory(DirectoryUtil.getLuceneRebuildDirectory());
+        }
+
+        log.info("Rebuilding the index");
+        closeRebuildJournal();
+        if (durable) {
+            deleteDirectory(DirectoryUtil.getLuceneRebuildDirectory());
+            openRebuildJournal();
+            return openDirectory(DirectoryUtil.getLuceneRebuildDirectory());
+        }
+        rebuildTracking = true;
+        return new RAMDirectory();
+    }
+
+    /**
+     * Release the index rebuilt aside after a failure.
+     *
+     * @param rebuildDirectory Rebuild directory
+     * @param rebuildWriter Rebuild index writer, null if not created
+     * @param durable True if the rebuild survives a restart
+     * @throws IOException e
+     */
+    private void abortRebuild(Directory rebuildDirectory, IndexWriter rebuildWriter, boolean durable) throws IOException {
+        if (rebuildWriter != null && rebuildWriter.isOpen()) {
+            rebuildWriter.rollback();
+        }
+        rebuildDirectory.close();
+        if (!durable) {
+            closeRebuildJournal();
+        }
+    }
+
+    /**
+     * Returns the IDs mutated since the last call while the index is rebuilt.
+     *
+     * @return Mutated IDs
+     */
+    private List<String> drainRebuildMutatedIds() {
+        List<String> idList = new ArrayList<>(rebuildMutatedIdSet);
+        rebuildMutatedIdSet.removeAll(idList);
+        return idList;
+    }
+
+    /**
+     * Index all documents, then all files from the database.
+     *
+     * @param writer Index writer
+     * @param status Rebuild progress (updated by side effects)
+     * @param checkpoint Checkpoint to resume from, null to start from the beginning
+     * @throws Exception e
+     */
+    private void populate(IndexWriter writer, IndexRebuildStatus status, String checkpoint) throws Exception {
+        TransactionUtil.read(() -> {
+            status.setDocumentTotal(new DocumentDao().getDocumentCount());
+            status.setFileTotal(new FileDao().getFileCount());
+            return status;
+        });
+
+        // The checkpoint is "<doctype>:<last indexed ID>", documents are indexed first
+        String doctype = "document";
+        String afterId = null;
+        if (checkpoint != null) {
+            doctype = checkpoint.substring(0, checkpoint.indexOf(':'));
+            afterId = Strings.emptyToNull(checkpoint.substring(checkpoint.indexOf(':') + 1));
+            resumeFrom(writer, status, doctype, afterId);
+        } else {
+            writeCheckpoint(writer, "document", null);
+        }
+
+        int threadCount = ConfigUtil.getEnvIntegerValue(Constants.LUCENE_REBUILD_THREADS_ENV,
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        IndexRebuildPipeline pipeline = new IndexRebuildPipeline(threadCount, REBUILD_CHUNK_SIZE, REBUILD_CHECKPOINT_INTERVAL);
+        if (doctype.equals("document")) {
+            pipeline.run(afterId,
+                    (lastId, limit) -> TransactionUtil.read(() -> new DocumentDao().findIdsAfter(lastId, limit)),
+                    idList -> {
+                        writer.addDocuments(TransactionUtil.read(() -> {
+                            List<org.apache.lucene.document.Document> luceneDocumentList = new ArrayList<>();
+                            DocumentDao documentDao = new DocumentDao();
+                            Map<String, DocumentIndexDto> documentIndexDtoMap = new DocumentIndexDao().getIndexDtoMap(idList);
+                            for (Document document : documentDao.getByIds(idList)) {
+                                luceneDocumentList.add(getDocumentFromDocument(document, documentIndexDtoMap.get(document.getId())));
+                            }
+                            return luceneDocumentList;
+                        }));
+                        status.addDocumentIndexed(idList.size());
+                    },
+                    lastId -> writeCheckpoint(writer, "document", lastId));
+            afterId = null;
+            writeCheckpoint(writer, "file", null);
+        }
+        pipeline.run(afterId,
+                (lastId, limit) -> TransactionUtil.read(() -> new FileDao().findIdsAfter(lastId, limit)),
+                idList -> {
+                    writer.addDocuments(TransactionUtil.read(() -> {
+                        List<org.apache.lucene.document.Document> luceneDocumentList = new ArrayList<>();
+                        List<File> fileList = new FileDao().getFiles(idList);
+                        Map<String, String> languageMap = new HashMap<>();
+                        List<String> documentIdList = fileList.stream().map(File::getDocumentId)
+                                .filter(Objects::nonNull).distinct().collect(Collectors.toList());
+                        if (!documentIdList.isEmpty()) {
+                            for (Document document : new DocumentDao().getByIds(documentIdList)) {
+                                languageMap.put(document.getId(), document.getLanguage());
+                            }
+                        }
+                        for (File file : fileList) {
+                            luceneDocumentList.add(getDocumentFromFile(file, languageMap.get(file.getDocumentId())));
+                        }
+                        return luceneDocumentList;
+                    }));
+                    status.addFileIndexed(idList.size());
+                },
+                lastId -> writeCheckpoint(writer, "file", lastId));
+    }
+
+    /**
+     * Prepare a rebuilt index to resume from its checkpoint.
+     * Entries indexed after the checkpoint are deleted to be indexed again.
+     *
+     * @param writer Index writer
+     * @param status Rebuild progress (updated by side effects)
+     * @param doctype Type of the entries being indexed at the checkpoint
+     * @param afterId Last indexed ID, null if none
+     * @throws IOException e
+     */
+    private void resumeFrom(IndexWriter writer, IndexRebuildStatus status, String doctype, String afterId) throws IOException {
+        BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("doctype", doctype)), BooleanClause.Occur.FILTER);
+        if (afterId != null) {
+            query.add(new TermRangeQuery("id", new BytesRef(afterId), null, false, true), BooleanClause.Occur.FILTER);
+        }
+        writer.deleteDocuments(query.build());
+        if (doctype.equals("document")) {
+            writer.deleteDocuments(new Term("doctype", "file"));
         }
-    }
-
-    private void initLucene() throws Exception {
-        ConfigDao configDao = new ConfigDao();
-        Config luceneStorageConfig = configDao.getById(ConfigType.LUCENE_DIRECTORY_STORAGE);
-        String luceneStorage = luceneStorageConfig == null ? null : luceneStorageConfig.getValue();
 
-        // RAM directory storage by default
-        if (luceneStorage == null || luceneStorage.equals("RAM")) {
-            directory = new RAMDirectory();
-            log.info("Using RAM Lucene storage");
-        } else if (luceneStorage.equals("FILE")) {
-            Path luceneDirectory = DirectoryUtil.getLuceneDirectory();
-            log.info("Using file Lucene storage: {}", luceneDirectory);
-            directory = new NIOFSDirectory(luceneDirectory, NoLockFactory.INSTANCE);
+        try (DirectoryReader reader = DirectoryReader.open(writer)) {
+            IndexSearcher searcher = new IndexSearcher(reader);
+            status.addDocumentIndexed(searcher.count(new TermQuery(new Term("doctype", "document"))));
+            status.addFileIndexed(searcher.count(new TermQuery(new Term("doctype", "file"))));
         }
+    }
 
-        // Create an index writer
-        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer());
-        config.setCommitOnClose(true);
-        config.setMergeScheduler(new ConcurrentMergeScheduler());
-        indexWriter = new IndexWriter(directory, config);
-
-        // Check index version and rebuild it if necessary
-        if (DirectoryReader.indexExists(directory)) {
-            log.info("Checking index health and version");
-            try (CheckIndex checkIndex = new CheckIndex(directory)) {
-                CheckIndex.Status status = checkIndex.checkIndex();
-                if (!status.clean) {
-                    throw new Exception("Index is dirty");
-                }
-            }
+    /**
+     * Commit the progress of a durable index rebuild.
+     *
+     * @param writer Index writer
+     * @param doctype Type of the entries being indexed
+     * @param lastId Every entry of this type up to this ID is indexed, null if none
+     * @throws IOException e
+     */
+    private void writeCheckpoint(IndexWriter writer, String doctype, String lastId) throws IOException {
+        if (writer.getDirectory() instanceof RAMDirectory) {
+            return;
         }
+        Map<String, String> userData = new HashMap<>();
+        userData.put(INDEX_VERSION_KEY, INDEX_VERSION);
+        userData.put(REBUILD_CHECKPOINT_KEY, doctype + ":" + Strings.nullToEmpty(lastId));
+        writer.setLiveCommitData(userData.entrySet());
+        writer.commit();
     }
 
-    @Override
-    public void shutDown() {
-        if (directoryReader != null) {
-            try {
-                directoryReader.close();
-            } catch (IOException e) {
-                log.error("Error closing the index reader", e);
+    /**
+     * Swap the current index with a rebuilt one.
+     * Must be called without concurrent mutations.
+     * The current index is restored if the rebuilt one cannot be put in place.
+     *
+     * @param rebuildDirectory Directory of the rebuilt index
+     * @param rebuildWriter Writer of the rebuilt index
+     * @throws IOException e
+     */
+    private void swap(Directory rebuildDirectory, IndexWriter rebuildWriter) throws IOException {
+        rebuildWriter.setLiveCommitData(Collections.singletonMap(INDEX_VERSION_KEY, INDEX_VERSION).entrySet());
+        rebuildWriter.commit();
+
+        // The current index is committed to be reopened if the swap fails, the current readers stay usable
+        indexWriter.commit();
+        stopRefresh();
+        Directory newDirectory = rebuildDirectory;
+        IndexWriter newWriter = rebuildWriter;
+        Path previousDirectory = null;
+        try {
+            indexWriter.rollback();
+            if (!(rebuildDirectory instanceof RAMDirectory)) {
+                // Move the rebuilt index in place of the current one
+                rebuildWriter.close();
+                Path luceneDirectory = DirectoryUtil.getLuceneDirectory();
+                Files.move(luceneDirectory, DirectoryUtil.getLucenePreviousDirectory(), StandardCopyOption.ATOMIC_MOVE);
+                previousDirectory = DirectoryUtil.getLucenePreviousDirectory();
+                Files.move(DirectoryUtil.getLuceneRebuildDirectory(), luceneDirectory, StandardCopyOption.ATOMIC_MOVE);
+                newDirectory = openDirectory(luceneDirectory);
+                newWriter = createIndexWriter(newDirectory);
             }
-        }
-        if (indexWriter != null) {
+            replaceIndex(newDirectory, newWriter, new SearcherManager(newWriter, null));
+        } catch (IOException | RuntimeException e) {
+            log.error("Error swapping the rebuilt index, restoring the current one", e);
             try {
-                indexWriter.close();
-            } catch (IOException e) {
-                log.error("Error closing the index writer, index may be corrupt", e);
+                restoreIndex(rebuildDirectory, rebuildWriter, newDirectory, newWriter, previousDirectory);
+            } catch (IOException | RuntimeException restoreException) {
+                e.addSuppressed(restoreException);
             }
+            throw e;
         }
-        if (directory != null) {
-            try {
-                directory.close();
-            } catch (IOException e) {
-                log.error("Error closing Lucene index", e);
-            }
+        if (previousDirectory != null) {
+            rebuildDirectory.close();
+            deleteDirectory(previousDirectory);
         }
-    }
 
-    @Override
-    public void clearIndex() {
-        handle(IndexWriter::deleteAll);
+        // The journaled mutations are in the rebuilt index
+        if (indexJournal != null) {
+            Path journalFile = indexJournal.rotate();
+            if (journalFile != null) {
+                indexJournal.discard(journalFile);
+            }
+        }
+        startRefresh();
     }
 
-    @Override
-    public void createDocuments(List<Document> documentList) {
-        handle(indexWriter -> {
-            for (Document document : documentList) {
-                org.apache.lucene.document.Document luceneDocument = getDocumentFromDocument(document);
-                indexWriter.addDocument(luceneDocument);
+    /**
+     * Replace the current index, then close the previous one.
+     * The searchers already acquired stay usable.
+     *
+     * @param newDirectory New directory
+     * @param newWriter New index writer
+     * @param newSearcherManager New searcher manager
+     */
+    private void replaceIndex(Directory newDirectory, IndexWriter newWriter, SearcherManager newSearcherManager) {
+        Directory oldDirectory = directory;
+        SearcherManager oldSearcherManager = searcherManager;
+        swapLock.writeLock().lock();
+        try {
+            directory = newDirectory;
+            indexWriter = newWriter;
+            searcherManager = newSearcherManager;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        try {
+            oldSearcherManager.close();
+            if (oldDirectory != newDirectory) {
+                oldDirectory.close();
             }
-        });
+        } catch (IOException e) {
+            log.error("Error closing the previous index", e);
+        }
     }
 
-    @Override
-    public void createFiles(List<File> fileList) {
-        handle(indexWriter -> {
-            for (File file : fileList) {
-                org.apache.lucene.document.Document luceneDocument = getDocumentFromFile(file);
-                indexWriter.addDocument(luceneDocument);
+    /**
+     * Reopen the current index after a failed swap, and move it back in place if needed.
+     *
+     * @param rebuildDirectory Directory of the rebuilt index
+     * @param rebuildWriter Writer of the rebuilt index
+     * @param newDirectory Directory opened on the rebuilt index, to close
+     * @param newWriter Writer opened on the rebuilt index, to close
+     * @param previousDirectory Directory where the current index has been moved, null if not moved
+     * @throws IOException e
+     */
+    private void restoreIndex(Directory rebuildDirectory, IndexWriter rebuildWriter, Directory newDirectory, IndexWriter newWriter,
+                              Path previousDirectory) throws IOException {
+        if (newWriter != rebuildWriter) {
+            newWriter.rollback();
+        }
+        if (newDirectory != rebuildDirectory) {
+            newDirectory.close();
+        }
+        if (previousDirectory != null) {
+            Path luceneDirectory = DirectoryUtil.getLuceneDirectory();
+            Path luceneRebuildDirectory = DirectoryUtil.getLuceneRebuildDirectory();
+            if (!Files.exists(luceneRebuildDirectory)) {
+                Files.move(luceneDirectory, luceneRebuildDirectory, StandardCopyOption.ATOMIC_MOVE);
             }
-        });
+            Files.move(previousDirectory, luceneDirectory, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        // The current directory has not been closed, it is back in place
+        IndexWriter restoredWriter = createIndexWriter(directory);
+        replaceIndex(directory, restoredWriter, new SearcherManager(restoredWriter, null));
+        startRefresh();
     }
 
     @Override
     public void createDocument(final Document document) {
-        handle(indexWriter -> {
-            org.apache.lucene.document.Document luceneDocument = getDocumentFromDocument(document);
-            indexWriter.addDocument(luceneDocument);
+        DocumentIndexDto documentIndexDto = getIndexDtoMap(Collections.singletonList(document)).get(document.getId());
+        handle(document.getId(), indexWriter -> {
+            org.apache.lucene.document.Document luceneDocument = getDocumentFromDocument(document, documentIndexDto);
+            return indexWriter.addDocument(luceneDocument);
         });
     }
 
     @Override
     public void createFile(final File file) {
-        handle(indexWriter -> {
-            org.apache.lucene.document.Document luceneDocument = getDocumentFromFile(file);
-            indexWriter.addDocument(luceneDocument);
+        String language = getFileLanguage(file);
+        handle(file.getId(), indexWriter -> {
+            org.apache.lucene.document.Document luceneDocument = getDocumentFromFile(file, language);
+            return indexWriter.addDocument(luceneDocument);
         });
     }
 
     @Override
     public void updateFile(final File file) {
-        handle(indexWriter -> {
-            org.apache.lucene.document.Document luceneDocument = getDocumentFromFile(file);
-            indexWriter.updateDocument(new Term("id", file.getId()), luceneDocument);
+        String language = getFileLanguage(file);
+        handle(file.getId(), indexWriter -> {
+            org.apache.lucene.document.Document luceneDocument = getDocumentFromFile(file, language);
+            return indexWriter.updateDocument(new Term("id", file.getId()), luceneDocument);
         });
     }
 
     @Override
     public void updateDocument(final Document document) {
-        handle(indexWriter -> {
-            org.apache.lucene.document.Document luceneDocument = getDocumentFromDocument(document);
-            indexWriter.updateDocument(new Term("id", document.getId()), luceneDocument);
-        });
+        updateDocuments(Collections.singletonList(document));
+        updateFileLanguage(document);
+    }
+
+    /**
+     * Index again the files of a document indexed in another language.
+     *
+     * @param document Document
+     */
+    private void updateFileLanguage(Document document) {
+        List<String> fileIdList = new ArrayList<>();
+        try {
+            IndexSearcher searcher = acquireSearcher();
+            try {
+                Query query = new BooleanQuery.Builder()
+                        .add(new TermQuery(new Term("doctype", "file")), BooleanClause.Occur.FILTER)
+                        .add(new TermQuery(new Term("document_id", document.getId())), BooleanClause.Occur.FILTER)
+                        .add(new TermQuery(new Term("language", document.getLanguage())), BooleanClause.Occur.MUST_NOT)
+                        .build();
+                searcher.search(query, new ValueCollector("id", fileIdList));
+            } finally {
+                releaseSearcher(searcher);
+            }
+        } catch (IOException e) {
+            log.error("Error searching the files of a document", e);
+            return;
+        }
+
+        if (!fileIdList.isEmpty()) {
+            for (File file : new FileDao().getFiles(fileIdList)) {
+                handle(file.getId(), indexWriter -> {
+                    org.apache.lucene.document.Document luceneDocument = getDocumentFromFile(file, document.getLanguage());
+                    return indexWriter.updateDocument(new Term("id", file.getId()), luceneDocument);
+                });
+            }
+        }
+    }
+
+    /**
+     * Returns the language of the document of a file.
+     *
+     * @param file File
+     * @return Language, null if the file has no document
+     */
+    private String getFileLanguage(File file) {
+        if (file.getDocumentId() == null) {
+            return null;
+        }
+        Document document = new DocumentDao().getById(file.getDocumentId());
+        return document == null ? null : document.getLanguage();
+    }
+
+    /**
+     * Update indexed documents.
+     *
+     * @param documentList Documents
+     */
+    private void updateDocuments(List<Document> documentList) {
+        Map<String, DocumentIndexDto> documentIndexDtoMap = getIndexDtoMap(documentList);
+        for (Document document : documentList) {
+            handle(document.getId(), indexWriter -> {
+                org.apache.lucene.document.Document luceneDocument = getDocumentFromDocument(document, documentIndexDtoMap.get(document.getId()));
+                return indexWriter.updateDocument(new Term("id", document.getId()), luceneDocument);
+            });
+        }
+    }
+
+    /**
+     * Returns the data of documents to denormalize in the index.
+     *
+     * @param documentList Documents
+     * @return Data indexed by document ID
+     */
+    private Map<String, DocumentIndexDto> getIndexDtoMap(List<Document> documentList) {
+        List<String> documentIdList = documentList.stream().map(Document::getId).collect(Collectors.toList());
+        return new DocumentIndexDao().getIndexDtoMap(documentIdList);
     }
 
     @Override
     public void deleteDocument(final String id) {
-        handle(indexWriter -> indexWriter.deleteDocuments(new Term("id", id)));
+        handle(id, indexWriter -> indexWriter.deleteDocuments(new Term("id", id)));
     }
 
     @Override
     public void createAcl(String sourceId, PermType perm, String targetId) {
-        // Lucene does not index ACLs
+        if (perm == PermType.READ) {
+            updateAclSource(sourceId);
+        }
     }
 
     @Override
     public void deleteAcl(String sourceId, PermType perm, String targetId) {
-        // Lucene does not index ACLs
+        if (perm == PermType.READ) {
+            updateAclSource(sourceId);
+        }
+    }
+
+    /**
+     * Update the indexed documents readable through an ACL source.
+     * The source is either a document or a tag, in which case all its documents are updated.
+     *
+     * @param sourceId ACL source ID
+     */
+    private void updateAclSource(String sourceId) {
+        DocumentDao documentDao = new DocumentDao();
+        Document document = documentDao.getById(sourceId);
+        if (document != null) {
+            updateDocument(document);
+            return;
+        }
+
+        // Find the documents tagged with the source in the index
+        List<String> documentIdList = new ArrayList<>();
+        try {
+            IndexSearcher searcher = acquireSearcher();
+            try {
+                Query query = new BooleanQuery.Builder()
+                        .add(new TermQuery(new Term("doctype", "document")), BooleanClause.Occur.FILTER)
+                        .add(new TermQuery(new Term("tag_id", sourceId)), BooleanClause.Occur.FILTER)
+                        .build();
+                searcher.search(query, new ValueCollector("id", documentIdList));
+            } finally {
+                releaseSearcher(searcher);
+            }
+        } catch (IOException e) {
+            log.error("Error searching the documents of an ACL source", e);
+            return;
+        }
+
+        for (List<String> documentIdPartition : Lists.partition(documentIdList, 100)) {
+            List<Document> documentList = new ArrayList<>();
+            for (String documentId : documentIdPartition) {
+                document = documentDao.getById(documentId);
+                if (document != null) {
+                    documentList.add(document);
+                }
+            }
+            updateDocuments(documentList);
+        }
     }
 
     @Override
-    public void findByCriteria(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception {
+    public void findByCriteria(PaginatedList<DocumentDto> paginatedList, List<String> suggestionList, DocumentFacetsDto facets,
+                               DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception {
+        boolean fulltext = !Strings.isNullOrEmpty(criteria.getSimpleSearch()) || !Strings.isNullOrEmpty(criteria.getFullSearch());
+        if (fulltext || facets != null || !criteria.getTagIdList().isEmpty() || !criteria.getExcludedTagIdList().isEmpty()
+                || !criteria.getMetadataList().isEmpty()) {
+            // Fulltext, tag and metadata searches and facets, everything is done in the index
+            search(paginatedList, facets, criteria, sortCriteria);
+            if (fulltext) {
+                suggestSearchTerms(criteria.getFullSearch(), suggestionList);
+            }
+            return;
+        }
+
         Map<String, Object> parameterMap = new HashMap<>();
         List<String> criteriaList = new ArrayList<>();
-        Map<String, String> documentSearchMap = Maps.newHashMap();
-
-        StringBuilder sb = new StringBuilder("select distinct d.DOC_ID_C c0, d.DOC_TITLE_C c1, d.DOC_DESCRIPTION_C c2, d.DOC_CREATEDATE_D c3, d.DOC_LANGUAGE_C c4, d.DOC_IDFILE_C, ");
-        sb.append(" s.count c5, ");
-        sb.append(" rs2.RTP_ID_C c7, rs2.RTP_NAME_C, d.DOC_UPDATEDATE_D c8 ");
-        sb.append(" from T_DOCUMENT d ");
-        sb.append(" left join (SELECT count(s.SHA_ID_C) count, ac.ACL_SOURCEID_C " +
-                "   FROM T_SHARE s, T_ACL ac " +
-                "   WHERE ac.ACL_TARGETID_C = s.SHA_ID_C AND ac.ACL_DELETEDATE_D IS NULL AND " +
-                "         s.SHA_DELETEDATE_D IS NULL group by ac.ACL_SOURCEID_C) s on s.ACL_SOURCEID_C = d.DOC_ID_C ");
-        sb.append(" left join (select rs.*, rs3.idDocument " +
-                "from T_ROUTE_STEP rs " +
-                "join (select r.RTE_IDDOCUMENT_C idDocument, rs.RTP_IDROUTE_C idRoute, min(rs.RTP_ORDER_N) minOrder from T_ROUTE_STEP rs join T_ROUTE r on r.RTE_ID_C = rs.RTP_IDROUTE_C and r.RTE_DELETEDATE_D is null where rs.RTP_DELETEDATE_D is null and rs.RTP_ENDDATE_D is null group by rs.RTP_IDROUTE_C, r.RTE_IDDOCUMENT_C) rs3 on rs.RTP_IDROUTE_C = rs3.idRoute and rs.RTP_ORDER_N = rs3.minOrder " +
-                "where rs.RTP_IDTARGET_C in (:targetIdList)) rs2 on rs2.idDocument = d.DOC_ID_C ");
+        StringBuilder sb = new StringBuilder(buildSelectQuery());
 
         // Add search criterias
         if (!SecurityUtil.skipAclCheck(criteria.getTargetIdList())) {
@@ -276,17 +1362,6 @@ public class LuceneIndexingHandler implements IndexingHandler {
             criteriaList.add("(a.ACL_ID_C is not null or a2.ACL_ID_C is not null)");
         }
         parameterMap.put("targetIdList", criteria.getTargetIdList());
-        if (!Strings.isNullOrEmpty(criteria.getSimpleSearch()) || !Strings.isNullOrEmpty(criteria.getFullSearch())) {
-            documentSearchMap = search(criteria.getSimpleSearch(), criteria.getFullSearch());
-            if (documentSearchMap.isEmpty()) {
-                // If the search doesn't find any document, the request should return nothing
-                documentSearchMap.put(UUID.randomUUID().toString(), null);
-            }
-            criteriaList.add("d.DOC_ID_C in :documentIdList");
-            parameterMap.put("documentIdList", documentSearchMap.keySet());
-
-            suggestSearchTerms(criteria.getFullSearch(), suggestionList);
-        }
         if (criteria.getCreateDateMin() != null) {
             criteriaList.add("d.DOC_CREATEDATE_D >= :createDateMin");
             parameterMap.put("createDateMin", criteria.getCreateDateMin());
@@ -307,32 +1382,6 @@ public class LuceneIndexingHandler implements IndexingHandler {
             criteriaList.add("d.DOC_TITLE_C in :title");
             parameterMap.put("title", criteria.getTitleList());
         }
-        if (!criteria.getTagIdList().isEmpty()) {
-            int index = 0;
-            for (List<String> tagIdList : criteria.getTagIdList()) {
-                List<String> tagCriteriaList = Lists.newArrayList();
-                for (String tagId : tagIdList) {
-                    sb.append(String.format("left join T_DOCUMENT_TAG dt%d on dt%d.DOT_IDDOCUMENT_C = d.DOC_ID_C and dt%d.DOT_IDTAG_C = :tagId%d and dt%d.DOT_DELETEDATE_D is null ", index, index, index, index, index));
-                    parameterMap.put("tagId" + index, tagId);
-                    tagCriteriaList.add(String.format("dt%d.DOT_ID_C is not null", index));
-                    index++;
-                }
-                criteriaList.add("(" + Joiner.on(" OR ").join(tagCriteriaList) + ")");
-            }
-        }
-        if (!criteria.getExcludedTagIdList().isEmpty()) {
-            int index = 0;
-            for (List<String> tagIdList : criteria.getExcludedTagIdList()) {
-                List<String> tagCriteriaList = Lists.newArrayList();
-                for (String tagId : tagIdList) {
-                    sb.append(String.format("left join T_DOCUMENT_TAG dtex%d on dtex%d.DOT_IDDOCUMENT_C = d.DOC_ID_C and dtex%d.DOT_IDTAG_C = :tagIdEx%d and dtex%d.DOT_DELETEDATE_D is null ", index, index, index, index, index));
-                    parameterMap.put("tagIdEx" + index, tagId);
-                    tagCriteriaList.add(String.format("dtex%d.DOT_ID_C is null", index));
-                    index++;
-                }
-                criteriaList.add("(" + Joiner.on(" AND ").join(tagCriteriaList) + ")");
-            }
-        }
         if (criteria.getShared() != null && criteria.getShared()) {
             criteriaList.add("s.count > 0");
         }
@@ -365,26 +1414,56 @@ public class LuceneIndexingHandler implements IndexingHandler {
         // Assemble results
         List<DocumentDto> documentDtoList = new ArrayList<>();
         for (Object[] o : l) {
-            int i = 0;
-            DocumentDto documentDto = new DocumentDto();
-            documentDto.setId((String) o[i++]);
-            documentDto.setTitle((String) o[i++]);
-            documentDto.setDescription((String) o[i++]);
-            documentDto.setCreateTimestamp(((Timestamp) o[i++]).getTime());
-            documentDto.setLanguage((String) o[i++]);
-            documentDto.setFileId((String) o[i++]);
-            Number shareCount = (Number) o[i++];
-            documentDto.setShared(shareCount != null && shareCount.intValue() > 0);
-            documentDto.setActiveRoute(o[i++] != null);
-            documentDto.setCurrentStepName((String) o[i++]);
-            documentDto.setUpdateTimestamp(((Timestamp) o[i]).getTime());
-            documentDto.setHighlight(documentSearchMap.get(documentDto.getId()));
-            documentDtoList.add(documentDto);
+            documentDtoList.add(getDocumentDto(o));
         }
 
         paginatedList.setResultList(documentDtoList);
     }
 
+    /**
+     * Build the query selecting documents, without criteria.
+     *
+     * @return Query
+     */
+    private String buildSelectQuery() {
+        StringBuilder sb = new StringBuilder("select distinct d.DOC_ID_C c0, d.DOC_TITLE_C c1, d.DOC_DESCRIPTION_C c2, d.DOC_CREATEDATE_D c3, d.DOC_LANGUAGE_C c4, d.DOC_IDFILE_C, ");
+        sb.append(" s.count c5, ");
+        sb.append(" rs2.RTP_ID_C c7, rs2.RTP_NAME_C, d.DOC_UPDATEDATE_D c8 ");
+        sb.append(" from T_DOCUMENT d ");
+        sb.append(" left join (SELECT count(s.SHA_ID_C) count, ac.ACL_SOURCEID_C " +
+                "   FROM T_SHARE s, T_ACL ac " +
+                "   WHERE ac.ACL_TARGETID_C = s.SHA_ID_C AND ac.ACL_DELETEDATE_D IS NULL AND " +
+                "         s.SHA_DELETEDATE_D IS NULL group by ac.ACL_SOURCEID_C) s on s.ACL_SOURCEID_C = d.DOC_ID_C ");
+        sb.append(" left join (select rs.*, rs3.idDocument " +
+                "from T_ROUTE_STEP rs " +
+                "join (select r.RTE_IDDOCUMENT_C idDocument, rs.RTP_IDROUTE_C idRoute, min(rs.RTP_ORDER_N) minOrder from T_ROUTE_STEP rs join T_ROUTE r on r.RTE_ID_C = rs.RTP_IDROUTE_C and r.RTE_DELETEDATE_D is null where rs.RTP_DELETEDATE_D is null and rs.RTP_ENDDATE_D is null group by rs.RTP_IDROUTE_C, r.RTE_IDDOCUMENT_C) rs3 on rs.RTP_IDROUTE_C = rs3.idRoute and rs.RTP_ORDER_N = rs3.minOrder " +
+                "where rs.RTP_IDTARGET_C in (:targetIdList)) rs2 on rs2.idDocument = d.DOC_ID_C ");
+        return sb.toString();
+    }
+
+    /**
+     * Build a document DTO from a row of the select query.
+     *
+     * @param o Row
+     * @return Document DTO
+     */
+    private DocumentDto getDocumentDto(Object[] o) {
+        int i = 0;
+        DocumentDto documentDto = new DocumentDto();
+        documentDto.setId((String) o[i++]);
+        documentDto.setTitle((String) o[i++]);
+        documentDto.setDescription((String) o[i++]);
+        documentDto.setCreateTimestamp(((Timestamp) o[i++]).getTime());
+        documentDto.setLanguage((String) o[i++]);
+        documentDto.setFileId((String) o[i++]);
+        Number shareCount = (Number) o[i++];
+        documentDto.setShared(shareCount != null && shareCount.intValue() > 0);
+        documentDto.setActiveRoute(o[i++] != null);
+        documentDto.setCurrentStepName((String) o[i++]);
+        documentDto.setUpdateTimestamp(((Timestamp) o[i]).getTime());
+        return documentDto;
+    }
+
     /**
      * Suggest search terms according to the user query.
      *
@@ -393,118 +1472,235 @@ public class LuceneIndexingHandler implements IndexingHandler {
      * @throws Exception e
      */
     private void suggestSearchTerms(String search, List<String> suggestionList) throws Exception {
-        DirectoryReader directoryReader = getDirectoryReader();
-        if (directoryReader == null) {
-            return;
-        }
-
-        FuzzySuggester suggester = new FuzzySuggester(directory, "", new StandardAnalyzer());
-        LuceneDictionary dictionary = new LuceneDictionary(directoryReader, "title");
-        suggester.build(dictionary);
         int lastIndex = search.lastIndexOf(' ');
         String suggestQuery = search.substring(Math.max(lastIndex, 0));
-        List<Lookup.LookupResult> lookupResultList = suggester.lookup(suggestQuery, false, 10);
-        for (Lookup.LookupResult lookupResult : lookupResultList) {
-            suggestionList.add(lookupResult.key.toString());
+        suggestionList.addAll(searchSuggester.suggest(suggestQuery, 10));
+    }
+
+    /**
+     * Wait for the writes done so far to be visible to the searches and the suggestions.
+     * Used by the tests, the searches otherwise see the writes after the refresh interval.
+     *
+     * @throws InterruptedException e
+     */
+    public void waitForRefresh() throws InterruptedException {
+        long sequenceNumber = lastSequenceNumber.get();
+        if (reopenThread != null && sequenceNumber >= 0) {
+            reopenThread.waitForGeneration(sequenceNumber);
+        }
+        if (searchSuggester != null) {
+            searchSuggester.rebuild();
         }
     }
 
+    @Override
+    public JsonObjectBuilder getStatus() {
+        JsonObjectBuilder status = Json.createObjectBuilder()
+                .add("suggester", Json.createObjectBuilder()
+                        .add("rebuild_interval", searchSuggester.getRebuildInterval())
+                        .add("build_count", searchSuggester.getBuildCount())
+                        .add("last_build_time", searchSuggester.getLastBuildTime()));
+        IndexRebuildStatus rebuildStatus = this.rebuildStatus;
+        if (rebuildStatus != null) {
+            status.add("rebuild", rebuildStatus.toJson());
+        }
+        IndexHealthCheck healthCheck = this.healthCheck;
+        if (healthCheck != null) {
+            status.add("health", healthCheck.toJson());
+        }
+        return status;
+    }
+
     /**
-     * Fulltext search in files and documents.
+     * Search documents in the index, by fulltext in files and documents and by criteria.
+     * Only the requested page is highlighted and fetched from the database.
      *
-     * @param simpleSearchQuery Search query on metadatas
-     * @param fullSearchQuery Search query on all fields
-     * @return Map of document IDs as key and highlight as value
+     * @param paginatedList List of documents (updated by side effects)
+     * @param facets Facets of the whole result set (updated by side effects), null if not needed
+     * @param criteria Search criteria
+     * @param sortCriteria Sort criteria
      * @throws Exception e
      */
-    private Map<String, String> search(String simpleSearchQuery, String fullSearchQuery) throws Exception {
-        // The fulltext query searches in all fields
-        String searchQuery = simpleSearchQuery + " " + fullSearchQuery;
-
-        // Build search query
-        Analyzer analyzer = new StandardAnalyzer();
-
-        // Search on documents and files
-        BooleanQuery query = new BooleanQuery.Builder()
-                .add(buildQueryParser(analyzer, "title").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "description").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "subject").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "identifier").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "publisher").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "format").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "source").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "type").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "coverage").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "rights").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "filename").parse(searchQuery), BooleanClause.Occur.SHOULD)
-                .add(buildQueryParser(analyzer, "content").parse(fullSearchQuery), BooleanClause.Occur.SHOULD)
-                .build();
+    private void search(PaginatedList<DocumentDto> paginatedList, DocumentFacetsDto facets, DocumentCriteria criteria, SortCriteria sortCriteria) throws Exception {
+        // Existing metadata, read before acquiring a searcher
+        Map<String, MetadataType> metadataTypeMap = new HashMap<>();
+        if (facets != null) {
+            for (MetadataDto metadataDto : new MetadataDao().findByCriteria(new MetadataCriteria(), null)) {
+                metadataTypeMap.put(metadataDto.getId(), metadataDto.getType());
+            }
+        }
 
-        // Search
-        DirectoryReader directoryReader = getDirectoryReader();
-        Map<String, String> documentMap = Maps.newHashMap();
-        if (directoryReader == null) {
-            // The directory reader is not yet initialized (probably because there is nothing indexed)
-            return documentMap;
-        }
-        IndexSearcher searcher = new IndexSearcher(directoryReader);
-        TopDocs topDocs = searcher.search(query, Integer.MAX_VALUE);
-        ScoreDoc[] docs = topDocs.scoreDocs;
-
-        SimpleHTMLFormatter simpleHTMLFormatter = new SimpleHTMLFormatter("<strong>", "</strong>");
-        SimpleHTMLEncoder simpleHTMLEncoder = new SimpleHTMLEncoder();
-        Highlighter highlighter = new Highlighter(simpleHTMLFormatter, simpleHTMLEncoder, new QueryScorer(query));
-
-        // Extract document IDs and highlights
-        for (ScoreDoc doc : docs) {
-            org.apache.lucene.document.Document document = searcher.doc(doc.doc);
-            String type = document.get("doctype");
-            String documentId = null;
-            String highlight = null;
-            if (type.equals("document")) {
-                documentId = document.get("id");
-            } else if (type.equals("file")) {
-                documentId = document.get("document_id");
-                String content = document.get("content");
-                if (content != null) {
-                    highlight = highlighter.getBestFragment(analyzer, "content", content);
-                }
+        List<String> documentIdList = new ArrayList<>();
+        Map<String, String> highlightMap = new HashMap<>();
+        IndexSearcher searcher = acquireSearcher();
+        try {
+            // Filter, sort and paginate the documents, the facets are counted on the whole result set
+            DocumentQueryBuilder queryBuilder = new DocumentQueryBuilder(languageAnalyzers);
+            Query query = queryBuilder.build(searcher, criteria);
+            int offset = paginatedList.getOffset();
+            TopFieldCollector collector = TopFieldCollector.create(DocumentQueryBuilder.getSort(sortCriteria),
+                    Math.max(offset + paginatedList.getLimit(), 1), Integer.MAX_VALUE);
+            if (facets == null) {
+                searcher.search(query, collector);
+            } else {
+                FacetCollector facetCollector = new FacetCollector(facets, metadataTypeMap);
+                searcher.search(query, MultiCollector.wrap(collector, facetCollector));
+                facetCollector.finish();
+            }
+            paginatedList.setResultCount(collector.getTotalHits());
+            for (ScoreDoc scoreDoc : collector.topDocs(offset, paginatedList.getLimit()).scoreDocs) {
+                documentIdList.add(searcher.doc(scoreDoc.doc).get("id"));
             }
 
-            if (documentId != null) {
-                documentMap.put(documentId, highlight);
+            // Highlight the best matching file of each document on this page
+            Query fileQuery = queryBuilder.getFileQuery();
+            if (fileQuery != null && !documentIdList.isEmpty() && !Strings.isNullOrEmpty(criteria.getFullSearch())) {
+                highlightMap = highlight(searcher, fileQuery, documentIdList);
+            }
+        } finally {
+            releaseSearcher(searcher);
+        }
+
+        paginatedList.setResultList(getDocumentDtoList(criteria, documentIdList, highlightMap));
+    }
+
+    /**
+     * Fetch a page of documents from the database.
+     *
+     * @param criteria Search criteria
+     * @param documentIdList Document IDs, in the index order
+     * @param highlightMap Map of document IDs as key and highlight as value
+     * @return Documents in the index order, without the ones deleted since
+     */
+    private List<DocumentDto> getDocumentDtoList(DocumentCriteria criteria, List<String> documentIdList, Map<String, String> highlightMap) {
+        Map<String, DocumentDto> documentDtoMap = new HashMap<>();
+        if (!documentIdList.isEmpty()) {
+            Map<String, Object> parameterMap = new HashMap<>();
+            parameterMap.put("targetIdList", criteria.getTargetIdList());
+            parameterMap.put("documentIdList", documentIdList);
+            StringBuilder sb = new StringBuilder(buildSelectQuery());
+            sb.append(" where d.DOC_ID_C in (:documentIdList) and d.DOC_DELETEDATE_D is null ");
+            @SuppressWarnings("unchecked")
+            List<Object[]> l = QueryUtil.getNativeQuery(new QueryParam(sb.toString(), parameterMap)).getResultList();
+            for (Object[] o : l) {
+                DocumentDto documentDto = getDocumentDto(o);
+                documentDtoMap.put(documentDto.getId(), documentDto);
             }
         }
 
-        return documentMap;
+        // Assemble results in the index order
+        List<DocumentDto> documentDtoList = new ArrayList<>();
+        for (String documentId : documentIdList) {
+            DocumentDto documentDto = documentDtoMap.get(documentId);
+            if (documentDto != null) {
+                documentDto.setHighlight(highlightMap.get(documentId));
+                documentDtoList.add(documentDto);
+            }
+        }
+        return documentDtoList;
     }
 
     /**
-     * Build a query parser for searching.
+     * Highlight the best matching file content of each document.
+     * The content is not analyzed again, matches are read from the offsets stored in the index.
+     * Documents not yet highlighted when the time budget is exhausted have no highlight.
+     * Matches in the language sub-field are preferred, they include the stemmed forms of the searched terms.
      *
-     * @param analyzer Analyzer
-     * @param field Field
-     * @return Query parser
+     * @param searcher Index searcher
+     * @param fileQuery Query on files
+     * @param documentIdList Document IDs
+     * @return Map of document IDs as key and highlight as value
+     * @throws Exception e
      */
-    private SimpleQueryParser buildQueryParser(Analyzer analyzer, String field) {
-        SimpleQueryParser simpleQueryParser = new SimpleQueryParser(analyzer, field);
-        simpleQueryParser.setDefaultOperator(BooleanClause.Occur.MUST); // AND all the terms
-        return simpleQueryParser;
+    private Map<String, String> highlight(IndexSearcher searcher, Query fileQuery, List<String> documentIdList) throws Exception {
+        Query query = new BooleanQuery.Builder()
+                .add(new TermQuery(new Term("doctype", "file")), BooleanClause.Occur.FILTER)
+                .add(new TermInSetQuery("document_id", DocumentFilterBuilder.toBytesRefList(documentIdList)), BooleanClause.Occur.FILTER)
+                .add(fileQuery, BooleanClause.Occur.MUST)
+                .build();
+
+        // Hits are sorted by score, the first file of each document is the best one
+        Map<String, Integer> fileDocMap = new HashMap<>();
+        for (ScoreDoc scoreDoc : searcher.search(query, MAX_HIGHLIGHT_HITS).scoreDocs) {
+            String documentId = searcher.doc(scoreDoc.doc, Collections.singleton("document_id")).get("document_id");
+            fileDocMap.putIfAbsent(documentId, scoreDoc.doc);
+        }
+
+        UnifiedHighlighter highlighter = new UnifiedHighlighter(searcher, languageAnalyzers.getIndexAnalyzer()) {
+            @Override
+            protected List<CharSequence[]> loadFieldValues(String[] fields, DocIdSetIterator docIter, int cacheCharsThreshold) throws IOException {
+                // The content is only stored once, for the content field and its language sub-field
+                List<CharSequence[]> contentList = super.loadFieldValues(new String[] { "content" }, docIter, cacheCharsThreshold);
+                List<CharSequence[]> valueList = new ArrayList<>(contentList.size());
+                for (CharSequence[] content : contentList) {
+                    CharSequence[] values = new CharSequence[fields.length];
+                    Arrays.fill(values, content[0]);
+                    valueList.add(values);
+                }
+                return valueList;
+            }
+
+            @Override
+            protected int getMaxNoHighlightPassages(String field) {
+                // Fall back to the content field if nothing matches in the language sub-field
+                return field.equals("content") ? super.getMaxNoHighlightPassages(field) : 0;
+            }
+        };
+        highlighter.setMaxLength(highlightMaxLength);
+        highlighter.setFormatter(new DefaultPassageFormatter("<strong>", "</strong>", "... ", true));
+        highlighter.setBreakIterator(() -> LengthGoalBreakIterator.createClosestToLength(
+                BreakIterator.getSentenceInstance(Locale.ROOT), HIGHLIGHT_LENGTH, 0f));
+
+        Map<String, String> highlightMap = new HashMap<>();
+        long deadline = System.currentTimeMillis() + highlightMaxTime;
+        for (String documentId : documentIdList) {
+            Integer doc = fileDocMap.get(documentId);
+            if (doc == null) {
+                continue;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("Highlighting budget of {}ms exhausted", highlightMaxTime);
+                break;
+            }
+            String language = searcher.doc(doc, Collections.singleton("language")).get("language");
+            String highlight;
+            if (languageAnalyzers.hasAnalyzer(language)) {
+                String languageField = LanguageAnalyzers.getField("content", language);
+                Map<String, String[]> fieldHighlightMap = highlighter.highlightFields(new String[] { languageField, "content" }, fileQuery,
+                        new int[] { doc }, new int[] { 1, 1 });
+                highlight = fieldHighlightMap.get(languageField)[0];
+                if (highlight == null) {
+                    highlight = fieldHighlightMap.get("content")[0];
+                }
+            } else {
+                highlight = highlighter.highlightFields(new String[] { "content" }, fileQuery,
+                        new int[] { doc }, new int[] { 1 }).get("content")[0];
+            }
+            if (highlight != null) {
+                highlightMap.put(documentId, highlight);
+            }
+        }
+        return highlightMap;
     }
 
     /**
      * Build Lucene document from database document.
      *
      * @param document Document
+     * @param documentIndexDto Data denormalized from the database
      * @return Document
      */
-    private org.apache.lucene.document.Document getDocumentFromDocument(Document document) {
+    private org.apache.lucene.document.Document getDocumentFromDocument(Document document, DocumentIndexDto documentIndexDto) {
         org.apache.lucene.document.Document luceneDocument = new org.apache.lucene.document.Document();
         luceneDocument.add(new StringField("id", document.getId(), Field.Store.YES));
+        luceneDocument.add(new SortedDocValuesField("id", new BytesRef(document.getId())));
         luceneDocument.add(new StringField("doctype", "document", Field.Store.YES));
         luceneDocument.add(new TextField("title", document.getTitle(), Field.Store.NO));
+        luceneDocument.add(new StringField("title_exact", document.getTitle(), Field.Store.NO));
+        luceneDocument.add(new SortedDocValuesField("title_exact", new BytesRef(document.getTitle())));
         if (document.getDescription() != null) {
             luceneDocument.add(new TextField("description", document.getDescription(), Field.Store.NO));
+            luceneDocument.add(new SortedDocValuesField("description_sort", new BytesRef(document.getDescription())));
         }
         if (document.getSubject() != null) {
             luceneDocument.add(new TextField("subject", document.getSubject(), Field.Store.NO));
@@ -531,79 +1727,158 @@ public class LuceneIndexingHandler implements IndexingHandler {
             luceneDocument.add(new TextField("rights", document.getRights(), Field.Store.NO));
         }
 
+        // Analyzed again in the document language
+        if (languageAnalyzers.hasAnalyzer(document.getLanguage())) {
+            luceneDocument.add(new TextField(LanguageAnalyzers.getField("title", document.getLanguage()), document.getTitle(), Field.Store.NO));
+            if (document.getDescription() != null) {
+                luceneDocument.add(new TextField(LanguageAnalyzers.getField("description", document.getLanguage()), document.getDescription(), Field.Store.NO));
+            }
+        }
+
+        // Search criteria
+        luceneDocument.add(new StringField("language", document.getLanguage(), Field.Store.NO));
+        luceneDocument.add(new SortedDocValuesField("language", new BytesRef(document.getLanguage())));
+        luceneDocument.add(new StringField("creator_id", document.getUserId(), Field.Store.NO));
+        luceneDocument.add(new LongPoint("create_date", document.getCreateDate().getTime()));
+        luceneDocument.add(new NumericDocValuesField("create_date", document.getCreateDate().getTime()));
+        luceneDocument.add(new LongPoint("update_date", document.getUpdateDate().getTime()));
+        luceneDocument.add(new NumericDocValuesField("update_date", document.getUpdateDate().getTime()));
+        for (String targetId : documentIndexDto.getReadTargetIdSet()) {
+            luceneDocument.add(new StringField("acl_read", targetId, Field.Store.NO));
+        }
+        for (String tagId : documentIndexDto.getTagIdSet()) {
+            luceneDocument.add(new StringField("tag_id", tagId, Field.Store.NO));
+            luceneDocument.add(new SortedSetDocValuesField("tag_id", new BytesRef(tagId)));
+        }
+        for (DocumentMetadataDto documentMetadataDto : documentIndexDto.getMetadataList()) {
+            addMetadataField(luceneDocument, documentMetadataDto);
+        }
+        for (String mimeType : documentIndexDto.getMimeTypeSet()) {
+            luceneDocument.add(new StringField("mime_type", mimeType, Field.Store.NO));
+        }
+        luceneDocument.add(new LongPoint("share_count", documentIndexDto.getShareCount()));
+        luceneDocument.add(new NumericDocValuesField("share_count", documentIndexDto.getShareCount()));
+        if (documentIndexDto.getRouteTargetId() != null) {
+            luceneDocument.add(new StringField("route_target_id", documentIndexDto.getRouteTargetId(), Field.Store.NO));
+        }
+
         return luceneDocument;
     }
 
+    /**
+     * Add a custom metadata value to a Lucene document.
+     * Values are typed, to be searched by range and counted in facets.
+     *
+     * @param luceneDocument Lucene document
+     * @param documentMetadataDto Metadata value
+     */
+    private void addMetadataField(org.apache.lucene.document.Document luceneDocument, DocumentMetadataDto documentMetadataDto) {
+        String field = getMetadataField(documentMetadataDto.getMetadataId());
+        String value = documentMetadataDto.getValue();
+        try {
+            switch (documentMetadataDto.getType()) {
+                case STRING:
+                case BOOLEAN:
+                    if (documentMetadataDto.getType() == MetadataType.BOOLEAN) {
+                        value = String.valueOf(Boolean.parseBoolean(value));
+                    }
+                    luceneDocument.add(new StringField(field, value, Field.Store.NO));
+                    luceneDocument.add(new SortedSetDocValuesField(field, new BytesRef(value)));
+                    break;
+                case INTEGER:
+                case DATE:
+                    long longValue = Long.parseLong(value);
+                    luceneDocument.add(new LongPoint(field, longValue));
+                    luceneDocument.add(new SortedNumericDocValuesField(field, longValue));
+                    break;
+                case FLOAT:
+                    double doubleValue = Double.parseDouble(value);
+                    luceneDocument.add(new DoublePoint(field, doubleValue));
+                    luceneDocument.add(new SortedNumericDocValuesField(field, NumericUtils.doubleToSortableLong(doubleValue)));
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid {} value of the metadata {}: {}", documentMetadataDto.getType(), documentMetadataDto.getMetadataId(), value);
+        }
+    }
+
+    /**
+     * Returns the indexed field of a custom metadata.
+     *
+     * @param metadataId Metadata ID
+     * @return Field name
+     */
+    static String getMetadataField(String metadataId) {
+        return "metadata_" + metadataId;
+    }
+
     /**
      * Build Lucene document from file.
      *
      * @param file File
+     * @param language Language of the file document, null if none
      * @return Document
      */
-    private org.apache.lucene.document.Document getDocumentFromFile(File file) {
+    private org.apache.lucene.document.Document getDocumentFromFile(File file, String language) {
         org.apache.lucene.document.Document luceneDocument = new org.apache.lucene.document.Document();
         luceneDocument.add(new StringField("id", file.getId(), Field.Store.YES));
+        luceneDocument.add(new SortedDocValuesField("id", new BytesRef(file.getId())));
         luceneDocument.add(new StringField("doctype", "file", Field.Store.YES));
         if (file.getName() != null) {
             luceneDocument.add(new TextField("filename", file.getName(), Field.Store.NO));
         }
         if (file.getDocumentId() != null) {
             luceneDocument.add(new StringField("document_id", file.getDocumentId(), Field.Store.YES));
+            luceneDocument.add(new SortedDocValuesField("document_id", new BytesRef(file.getDocumentId())));
+        }
+        if (language != null) {
+            luceneDocument.add(new StringField("language", language, Field.Store.YES));
         }
         if (file.getContent() != null) {
-            luceneDocument.add(new TextField("content", file.getContent(), Field.Store.YES));
+            luceneDocument.add(new Field("content", file.getContent(), CONTENT_FIELD_TYPE));
+            if (languageAnalyzers.hasAnalyzer(language)) {
+                luceneDocument.add(new Field(LanguageAnalyzers.getField("content", language), file.getContent(), CONTENT_LANGUAGE_FIELD_TYPE));
+            }
         }
 
         return luceneDocument;
     }
 
-    /**
-     * Returns a valid directory reader.
-     * Take care of reopening the reader if the index has changed
-     * and closing the previous one.
-     *
-     * @return the directoryReader
-     */
-    private DirectoryReader getDirectoryReader() {
-        if (directoryReader == null) {
-            try {
-                if (!DirectoryReader.indexExists(directory)) {
-                    return null;
-                }
-                directoryReader = DirectoryReader.open(directory);
-            } catch (IOException e) {
-                log.error("Error creating the directory reader", e);
-            }
-        } else {
-            try {
-                DirectoryReader newReader = DirectoryReader.openIfChanged(directoryReader);
-                if (newReader != null) {
-                    directoryReader.close();
-                    directoryReader = newReader;
-                }
-            } catch (IOException e) {
-                log.error("Error while reopening the directory reader", e);
-            }
-        }
-        return directoryReader;
-    }
-
     /**
      * Encapsulate a process into a Lucene context.
+     * The mutated ID is journaled before the process runs,
+     * so that the mutation can be replayed if the index is not committed.
      *
+     * @param id Mutated ID, null if not tied to a single document or file
      * @param runnable Runnable
      */
-    private void handle(LuceneRunnable runnable) {
+    private void handle(String id, LuceneRunnable runnable) {
+        long sequenceNumber = -1;
+        journalLock.readLock().lock();
         try {
-            runnable.run(indexWriter);
+            if (indexJournal != null && id != null) {
+                indexJournal.record(id);
+            }
+            if (rebuildTracking && id != null) {
+                rebuildMutatedIdSet.add(id);
+                IndexJournal rebuildJournal = this.rebuildJournal;
+                if (rebuildJournal != null) {
+                    rebuildJournal.record(id);
+                }
+            }
+            sequenceNumber = runnable.run(indexWriter);
         } catch (Exception e) {
             log.error("Error in running index writing", e);
+        } finally {
+            journalLock.readLock().unlock();
         }
 
-        try {
-            indexWriter.commit();
-        } catch (IOException e) {
-            log.error("Cannot commit index writer", e);
+        if (commitPolicy == IndexCommitPolicy.IMMEDIATE) {
+            commit();
+        }
+
+        if (sequenceNumber >= 0) {
+            lastSequenceNumber.accumulateAndGet(sequenceNumber, Math::max);
         }
     }
 
@@ -617,8 +1892,9 @@ public class LuceneIndexingHandler implements IndexingHandler {
          * Code to run in a Lucene context.
          *
          * @param indexWriter Index writer
+         * @return Sequence number of the last operation
          * @throws Exception e
          */
-        void run(IndexWriter indexWriter) throws Exception;
+        long run(IndexWriter indexWriter) throws Exception;
     }
 }
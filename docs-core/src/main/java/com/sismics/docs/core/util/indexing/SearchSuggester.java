@@ -0,0 +1,194 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.spell.LuceneDictionary;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.FuzzySuggester;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Search terms suggester.
+ * The suggester is built in the background from the indexed titles, at most once per index generation,
+ * and swapped atomically so that searches never wait for it.
+ */
+public class SearchSuggester implements ReferenceManager.RefreshListener {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(SearchSuggester.class);
+
+    /**
+     * Searcher manager providing the index generations.
+     */
+    private final SearcherManager searcherManager;
+
+    /**
+     * Minimum interval between two rebuilds (in seconds).
+     */
+    private final long rebuildInterval;
+
+    /**
+     * Analyzer used by the suggester.
+     */
+    private final Analyzer analyzer = new StandardAnalyzer();
+
+    /**
+     * True if the index has been refreshed since the last build.
+     */
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+
+    /**
+     * Current suggester, null until the first build.
+     */
+    private volatile Lookup lookup;
+
+    /**
+     * Version of the index reader used by the current suggester.
+     */
+    private volatile long indexVersion = -1;
+
+    /**
+     * Duration of the last build (in milliseconds).
+     */
+    private volatile long lastBuildTime;
+
+    /**
+     * Number of builds.
+     */
+    private volatile long buildCount;
+
+    /**
+     * Rebuild executor.
+     */
+    private ScheduledExecutorService executor;
+
+    /**
+     * Constructor.
+     *
+     * @param searcherManager Searcher manager
+     * @param rebuildInterval Minimum interval between two rebuilds (in seconds)
+     */
+    public SearchSuggester(SearcherManager searcherManager, long rebuildInterval) {
+        this.searcherManager = searcherManager;
+        this.rebuildInterval = rebuildInterval;
+    }
+
+    /**
+     * Start rebuilding the suggester in the background.
+     */
+    public void startUp() {
+        searcherManager.addListener(this);
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Lucene suggester");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::rebuild, 0, rebuildInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop rebuilding the suggester.
+     */
+    public void shutDown() {
+        searcherManager.removeListener(this);
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void beforeRefresh() {
+        // NOP
+    }
+
+    @Override
+    public void afterRefresh(boolean didRefresh) {
+        if (didRefresh) {
+            stale.set(true);
+        }
+    }
+
+    /**
+     * Rebuild the suggester if the index has changed since the last build.
+     */
+    public synchronized void rebuild() {
+        if (!stale.getAndSet(false)) {
+            return;
+        }
+
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                long version = ((DirectoryReader) searcher.getIndexReader()).getVersion();
+                if (version == indexVersion) {
+                    return;
+                }
+
+                long startTime = System.currentTimeMillis();
+                FuzzySuggester suggester = new FuzzySuggester(new ByteBuffersDirectory(), "suggester", analyzer);
+                suggester.build(new LuceneDictionary(searcher.getIndexReader(), "title"));
+                lookup = suggester;
+                indexVersion = version;
+                lastBuildTime = System.currentTimeMillis() - startTime;
+                buildCount++;
+                log.debug("Suggester built in {}ms", lastBuildTime);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (Exception e) {
+            // Retry on the next iteration
+            stale.set(true);
+            log.error("Error building the suggester", e);
+        }
+    }
+
+    /**
+     * Suggest search terms.
+     *
+     * @param query Query to complete
+     * @param count Maximum number of suggestions
+     * @return List of suggestions
+     * @throws IOException e
+     */
+    public List<String> suggest(String query, int count) throws IOException {
+        List<String> suggestionList = new ArrayList<>();
+        Lookup lookup = this.lookup;
+        if (lookup == null) {
+            // Not yet built
+            return suggestionList;
+        }
+
+        for (Lookup.LookupResult lookupResult : lookup.lookup(query, false, count)) {
+            suggestionList.add(lookupResult.key.toString());
+        }
+        return suggestionList;
+    }
+
+    public long getRebuildInterval() {
+        return rebuildInterval;
+    }
+
+    public long getLastBuildTime() {
+        return lastBuildTime;
+    }
+
+    public long getBuildCount() {
+        return buildCount;
+    }
+}
@@ -0,0 +1,58 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Collector of the values of a single-valued doc values field.
+ */
+class ValueCollector extends SimpleCollector {
+    /**
+     * Field name.
+     */
+    private final String field;
+
+    /**
+     * Collected values (updated by side effects).
+     */
+    private final Collection<String> valueCollection;
+
+    /**
+     * Values of the current segment.
+     */
+    private SortedDocValues values;
+
+    /**
+     * Constructor.
+     *
+     * @param field Field name
+     * @param valueCollection Collected values (updated by side effects)
+     */
+    ValueCollector(String field, Collection<String> valueCollection) {
+        this.field = field;
+        this.valueCollection = valueCollection;
+    }
+
+    @Override
+    protected void doSetNextReader(LeafReaderContext context) throws IOException {
+        values = DocValues.getSorted(context.reader(), field);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        if (values.advanceExact(doc)) {
+            valueCollection.add(values.lookupOrd(values.ordValue()).utf8ToString());
+        }
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        return ScoreMode.COMPLETE_NO_SCORES;
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.Query;
 
 import com.sismics.util.context.ThreadLocalContext;
+import org.hibernate.query.NativeQuery;
 
 /**
  * Query utilities.
@@ -29,6 +30,23 @@ public class QueryUtil {
         return query;
     }
     
+    /**
+     * Creates a native query from the query parameters, with its results kept in the second-level cache.
+     * The results are invalidated when one of the tables queried is modified.
+     *
+     * @param queryParam Query parameters
+     * @param tableNames Names of all the tables queried
+     * @return Native query
+     */
+    public static Query getCachedNativeQuery(QueryParam queryParam, String... tableNames) {
+        NativeQuery<?> query = getNativeQuery(queryParam).unwrap(NativeQuery.class);
+        for (String tableName : tableNames) {
+            query.addSynchronizedQuerySpace(tableName);
+        }
+        query.setCacheable(true);
+        return query;
+    }
+
     /**
      * Returns sorted query parameters.
      * 
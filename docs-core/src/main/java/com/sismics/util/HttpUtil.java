@@ -1,5 +1,8 @@
 package com.sismics.util;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -24,4 +27,127 @@ public class HttpUtil {
     public static String buildExpiresHeader(long futureTime) {
         return EXPIRES_FORMAT.format(new Date().getTime() + futureTime);
     }
+
+    /**
+     * Build a strong ETag HTTP header from the identity and the state of a file.
+     *
+     * @param id Identity of the file
+     * @param file File
+     * @return ETag header value
+     * @throws IOException e
+     */
+    public static String buildEtagHeader(String id, Path file) throws IOException {
+        return buildEtagHeader(id, Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+    }
+
+    /**
+     * Build a strong ETag HTTP header from the identity and the state of a resource.
+     *
+     * @param id Identity of the resource
+     * @param lastModified Last modification time
+     * @param length Length
+     * @return ETag header value
+     */
+    public static String buildEtagHeader(String id, long lastModified, long length) {
+        return "\"" + id + "-" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+    }
+
+    /**
+     * Check if an ETag is matched by an If-None-Match or If-Range HTTP header.
+     *
+     * @param header Header value, a list of ETags or *
+     * @param etag ETag
+     * @param weak True to also match a weak ETag (If-None-Match), false for a strong comparison (If-Range)
+     * @return True if the ETag is matched
+     */
+    public static boolean matchEtag(String header, String etag, boolean weak) {
+        if (header == null) {
+            return false;
+        }
+        for (String value : header.split(",")) {
+            value = value.trim();
+            if (weak && value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals(etag) || weak && value.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse a Range HTTP header, only a single byte range is supported.
+     *
+     * @param header Header value
+     * @param length Length of the content
+     * @return First and last positions of the range (inclusive), null to return the whole content
+     * @throws IllegalArgumentException If the range is not satisfiable
+     */
+    public static long[] parseByteRange(String header, long length) {
+        String range = getSingleRange(header);
+        int dash = range == null ? -1 : range.indexOf('-');
+        if (dash == -1) {
+            return null;
+        }
+
+        long[] positions;
+        try {
+            positions = dash == 0 ? parseSuffixRange(range, length) : parseOpenRange(range, dash, length);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+        if (positions != null && positions[0] >= length) {
+            throw new IllegalArgumentException("Range not satisfiable: " + header);
+        }
+        return positions;
+    }
+
+    /**
+     * Returns the byte range of a Range HTTP header containing a single one.
+     *
+     * @param header Header value
+     * @return Byte range, null if the header is absent or contains several ranges
+     */
+    private static String getSingleRange(String header) {
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') != -1) {
+            return null;
+        }
+        return header.substring(6).trim();
+    }
+
+    /**
+     * Parse a byte range of the last bytes, e.g. -500.
+     *
+     * @param range Range
+     * @param length Length of the content
+     * @return First and last positions of the range (inclusive)
+     * @throws IllegalArgumentException If the range is empty
+     */
+    private static long[] parseSuffixRange(String range, long length) {
+        long suffix = Long.parseLong(range.substring(1));
+        if (suffix == 0) {
+            throw new IllegalArgumentException("Empty range: bytes=" + range);
+        }
+        return new long[] { Math.max(0, length - suffix), length - 1 };
+    }
+
+    /**
+     * Parse a byte range from a position, to another one or to the end, e.g. 500-999 or 500-.
+     *
+     * @param range Range
+     * @param dash Position of the dash in the range
+     * @param length Length of the content
+     * @return First and last positions of the range (inclusive), null if the range is invalid
+     */
+    private static long[] parseOpenRange(String range, int dash, long length) {
+        long start = Long.parseLong(range.substring(0, dash));
+        long end = dash == range.length() - 1 ? Long.MAX_VALUE : Long.parseLong(range.substring(dash + 1));
+        if (end < start) {
+            // Syntactically invalid, ignored
+            return null;
+        }
+        return new long[] { start, Math.min(end, length - 1) };
+    }
 }
@@ -0,0 +1,295 @@
+package com.sismics.util;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Preparation of the images before OCR: scaling, grayscale and deskew.
+ * The skew is estimated with a Hough transform on a downsampled and binarized copy of the image,
+ * and the image is rotated only once.
+ */
+public class OcrImageUtil {
+    /**
+     * Smaller images are upscaled to this size on their longest side.
+     */
+    private static final int MIN_SIZE = 2500;
+
+    /**
+     * Larger images are downscaled to this size on their longest side.
+     */
+    private static final int MAX_SIZE = 5000;
+
+    /**
+     * Size of the longest side of the copy used to estimate the skew.
+     */
+    private static final int SKEW_SIZE = 1000;
+
+    /**
+     * Gray level below which a pixel is black.
+     */
+    private static final int BLACK_THRESHOLD = 128;
+
+    /**
+     * Range of the skew angles searched, in degrees.
+     */
+    private static final double ALPHA_START = -20;
+    private static final double ALPHA_STEP = 0.2;
+    private static final int ALPHA_COUNT = 199;
+
+    /**
+     * Number of lines averaged to compute the skew angle.
+     */
+    private static final int LINE_COUNT = 20;
+
+    /**
+     * Number of edge points above which the angles are searched in parallel.
+     */
+    private static final int PARALLEL_POINT_COUNT = 10_000;
+
+    /**
+     * Skew angle in degrees below which the image is not rotated.
+     */
+    private static final double MIN_SKEW_ANGLE = 0.05;
+
+    /**
+     * Scale, grayscale and deskew an image for OCR.
+     *
+     * @param image Image
+     * @return Prepared grayscale image
+     */
+    public static BufferedImage prepare(BufferedImage image) {
+        BufferedImage grayImage = toGray(image, getScale(image.getWidth(), image.getHeight()));
+        double skewAngle = getSkewAngle(grayImage);
+        if (Math.abs(skewAngle) < MIN_SKEW_ANGLE) {
+            return grayImage;
+        }
+
+        BufferedImage rotatedImage = rotate(grayImage, -skewAngle);
+        grayImage.flush();
+        return rotatedImage;
+    }
+
+    /**
+     * Returns the scale bringing the longest side of an image between the minimum and maximum size.
+     *
+     * @param width Width
+     * @param height Height
+     * @return Scale
+     */
+    public static double getScale(int width, int height) {
+        int size = Math.max(width, height);
+        if (size < MIN_SIZE) {
+            return (double) MIN_SIZE / size;
+        }
+        if (size > MAX_SIZE) {
+            return (double) MAX_SIZE / size;
+        }
+        return 1;
+    }
+
+    /**
+     * Estimate the skew angle of a grayscale image.
+     * The lines are searched through the lower edges of the black areas in the middle half of the image,
+     * and the angles of the lines going through the most edges are averaged.
+     *
+     * @param grayImage Grayscale image
+     * @return Skew angle in degrees
+     */
+    public static double getSkewAngle(BufferedImage grayImage) {
+        // Downsampled and binarized copy
+        int factor = Math.max(1, (Math.max(grayImage.getWidth(), grayImage.getHeight()) + SKEW_SIZE - 1) / SKEW_SIZE);
+        int width = grayImage.getWidth() / factor;
+        int height = grayImage.getHeight() / factor;
+        if (width < 4 || height < 4) {
+            return 0;
+        }
+        boolean[] black = binarize(grayImage.getRaster(), factor, width, height);
+
+        // Lines going through the most lower edges of the black areas
+        int[][] edges = getLowerEdges(black, width, height);
+        int dCount = 2 * (width + height);
+        int[] topIndexes = getTopIndexes(countLines(edges[0], edges[1], -width, dCount));
+        if (topIndexes == null) {
+            return 0;
+        }
+
+        // Average angle of the lines
+        double sum = 0;
+        for (int i = 0; i < LINE_COUNT - 1; i++) {
+            sum += getAlpha(topIndexes[i] / dCount);
+        }
+        return sum / (LINE_COUNT - 1);
+    }
+
+    /**
+     * Returns the lower edges of the black areas in the middle half of a binarized image.
+     *
+     * @param black Black pixels, row after row
+     * @param width Width
+     * @param height Height
+     * @return Abscissas and ordinates of the edges
+     */
+    private static int[][] getLowerEdges(boolean[] black, int width, int height) {
+        int hMin = height / 4;
+        int hMax = height * 3 / 4;
+        int pointCount = 0;
+        int[] xs = new int[width * (hMax - hMin)];
+        int[] ys = new int[xs.length];
+        for (int y = hMin; y < hMax; y++) {
+            for (int x = 1; x < width - 2; x++) {
+                if (black[y * width + x] && !black[(y + 1) * width + x]) {
+                    xs[pointCount] = x;
+                    ys[pointCount] = y;
+                    pointCount++;
+                }
+            }
+        }
+        return new int[][] { Arrays.copyOf(xs, pointCount), Arrays.copyOf(ys, pointCount) };
+    }
+
+    /**
+     * Count the edges on each line y * cos(alpha) - x * sin(alpha) = d, one angle after the other.
+     *
+     * @param xs Abscissas of the edges
+     * @param ys Ordinates of the edges
+     * @param dMin Minimum distance of the lines
+     * @param dCount Number of distances per angle
+     * @return Number of edges of each line, by angle then by distance
+     */
+    private static int[] countLines(int[] xs, int[] ys, int dMin, int dCount) {
+        int[] lineCounts = new int[ALPHA_COUNT * dCount];
+        IntStream alphaStream = IntStream.range(0, ALPHA_COUNT);
+        if (xs.length >= PARALLEL_POINT_COUNT) {
+            alphaStream = alphaStream.parallel();
+        }
+        alphaStream.forEach(alpha -> {
+            double angle = Math.toRadians(getAlpha(alpha));
+            double sin = Math.sin(angle);
+            double cos = Math.cos(angle);
+            int offset = alpha * dCount;
+            for (int i = 0; i < xs.length; i++) {
+                lineCounts[offset + (int) (ys[i] * cos - xs[i] * sin - dMin)]++;
+            }
+        });
+        return lineCounts;
+    }
+
+    /**
+     * Returns the lines with the most edges, sorted by count.
+     *
+     * @param lineCounts Number of edges of each line
+     * @return Indexes of the lines, null if there are not enough lines with edges
+     */
+    private static int[] getTopIndexes(int[] lineCounts) {
+        int[] topCounts = new int[LINE_COUNT];
+        int[] topIndexes = new int[LINE_COUNT];
+        for (int i = 0; i < lineCounts.length; i++) {
+            int count = lineCounts[i];
+            if (count <= topCounts[LINE_COUNT - 1]) {
+                continue;
+            }
+            int j = LINE_COUNT - 1;
+            while (j > 0 && count > topCounts[j - 1]) {
+                topCounts[j] = topCounts[j - 1];
+                topIndexes[j] = topIndexes[j - 1];
+                j--;
+            }
+            topCounts[j] = count;
+            topIndexes[j] = i;
+        }
+        return topCounts[LINE_COUNT - 1] == 0 ? null : topIndexes;
+    }
+
+    /**
+     * Draw an image scaled in grayscale on a white background.
+     *
+     * @param image Image
+     * @param scale Scale
+     * @return Grayscale image
+     */
+    private static BufferedImage toGray(BufferedImage image, double scale) {
+        if (scale == 1 && image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage grayImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = grayImage.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return grayImage;
+    }
+
+    /**
+     * Average the blocks of pixels of a grayscale raster and threshold them.
+     *
+     * @param raster Grayscale raster
+     * @param factor Size of the blocks
+     * @param width Width of the result
+     * @param height Height of the result
+     * @return Black pixels, row after row
+     */
+    private static boolean[] binarize(Raster raster, int factor, int width, int height) {
+        boolean[] black = new boolean[width * height];
+        int[] row = new int[width * factor];
+        int[] sums = new int[width];
+        int threshold = BLACK_THRESHOLD * factor * factor;
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(sums, 0);
+            for (int dy = 0; dy < factor; dy++) {
+                raster.getSamples(raster.getMinX(), raster.getMinY() + y * factor + dy, row.length, 1, 0, row);
+                for (int x = 0; x < row.length; x++) {
+                    sums[x / factor] += row[x];
+                }
+            }
+            for (int x = 0; x < width; x++) {
+                black[y * width + x] = sums[x] < threshold;
+            }
+        }
+        return black;
+    }
+
+    /**
+     * Rotate a grayscale image around its center, the uncovered areas are white.
+     *
+     * @param grayImage Grayscale image
+     * @param angle Angle in degrees
+     * @return Rotated image
+     */
+    private static BufferedImage rotate(BufferedImage grayImage, double angle) {
+        int width = grayImage.getWidth();
+        int height = grayImage.getHeight();
+        BufferedImage rotatedImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = rotatedImage.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.rotate(Math.toRadians(angle), width / 2.0, height / 2.0);
+            g.drawImage(grayImage, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return rotatedImage;
+    }
+
+    /**
+     * Returns the angle of an index.
+     *
+     * @param index Index
+     * @return Angle in degrees
+     */
+    private static double getAlpha(int index) {
+        return ALPHA_START + index * ALPHA_STEP;
+    }
+}
@@ -1,7 +1,12 @@
 package com.sismics.util.context;
 
 import com.google.common.collect.Lists;
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.constant.PersistenceContextMode;
 import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.util.ConfigUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import jakarta.persistence.EntityManager;
 import java.util.Iterator;
@@ -13,21 +18,41 @@ import java.util.List;
  * @author jtremeaux
  */
 public class ThreadLocalContext {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ThreadLocalContext.class);
+
     /**
      * ThreadLocal to store the context.
      */
     private static final ThreadLocal<ThreadLocalContext> threadLocalContext = new ThreadLocal<>();
-    
+
+    /**
+     * Default lifecycle of the persistence context.
+     */
+    private static final PersistenceContextMode DEFAULT_PERSISTENCE_CONTEXT_MODE = getDefaultPersistenceContextMode();
+
     /**
      * Entity manager.
      */
     private EntityManager entityManager;
 
+    /**
+     * Lifecycle of the persistence context.
+     */
+    private PersistenceContextMode persistenceContextMode = DEFAULT_PERSISTENCE_CONTEXT_MODE;
+
     /**
      * List of async events posted during this request.
      */
     private List<Object> asyncEventList = Lists.newArrayList();
 
+    /**
+     * List of actions to run once the transaction of this request is over.
+     */
+    private List<Runnable> afterTransactionActionList = Lists.newArrayList();
+
     /**
      * Private constructor.
      */
@@ -62,7 +87,7 @@ public class ThreadLocalContext {
      * @return entityManager
      */
     public EntityManager getEntityManager() {
-        if (entityManager != null && entityManager.isOpen()) {
+        if (persistenceContextMode == PersistenceContextMode.CLEAR && entityManager != null && entityManager.isOpen()) {
             // This disables the L1 cache
             entityManager.flush();
             entityManager.clear();
@@ -79,6 +104,24 @@ public class ThreadLocalContext {
         this.entityManager = entityManager;
     }
 
+    /**
+     * Getter of persistenceContextMode.
+     *
+     * @return persistenceContextMode
+     */
+    public PersistenceContextMode getPersistenceContextMode() {
+        return persistenceContextMode;
+    }
+
+    /**
+     * Setter of persistenceContextMode.
+     *
+     * @param persistenceContextMode persistenceContextMode
+     */
+    public void setPersistenceContextMode(PersistenceContextMode persistenceContextMode) {
+        this.persistenceContextMode = persistenceContextMode;
+    }
+
     /**
      * Add an async event to the queue to be fired after the current request.
      *
@@ -99,4 +142,38 @@ public class ThreadLocalContext {
             AppContext.getInstance().getAsyncEventBus().post(asyncEvent);
         }
     }
+
+    /**
+     * Add an action to run once the transaction of the current request is committed or rolled back.
+     *
+     * @param action Action
+     */
+    public void addAfterTransactionAction(Runnable action) {
+        afterTransactionActionList.add(action);
+    }
+
+    /**
+     * Run all pending after transaction actions.
+     */
+    public void runAfterTransactionActions() {
+        Iterator<Runnable> iterator = afterTransactionActionList.iterator();
+        while (iterator.hasNext()) {
+            Runnable action = iterator.next();
+            iterator.remove();
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.error("Error running an after transaction action", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the default lifecycle of the persistence context.
+     *
+     * @return Persistence context mode
+     */
+    private static PersistenceContextMode getDefaultPersistenceContextMode() {
+        return ConfigUtil.getEnvEnumValue(Constants.PERSISTENCE_CONTEXT_MODE_ENV, PersistenceContextMode.CLEAR);
+    }
 }
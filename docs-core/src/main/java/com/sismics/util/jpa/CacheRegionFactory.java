@@ -0,0 +1,169 @@
+package com.sismics.util.jpa;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.util.ConfigUtil;
+import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
+import jakarta.json.JsonObjectBuilder;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hibernate second-level cache held in memory.
+ * Entity and query results regions are bounded and expire, the update timestamps region is not
+ * since Hibernate considers cached query results fresh when their timestamps are missing.
+ */
+public class CacheRegionFactory extends RegionFactoryTemplate {
+    /**
+     * Caches by region name.
+     */
+    private final Map<String, Cache<Object, Object>> cacheMap = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of entries per region.
+     */
+    private long maxSize;
+
+    /**
+     * Time to live of the entries (in seconds).
+     */
+    private long ttl;
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        maxSize = ConfigUtil.getEnvLongValue(Constants.CACHE_MAX_SIZE_ENV, 10000);
+        ttl = ConfigUtil.getEnvLongValue(Constants.CACHE_TTL_ENV, 3600);
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        for (Cache<Object, Object> cache : cacheMap.values()) {
+            cache.invalidateAll();
+        }
+        cacheMap.clear();
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig, DomainDataRegionBuildingContext buildingContext) {
+        return new CacheStorageAccess(createCache(regionConfig.getRegionName(), true));
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return new CacheStorageAccess(createCache(regionName, true));
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName, SessionFactoryImplementor sessionFactory) {
+        return new CacheStorageAccess(createCache(regionName, false));
+    }
+
+    /**
+     * Create the cache of a region.
+     *
+     * @param regionName Region name
+     * @param bounded True if the cache is bounded and expires
+     * @return Cache
+     */
+    private Cache<Object, Object> createCache(String regionName, boolean bounded) {
+        CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().recordStats();
+        if (bounded) {
+            cacheBuilder.maximumSize(maxSize);
+            if (ttl > 0) {
+                cacheBuilder.expireAfterWrite(ttl, TimeUnit.SECONDS);
+            }
+        }
+        Cache<Object, Object> cache = cacheBuilder.build();
+        cacheMap.put(regionName, cache);
+        return cache;
+    }
+
+    /**
+     * Returns the statistics of the cache regions, for monitoring purposes.
+     *
+     * @return Status
+     */
+    public JsonObjectBuilder getStatus() {
+        JsonArrayBuilder regions = Json.createArrayBuilder();
+        for (Map.Entry<String, Cache<Object, Object>> entry : new TreeMap<>(cacheMap).entrySet()) {
+            CacheStats stats = entry.getValue().stats();
+            regions.add(Json.createObjectBuilder()
+                    .add("name", entry.getKey())
+                    .add("size", entry.getValue().size())
+                    .add("hit_count", stats.hitCount())
+                    .add("miss_count", stats.missCount())
+                    .add("eviction_count", stats.evictionCount()));
+        }
+        return Json.createObjectBuilder()
+                .add("max_size", maxSize)
+                .add("ttl", ttl)
+                .add("regions", regions);
+    }
+
+    /**
+     * Storage of a region.
+     */
+    private static class CacheStorageAccess implements DomainDataStorageAccess {
+        /**
+         * Cache.
+         */
+        private final Cache<Object, Object> cache;
+
+        /**
+         * Constructor.
+         *
+         * @param cache Cache
+         */
+        CacheStorageAccess(Cache<Object, Object> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            return cache.getIfPresent(key);
+        }
+
+        @Override
+        public void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            if (value == null) {
+                cache.invalidate(key);
+            } else {
+                cache.put(key, value);
+            }
+        }
+
+        @Override
+        public boolean contains(Object key) {
+            return cache.asMap().containsKey(key);
+        }
+
+        @Override
+        public void evictData() {
+            cache.invalidateAll();
+        }
+
+        @Override
+        public void evictData(Object key) {
+            cache.invalidate(key);
+        }
+
+        @Override
+        public void release() {
+            cache.invalidateAll();
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.sismics.util.jpa;
 import com.google.common.base.Strings;
 import com.sismics.docs.core.util.DirectoryUtil;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.internal.util.config.ConfigurationHelper;
 import org.hibernate.service.ServiceRegistry;
 import org.slf4j.Logger;
@@ -55,7 +58,10 @@ public final class EMF {
             openHelper.open();
             
             emfInstance = Persistence.createEntityManagerFactory("transactions-optional", getEntityManagerProperties());
-            
+
+            // Close the connections used to open the database, once the pool of the EMF holds its own
+            StandardServiceRegistryBuilder.destroy(reg);
+
         } catch (Throwable t) {
             log.error("Error creating EMF", t);
         }
@@ -81,10 +87,7 @@ public final class EMF {
         String databaseUrl = System.getenv("DATABASE_URL");
         String databaseUsername = System.getenv("DATABASE_USER");
         String databasePassword = System.getenv("DATABASE_PASSWORD");
-        String databasePoolSize = System.getenv("DATABASE_POOL_SIZE");
-        if(databasePoolSize == null) {
-            databasePoolSize = "10";
-        }
+        String databasePoolSize = getEnv("DATABASE_POOL_SIZE", "10");
 
         log.info("Configuring EntityManager from environment parameters");
         Properties props = new Properties();
@@ -102,17 +105,38 @@ public final class EMF {
             props.put("hibernate.connection.url", databaseUrl);
             props.put("hibernate.connection.username", databaseUsername);
             props.put("hibernate.connection.password", databasePassword);
+
+            // Server-side prepared statements, cached per connection by the driver
+            props.put("hibernate.connection.prepareThreshold", getEnv("DATABASE_PREPARE_THRESHOLD", "5"));
+            props.put("hibernate.connection.preparedStatementCacheQueries", getEnv("DATABASE_STATEMENT_CACHE_SIZE", "256"));
         }
         props.put("hibernate.hbm2ddl.auto", "");
         props.put("hibernate.show_sql", "false");
         props.put("hibernate.format_sql", "false");
         props.put("hibernate.max_fetch_depth", "5");
-        props.put("hibernate.cache.use_second_level_cache", "false");
-        props.put("hibernate.connection.initial_pool_size", "1");
+        props.put("hibernate.cache.use_second_level_cache", "true");
+        props.put("hibernate.cache.use_query_cache", "true");
+        props.put("hibernate.cache.region.factory_class", CacheRegionFactory.class.getName());
+        props.put("hibernate.connection.provider_class", PooledConnectionProvider.class.getName());
         props.put("hibernate.connection.pool_size", databasePoolSize);
-        props.put("hibernate.connection.pool_validation_interval", "5");
+        props.put(PooledConnectionProvider.MIN_IDLE, getEnv("DATABASE_POOL_MIN_IDLE", "1"));
+        props.put(PooledConnectionProvider.CONNECTION_TIMEOUT, getEnv("DATABASE_CONNECTION_TIMEOUT", "30000"));
+        props.put(PooledConnectionProvider.LEAK_DETECTION_THRESHOLD, getEnv("DATABASE_LEAK_DETECTION_THRESHOLD", "0"));
+        props.put(PooledConnectionProvider.MAX_LIFETIME, getEnv("DATABASE_MAX_LIFETIME", "1800000"));
         return props;
     }
+
+    /**
+     * Returns an environment parameter.
+     *
+     * @param name Name
+     * @param defaultValue Value if the parameter is not set
+     * @return Value
+     */
+    private static String getEnv(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return Strings.isNullOrEmpty(value) ? defaultValue : value;
+    }
     
     /**
      * Private constructor.
@@ -129,6 +153,27 @@ public final class EMF {
         return emfInstance;
     }
 
+    /**
+     * Returns the second-level cache.
+     *
+     * @return Second-level cache, null if disabled
+     */
+    public static CacheRegionFactory getCacheRegionFactory() {
+        RegionFactory regionFactory = emfInstance.unwrap(SessionFactoryImplementor.class).getCache().getRegionFactory();
+        return regionFactory instanceof CacheRegionFactory ? (CacheRegionFactory) regionFactory : null;
+    }
+
+    /**
+     * Returns the connection pool.
+     *
+     * @return Connection pool, null if another connection provider is configured
+     */
+    public static PooledConnectionProvider getConnectionProvider() {
+        ConnectionProvider connectionProvider = emfInstance.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(ConnectionProvider.class);
+        return connectionProvider instanceof PooledConnectionProvider ? (PooledConnectionProvider) connectionProvider : null;
+    }
+
     public static boolean isDriverH2() {
         String driver = getDriver();
         return driver.contains("h2");
@@ -0,0 +1,423 @@
+package com.sismics.util.jpa;
+
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.internal.ConnectionProviderInitiator;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JDBC connection pool.
+ * Replaces the Hibernate built-in pool, which is not meant for production.
+ * Threads wait fairly for a connection up to a timeout, connections are validated before being borrowed,
+ * reset when returned and recycled after their maximum lifetime, and connections held for too long are reported as leaks.
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(PooledConnectionProvider.class);
+
+    /**
+     * Minimum number of idle connections.
+     */
+    public static final String MIN_IDLE = "docs.pool.min_idle";
+
+    /**
+     * Maximum time to wait for a connection (in milliseconds).
+     */
+    public static final String CONNECTION_TIMEOUT = "docs.pool.connection_timeout";
+
+    /**
+     * Time after which a connection not returned to the pool is reported as a leak (in milliseconds, 0 to disable).
+     */
+    public static final String LEAK_DETECTION_THRESHOLD = "docs.pool.leak_detection_threshold";
+
+    /**
+     * Maximum lifetime of a connection (in milliseconds, 0 for unlimited).
+     */
+    public static final String MAX_LIFETIME = "docs.pool.max_lifetime";
+
+    /**
+     * Legacy Hibernate setting of the JDBC driver, still used by EMF.
+     */
+    private static final String LEGACY_DRIVER = "hibernate.connection.driver_class";
+
+    /**
+     * Legacy Hibernate setting of the JDBC URL, still used by EMF.
+     */
+    private static final String LEGACY_URL = "hibernate.connection.url";
+
+    /**
+     * Timeout of the connection validation (in seconds).
+     */
+    private static final int VALIDATION_TIMEOUT = 5;
+
+    /**
+     * Connection pool.
+     */
+    private GenericObjectPool<Connection> pool;
+
+    /**
+     * JDBC driver.
+     */
+    private Driver driver;
+
+    /**
+     * JDBC URL.
+     */
+    private String url;
+
+    /**
+     * Connection properties, passed to the driver.
+     */
+    private Properties connectionProperties;
+
+    /**
+     * Auto-commit mode of the connections.
+     */
+    private boolean autoCommit;
+
+    /**
+     * Transaction isolation of the new connections, -1 until a connection is created.
+     */
+    private volatile int transactionIsolation = -1;
+
+    /**
+     * Maximum time to wait for a connection (in milliseconds).
+     */
+    private long connectionTimeout;
+
+    /**
+     * Leak detection threshold (in milliseconds).
+     */
+    private long leakDetectionThreshold;
+
+    /**
+     * Maximum lifetime of a connection (in milliseconds).
+     */
+    private long maxLifetime;
+
+    /**
+     * Borrow time of the connections in use, only when leak detection is enabled.
+     */
+    private final Map<Connection, Borrow> borrowMap = new ConcurrentHashMap<>();
+
+    /**
+     * Leak detection executor.
+     */
+    private ScheduledExecutorService leakDetectionExecutor;
+
+    /**
+     * Number of times a thread timed out waiting for a connection.
+     */
+    private final AtomicLong timeoutCount = new AtomicLong();
+
+    /**
+     * Number of leaks detected.
+     */
+    private final AtomicLong leakCount = new AtomicLong();
+
+    @Override
+    public void configure(Map<String, Object> configurationValues) {
+        String driverClassName = getSetting(configurationValues, AvailableSettings.JAKARTA_JDBC_DRIVER, LEGACY_DRIVER);
+        url = getSetting(configurationValues, AvailableSettings.JAKARTA_JDBC_URL, LEGACY_URL);
+        if (url == null) {
+            throw new HibernateException("JDBC URL was not specified by property " + AvailableSettings.JAKARTA_JDBC_URL);
+        }
+        try {
+            driver = (Driver) Class.forName(driverClassName).getDeclaredConstructor().newInstance();
+        } catch (Exception e) {
+            throw new HibernateException("Unable to load the JDBC driver " + driverClassName, e);
+        }
+
+        // Hibernate only passes the legacy credentials to the driver
+        connectionProperties = ConnectionProviderInitiator.getConnectionProperties(configurationValues);
+        String user = (String) configurationValues.get(AvailableSettings.JAKARTA_JDBC_USER);
+        if (user != null) {
+            connectionProperties.setProperty("user", user);
+        }
+        String password = (String) configurationValues.get(AvailableSettings.JAKARTA_JDBC_PASSWORD);
+        if (password != null) {
+            connectionProperties.setProperty("password", password);
+        }
+        autoCommit = ConfigurationHelper.getBoolean(AvailableSettings.AUTOCOMMIT, configurationValues, false);
+
+        int maxSize = ConfigurationHelper.getInt(AvailableSettings.POOL_SIZE, configurationValues, 10);
+        int minIdle = Math.min(ConfigurationHelper.getInt(MIN_IDLE, configurationValues, 1), maxSize);
+        connectionTimeout = ConfigurationHelper.getLong(CONNECTION_TIMEOUT, configurationValues, 30000);
+        leakDetectionThreshold = ConfigurationHelper.getLong(LEAK_DETECTION_THRESHOLD, configurationValues, 0);
+        maxLifetime = ConfigurationHelper.getLong(MAX_LIFETIME, configurationValues, 1800000);
+
+        GenericObjectPoolConfig<Connection> config = new GenericObjectPoolConfig<>();
+        config.setMaxTotal(maxSize);
+        config.setMaxIdle(maxSize);
+        config.setMinIdle(minIdle);
+        config.setBlockWhenExhausted(true);
+        config.setMaxWait(Duration.ofMillis(connectionTimeout));
+        config.setFairness(true);
+        config.setTestOnBorrow(true);
+        config.setTestWhileIdle(true);
+        config.setTimeBetweenEvictionRuns(Duration.ofSeconds(30));
+        config.setJmxEnabled(false);
+        pool = new GenericObjectPool<>(new ConnectionFactory(), config);
+
+        try {
+            pool.preparePool();
+        } catch (Exception e) {
+            log.warn("Unable to open the initial connections to the database", e);
+        }
+
+        if (leakDetectionThreshold > 0) {
+            leakDetectionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "connection-leak-detection");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(leakDetectionThreshold / 2, 1000);
+            leakDetectionExecutor.scheduleWithFixedDelay(() -> detectLeaks(System.currentTimeMillis()), period, period, TimeUnit.MILLISECONDS);
+        }
+
+        log.info("Connection pool started with {} connections maximum, {} idle minimum", maxSize, minIdle);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection;
+        try {
+            connection = pool.borrowObject();
+        } catch (NoSuchElementException e) {
+            timeoutCount.incrementAndGet();
+            throw new SQLTransientConnectionException("Connection is not available, request timed out after " + connectionTimeout
+                    + "ms (" + pool.getNumActive() + " active, " + pool.getNumWaiters() + " waiting)", e);
+        } catch (SQLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SQLException("Unable to get a connection from the pool", e);
+        }
+
+        if (leakDetectionThreshold > 0) {
+            borrowMap.put(connection, new Borrow());
+        }
+        return connection;
+    }
+
+    @Override
+    public void closeConnection(Connection connection) {
+        Borrow borrow = borrowMap.remove(connection);
+        if (borrow != null && borrow.reported) {
+            log.info("Previously reported leaked connection returned to the pool after {}ms", System.currentTimeMillis() - borrow.time);
+        }
+        pool.returnObject(connection);
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return ConnectionProvider.class.equals(unwrapType) || PooledConnectionProvider.class.isAssignableFrom(unwrapType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (isUnwrappableAs(unwrapType)) {
+            return (T) this;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    @Override
+    public void stop() {
+        if (leakDetectionExecutor != null) {
+            leakDetectionExecutor.shutdownNow();
+        }
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * Returns a setting, or its legacy variant if not specified.
+     *
+     * @param configurationValues Configuration values
+     * @param name Setting name
+     * @param legacyName Legacy setting name
+     * @return Setting value
+     */
+    private static String getSetting(Map<String, Object> configurationValues, String name, String legacyName) {
+        Object value = configurationValues.get(name);
+        if (value == null) {
+            value = configurationValues.get(legacyName);
+        }
+        return (String) value;
+    }
+
+    /**
+     * Report the connections borrowed for longer than the leak detection threshold.
+     *
+     * @param now Current time (in milliseconds)
+     */
+    void detectLeaks(long now) {
+        for (Borrow borrow : borrowMap.values()) {
+            if (!borrow.reported && now - borrow.time > leakDetectionThreshold) {
+                borrow.reported = true;
+                leakCount.incrementAndGet();
+                log.warn("Connection leak detected, connection borrowed for more than " + leakDetectionThreshold + "ms", borrow.stackTrace);
+            }
+        }
+    }
+
+    /**
+     * Returns the status of the pool, for monitoring purposes.
+     *
+     * @return Status
+     */
+    public JsonObjectBuilder getStatus() {
+        return Json.createObjectBuilder()
+                .add("max_size", pool.getMaxTotal())
+                .add("min_idle", pool.getMinIdle())
+                .add("active", pool.getNumActive())
+                .add("idle", pool.getNumIdle())
+                .add("waiting", pool.getNumWaiters())
+                .add("borrowed_count", pool.getBorrowedCount())
+                .add("created_count", pool.getCreatedCount())
+                .add("destroyed_count", pool.getDestroyedCount())
+                .add("mean_borrow_wait_time", pool.getMeanBorrowWaitTimeMillis())
+                .add("max_borrow_wait_time", pool.getMaxBorrowWaitTimeMillis())
+                .add("timeout_count", getTimeoutCount())
+                .add("leak_count", getLeakCount());
+    }
+
+    /**
+     * Returns the number of times a thread timed out waiting for a connection.
+     *
+     * @return Timeout count
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.get();
+    }
+
+    /**
+     * Returns the number of connection leaks detected.
+     *
+     * @return Leak count
+     */
+    public long getLeakCount() {
+        return leakCount.get();
+    }
+
+    /**
+     * Borrow of a connection.
+     */
+    private static class Borrow {
+        /**
+         * Borrow time.
+         */
+        private final long time = System.currentTimeMillis();
+
+        /**
+         * Stack trace of the borrower.
+         */
+        private final Exception stackTrace = new Exception("Connection borrowed here");
+
+        /**
+         * True if reported as a leak.
+         */
+        private volatile boolean reported;
+    }
+
+    /**
+     * Factory of the pooled connections.
+     */
+    private class ConnectionFactory extends BasePooledObjectFactory<Connection> {
+        @Override
+        public Connection create() throws SQLException {
+            Connection connection = driver.connect(url, connectionProperties);
+            if (connection == null) {
+                throw new SQLException("The JDBC driver does not accept the URL " + url);
+            }
+            connection.setAutoCommit(autoCommit);
+            if (transactionIsolation < 0) {
+                transactionIsolation = connection.getTransactionIsolation();
+            }
+            return connection;
+        }
+
+        @Override
+        public PooledObject<Connection> wrap(Connection connection) {
+            return new DefaultPooledObject<>(connection);
+        }
+
+        @Override
+        public boolean validateObject(PooledObject<Connection> pooledObject) {
+            long now = System.currentTimeMillis();
+            if (maxLifetime > 0 && now - pooledObject.getCreateInstant().toEpochMilli() > maxLifetime) {
+                return false;
+            }
+            try {
+                return pooledObject.getObject().isValid(VALIDATION_TIMEOUT);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void passivateObject(PooledObject<Connection> pooledObject) throws SQLException {
+            // The connection is destroyed if it can't be reset
+            Connection connection = pooledObject.getObject();
+            if (connection.isClosed()) {
+                throw new SQLException("Connection closed before being returned to the pool");
+            }
+
+            // Roll back any open transaction, then restore the state of a new connection
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            if (connection.getAutoCommit() != autoCommit) {
+                connection.setAutoCommit(autoCommit);
+            }
+            if (connection.getTransactionIsolation() != transactionIsolation) {
+                connection.setTransactionIsolation(transactionIsolation);
+            }
+            if (connection.isReadOnly()) {
+                connection.setReadOnly(false);
+            }
+            connection.clearWarnings();
+        }
+
+        @Override
+        public void destroyObject(PooledObject<Connection> pooledObject) throws SQLException {
+            pooledObject.getObject().close();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Set;
 
 /**
  * Utility to check MIME types.
@@ -11,6 +12,13 @@ import java.nio.file.Path;
  * @author bgamard
  */
 public class MimeTypeUtil {
+    /**
+     * MIME types of compressed contents, besides videos and audios.
+     */
+    private static final Set<String> COMPRESSED_MIME_TYPES = Set.of(MimeType.APPLICATION_ZIP, MimeType.IMAGE_GIF,
+            MimeType.IMAGE_JPEG, MimeType.IMAGE_PNG, MimeType.APPLICATION_PDF, MimeType.OPEN_DOCUMENT_TEXT,
+            MimeType.OFFICE_DOCUMENT, MimeType.OFFICE_PRESENTATION, MimeType.OFFICE_SHEET);
+
     /**
      * Try to guess the MIME type of a file.
      * 
@@ -67,4 +75,17 @@ public class MimeTypeUtil {
                 return "bin";
         }
     }
+
+    /**
+     * Check if the content of a MIME type is already compressed, so that compressing it again is useless.
+     *
+     * @param mimeType MIME type
+     * @return True if the content is compressed
+     */
+    public static boolean isCompressed(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        return mimeType.startsWith("video/") || mimeType.startsWith("audio/") || COMPRESSED_MIME_TYPES.contains(mimeType);
+    }
 }
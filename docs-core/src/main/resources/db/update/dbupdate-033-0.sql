@@ -0,0 +1,7 @@
+-- DBUPDATE-033-0.SQL
+
+-- Store the Lucene index in memory-mapped files, with native locking
+update T_CONFIG set CFG_VALUE_C = 'MMAP' where CFG_ID_C = 'LUCENE_DIRECTORY_STORAGE' and CFG_VALUE_C = 'FILE';
+
+-- Update the database version
+update T_CONFIG set CFG_VALUE_C = '33' where CFG_ID_C = 'DB_VERSION';
@@ -0,0 +1,98 @@
+package com.sismics.docs.core.dao.jpa;
+
+import com.sismics.docs.BaseTransactionalTest;
+import com.sismics.docs.core.constant.PersistenceContextMode;
+import com.sismics.docs.core.dao.DocumentDao;
+import com.sismics.docs.core.dao.FileDao;
+import com.sismics.docs.core.dao.TagDao;
+import com.sismics.docs.core.dao.UserDao;
+import com.sismics.docs.core.model.jpa.Document;
+import com.sismics.docs.core.model.jpa.File;
+import com.sismics.docs.core.model.jpa.Tag;
+import com.sismics.docs.core.model.jpa.User;
+import com.sismics.docs.core.util.TransactionUtil;
+import com.sismics.util.context.ThreadLocalContext;
+import com.sismics.util.jpa.EMF;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Date;
+
+/**
+ * Tests the lifecycle of the persistence context.
+ */
+public class TestPersistenceContext extends BaseTransactionalTest {
+    @Test
+    public void testRequestMode() throws Exception {
+        ThreadLocalContext.get().setPersistenceContextMode(PersistenceContextMode.REQUEST);
+        try {
+            User user = createUser("testRequestMode");
+            TransactionUtil.commit();
+
+            // Entities are loaded once per request
+            Statistics statistics = EMF.get().unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+            UserDao userDao = new UserDao();
+            User user1 = userDao.getById(user.getId());
+            User user2 = userDao.getById(user.getId());
+            Assert.assertSame(user1, user2);
+            Assert.assertEquals(0, statistics.getPrepareStatementCount());
+
+            // Pending changes are visible to native queries
+            Tag tag = new Tag();
+            tag.setName("testRequestMode");
+            tag.setColor("#ff0000");
+            tag.setUserId(user.getId());
+            String tagId = new TagDao().create(tag, user.getId());
+            Number count = (Number) ThreadLocalContext.get().getEntityManager()
+                    .createNativeQuery("select count(*) from T_TAG where TAG_ID_C = :id")
+                    .setParameter("id", tagId)
+                    .getSingleResult();
+            Assert.assertEquals(1, count.intValue());
+        } finally {
+            ThreadLocalContext.get().setPersistenceContextMode(PersistenceContextMode.CLEAR);
+        }
+    }
+
+    @Test
+    public void testBulkUpdate() throws Exception {
+        ThreadLocalContext.get().setPersistenceContextMode(PersistenceContextMode.REQUEST);
+        try {
+            User user = createUser("testBulkUpdate");
+            Document document = new Document();
+            document.setUserId(user.getId());
+            document.setLanguage("eng");
+            document.setTitle("testBulkUpdate");
+            document.setCreateDate(new Date());
+            DocumentDao documentDao = new DocumentDao();
+            String documentId = documentDao.create(document, user.getId());
+            File file = createFile(user, FILE_JPG_SIZE);
+            file.setDocumentId(documentId);
+            TransactionUtil.commit();
+
+            // The files deleted with their document by a bulk update are not returned anymore
+            FileDao fileDao = new FileDao();
+            Assert.assertNotNull(fileDao.getActiveById(file.getId()));
+            documentDao.delete(documentId, user.getId());
+            Assert.assertNull(documentDao.getById(documentId));
+            Assert.assertNull(fileDao.getActiveById(file.getId()));
+        } finally {
+            ThreadLocalContext.get().setPersistenceContextMode(PersistenceContextMode.CLEAR);
+        }
+    }
+
+    @Test
+    public void testClearMode() throws Exception {
+        Assert.assertEquals(PersistenceContextMode.CLEAR, ThreadLocalContext.get().getPersistenceContextMode());
+        User user = createUser("testClearMode");
+        TransactionUtil.commit();
+
+        // Entities are loaded again each time
+        UserDao userDao = new UserDao();
+        User user1 = userDao.getById(user.getId());
+        User user2 = userDao.getById(user.getId());
+        Assert.assertNotSame(user1, user2);
+    }
+}
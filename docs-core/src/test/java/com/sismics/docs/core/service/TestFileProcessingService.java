@@ -0,0 +1,103 @@
+package com.sismics.docs.core.service;
+
+import com.google.common.collect.Lists;
+import com.sismics.docs.core.constant.FileProcessingPriority;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test of the file processing service.
+ */
+public class TestFileProcessingService {
+
+    @Test
+    public void priorityTest() throws Exception {
+        FileProcessingService fileProcessingService = new FileProcessingService(1, 4);
+        fileProcessingService.startAsync();
+        fileProcessingService.awaitRunning();
+        try {
+            // Hold the only thread while the tasks are queued
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            fileProcessingService.submit(FileProcessingPriority.UPLOAD, "user1", () -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            List<String> processedList = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(5);
+            submit(fileProcessingService, FileProcessingPriority.BATCH, "user1", "batch1", processedList, done);
+            submit(fileProcessingService, FileProcessingPriority.REPROCESS, "user1", "reprocess1", processedList, done);
+            submit(fileProcessingService, FileProcessingPriority.UPLOAD, "user1", "upload1", processedList, done);
+            submit(fileProcessingService, FileProcessingPriority.UPLOAD, "user1", "upload2", processedList, done);
+            Assert.assertTrue(fileProcessingService.isSaturated());
+            submit(fileProcessingService, FileProcessingPriority.UPLOAD, "user2", "upload3", processedList, done);
+            Assert.assertEquals(6, fileProcessingService.getTaskCount());
+
+            // Highest priority first, users served in turn
+            release.countDown();
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(Lists.newArrayList("upload1", "upload3", "upload2", "reprocess1", "batch1"), processedList);
+            Assert.assertFalse(fileProcessingService.isSaturated());
+        } finally {
+            fileProcessingService.stopAsync();
+            fileProcessingService.awaitTerminated();
+        }
+    }
+
+    @Test
+    public void shutDownTest() throws Exception {
+        FileProcessingService fileProcessingService = new FileProcessingService(1, 4);
+        fileProcessingService.startAsync();
+        fileProcessingService.awaitRunning();
+
+        // The queued tasks are processed before the service is terminated
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> processedList = new CopyOnWriteArrayList<>();
+        fileProcessingService.submit(FileProcessingPriority.UPLOAD, "user1", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processedList.add("upload1");
+        });
+        fileProcessingService.submit(FileProcessingPriority.BATCH, "user1", () -> processedList.add("batch1"));
+        fileProcessingService.stopAsync();
+        release.countDown();
+        fileProcessingService.awaitTerminated(10, TimeUnit.SECONDS);
+        Assert.assertEquals(Lists.newArrayList("upload1", "batch1"), processedList);
+        Assert.assertEquals(0, fileProcessingService.getTaskCount());
+    }
+
+    @Test
+    public void synchronousTest() {
+        FileProcessingService fileProcessingService = new FileProcessingService(0, 4);
+        fileProcessingService.startAsync();
+        fileProcessingService.awaitRunning();
+        List<String> processedList = Lists.newArrayList();
+        fileProcessingService.submit(FileProcessingPriority.BATCH, "user1", () -> processedList.add("batch1"));
+        Assert.assertEquals(Lists.newArrayList("batch1"), processedList);
+        Assert.assertEquals(0, fileProcessingService.getTaskCount());
+        fileProcessingService.stopAsync();
+        fileProcessingService.awaitTerminated();
+    }
+
+    private void submit(FileProcessingService fileProcessingService, FileProcessingPriority priority, String userId,
+                        String name, List<String> processedList, CountDownLatch done) {
+        fileProcessingService.submit(priority, userId, () -> {
+            processedList.add(name);
+            done.countDown();
+        });
+    }
+}
@@ -9,6 +9,7 @@ import org.junit.Test;
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import java.io.InputStream;
+import java.util.Arrays;
 
 /**
  * Test of the encryption utilities.
@@ -48,4 +49,32 @@ public class TestEncryptUtil extends BaseTest {
         
         Assert.assertEquals(encryptedData.length, assertData.length);
     }
+
+    @Test
+    public void cachedKeyTest() throws Exception {
+        // Files encrypted before are decrypted the same way, with the derived key from the cache the second time
+        byte[] assertData = ByteStreams.toByteArray(getSystemResourceAsStream(FILE_PDF));
+        for (int i = 0; i < 2; i++) {
+            InputStream inputStream = EncryptionUtil.decryptInputStream(
+                    getSystemResourceAsStream(FILE_PDF_ENCRYPTED), "OnceUponATime");
+            Assert.assertArrayEquals(assertData, ByteStreams.toByteArray(inputStream));
+        }
+
+        // Encrypting gives the same result as before
+        Cipher cipher = EncryptionUtil.getEncryptionCipher("OnceUponATime");
+        byte[] encryptedData = ByteStreams.toByteArray(new CipherInputStream(getSystemResourceAsStream(FILE_PDF), cipher));
+        Assert.assertArrayEquals(ByteStreams.toByteArray(getSystemResourceAsStream(FILE_PDF_ENCRYPTED)), encryptedData);
+    }
+
+    @Test
+    public void offsetDecryptTest() throws Exception {
+        // Decrypting from an offset gives the end of the file, block aligned or not
+        byte[] assertData = ByteStreams.toByteArray(getSystemResourceAsStream(FILE_PDF));
+        for (int offset : new int[] { 0, 1, 15, 16, 17, 4096, 5003, assertData.length - 1, assertData.length }) {
+            InputStream encryptedStream = getSystemResourceAsStream(FILE_PDF_ENCRYPTED);
+            ByteStreams.skipFully(encryptedStream, offset);
+            InputStream inputStream = EncryptionUtil.decryptInputStream(encryptedStream, "OnceUponATime", offset);
+            Assert.assertArrayEquals(Arrays.copyOfRange(assertData, offset, assertData.length), ByteStreams.toByteArray(inputStream));
+        }
+    }
 }
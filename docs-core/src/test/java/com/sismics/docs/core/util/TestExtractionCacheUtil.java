@@ -0,0 +1,74 @@
+package com.sismics.docs.core.util;
+
+import com.sismics.docs.BaseTransactionalTest;
+import com.sismics.docs.core.util.format.FormatHandler;
+import com.sismics.docs.core.util.format.FormatHandlerUtil;
+import com.sismics.util.mime.MimeType;
+import com.sismics.util.mime.MimeTypeUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+/**
+ * Test of the extraction cache.
+ */
+public class TestExtractionCacheUtil extends BaseTransactionalTest {
+    @Test
+    public void extractionCacheTest() throws Exception {
+        Path path = Paths.get(getResource(FILE_ODT).toURI());
+        try (FormatHandler formatHandler = FormatHandlerUtil.find(MimeTypeUtil.guessMimeType(path, FILE_ODT))) {
+            Assert.assertNotNull(formatHandler);
+
+            // The key depends on the data and the language
+            String key = ExtractionCacheUtil.getKey(path, "eng", formatHandler);
+            Assert.assertEquals(key, ExtractionCacheUtil.getKey(path, "eng", formatHandler));
+            Assert.assertNotEquals(key, ExtractionCacheUtil.getKey(path, "fra", formatHandler));
+            Path otherPath = Paths.get(getResource(FILE_DOCX).toURI());
+            Assert.assertNotEquals(key, ExtractionCacheUtil.getKey(otherPath, "eng", formatHandler));
+        }
+
+        // Data never cached before
+        String secret = UUID.randomUUID().toString();
+        Path textFile = Files.createTempFile("extraction", ".txt");
+        Files.write(textFile, ("My secret is " + secret).getBytes(StandardCharsets.UTF_8));
+        try (FormatHandler formatHandler = FormatHandlerUtil.find(MimeType.TEXT_PLAIN)) {
+            Assert.assertNotNull(formatHandler);
+            String key = ExtractionCacheUtil.getKey(textFile, "eng", formatHandler);
+
+            // Miss then hit
+            long hitCount = ExtractionCacheUtil.getHitCount();
+            long missCount = ExtractionCacheUtil.getMissCount();
+            Assert.assertNull(ExtractionCacheUtil.get(key));
+            Assert.assertEquals(missCount + 1, ExtractionCacheUtil.getMissCount());
+            String content = formatHandler.extractContent("eng", textFile);
+            Assert.assertTrue(formatHandler.isContentComplete());
+            ExtractionCacheUtil.put(key, content);
+            Assert.assertEquals(content, ExtractionCacheUtil.get(key));
+            Assert.assertEquals(hitCount + 1, ExtractionCacheUtil.getHitCount());
+
+            // The content is not readable from the cache directory
+            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(DirectoryUtil.getExtractionCacheDirectory())) {
+                for (Path cachedFile : directoryStream) {
+                    Assert.assertFalse(new String(Files.readAllBytes(cachedFile), StandardCharsets.ISO_8859_1).contains(secret));
+                    Assert.assertFalse(cachedFile.getFileName().toString().contains(key));
+                }
+            }
+
+            // A content extracted again replaces the cached one
+            ExtractionCacheUtil.put(key, "Reprocessed");
+            Assert.assertEquals("Reprocessed", ExtractionCacheUtil.get(key));
+
+            // Nothing is cached without a key
+            ExtractionCacheUtil.put(null, content);
+            Assert.assertNull(ExtractionCacheUtil.get(null));
+        } finally {
+            Files.delete(textFile);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.sismics.docs.core.util;
 
 import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Resources;
 import com.sismics.BaseTest;
 import com.sismics.docs.core.dao.dto.DocumentDto;
@@ -13,11 +14,14 @@ import org.junit.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Test of the file utilities.
@@ -58,21 +62,28 @@ public class TestFileUtil extends BaseTest {
     @Test
     public void extractContentPdf() throws Exception {
         Path path = Paths.get(getResource(FILE_PDF).toURI());
-        FormatHandler formatHandler = FormatHandlerUtil.find(MimeTypeUtil.guessMimeType(path, FILE_PDF));
-        Assert.assertNotNull(formatHandler);
-        Assert.assertTrue(formatHandler instanceof PdfFormatHandler);
-        String content = formatHandler.extractContent("eng", path);
-        Assert.assertTrue(content.contains("All human beings are born free and equal in dignity and rights."));
+        try (FormatHandler formatHandler = FormatHandlerUtil.find(MimeTypeUtil.guessMimeType(path, FILE_PDF))) {
+            Assert.assertNotNull(formatHandler);
+            Assert.assertTrue(formatHandler instanceof PdfFormatHandler);
+
+            // The thumbnail and the text come from the same loaded PDF
+            Assert.assertNotNull(formatHandler.generateThumbnail(path));
+            List<Integer> progressList = Lists.newArrayList();
+            String content = formatHandler.extractContent("eng", path, progressList::add);
+            Assert.assertTrue(content.contains("All human beings are born free and equal in dignity and rights."));
+            Assert.assertEquals(Integer.valueOf(100), progressList.get(progressList.size() - 1));
+        }
     }
 
     @Test
     public void extractContentScannedPdf() throws Exception {
         Path path = Paths.get(getResource("scanned.pdf").toURI());
-        FormatHandler formatHandler = FormatHandlerUtil.find(MimeTypeUtil.guessMimeType(path, FILE_PDF_SCANNED));
-        Assert.assertNotNull(formatHandler);
-        Assert.assertTrue(formatHandler instanceof PdfFormatHandler);
-        String content = formatHandler.extractContent("eng", path);
-        Assert.assertTrue(content.contains("All human beings are born free and equal in dignity and rights."));
+        try (FormatHandler formatHandler = FormatHandlerUtil.find(MimeTypeUtil.guessMimeType(path, FILE_PDF_SCANNED))) {
+            Assert.assertNotNull(formatHandler);
+            Assert.assertTrue(formatHandler instanceof PdfFormatHandler);
+            String content = formatHandler.extractContent("eng", path);
+            Assert.assertTrue(content.contains("All human beings are born free and equal in dignity and rights."));
+        }
     }
 
     @Test
@@ -140,4 +151,63 @@ public class TestFileUtil extends BaseTest {
             Assert.assertTrue(outputStream.toByteArray().length > 0);
         }
     }
+
+    @Test
+    public void cachedPdfTest() throws Exception {
+        try (InputStream inputStream = getSystemResourceAsStream(FILE_JPG)) {
+            // Document
+            DocumentDto documentDto = new DocumentDto();
+            documentDto.setId("document_cached");
+            documentDto.setTitle("My cached document");
+            documentDto.setLanguage("en");
+            documentDto.setCreator("user1");
+            documentDto.setCreateTimestamp(new Date().getTime());
+
+            // File
+            Files.copy(inputStream, DirectoryUtil.getStorageDirectory().resolve("apollo_cached"), StandardCopyOption.REPLACE_EXISTING);
+            File file = new File();
+            file.setId("apollo_cached");
+            file.setMimeType(MimeType.IMAGE_JPEG);
+
+            // The first export is converted, the second one is read from the cache
+            String privateKey = EncryptionUtil.generatePrivateKey();
+            Path cachedFile = PdfUtil.getCachedPdf(documentDto, Lists.newArrayList(file), true, true, 10, privateKey);
+            Assert.assertTrue(Files.exists(cachedFile));
+            FileTime lastModifiedTime = Files.getLastModifiedTime(cachedFile);
+            Assert.assertEquals(cachedFile, PdfUtil.getCachedPdf(documentDto, Lists.newArrayList(file), true, true, 10, privateKey));
+            Assert.assertEquals(lastModifiedTime, Files.getLastModifiedTime(cachedFile));
+            try (InputStream decryptedStream = EncryptionUtil.decryptInputStream(Files.newInputStream(cachedFile), privateKey)) {
+                Assert.assertEquals("%PDF", new String(ByteStreams.toByteArray(decryptedStream), 0, 4, StandardCharsets.US_ASCII));
+            }
+
+            // Other options or metadata are other exports, the metadata are ignored without the metadata page
+            Assert.assertNotEquals(cachedFile, PdfUtil.getCachedPdf(documentDto, Lists.newArrayList(file), true, true, 20, privateKey));
+            Path noMetadataFile = PdfUtil.getCachedPdf(documentDto, Lists.newArrayList(file), true, false, 10, privateKey);
+            documentDto.setTitle("My renamed cached document");
+            Path renamedFile = PdfUtil.getCachedPdf(documentDto, Lists.newArrayList(file), true, true, 10, privateKey);
+            Assert.assertNotEquals(cachedFile, renamedFile);
+            Assert.assertEquals(noMetadataFile, PdfUtil.getCachedPdf(documentDto, Lists.newArrayList(file), true, false, 10, privateKey));
+
+            // Invalidate the cache
+            PdfUtil.deleteCachedPdf(documentDto.getId());
+            Assert.assertFalse(Files.exists(cachedFile));
+            Assert.assertFalse(Files.exists(renamedFile));
+        }
+    }
+
+    @Test
+    public void processingProgressTest() {
+        Assert.assertNull(FileUtil.getProcessingProgress("progress_file"));
+        FileUtil.startProcessingFile("progress_file");
+        Assert.assertTrue(FileUtil.isProcessingFile("progress_file"));
+        Assert.assertEquals(Integer.valueOf(0), FileUtil.getProcessingProgress("progress_file"));
+        FileUtil.setProcessingProgress("progress_file", 50);
+        Assert.assertEquals(Integer.valueOf(50), FileUtil.getProcessingProgress("progress_file"));
+
+        // A late progress doesn't bring back an ended processing
+        FileUtil.endProcessingFile("progress_file");
+        FileUtil.setProcessingProgress("progress_file", 100);
+        Assert.assertFalse(FileUtil.isProcessingFile("progress_file"));
+        Assert.assertNull(FileUtil.getProcessingProgress("progress_file"));
+    }
 }
@@ -0,0 +1,86 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Test of the index health check.
+ */
+public class TestIndexHealthCheck {
+    /**
+     * Create an index made of a single compound segment.
+     *
+     * @return Index path
+     * @throws IOException e
+     */
+    private Path createIndex() throws IOException {
+        Path path = Files.createTempDirectory("index");
+        try (Directory directory = new NIOFSDirectory(path);
+             IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            for (int i = 0; i < 100; i++) {
+                Document document = new Document();
+                document.add(new TextField("content", "Document content number " + i, Field.Store.YES));
+                indexWriter.addDocument(document);
+            }
+        }
+        return path;
+    }
+
+    @Test
+    public void checkCommitTest() throws Exception {
+        Path path = createIndex();
+        try (Directory directory = new NIOFSDirectory(path)) {
+            Assert.assertEquals(1, IndexHealthCheck.checkCommit(directory).size());
+        }
+
+        // A truncated segment file is detected without reading it entirely
+        try (RandomAccessFile file = new RandomAccessFile(path.resolve("_0.cfs").toFile(), "rw")) {
+            file.setLength(file.length() - 4);
+        }
+        try (Directory directory = new NIOFSDirectory(path)) {
+            IndexHealthCheck.checkCommit(directory);
+            Assert.fail();
+        } catch (IOException e) {
+            // Corrupt
+        }
+    }
+
+    @Test
+    public void checkIntegrityTest() throws Exception {
+        Path path = createIndex();
+        try (Directory directory = new NIOFSDirectory(path)) {
+            IndexHealthCheck healthCheck = new IndexHealthCheck();
+            Assert.assertEquals(IndexHealthCheck.State.PENDING, healthCheck.getState());
+            Assert.assertTrue(healthCheck.checkIntegrity(DirectoryReader.listCommits(directory).get(0)));
+            Assert.assertEquals(IndexHealthCheck.State.CLEAN, healthCheck.getState());
+        }
+
+        // A flipped byte passes the startup check but not the full check
+        try (RandomAccessFile file = new RandomAccessFile(path.resolve("_0.cfs").toFile(), "rw")) {
+            file.seek(file.length() / 2);
+            int value = file.read();
+            file.seek(file.length() / 2);
+            file.write(value ^ 0xFF);
+        }
+        try (Directory directory = new NIOFSDirectory(path)) {
+            IndexHealthCheck.checkCommit(directory);
+            IndexHealthCheck healthCheck = new IndexHealthCheck();
+            Assert.assertFalse(healthCheck.checkIntegrity(DirectoryReader.listCommits(directory).get(0)));
+            Assert.assertEquals(IndexHealthCheck.State.CORRUPT, healthCheck.getState());
+        }
+    }
+}
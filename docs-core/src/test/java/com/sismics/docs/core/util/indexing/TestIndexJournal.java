@@ -0,0 +1,48 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Test of the index journal.
+ */
+public class TestIndexJournal {
+    @Test
+    public void replayTest() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+
+        // Nothing pending on a fresh journal
+        IndexJournal indexJournal = new IndexJournal(directory);
+        Assert.assertTrue(indexJournal.getPendingIdSet().isEmpty());
+
+        // A committed mutation is discarded
+        indexJournal.record("id1");
+        Path journalFile = indexJournal.rotate();
+        Assert.assertNotNull(journalFile);
+        indexJournal.discard(journalFile);
+        Assert.assertNull(indexJournal.rotate());
+
+        // Uncommitted mutations survive a crash
+        indexJournal.record("id2");
+        indexJournal.record("id3");
+        indexJournal.record("id2");
+        indexJournal.close();
+
+        indexJournal = new IndexJournal(directory);
+        Set<String> idSet = indexJournal.getPendingIdSet();
+        Assert.assertEquals(2, idSet.size());
+        Assert.assertTrue(idSet.contains("id2"));
+        Assert.assertTrue(idSet.contains("id3"));
+
+        // Once replayed, nothing is pending anymore
+        indexJournal.discardPending();
+        indexJournal.close();
+        indexJournal = new IndexJournal(directory);
+        Assert.assertTrue(indexJournal.getPendingIdSet().isEmpty());
+        indexJournal.close();
+    }
+}
@@ -0,0 +1,102 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Test of the index rebuild pipeline.
+ */
+public class TestIndexRebuildPipeline {
+    /**
+     * Returns the IDs of a fake table.
+     *
+     * @param count Number of IDs
+     * @return Sorted IDs
+     */
+    private List<String> getIdList(int count) {
+        List<String> idList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            idList.add(String.format("%04d", i));
+        }
+        return idList;
+    }
+
+    /**
+     * Read a chunk of IDs from a sorted list.
+     *
+     * @param idList Sorted IDs
+     * @param afterId Last ID of the previous chunk
+     * @param limit Maximum number of IDs
+     * @return Chunk of IDs
+     */
+    private List<String> read(List<String> idList, String afterId, int limit) {
+        List<String> chunk = new ArrayList<>();
+        for (String id : idList) {
+            if ((afterId == null || id.compareTo(afterId) > 0) && chunk.size() < limit) {
+                chunk.add(id);
+            }
+        }
+        return chunk;
+    }
+
+    @Test
+    public void runTest() throws Exception {
+        List<String> idList = getIdList(253);
+        Set<String> indexedSet = ConcurrentHashMap.newKeySet();
+        List<String> checkpointList = new ArrayList<>();
+
+        // Every ID is indexed once, and the checkpoints only move forward
+        new IndexRebuildPipeline(4, 10, 0).run(null,
+                (afterId, limit) -> read(idList, afterId, limit),
+                chunk -> {
+                    for (String id : chunk) {
+                        Assert.assertTrue(indexedSet.add(id));
+                    }
+                },
+                checkpointList::add);
+        Assert.assertEquals(idList.size(), indexedSet.size());
+        Assert.assertFalse(checkpointList.isEmpty());
+        for (int i = 1; i < checkpointList.size(); i++) {
+            Assert.assertTrue(checkpointList.get(i).compareTo(checkpointList.get(i - 1)) > 0);
+        }
+
+        // Resume after a checkpoint
+        indexedSet.clear();
+        new IndexRebuildPipeline(2, 10, 0).run("0099",
+                (afterId, limit) -> read(idList, afterId, limit),
+                chunk -> indexedSet.addAll(chunk),
+                lastId -> { });
+        Assert.assertEquals(153, indexedSet.size());
+        Assert.assertFalse(indexedSet.contains("0099"));
+        Assert.assertTrue(indexedSet.contains("0100"));
+    }
+
+    @Test
+    public void failureTest() throws Exception {
+        List<String> idList = getIdList(1000);
+        List<String> checkpointList = new ArrayList<>();
+
+        // An indexing failure stops the pipeline and never moves the checkpoint past the failed chunk
+        try {
+            new IndexRebuildPipeline(4, 10, 0).run(null,
+                    (afterId, limit) -> read(idList, afterId, limit),
+                    chunk -> {
+                        if (chunk.contains("0500")) {
+                            throw new IllegalStateException("Indexing error");
+                        }
+                    },
+                    checkpointList::add);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("Indexing error", e.getMessage());
+        }
+        for (String checkpoint : checkpointList) {
+            Assert.assertTrue(checkpoint.compareTo("0499") <= 0);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Test of the join query.
+ */
+public class TestJoinQuery {
+    @Test
+    public void joinTest() throws Exception {
+        try (Directory directory = new ByteBuffersDirectory();
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            // Documents and their files, in several segments
+            for (int i = 0; i < 10; i++) {
+                Document document = new Document();
+                document.add(new StringField("id", "doc" + i, Field.Store.YES));
+                writer.addDocument(document);
+                for (int j = 0; j < 3; j++) {
+                    Document file = new Document();
+                    file.add(new StringField("id", "file" + i + "-" + j, Field.Store.YES));
+                    file.add(new SortedDocValuesField("document_id", new BytesRef("doc" + i)));
+                    file.add(new StringField("content", i % 3 == 0 ? "match" : "other", Field.Store.NO));
+                    writer.addDocument(file);
+                }
+                if (i % 4 == 0) {
+                    writer.commit();
+                }
+            }
+            writer.deleteDocuments(new Term("id", "doc9"));
+            writer.commit();
+
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                Assert.assertTrue(reader.leaves().size() > 1);
+
+                // Only the live documents having a matching file are matched, once
+                JoinQuery query = JoinQuery.create(searcher, new TermQuery(new Term("content", "match")), "document_id", "id");
+                Assert.assertFalse(query.isEmpty());
+                Set<String> idSet = new HashSet<>();
+                for (ScoreDoc scoreDoc : searcher.search(query, 100).scoreDocs) {
+                    Assert.assertTrue(idSet.add(searcher.doc(scoreDoc.doc).get("id")));
+                }
+                Assert.assertEquals(Set.of("doc0", "doc3", "doc6"), idSet);
+
+                // Nothing matches without a matching file
+                query = JoinQuery.create(searcher, new TermQuery(new Term("content", "none")), "document_id", "id");
+                Assert.assertTrue(query.isEmpty());
+                Assert.assertEquals(0, searcher.count(query));
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.sismics.docs.core.util.indexing;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test of the language analyzers.
+ */
+public class TestLanguageAnalyzers {
+    /**
+     * Analyze a text.
+     *
+     * @param analyzer Analyzer
+     * @param field Field name
+     * @param text Text
+     * @return Terms
+     * @throws IOException e
+     */
+    private List<String> analyze(Analyzer analyzer, String field, String text) throws IOException {
+        List<String> termList = new ArrayList<>();
+        try (TokenStream tokenStream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                termList.add(termAttribute.toString());
+            }
+            tokenStream.end();
+        }
+        return termList;
+    }
+
+    @Test
+    public void indexAnalyzerTest() throws Exception {
+        LanguageAnalyzers languageAnalyzers = new LanguageAnalyzers();
+        Analyzer indexAnalyzer = languageAnalyzers.getIndexAnalyzer();
+
+        // The main fields are not stemmed
+        Assert.assertEquals(List.of("les", "factures", "des", "fournisseurs"),
+                analyze(indexAnalyzer, "content", "Les factures des fournisseurs"));
+
+        // The language sub-fields are stemmed without stopwords
+        Assert.assertEquals(analyze(indexAnalyzer, "content_fra", "facture fournisseur"),
+                analyze(indexAnalyzer, "content_fra", "Les factures des fournisseurs"));
+        Assert.assertEquals(analyze(indexAnalyzer, "title_eng", "invoice"),
+                analyze(indexAnalyzer, "title_eng", "the invoices"));
+
+        // Languages without analyzer are only indexed in the main fields
+        Assert.assertTrue(languageAnalyzers.hasAnalyzer("deu"));
+        Assert.assertFalse(languageAnalyzers.hasAnalyzer("pol"));
+        Assert.assertFalse(languageAnalyzers.hasAnalyzer(null));
+        Assert.assertNull(languageAnalyzers.getAnalyzer("pol"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.sismics.docs.core.util.indexing;
+
+import com.google.common.collect.Lists;
+import com.sismics.docs.BaseTransactionalTest;
+import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.docs.core.dao.ConfigDao;
+import com.sismics.docs.core.dao.DocumentDao;
+import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.dao.dto.DocumentDto;
+import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.model.jpa.Document;
+import com.sismics.docs.core.model.jpa.User;
+import com.sismics.docs.core.util.DirectoryUtil;
+import com.sismics.docs.core.util.jpa.PaginatedList;
+import com.sismics.docs.core.util.jpa.PaginatedLists;
+import com.sismics.docs.core.util.jpa.SortCriteria;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Test of the Lucene indexing handler.
+ */
+public class TestLuceneIndexingHandler extends BaseTransactionalTest {
+    @Test
+    public void testRebuildSwapFailure() throws Exception {
+        // The context is started first, its indexing handler stays in memory
+        AppContext.getInstance();
+
+        // Index in files, the only storage swapped by moving directories
+        ConfigDao configDao = new ConfigDao();
+        String luceneStorage = configDao.getById(ConfigType.LUCENE_DIRECTORY_STORAGE).getValue();
+        configDao.update(ConfigType.LUCENE_DIRECTORY_STORAGE, "MMAP");
+        LuceneIndexingHandler indexingHandler = new LuceneIndexingHandler();
+        try {
+            indexingHandler.startUp();
+            indexingHandler.rebuildIndex();
+
+            // The current index can't be moved aside
+            Path previousDirectory = DirectoryUtil.getLucenePreviousDirectory();
+            Files.createDirectories(previousDirectory);
+            Path blockingFile = Files.createFile(previousDirectory.resolve("blocking"));
+            try {
+                indexingHandler.rebuildIndex();
+                Assert.fail();
+            } catch (IOException e) {
+                // NOP
+            } finally {
+                Files.delete(blockingFile);
+                Files.delete(previousDirectory);
+            }
+
+            // The current index is still in place, written and refreshed
+            Assert.assertTrue(Files.isDirectory(DirectoryUtil.getLuceneDirectory()));
+            User user = createUser("testRebuildSwapFailure");
+            Document document = new Document();
+            document.setUserId(user.getId());
+            document.setLanguage("eng");
+            document.setTitle("swapfailure");
+            document.setCreateDate(new Date());
+            new DocumentDao().create(document, user.getId());
+            indexingHandler.createDocument(document);
+            indexingHandler.waitForRefresh();
+            Assert.assertEquals(1, search(indexingHandler, "swapfailure").size());
+
+            // The next rebuild is swapped
+            indexingHandler.rebuildIndex();
+            Assert.assertFalse(Files.exists(previousDirectory));
+        } finally {
+            indexingHandler.shutDown();
+            configDao.update(ConfigType.LUCENE_DIRECTORY_STORAGE, luceneStorage);
+        }
+    }
+
+    /**
+     * Search the documents in fulltext.
+     *
+     * @param indexingHandler Indexing handler
+     * @param search Fulltext search
+     * @return Documents found
+     * @throws Exception e
+     */
+    private List<DocumentDto> search(LuceneIndexingHandler indexingHandler, String search) throws Exception {
+        PaginatedList<DocumentDto> paginatedList = PaginatedLists.create(10, 0);
+        DocumentCriteria documentCriteria = new DocumentCriteria();
+        documentCriteria.setTargetIdList(Lists.newArrayList("admin"));
+        documentCriteria.setSimpleSearch(search);
+        documentCriteria.setFullSearch(search);
+        indexingHandler.findByCriteria(paginatedList, new ArrayList<>(), null, documentCriteria, new SortCriteria(3, false));
+        return paginatedList.getResultList();
+    }
+}
@@ -68,5 +68,12 @@ public class TestMimeTypeUtil extends BaseTest {
         // Detect MP4 files
         path = Paths.get(getResource(FILE_MP4).toURI());
         Assert.assertEquals(MimeType.VIDEO_MP4, MimeTypeUtil.guessMimeType(path, FILE_MP4));
+
+        // Compressed formats
+        Assert.assertTrue(MimeTypeUtil.isCompressed(MimeType.IMAGE_JPEG));
+        Assert.assertTrue(MimeTypeUtil.isCompressed(MimeType.OFFICE_DOCUMENT));
+        Assert.assertTrue(MimeTypeUtil.isCompressed(MimeType.VIDEO_MP4));
+        Assert.assertFalse(MimeTypeUtil.isCompressed(MimeType.TEXT_PLAIN));
+        Assert.assertFalse(MimeTypeUtil.isCompressed(MimeType.DEFAULT));
     }
 }
@@ -0,0 +1,68 @@
+package com.sismics.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Test of the OCR image utilities.
+ */
+public class TestOcrImageUtil {
+    @Test
+    public void getScaleTest() {
+        Assert.assertEquals(2.5, OcrImageUtil.getScale(1000, 800), 0.001);
+        Assert.assertEquals(1, OcrImageUtil.getScale(2550, 3300), 0.001);
+        Assert.assertEquals(0.5, OcrImageUtil.getScale(7500, 10000), 0.001);
+    }
+
+    @Test
+    public void getSkewAngleTest() {
+        BufferedImage image = createPage(2550, 3300, 3);
+        double skewAngle = OcrImageUtil.getSkewAngle(image);
+        Assert.assertEquals(new ImageDeskew(image).getSkewAngle(), skewAngle, 0.5);
+        Assert.assertEquals(3, Math.abs(skewAngle), 0.5);
+
+        // A straight page is not rotated
+        Assert.assertEquals(0, OcrImageUtil.getSkewAngle(createPage(2550, 3300, 0)), 0.2);
+
+        // A blank page has no skew
+        Assert.assertEquals(0, OcrImageUtil.getSkewAngle(createPage(2550, 3300, Double.NaN)), 0);
+    }
+
+    @Test
+    public void prepareTest() {
+        BufferedImage image = OcrImageUtil.prepare(createPage(1275, 1650, 3));
+        Assert.assertEquals(BufferedImage.TYPE_BYTE_GRAY, image.getType());
+        Assert.assertEquals(1932, image.getWidth());
+        Assert.assertEquals(2500, image.getHeight());
+        Assert.assertEquals(0, OcrImageUtil.getSkewAngle(image), 0.5);
+    }
+
+    /**
+     * Draw a page of text lines.
+     *
+     * @param width Width
+     * @param height Height
+     * @param angle Angle of the lines in degrees, NaN for a blank page
+     * @return Page image
+     */
+    private BufferedImage createPage(int width, int height, double angle) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        if (!Double.isNaN(angle)) {
+            g.setColor(Color.BLACK);
+            g.rotate(Math.toRadians(angle), width / 2.0, height / 2.0);
+            for (int y = height / 10; y < height * 9 / 10; y += height / 40) {
+                for (int x = width / 10; x < width * 9 / 10; x += width / 12) {
+                    g.fillRect(x, y, width / 15, height / 150);
+                }
+            }
+        }
+        g.dispose();
+        return image;
+    }
+}
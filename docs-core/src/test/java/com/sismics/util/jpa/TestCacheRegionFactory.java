@@ -0,0 +1,65 @@
+package com.sismics.util.jpa;
+
+import com.sismics.docs.BaseTransactionalTest;
+import com.sismics.docs.core.constant.ConfigType;
+import com.sismics.docs.core.constant.MetadataType;
+import com.sismics.docs.core.dao.ConfigDao;
+import com.sismics.docs.core.dao.MetadataDao;
+import com.sismics.docs.core.dao.criteria.MetadataCriteria;
+import com.sismics.docs.core.model.jpa.Config;
+import com.sismics.docs.core.model.jpa.Metadata;
+import com.sismics.docs.core.model.jpa.User;
+import com.sismics.docs.core.util.TransactionUtil;
+import com.sismics.util.context.ThreadLocalContext;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test of the second-level cache.
+ */
+public class TestCacheRegionFactory extends BaseTransactionalTest {
+    @Test
+    public void testEntityCache() {
+        ConfigDao configDao = new ConfigDao();
+        configDao.update(ConfigType.DEFAULT_LANGUAGE, "fra");
+        TransactionUtil.commit();
+
+        // Read from the second-level cache once the persistence context is cleared
+        EntityManager em = ThreadLocalContext.get().getEntityManager();
+        em.clear();
+        Statistics statistics = EMF.get().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Config config = configDao.getById(ConfigType.DEFAULT_LANGUAGE);
+        Assert.assertEquals("fra", config.getValue());
+        Assert.assertEquals(0, statistics.getPrepareStatementCount());
+        Assert.assertEquals(1, statistics.getSecondLevelCacheHitCount());
+
+        // Bulk updates evict the cached entities
+        em.createNativeQuery("update T_CONFIG set CFG_VALUE_C = 'deu' where CFG_ID_C = 'DEFAULT_LANGUAGE'").executeUpdate();
+        TransactionUtil.commit();
+        em.clear();
+        Assert.assertEquals("deu", configDao.getById(ConfigType.DEFAULT_LANGUAGE).getValue());
+    }
+
+    @Test
+    public void testQueryCache() throws Exception {
+        User user = createUser("testQueryCache");
+        MetadataDao metadataDao = new MetadataDao();
+        int count = metadataDao.findByCriteria(new MetadataCriteria(), null).size();
+
+        // Same query again, served from the query cache
+        Statistics statistics = EMF.get().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        Assert.assertEquals(count, metadataDao.findByCriteria(new MetadataCriteria(), null).size());
+        Assert.assertEquals(1, statistics.getQueryCacheHitCount());
+        Assert.assertEquals(0, statistics.getPrepareStatementCount());
+
+        // Writing to the table invalidates the cached results
+        metadataDao.create(new Metadata().setName("testQueryCache").setType(MetadataType.STRING), user.getId());
+        TransactionUtil.commit();
+        Assert.assertEquals(count + 1, metadataDao.findByCriteria(new MetadataCriteria(), null).size());
+    }
+}
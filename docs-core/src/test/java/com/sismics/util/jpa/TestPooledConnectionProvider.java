@@ -0,0 +1,146 @@
+package com.sismics.util.jpa;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Test of the JDBC connection pool.
+ */
+public class TestPooledConnectionProvider {
+    /**
+     * Connection pool.
+     */
+    private PooledConnectionProvider connectionProvider;
+
+    @Before
+    public void setUp() {
+        Map<String, Object> configurationValues = new HashMap<>();
+        configurationValues.put(AvailableSettings.JAKARTA_JDBC_DRIVER, "org.h2.Driver");
+        configurationValues.put(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:h2:mem:pool");
+        configurationValues.put(AvailableSettings.JAKARTA_JDBC_USER, "sa");
+        configurationValues.put(AvailableSettings.POOL_SIZE, "2");
+        configurationValues.put(PooledConnectionProvider.CONNECTION_TIMEOUT, "100");
+        configurationValues.put(PooledConnectionProvider.LEAK_DETECTION_THRESHOLD, "60000");
+        connectionProvider = new PooledConnectionProvider();
+        connectionProvider.configure(configurationValues);
+    }
+
+    @After
+    public void tearDown() {
+        connectionProvider.stop();
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        Connection connection1 = connectionProvider.getConnection();
+        Connection connection2 = connectionProvider.getConnection();
+        Assert.assertFalse(connection1.getAutoCommit());
+
+        // The pool is exhausted
+        try {
+            connectionProvider.getConnection();
+            Assert.fail();
+        } catch (SQLTransientConnectionException e) {
+            // NOP
+        }
+        Assert.assertEquals(1, connectionProvider.getTimeoutCount());
+
+        // A returned connection is reused
+        connectionProvider.closeConnection(connection2);
+        Assert.assertSame(connection2, connectionProvider.getConnection());
+        connectionProvider.closeConnection(connection1);
+        connectionProvider.closeConnection(connection2);
+    }
+
+    @Test
+    public void testValidation() throws Exception {
+        // A connection closed by the database right after being returned is not borrowed again
+        Connection connection = connectionProvider.getConnection();
+        connectionProvider.closeConnection(connection);
+        connection.close();
+        Connection validConnection = connectionProvider.getConnection();
+        Assert.assertNotSame(connection, validConnection);
+        Assert.assertTrue(validConnection.isValid(1));
+        connectionProvider.closeConnection(validConnection);
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        Connection connection = connectionProvider.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table T_RESET (ID int)");
+        }
+        connection.commit();
+
+        // Change the state of the connection and leave a transaction open
+        int transactionIsolation = connection.getTransactionIsolation();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("insert into T_RESET values (1)");
+        }
+        connection.setAutoCommit(true);
+        connection.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        connection.setReadOnly(true);
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("insert into T_RESET values (2)");
+        }
+        connectionProvider.closeConnection(connection);
+
+        // The transaction is rolled back and the state restored
+        Connection resetConnection = connectionProvider.getConnection();
+        Assert.assertSame(connection, resetConnection);
+        Assert.assertFalse(resetConnection.getAutoCommit());
+        Assert.assertEquals(transactionIsolation, resetConnection.getTransactionIsolation());
+        Assert.assertFalse(resetConnection.isReadOnly());
+        try (Statement statement = resetConnection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select count(*) from T_RESET")) {
+            Assert.assertTrue(resultSet.next());
+            Assert.assertEquals(1, resultSet.getInt(1));
+        }
+        connectionProvider.closeConnection(resetConnection);
+    }
+
+    @Test
+    public void testLeakDetection() throws Exception {
+        Connection connection = connectionProvider.getConnection();
+        long borrowTime = System.currentTimeMillis();
+        connectionProvider.detectLeaks(borrowTime);
+        Assert.assertEquals(0, connectionProvider.getLeakCount());
+
+        // Held for longer than the threshold
+        connectionProvider.detectLeaks(borrowTime + 60001);
+        Assert.assertEquals(1, connectionProvider.getLeakCount());
+
+        // Reported only once
+        connectionProvider.detectLeaks(borrowTime + 120000);
+        Assert.assertEquals(1, connectionProvider.getLeakCount());
+        connectionProvider.closeConnection(connection);
+    }
+
+    @Test
+    public void testLegacySettings() throws Exception {
+        Map<String, Object> configurationValues = new HashMap<>();
+        configurationValues.put("hibernate.connection.driver_class", "org.h2.Driver");
+        configurationValues.put("hibernate.connection.url", "jdbc:h2:mem:legacy");
+        configurationValues.put("hibernate.connection.username", "sa");
+        PooledConnectionProvider legacyConnectionProvider = new PooledConnectionProvider();
+        legacyConnectionProvider.configure(configurationValues);
+        try {
+            Connection connection = legacyConnectionProvider.getConnection();
+            Assert.assertTrue(connection.isValid(1));
+            legacyConnectionProvider.closeConnection(connection);
+        } finally {
+            legacyConnectionProvider.stop();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.sismics.rest.util;
+
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Output of a region of a file which doesn't need to be decrypted, transferred from the file channel.
+ * Jersey wraps the response stream, so the bytes go through the channel buffer instead of a stream copy loop,
+ * but are still copied to user space (no sendfile).
+ */
+public class FileStreamingOutput implements StreamingOutput {
+    /**
+     * File.
+     */
+    private final Path file;
+
+    /**
+     * Position of the first byte.
+     */
+    private final long position;
+
+    /**
+     * Number of bytes.
+     */
+    private final long count;
+
+    /**
+     * Constructor of FileStreamingOutput.
+     *
+     * @param file File
+     * @param position Position of the first byte
+     * @param count Number of bytes
+     */
+    public FileStreamingOutput(Path file, long position, long count) {
+        this.file = file;
+        this.position = position;
+        this.count = count;
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel outputChannel = Channels.newChannel(outputStream);
+            long transferred = 0;
+            while (transferred < count) {
+                long n = fileChannel.transferTo(position + transferred, count - transferred, outputChannel);
+                if (n <= 0) {
+                    // The file has been truncated, abort the response instead of sending less than its length
+                    throw new EOFException("File truncated after " + (position + transferred) + " bytes: " + file);
+                }
+                transferred += n;
+            }
+        }
+    }
+}
@@ -182,6 +182,24 @@ public class ValidationUtil {
         }
     }
     
+    /**
+     * Checks if the string is a number in a range.
+     * 
+     * @param s String to validate
+     * @param name Name of the parameter
+     * @param min Minimum value
+     * @param max Maximum value
+     * @return Parsed number
+     * @throws ClientException
+     */
+    public static Integer validateInteger(String s, String name, int min, int max) throws ClientException {
+        Integer value = validateInteger(s, name);
+        if (value < min || value > max) {
+            throw new ClientException("ValidationError", MessageFormat.format("{0} must be between {1} and {2}", name, min, max));
+        }
+        return value;
+    }
+    
     /**
      * Checks if the string is a number.
      * 
@@ -0,0 +1,309 @@
+package com.sismics.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import com.auth0.jwt.interfaces.RSAKeyProvider;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
+import jakarta.json.JsonReader;
+import jakarta.json.JsonValue;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.cert.CertificateFactory;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the public keys published by the JWT issuers (JWKS), and of the verifiers using them.
+ * Keys are fetched from {issuer}/protocol/openid-connect/certs, refreshed in the background before they expire,
+ * and fetched again when a token is signed with an unknown key, at most once per minimum refresh interval.
+ * If the issuer is unavailable, the last known keys are kept.
+ */
+public class JwksCache {
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(JwksCache.class);
+
+    /**
+     * Maximum number of issuers.
+     */
+    private static final int MAX_ISSUERS = 100;
+
+    /**
+     * HTTP client.
+     */
+    private final OkHttpClient client = new OkHttpClient.Builder()
+            .connectTimeout(5, TimeUnit.SECONDS)
+            .readTimeout(5, TimeUnit.SECONDS)
+            .build();
+
+    /**
+     * Time to live of the keys (in milliseconds).
+     */
+    private final long ttl;
+
+    /**
+     * Minimum time between two fetches of the keys of an issuer (in milliseconds).
+     */
+    private final long minRefreshInterval;
+
+    /**
+     * Keys by issuer.
+     */
+    private final Cache<String, IssuerKeys> issuerCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ISSUERS)
+            .build();
+
+    /**
+     * Background refresh executor.
+     */
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "jwks-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Number of fetches of the keys.
+     */
+    private final AtomicLong fetchCount = new AtomicLong();
+
+    /**
+     * Constructor of JwksCache.
+     *
+     * @param ttl Time to live of the keys (in milliseconds)
+     * @param minRefreshInterval Minimum time between two fetches of the keys of an issuer (in milliseconds)
+     */
+    public JwksCache(long ttl, long minRefreshInterval) {
+        this.ttl = ttl;
+        this.minRefreshInterval = minRefreshInterval;
+    }
+
+    /**
+     * Returns the verifier of the tokens of an issuer.
+     *
+     * @param issuer Issuer
+     * @return Verifier
+     */
+    public JWTVerifier getVerifier(String issuer) {
+        return getIssuerKeys(issuer).verifier;
+    }
+
+    /**
+     * Returns a public key of an issuer.
+     *
+     * @param issuer Issuer
+     * @param kid Key ID
+     * @return Public key, null if unknown
+     */
+    public RSAPublicKey getPublicKey(String issuer, String kid) {
+        return getIssuerKeys(issuer).getPublicKey(kid);
+    }
+
+    /**
+     * Returns the number of fetches of the keys.
+     *
+     * @return Fetch count
+     */
+    public long getFetchCount() {
+        return fetchCount.get();
+    }
+
+    /**
+     * Stops the background refresh.
+     */
+    public void close() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the keys of an issuer.
+     *
+     * @param issuer Issuer
+     * @return Keys of the issuer
+     */
+    private IssuerKeys getIssuerKeys(String issuer) {
+        try {
+            return issuerCache.get(issuer, () -> new IssuerKeys(issuer));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Keys of an issuer.
+     */
+    private class IssuerKeys implements RSAKeyProvider {
+        /**
+         * URL of the keys.
+         */
+        private final String jwksUrl;
+
+        /**
+         * Verifier of the tokens, resolving the keys from this cache.
+         */
+        private final JWTVerifier verifier;
+
+        /**
+         * Public keys by key ID, null until fetched once.
+         */
+        private volatile Map<String, RSAPublicKey> keyMap;
+
+        /**
+         * Time of the last successful fetch.
+         */
+        private volatile long loadTime;
+
+        /**
+         * Time of the last fetch attempt.
+         */
+        private volatile long fetchTime;
+
+        /**
+         * True while a background refresh is pending.
+         */
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /**
+         * Constructor of IssuerKeys.
+         *
+         * @param issuer Issuer
+         */
+        private IssuerKeys(String issuer) {
+            jwksUrl = issuer + "/protocol/openid-connect/certs";
+            verifier = JWT.require(Algorithm.RSA256(this)).build();
+        }
+
+        /**
+         * Returns a public key, fetching the keys if needed.
+         *
+         * @param kid Key ID
+         * @return Public key, null if unknown
+         */
+        private RSAPublicKey getPublicKey(String kid) {
+            long now = System.currentTimeMillis();
+            if (keyMap == null || now - loadTime > ttl) {
+                refresh();
+            } else if (now - loadTime > ttl * 3 / 4 && refreshing.compareAndSet(false, true)) {
+                refreshExecutor.execute(() -> {
+                    try {
+                        refresh();
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            }
+
+            Map<String, RSAPublicKey> currentKeyMap = keyMap;
+            RSAPublicKey publicKey = currentKeyMap == null ? null : currentKeyMap.get(kid);
+            if (publicKey == null && refresh()) {
+                currentKeyMap = keyMap;
+                publicKey = currentKeyMap == null ? null : currentKeyMap.get(kid);
+            }
+            return publicKey;
+        }
+
+        /**
+         * Fetches the keys, unless they have been fetched during the minimum refresh interval.
+         *
+         * @return True if the keys have been fetched
+         */
+        private synchronized boolean refresh() {
+            long now = System.currentTimeMillis();
+            if (fetchTime != 0 && now - fetchTime < minRefreshInterval) {
+                return false;
+            }
+            fetchTime = now;
+            fetchCount.incrementAndGet();
+
+            Request request = new Request.Builder()
+                    .url(jwksUrl)
+                    .get()
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    log.error("Error calling the jwt issuer at: " + jwksUrl + " - " + response.code());
+                    return false;
+                }
+                try (Reader reader = response.body().charStream();
+                     JsonReader jsonReader = Json.createReader(reader)) {
+                    keyMap = parseKeys(jsonReader.readObject());
+                    loadTime = now;
+                    return true;
+                }
+            } catch (Exception e) {
+                log.error("Error getting the keys of the jwt issuer at: " + jwksUrl, e);
+                return false;
+            }
+        }
+
+        @Override
+        public RSAPublicKey getPublicKeyById(String keyId) {
+            return getPublicKey(keyId);
+        }
+
+        @Override
+        public RSAPrivateKey getPrivateKey() {
+            return null;
+        }
+
+        @Override
+        public String getPrivateKeyId() {
+            return null;
+        }
+    }
+
+    /**
+     * Parses the RSA signature keys of a JWKS document.
+     * Keys are read from their X.509 certificate if present, or from their modulus and exponent.
+     *
+     * @param jwks JWKS document
+     * @return Public keys by key ID
+     * @throws Exception e
+     */
+    private static Map<String, RSAPublicKey> parseKeys(JsonObject jwks) throws Exception {
+        Map<String, RSAPublicKey> keyMap = new HashMap<>();
+        for (JsonValue value : jwks.getJsonArray("keys")) {
+            JsonObject key = value.asJsonObject();
+            if (!"RSA".equals(key.getString("kty", null)) || "enc".equals(key.getString("use", null)) || !key.containsKey("kid")) {
+                continue;
+            }
+            RSAPublicKey publicKey;
+            if (key.containsKey("x5c")) {
+                byte[] certificate = Base64.getDecoder().decode(key.getJsonArray("x5c").getString(0));
+                publicKey = (RSAPublicKey) CertificateFactory.getInstance("X.509")
+                        .generateCertificate(new ByteArrayInputStream(certificate))
+                        .getPublicKey();
+            } else {
+                BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(key.getString("n")));
+                BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(key.getString("e")));
+                publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA")
+                        .generatePublic(new RSAPublicKeySpec(modulus, exponent));
+            }
+            keyMap.put(key.getString("kid"), publicKey);
+        }
+        return keyMap;
+    }
+}
@@ -0,0 +1,152 @@
+package com.sismics.security;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.util.ConfigUtil;
+import com.sismics.util.context.ThreadLocalContext;
+import jakarta.json.Json;
+import jakarta.json.JsonObjectBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the authenticated principals, by authentication token.
+ * Saves loading the token, the user, its groups and its base functions on every request.
+ * Entries are invalidated when the token is deleted or the user, its groups or roles change,
+ * and again once the change is committed, other changes are seen after the time to live at most.
+ */
+public final class UserPrincipalCache {
+    /**
+     * Maximum number of principals.
+     */
+    private static final long maxSize = ConfigUtil.getEnvLongValue(Constants.PRINCIPAL_CACHE_MAX_SIZE_ENV, 10000);
+
+    /**
+     * Time to live of the principals (in seconds).
+     */
+    private static final long ttl = ConfigUtil.getEnvLongValue(Constants.PRINCIPAL_CACHE_TTL_ENV, 60);
+
+    /**
+     * Principals by authentication token, null if disabled.
+     */
+    private static final Cache<String, UserPrincipal> cache = ttl > 0 && maxSize > 0 ?
+            CacheBuilder.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttl, TimeUnit.SECONDS)
+                    .recordStats()
+                    .build() : null;
+
+    /**
+     * Incremented on each invalidation, so that a principal loaded before is not cached after.
+     */
+    private static final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Private constructor.
+     */
+    private UserPrincipalCache() {
+    }
+
+    /**
+     * Returns the current generation, to read before loading a principal.
+     *
+     * @return Generation
+     */
+    public static long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Returns a cached principal.
+     *
+     * @param token Authentication token
+     * @return Principal, null if not cached
+     */
+    public static UserPrincipal get(String token) {
+        return cache == null ? null : cache.getIfPresent(token);
+    }
+
+    /**
+     * Caches a principal, unless the cache was invalidated since it has been loaded.
+     *
+     * @param token Authentication token
+     * @param userPrincipal Principal
+     * @param loadGeneration Generation read before loading the principal
+     */
+    public static void put(String token, UserPrincipal userPrincipal, long loadGeneration) {
+        if (cache == null) {
+            return;
+        }
+        cache.put(token, userPrincipal);
+        if (generation.get() != loadGeneration) {
+            cache.invalidate(token);
+        }
+    }
+
+    /**
+     * Invalidates the principal of an authentication token.
+     *
+     * @param token Authentication token
+     */
+    public static void invalidateToken(String token) {
+        invalidate(() -> cache.invalidate(token));
+    }
+
+    /**
+     * Invalidates the principals of a user.
+     *
+     * @param userId User ID
+     */
+    public static void invalidateUser(String userId) {
+        invalidate(() -> cache.asMap().values().removeIf(userPrincipal -> userPrincipal.getId().equals(userId)));
+    }
+
+    /**
+     * Invalidates all principals.
+     */
+    public static void invalidateAll() {
+        invalidate(cache::invalidateAll);
+    }
+
+    /**
+     * Invalidates principals now, and again once the current transaction is over:
+     * until then, other requests still load the principals from the previous state and may cache them.
+     *
+     * @param invalidation Removes the principals from the cache
+     */
+    private static void invalidate(Runnable invalidation) {
+        if (cache == null) {
+            return;
+        }
+        generation.incrementAndGet();
+        invalidation.run();
+        ThreadLocalContext.get().addAfterTransactionAction(() -> {
+            generation.incrementAndGet();
+            invalidation.run();
+        });
+    }
+
+    /**
+     * Returns the status of the cache, for monitoring purposes.
+     *
+     * @return Status
+     */
+    public static JsonObjectBuilder getStatus() {
+        JsonObjectBuilder status = Json.createObjectBuilder()
+                .add("enabled", cache != null);
+        if (cache != null) {
+            CacheStats stats = cache.stats();
+            status.add("max_size", maxSize)
+                    .add("ttl", ttl)
+                    .add("size", cache.size())
+                    .add("hit_count", stats.hitCount())
+                    .add("miss_count", stats.missCount())
+                    .add("hit_rate", stats.hitRate())
+                    .add("eviction_count", stats.evictionCount());
+        }
+        return status;
+    }
+}
@@ -134,6 +134,9 @@ public class RequestContextFilter implements Filter {
             }
         }
 
+        // Run the actions waiting for the changes of this request to be visible to the others
+        context.runAfterTransactionActions();
+
         // Fire all pending async events after request transaction commit.
         // This way, all modifications done during this request are available in the listeners.
         context.fireAllAsyncEvents();
@@ -9,6 +9,7 @@ import com.sismics.docs.core.dao.dto.GroupDto;
 import com.sismics.docs.core.model.jpa.User;
 import com.sismics.security.AnonymousPrincipal;
 import com.sismics.security.UserPrincipal;
+import com.sismics.security.UserPrincipalCache;
 import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -127,8 +128,18 @@ public abstract class SecurityFilter implements Filter {
         HttpServletRequest request = (HttpServletRequest) req;
 
         if (!hasIdentifiedUser(request)) {
-            User user = authenticate(request);
-            injectUser(request, user);
+            String cacheKey = getPrincipalCacheKey(request);
+            UserPrincipal userPrincipal = cacheKey == null ? null : UserPrincipalCache.get(cacheKey);
+            if (userPrincipal != null) {
+                request.setAttribute(PRINCIPAL_ATTRIBUTE, userPrincipal);
+            } else {
+                long generation = UserPrincipalCache.getGeneration();
+                User user = authenticate(request);
+                injectUser(request, user);
+                if (cacheKey != null && hasIdentifiedUser(request)) {
+                    UserPrincipalCache.put(cacheKey, (UserPrincipal) request.getAttribute(PRINCIPAL_ATTRIBUTE), generation);
+                }
+            }
         }
 
         filterChain.doFilter(request, response);
@@ -142,4 +153,14 @@ public abstract class SecurityFilter implements Filter {
      */
     protected abstract User authenticate(HttpServletRequest request);
 
+    /**
+     * Returns the key of the authenticated principal in the principal cache.
+     *
+     * @param request HTTP request
+     * @return Cache key, null to authenticate without the cache
+     */
+    protected String getPrincipalCacheKey(HttpServletRequest request) {
+        return null;
+    }
+
 }
\ No newline at end of file
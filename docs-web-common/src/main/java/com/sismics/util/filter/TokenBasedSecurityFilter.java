@@ -4,6 +4,7 @@ import com.sismics.docs.core.dao.AuthenticationTokenDao;
 import com.sismics.docs.core.dao.UserDao;
 import com.sismics.docs.core.model.jpa.AuthenticationToken;
 import com.sismics.docs.core.model.jpa.User;
+import com.sismics.security.UserPrincipalCache;
 
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -60,6 +61,7 @@ public class TokenBasedSecurityFilter extends SecurityFilter {
     private void handleExpiredToken(AuthenticationTokenDao dao, String authTokenID) {
         try {
             dao.delete(authTokenID);
+            UserPrincipalCache.invalidateToken(authTokenID);
         } catch (Exception e) {
             if (LOG.isErrorEnabled())
                 LOG.error(MessageFormat.format("Error deleting authentication token {0} ", authTokenID), e);
@@ -106,4 +108,9 @@ public class TokenBasedSecurityFilter extends SecurityFilter {
 
         return new UserDao().getById(authToken.getUserId());
     }
+
+    @Override
+    protected String getPrincipalCacheKey(HttpServletRequest request) {
+        return extractAuthToken(request.getCookies());
+    }
 }
@@ -1,12 +1,18 @@
 package com.sismics.docs.rest;
 
+import com.sismics.docs.core.constant.PersistenceContextMode;
+import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.util.indexing.LuceneIndexingHandler;
 import com.sismics.docs.rest.util.ClientUtil;
+import com.sismics.docs.rest.util.StatementCounter;
+import com.sismics.util.context.ThreadLocalContext;
 import com.sismics.util.filter.HeaderBasedSecurityFilter;
 import com.sismics.util.filter.RequestContextFilter;
 import com.sismics.util.filter.TokenBasedSecurityFilter;
 import org.glassfish.grizzly.http.server.HttpServer;
 import org.glassfish.grizzly.servlet.ServletRegistration;
 import org.glassfish.grizzly.servlet.WebappContext;
+import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.servlet.ServletContainer;
 import org.glassfish.jersey.test.JerseyTest;
 import org.glassfish.jersey.test.TestProperties;
@@ -18,8 +24,11 @@ import org.junit.Before;
 import org.subethamail.wiser.Wiser;
 import org.subethamail.wiser.WiserMessage;
 
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.HttpServletRequest;
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
+import jakarta.ws.rs.client.ClientRequestFilter;
 import jakarta.ws.rs.core.Application;
 import jakarta.ws.rs.core.UriBuilder;
 import java.io.ByteArrayOutputStream;
@@ -30,6 +39,8 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Base class of integration tests with Jersey.
@@ -49,6 +60,11 @@ public abstract class BaseJerseyTest extends JerseyTest {
     protected static final String FILE_WIKIPEDIA_PDF = "file/wikipedia.pdf";
     protected static final String FILE_WIKIPEDIA_ZIP = "file/wikipedia.zip";
 
+    /**
+     * Header setting the lifecycle of the persistence context of a request.
+     */
+    protected static final String PERSISTENCE_CONTEXT_MODE_HEADER = "X-Persistence-Context-Mode";
+
     /**
      * Test HTTP server.
      */
@@ -64,6 +80,12 @@ public abstract class BaseJerseyTest extends JerseyTest {
      */
     private Wiser wiser;
 
+    /**
+     * Statements prepared by each request setting the lifecycle of its persistence context.
+     * Counted once the transaction is committed and the events of the request handled.
+     */
+    protected final BlockingQueue<Long> statementCountQueue = new LinkedBlockingQueue<>();
+
     public String adminToken() {
         return clientUtil.login("admin", "admin", false);
     }
@@ -84,6 +106,25 @@ public abstract class BaseJerseyTest extends JerseyTest {
         return new Application();
     }
     
+    @Override
+    protected void configureClient(ClientConfig config) {
+        // The files are processed and the index refreshed in the background,
+        // each request waits for the previous files to be processed and the writes to be searchable
+        config.register((ClientRequestFilter) requestContext -> {
+            try {
+                AppContext appContext = AppContext.getInstance();
+                while (appContext.getFileProcessingService().getTaskCount() > 0) {
+                    Thread.sleep(10);
+                }
+                if (appContext.getIndexingHandler() instanceof LuceneIndexingHandler) {
+                    ((LuceneIndexingHandler) appContext.getIndexingHandler()).waitForRefresh();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
     @Override
     protected URI getBaseUri() {
         return UriBuilder.fromUri(super.getBaseUri()).path("docs").build();
@@ -100,8 +141,29 @@ public abstract class BaseJerseyTest extends JerseyTest {
         httpServer = HttpServer.createSimpleServer(getClass().getResource("/").getFile(), "localhost", getPort());
         WebappContext context = new WebappContext("GrizzlyContext", "/docs");
         context.addListener("com.sismics.util.listener.IIOProviderContextListener");
+        context.addFilter("statementCountFilter", (Filter) (request, response, filterChain) -> {
+            // Statements of the requests setting the lifecycle of their persistence context
+            if (((HttpServletRequest) request).getHeader(PERSISTENCE_CONTEXT_MODE_HEADER) == null) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            StatementCounter.start();
+            try {
+                filterChain.doFilter(request, response);
+            } finally {
+                statementCountQueue.add(StatementCounter.stop());
+            }
+        }).addMappingForUrlPatterns(null, "/*");
         context.addFilter("requestContextFilter", RequestContextFilter.class)
                 .addMappingForUrlPatterns(null, "/*");
+        context.addFilter("persistenceContextModeFilter", (Filter) (request, response, filterChain) -> {
+            // Lifecycle of the persistence context requested by the test
+            String mode = ((HttpServletRequest) request).getHeader(PERSISTENCE_CONTEXT_MODE_HEADER);
+            if (mode != null) {
+                ThreadLocalContext.get().setPersistenceContextMode(PersistenceContextMode.valueOf(mode));
+            }
+            filterChain.doFilter(request, response);
+        }).addMappingForUrlPatterns(null, "/*");
         context.addFilter("tokenBasedSecurityFilter", TokenBasedSecurityFilter.class)
                 .addMappingForUrlPatterns(null, "/*");
         context.addFilter("headerBasedSecurityFilter", HeaderBasedSecurityFilter.class)
@@ -0,0 +1,45 @@
+package com.sismics.docs.rest.util;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the SQL statements prepared by the current thread.
+ * Set as the Hibernate statement inspector, the other threads (scheduled services...) are not counted.
+ *
+ * @author bgamard
+ */
+public class StatementCounter implements StatementInspector {
+    /**
+     * Statements prepared by the current thread since the counting started.
+     */
+    private static final ThreadLocal<AtomicLong> count = new ThreadLocal<>();
+
+    /**
+     * Start counting the statements prepared by the current thread.
+     */
+    public static void start() {
+        count.set(new AtomicLong());
+    }
+
+    /**
+     * Stop counting the statements prepared by the current thread.
+     *
+     * @return Number of statements prepared since the counting started
+     */
+    public static long stop() {
+        AtomicLong statementCount = count.get();
+        count.remove();
+        return statementCount == null ? 0 : statementCount.get();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        AtomicLong statementCount = count.get();
+        if (statementCount != null) {
+            statementCount.incrementAndGet();
+        }
+        return sql;
+    }
+}
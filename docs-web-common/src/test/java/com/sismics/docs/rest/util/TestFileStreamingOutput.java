@@ -0,0 +1,39 @@
+package com.sismics.docs.rest.util;
+
+import com.sismics.rest.util.FileStreamingOutput;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Test the file streaming output.
+ */
+public class TestFileStreamingOutput {
+    @Test
+    public void testWrite() throws Exception {
+        Path file = Files.createTempFile("streaming", null);
+        try {
+            Files.write(file, "0123456789".getBytes(StandardCharsets.UTF_8));
+
+            // A region of the file
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            new FileStreamingOutput(file, 2, 5).write(outputStream);
+            Assert.assertEquals("23456", outputStream.toString(StandardCharsets.UTF_8));
+
+            // The file is shorter than announced
+            try {
+                new FileStreamingOutput(file, 5, 10).write(new ByteArrayOutputStream());
+                Assert.fail();
+            } catch (EOFException e) {
+                // NOP
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.sismics.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.JWTVerifier;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test of the JWT issuer keys cache, against a local JWKS server.
+ */
+public class TestJwksCache {
+    /**
+     * JWKS server.
+     */
+    private HttpServer server;
+
+    /**
+     * JWKS document served.
+     */
+    private final AtomicReference<String> jwks = new AtomicReference<>();
+
+    /**
+     * Number of requests to the JWKS server.
+     */
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    /**
+     * Issuer.
+     */
+    private String issuer;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/realms/docs/protocol/openid-connect/certs", exchange -> {
+            requestCount.incrementAndGet();
+            byte[] body = jwks.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        issuer = "http://localhost:" + server.getAddress().getPort() + "/realms/docs";
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testKeyRotation() throws Exception {
+        KeyPair keyPair1 = generateKeyPair();
+        KeyPair keyPair2 = generateKeyPair();
+        jwks.set("{\"keys\":[" + toJwk("key1", keyPair1) + "]}");
+        JwksCache jwksCache = new JwksCache(3600000, 500);
+
+        // The keys are fetched once, the verifier is reused
+        JWTVerifier verifier = jwksCache.getVerifier(issuer);
+        verifier.verify(sign("key1", keyPair1));
+        verifier.verify(sign("key1", keyPair1));
+        Assert.assertSame(verifier, jwksCache.getVerifier(issuer));
+        Assert.assertEquals(1, requestCount.get());
+
+        // A token signed with another key is rejected
+        try {
+            verifier.verify(sign("key1", keyPair2));
+            Assert.fail();
+        } catch (SignatureVerificationException e) {
+            // NOP
+        }
+
+        // A new key is not fetched again right away
+        jwks.set("{\"keys\":[" + toJwk("key1", keyPair1) + "," + toJwk("key2", keyPair2) + "]}");
+        String token2 = sign("key2", keyPair2);
+        try {
+            verifier.verify(token2);
+            Assert.fail();
+        } catch (SignatureVerificationException e) {
+            // NOP
+        }
+        Assert.assertEquals(1, requestCount.get());
+
+        // After the minimum refresh interval, the unknown key is fetched
+        Thread.sleep(600);
+        verifier.verify(token2);
+        Assert.assertEquals(2, requestCount.get());
+        Assert.assertNull(jwksCache.getPublicKey(issuer, "key3"));
+        Assert.assertEquals(2, requestCount.get());
+        jwksCache.close();
+    }
+
+    @Test
+    public void testBackgroundRefresh() throws Exception {
+        KeyPair keyPair = generateKeyPair();
+        jwks.set("{\"keys\":[" + toJwk("key1", keyPair) + "]}");
+        JwksCache jwksCache = new JwksCache(1000, 0);
+        Assert.assertNotNull(jwksCache.getPublicKey(issuer, "key1"));
+        Assert.assertEquals(1, requestCount.get());
+
+        // Close to the expiration, the cached key is returned and refreshed in the background
+        Thread.sleep(850);
+        Assert.assertNotNull(jwksCache.getPublicKey(issuer, "key1"));
+        for (int i = 0; i < 50 && requestCount.get() < 2; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(2, requestCount.get());
+        Assert.assertEquals(2, jwksCache.getFetchCount());
+        jwksCache.close();
+    }
+
+    /**
+     * Generates an RSA key pair.
+     *
+     * @return Key pair
+     * @throws Exception e
+     */
+    private KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * Returns a public key as a JWK.
+     *
+     * @param kid Key ID
+     * @param keyPair Key pair
+     * @return JWK
+     */
+    private String toJwk(String kid, KeyPair keyPair) {
+        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
+        return "{\"kid\":\"" + kid + "\",\"kty\":\"RSA\",\"use\":\"sig\",\"alg\":\"RS256\""
+                + ",\"n\":\"" + encode(publicKey.getModulus()) + "\""
+                + ",\"e\":\"" + encode(publicKey.getPublicExponent()) + "\"}";
+    }
+
+    /**
+     * Encodes an unsigned big integer in base64url.
+     *
+     * @param value Value
+     * @return Encoded value
+     */
+    private String encode(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * Signs a token.
+     *
+     * @param kid Key ID
+     * @param keyPair Key pair
+     * @return Token
+     */
+    private String sign(String kid, KeyPair keyPair) {
+        return JWT.create()
+                .withIssuer(issuer)
+                .withKeyId(kid)
+                .withClaim("preferred_username", "jwt")
+                .sign(Algorithm.RSA256((RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate()));
+    }
+}
@@ -14,6 +14,7 @@ import com.sismics.docs.core.model.jpa.File;
 import com.sismics.docs.core.service.InboxService;
 import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.util.DirectoryUtil;
+import com.sismics.docs.core.util.ExtractionCacheUtil;
 import com.sismics.docs.core.util.jpa.PaginatedList;
 import com.sismics.docs.core.util.jpa.PaginatedLists;
 import com.sismics.docs.rest.constant.BaseFunction;
@@ -21,8 +22,12 @@ import com.sismics.rest.exception.ClientException;
 import com.sismics.rest.exception.ForbiddenClientException;
 import com.sismics.rest.exception.ServerException;
 import com.sismics.rest.util.ValidationUtil;
+import com.sismics.security.UserPrincipalCache;
 import com.sismics.util.JsonUtil;
 import com.sismics.util.context.ThreadLocalContext;
+import com.sismics.util.jpa.CacheRegionFactory;
+import com.sismics.util.jpa.EMF;
+import com.sismics.util.jpa.PooledConnectionProvider;
 import com.sismics.util.log4j.LogCriteria;
 import com.sismics.util.log4j.LogEntry;
 import com.sismics.util.log4j.MemoryAppender;
@@ -68,6 +73,8 @@ public class AppResource extends BaseResource {
      * @apiSuccess {Boolean} guest_login True if guest login is enabled
      * @apiSuccess {String} default_language Default platform language
      * @apiSuccess {Number} queued_tasks Number of queued tasks waiting to be processed
+     * @apiSuccess {Number} extraction_cache_hits Number of file contents found in the extraction cache
+     * @apiSuccess {Number} extraction_cache_misses Number of file contents not found in the extraction cache
      * @apiSuccess {String} total_memory Allocated JVM memory (in bytes)
      * @apiSuccess {String} free_memory Free JVM memory (in bytes)
      * @apiSuccess {String} document_count Number of documents
@@ -103,6 +110,8 @@ public class AppResource extends BaseResource {
                 .add("ocr_enabled", ocrEnabled)
                 .add("default_language", defaultLanguage)
                 .add("queued_tasks", AppContext.getInstance().getQueuedTaskCount())
+                .add("extraction_cache_hits", ExtractionCacheUtil.getHitCount())
+                .add("extraction_cache_misses", ExtractionCacheUtil.getMissCount())
                 .add("total_memory", Runtime.getRuntime().totalMemory())
                 .add("free_memory", Runtime.getRuntime().freeMemory())
                 .add("document_count", documentDao.getDocumentCount())
@@ -603,7 +612,8 @@ public class AppResource extends BaseResource {
     }
 
     /**
-     * Destroy and rebuild the search index.
+     * Rebuild the search index.
+     * The current index keeps serving searches until the rebuilt one replaces it.
      *
      * @api {post} /app/batch/reindex Rebuild the search index
      * @apiName PostAppBatchReindex
@@ -633,6 +643,142 @@ public class AppResource extends BaseResource {
         return Response.ok().entity(response.build()).build();
     }
 
+    /**
+     * Get the search index status.
+     *
+     * @api {get} /app/index Get the search index status
+     * @apiName GetAppIndex
+     * @apiGroup App
+     * @apiSuccess {Object} suggester Search suggester status
+     * @apiSuccess {Number} suggester.rebuild_interval Minimum interval between two rebuilds (in seconds)
+     * @apiSuccess {Number} suggester.build_count Number of builds since startup
+     * @apiSuccess {Number} suggester.last_build_time Duration of the last build (in milliseconds)
+     * @apiSuccess {Object} rebuild Progress of the running or last index rebuild, absent if none since startup
+     * @apiSuccess {Boolean} rebuild.running True while rebuilding
+     * @apiSuccess {Boolean} rebuild.failed True if the rebuild failed
+     * @apiSuccess {Number} rebuild.start_timestamp Start timestamp
+     * @apiSuccess {Number} rebuild.end_timestamp End timestamp, absent while running
+     * @apiSuccess {Number} rebuild.document_total Number of documents to index
+     * @apiSuccess {Number} rebuild.document_indexed Number of documents indexed
+     * @apiSuccess {Number} rebuild.file_total Number of files to index
+     * @apiSuccess {Number} rebuild.file_indexed Number of files indexed
+     * @apiSuccess {Object} health Integrity check of the index found at startup, absent if there was none
+     * @apiSuccess {String="pending","running","clean","corrupt","aborted"} health.state Check state, a corrupt index is rebuilt
+     * @apiSuccess {Number} health.start_timestamp Start timestamp, absent while pending
+     * @apiSuccess {Number} health.end_timestamp End timestamp, absent until finished
+     * @apiSuccess {String} health.message Error message, if any
+     * @apiError (client) ForbiddenError Access denied
+     * @apiPermission admin
+     * @apiVersion 1.12.0
+     *
+     * @return Response
+     */
+    @GET
+    @Path("index")
+    public Response index() {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+        checkBaseFunction(BaseFunction.ADMIN);
+
+        JsonObjectBuilder response = AppContext.getInstance().getIndexingHandler().getStatus();
+        return Response.ok().entity(response.build()).build();
+    }
+
+    /**
+     * Get the second-level cache and authenticated principal cache statistics.
+     *
+     * @api {get} /app/cache Get the cache statistics
+     * @apiName GetAppCache
+     * @apiGroup App
+     * @apiSuccess {Boolean} enabled True if the second-level cache is enabled
+     * @apiSuccess {Number} max_size Maximum number of entries per region
+     * @apiSuccess {Number} ttl Time to live of the entries (in seconds)
+     * @apiSuccess {Object[]} regions Cache regions
+     * @apiSuccess {String} regions.name Region name
+     * @apiSuccess {Number} regions.size Number of entries
+     * @apiSuccess {Number} regions.hit_count Number of hits since startup
+     * @apiSuccess {Number} regions.miss_count Number of misses since startup
+     * @apiSuccess {Number} regions.eviction_count Number of entries evicted by size or time since startup
+     * @apiSuccess {Object} principals Authenticated principal cache
+     * @apiSuccess {Boolean} principals.enabled True if the authenticated principals are cached
+     * @apiSuccess {Number} principals.size Number of principals
+     * @apiSuccess {Number} principals.hit_count Number of requests authenticated from the cache since startup
+     * @apiSuccess {Number} principals.miss_count Number of requests authenticated from the database since startup
+     * @apiSuccess {Number} principals.hit_rate Ratio of requests authenticated from the cache
+     * @apiSuccess {Number} principals.eviction_count Number of principals evicted by size or time since startup
+     * @apiError (client) ForbiddenError Access denied
+     * @apiPermission admin
+     * @apiVersion 1.12.0
+     *
+     * @return Response
+     */
+    @GET
+    @Path("cache")
+    public Response cache() {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+        checkBaseFunction(BaseFunction.ADMIN);
+
+        CacheRegionFactory cacheRegionFactory = EMF.getCacheRegionFactory();
+        JsonObjectBuilder response;
+        if (cacheRegionFactory != null) {
+            response = cacheRegionFactory.getStatus()
+                    .add("enabled", true);
+        } else {
+            response = Json.createObjectBuilder()
+                    .add("enabled", false);
+        }
+        response.add("principals", UserPrincipalCache.getStatus());
+        return Response.ok().entity(response.build()).build();
+    }
+
+    /**
+     * Get the database connection pool statistics.
+     *
+     * @api {get} /app/database Get the database connection pool statistics
+     * @apiName GetAppDatabase
+     * @apiGroup App
+     * @apiSuccess {Boolean} pooled True if the connections come from the connection pool
+     * @apiSuccess {Number} max_size Maximum number of connections
+     * @apiSuccess {Number} min_idle Minimum number of idle connections
+     * @apiSuccess {Number} active Number of connections in use
+     * @apiSuccess {Number} idle Number of idle connections
+     * @apiSuccess {Number} waiting Number of threads waiting for a connection
+     * @apiSuccess {Number} borrowed_count Number of connections borrowed since startup
+     * @apiSuccess {Number} created_count Number of connections opened since startup
+     * @apiSuccess {Number} destroyed_count Number of connections closed since startup
+     * @apiSuccess {Number} mean_borrow_wait_time Mean time waited for a connection (in milliseconds)
+     * @apiSuccess {Number} max_borrow_wait_time Maximum time waited for a connection (in milliseconds)
+     * @apiSuccess {Number} timeout_count Number of times a thread timed out waiting for a connection
+     * @apiSuccess {Number} leak_count Number of connection leaks detected
+     * @apiError (client) ForbiddenError Access denied
+     * @apiPermission admin
+     * @apiVersion 1.12.0
+     *
+     * @return Response
+     */
+    @GET
+    @Path("database")
+    public Response database() {
+        if (!authenticate()) {
+            throw new ForbiddenClientException();
+        }
+        checkBaseFunction(BaseFunction.ADMIN);
+
+        PooledConnectionProvider connectionProvider = EMF.getConnectionProvider();
+        JsonObjectBuilder response;
+        if (connectionProvider != null) {
+            response = connectionProvider.getStatus()
+                    .add("pooled", true);
+        } else {
+            response = Json.createObjectBuilder()
+                    .add("pooled", false);
+        }
+        return Response.ok().entity(response.build()).build();
+    }
+
     /**
      * Clean storage.
      *
@@ -7,12 +7,15 @@ import com.sismics.security.IPrincipal;
 import com.sismics.security.UserPrincipal;
 import com.sismics.util.filter.SecurityFilter;
 
+import jakarta.json.Json;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 
 import java.security.Principal;
 import java.util.List;
@@ -122,4 +125,19 @@ public abstract class BaseResource {
         }
         return targetIdList;
     }
+
+    /**
+     * Returns the response refusing new files while too many are waiting to be processed.
+     *
+     * @return Response
+     */
+    Response buildProcessingSaturatedResponse() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, 60)
+                .entity(Json.createObjectBuilder()
+                        .add("type", "ProcessingSaturated")
+                        .add("message", "Too many files are waiting to be processed")
+                        .build())
+                .build();
+    }
 }
@@ -1,23 +1,30 @@
 package com.sismics.docs.rest.resource;
 
 import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
 import com.sismics.docs.core.constant.AclType;
 import com.sismics.docs.core.constant.ConfigType;
 import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.constant.FileProcessingPriority;
 import com.sismics.docs.core.constant.PermType;
 import com.sismics.docs.core.dao.AclDao;
 import com.sismics.docs.core.dao.ContributorDao;
 import com.sismics.docs.core.dao.DocumentDao;
 import com.sismics.docs.core.dao.FileDao;
+import com.sismics.docs.core.dao.MetadataDao;
 import com.sismics.docs.core.dao.RelationDao;
 import com.sismics.docs.core.dao.RouteStepDao;
 import com.sismics.docs.core.dao.TagDao;
 import com.sismics.docs.core.dao.UserDao;
 import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.dao.criteria.MetadataCriteria;
 import com.sismics.docs.core.dao.criteria.TagCriteria;
 import com.sismics.docs.core.dao.dto.AclDto;
 import com.sismics.docs.core.dao.dto.ContributorDto;
 import com.sismics.docs.core.dao.dto.DocumentDto;
+import com.sismics.docs.core.dao.dto.DocumentFacetsDto;
+import com.sismics.docs.core.dao.dto.MetadataDto;
+import com.sismics.docs.core.dao.dto.MetadataFacetDto;
 import com.sismics.docs.core.dao.dto.RelationDto;
 import com.sismics.docs.core.dao.dto.RouteStepDto;
 import com.sismics.docs.core.dao.dto.TagDto;
@@ -31,6 +38,7 @@ import com.sismics.docs.core.model.jpa.File;
 import com.sismics.docs.core.model.jpa.User;
 import com.sismics.docs.core.util.ConfigUtil;
 import com.sismics.docs.core.util.DocumentUtil;
+import com.sismics.docs.core.util.EncryptionUtil;
 import com.sismics.docs.core.util.FileUtil;
 import com.sismics.docs.core.util.MetadataUtil;
 import com.sismics.docs.core.util.PdfUtil;
@@ -81,6 +89,7 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -296,7 +305,7 @@ public class DocumentResource extends BaseResource {
      * @apiParam {String} share Share ID
      * @apiParam {Boolean} metadata If true, export metadata
      * @apiParam {Boolean} fitimagetopage If true, fit the images to pages
-     * @apiParam {Number} margin Margin around the pages, in millimeter
+     * @apiParam {Number} margin Margin around the pages, in millimeter (between 0 and 50)
      * @apiSuccess {String} pdf The whole response is the PDF file
      * @apiError (client) NotFound Document not found
      * @apiError (client) ValidationError Validation error
@@ -320,8 +329,10 @@ public class DocumentResource extends BaseResource {
             @QueryParam("margin") String marginStr) {
         authenticate();
 
-        // Validate input
-        final int margin = ValidationUtil.validateInteger(marginStr, "margin");
+        // Validate input, the options are part of the key of the cached export
+        final int margin = ValidationUtil.validateInteger(marginStr, "margin", 0, 50);
+        final boolean exportMetadata = Boolean.TRUE.equals(metadata);
+        final boolean exportFitImageToPage = Boolean.TRUE.equals(fitImageToPage);
 
         // Get document and check read permission
         DocumentDao documentDao = new DocumentDao();
@@ -341,10 +352,17 @@ public class DocumentResource extends BaseResource {
             file.setPrivateKey(user.getPrivateKey());
         }
 
-        // Convert to PDF
+        // The cached export is encrypted by the owner of the document
+        Document document = documentDao.getById(documentId);
+        final String privateKey = userDao.getById(document.getUserId()).getPrivateKey();
+
+        // Convert to PDF, or reuse the same export done before
         StreamingOutput stream = outputStream -> {
             try {
-                PdfUtil.convertToPdf(documentDto, fileList, fitImageToPage, metadata, margin, outputStream);
+                java.nio.file.Path cachedFile = PdfUtil.getCachedPdf(documentDto, fileList, exportFitImageToPage, exportMetadata, margin, privateKey);
+                try (InputStream inputStream = EncryptionUtil.decryptInputStream(Files.newInputStream(cachedFile), privateKey)) {
+                    ByteStreams.copy(inputStream, outputStream);
+                }
             } catch (Exception e) {
                 throw new IOException(e);
             }
@@ -384,6 +402,8 @@ public class DocumentResource extends BaseResource {
      * @apiParam {String} [search[uafter]] The document must have been updated after or at the value moment, accepted format is <code>yyyy-MM-dd</code>
      * @apiParam {String} [search[ubefore]] The document must have been updated before or at the value moment, accepted format is <code>yyyy-MM-dd</code>
      * @apiParam {String} [search[workflow]] If the value is <code>me</code> the document must have an active route, for other values the criteria is ignored
+     * @apiParam {String[]} [search[metadata]] The document must have a custom metadata value, formatted as <code>metadata_id:value</code>, or <code>metadata_id:min..max</code> on numeric and date metadata where either bound can be omitted
+     * @apiParam {Boolean} [facets] If <code>true</code> includes the facets of the whole result set
      *
      * @apiSuccess {Number} total Total number of documents
      * @apiSuccess {Object[]} documents List of documents
@@ -410,6 +430,22 @@ public class DocumentResource extends BaseResource {
      * @apiSuccess {String} documents.files.mimetype MIME type
      * @apiSuccess {String} documents.files.create_date Create date (timestamp)
      * @apiSuccess {String[]} suggestions List of search suggestions
+     * @apiSuccess {Object} facets Facets of the result set (if requested)
+     * @apiSuccess {Object[]} facets.tags Tags of the matching documents, most frequent first
+     * @apiSuccess {String} facets.tags.id ID
+     * @apiSuccess {String} facets.tags.name Name
+     * @apiSuccess {String} facets.tags.color Color
+     * @apiSuccess {Number} facets.tags.count Number of matching documents
+     * @apiSuccess {Object[]} facets.metadata Custom metadata of the matching documents
+     * @apiSuccess {String} facets.metadata.id ID
+     * @apiSuccess {String} facets.metadata.name Name
+     * @apiSuccess {String="STRING","INTEGER","FLOAT","DATE","BOOLEAN"} facets.metadata.type Type
+     * @apiSuccess {Number} facets.metadata.count Number of matching documents having a value
+     * @apiSuccess {Object[]} facets.metadata.values Most frequent values (string and boolean metadata)
+     * @apiSuccess {String} facets.metadata.values.value Value
+     * @apiSuccess {Number} facets.metadata.values.count Number of matching documents
+     * @apiSuccess {Number} facets.metadata.min Minimum value (numeric and date metadata)
+     * @apiSuccess {Number} facets.metadata.max Maximum value (numeric and date metadata)
      *
      * @apiError (client) ForbiddenError Access denied
      * @apiError (server) SearchError Error searching in documents
@@ -422,6 +458,7 @@ public class DocumentResource extends BaseResource {
      * @param asc Sorting
      * @param search Search query
      * @param files Files list
+     * @param facets Include facets
      * @return Response
      */
     @GET
@@ -447,7 +484,9 @@ public class DocumentResource extends BaseResource {
             @QueryParam("search[title]") String searchTitle,
             @QueryParam("search[uafter]") String searchUpdatedAfter,
             @QueryParam("search[ubefore]") String searchUpdatedBefore,
-            @QueryParam("search[searchworkflow]") String searchWorkflow
+            @QueryParam("search[searchworkflow]") String searchWorkflow,
+            @QueryParam("search[metadata]") List<String> searchMetadataList,
+            @QueryParam("facets") Boolean facets
     ) {
         if (!authenticate()) {
             throw new ForbiddenClientException();
@@ -481,10 +520,14 @@ public class DocumentResource extends BaseResource {
                 searchUpdatedBefore,
                 searchWorkflow,
                 allTagDtoList);
+        List<MetadataDto> allMetadataDtoList = new MetadataDao().findByCriteria(new MetadataCriteria(), new SortCriteria(1, true));
+        DocumentSearchCriteriaUtil.addMetadataSearchParams(documentCriteria, searchMetadataList, allMetadataDtoList);
 
         documentCriteria.setTargetIdList(getTargetIdList(null));
+        DocumentFacetsDto documentFacetsDto = Boolean.TRUE == facets ? new DocumentFacetsDto() : null;
         try {
-            AppContext.getInstance().getIndexingHandler().findByCriteria(paginatedList, suggestionList, documentCriteria, sortCriteria);
+            AppContext.getInstance().getIndexingHandler().findByCriteria(paginatedList, suggestionList, documentFacetsDto,
+                    documentCriteria, sortCriteria);
         } catch (Exception e) {
             throw new ServerException("SearchError", "Error searching in documents", e);
         }
@@ -541,10 +584,72 @@ public class DocumentResource extends BaseResource {
         response.add("total", paginatedList.getResultCount())
                 .add("documents", documents)
                 .add("suggestions", suggestions);
+        if (documentFacetsDto != null) {
+            response.add("facets", createFacetsObjectBuilder(documentFacetsDto, allTagDtoList, allMetadataDtoList));
+        }
 
         return Response.ok().entity(response.build()).build();
     }
 
+    /**
+     * Create a JSON object of the search facets.
+     * Only the tags and metadata visible by the current user are returned.
+     *
+     * @param documentFacetsDto Facets
+     * @param allTagDtoList Tags visible by the current user
+     * @param allMetadataDtoList Existing metadata
+     * @return JSON object builder
+     */
+    private JsonObjectBuilder createFacetsObjectBuilder(DocumentFacetsDto documentFacetsDto, List<TagDto> allTagDtoList, List<MetadataDto> allMetadataDtoList) {
+        JsonArrayBuilder tags = Json.createArrayBuilder();
+        allTagDtoList.stream()
+                .filter(tagDto -> documentFacetsDto.getTagCountMap().containsKey(tagDto.getId()))
+                .sorted(Comparator.comparing((TagDto tagDto) -> documentFacetsDto.getTagCountMap().get(tagDto.getId())).reversed())
+                .forEach(tagDto -> tags.add(Json.createObjectBuilder()
+                        .add("id", tagDto.getId())
+                        .add("name", tagDto.getName())
+                        .add("color", tagDto.getColor())
+                        .add("count", documentFacetsDto.getTagCountMap().get(tagDto.getId()))));
+
+        JsonArrayBuilder metadata = Json.createArrayBuilder();
+        for (MetadataDto metadataDto : allMetadataDtoList) {
+            MetadataFacetDto metadataFacetDto = documentFacetsDto.getMetadataFacetMap().get(metadataDto.getId());
+            if (metadataFacetDto == null) {
+                continue;
+            }
+            JsonObjectBuilder meta = Json.createObjectBuilder()
+                    .add("id", metadataDto.getId())
+                    .add("name", metadataDto.getName())
+                    .add("type", metadataDto.getType().name())
+                    .add("count", metadataFacetDto.getCount());
+            switch (metadataDto.getType()) {
+                case STRING:
+                case BOOLEAN:
+                    JsonArrayBuilder values = Json.createArrayBuilder();
+                    for (Map.Entry<String, Integer> entry : metadataFacetDto.getValueCountMap().entrySet()) {
+                        values.add(Json.createObjectBuilder()
+                                .add("value", entry.getKey())
+                                .add("count", entry.getValue()));
+                    }
+                    meta.add("values", values);
+                    break;
+                case FLOAT:
+                    meta.add("min", metadataFacetDto.getMin().doubleValue())
+                            .add("max", metadataFacetDto.getMax().doubleValue());
+                    break;
+                default:
+                    meta.add("min", metadataFacetDto.getMin().longValue())
+                            .add("max", metadataFacetDto.getMax().longValue());
+                    break;
+            }
+            metadata.add(meta);
+        }
+
+        return Json.createObjectBuilder()
+                .add("tags", tags)
+                .add("metadata", metadata);
+    }
+
     /**
      * Returns all documents.
      *
@@ -560,6 +665,7 @@ public class DocumentResource extends BaseResource {
      * @param asc        Sorting
      * @param search     Search query
      * @param files      Files list
+     * @param facets     Include facets
      * @return Response
      */
     @POST
@@ -584,7 +690,9 @@ public class DocumentResource extends BaseResource {
             @FormParam("search[title]") String searchTitle,
             @FormParam("search[uafter]") String searchUpdatedAfter,
             @FormParam("search[ubefore]") String searchUpdatedBefore,
-            @FormParam("search[searchworkflow]") String searchWorkflow
+            @FormParam("search[searchworkflow]") String searchWorkflow,
+            @FormParam("search[metadata]") List<String> searchMetadataList,
+            @FormParam("facets") Boolean facets
     ) {
         return list(
                 limit,
@@ -606,7 +714,9 @@ public class DocumentResource extends BaseResource {
                 searchTitle,
                 searchUpdatedAfter,
                 searchUpdatedBefore,
-                searchWorkflow
+                searchWorkflow,
+                searchMetadataList,
+                facets
         );
     }
 
@@ -887,6 +997,7 @@ public class DocumentResource extends BaseResource {
      * @apiError (server) ErrorGuessMime Error guessing mime type
      * @apiError (client) QuotaReached Quota limit reached
      * @apiError (server) FileError Error adding a file
+     * @apiError (server) ProcessingSaturated Too many files are waiting to be processed, retry later
      * @apiPermission user
      * @apiVersion 1.5.0
      *
@@ -904,6 +1015,11 @@ public class DocumentResource extends BaseResource {
         // Validate input data
         ValidationUtil.validateRequired(fileBodyPart, "file");
 
+        // Refuse new files while too many are waiting to be processed
+        if (AppContext.getInstance().getFileProcessingService().isSaturated()) {
+            return buildProcessingSaturatedResponse();
+        }
+
         // Save the file to a temporary file
         java.nio.file.Path unencryptedFile;
         try {
@@ -958,7 +1074,7 @@ public class DocumentResource extends BaseResource {
         try {
             for (EmailUtil.FileContent fileContent : mailContent.getFileContentList()) {
                 FileUtil.createFile(fileContent.getName(), null, fileContent.getFile(), fileContent.getSize(),
-                        document.getLanguage(), principal.getId(), document.getId());
+                        document.getLanguage(), principal.getId(), document.getId(), FileProcessingPriority.UPLOAD);
             }
         } catch (IOException e) {
             throw new ClientException(e.getMessage(), e.getMessage(), e);
@@ -3,6 +3,7 @@ package com.sismics.docs.rest.resource;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.google.common.io.ByteStreams;
+import com.sismics.docs.core.constant.FileProcessingPriority;
 import com.sismics.docs.core.constant.PermType;
 import com.sismics.docs.core.dao.AclDao;
 import com.sismics.docs.core.dao.DocumentDao;
@@ -18,9 +19,11 @@ import com.sismics.docs.core.model.jpa.User;
 import com.sismics.docs.core.util.DirectoryUtil;
 import com.sismics.docs.core.util.EncryptionUtil;
 import com.sismics.docs.core.util.FileUtil;
+import com.sismics.docs.core.util.ZipUtil;
 import com.sismics.rest.exception.ClientException;
 import com.sismics.rest.exception.ForbiddenClientException;
 import com.sismics.rest.exception.ServerException;
+import com.sismics.rest.util.FileStreamingOutput;
 import com.sismics.rest.util.RestUtil;
 import com.sismics.rest.util.ValidationUtil;
 import com.sismics.util.HttpUtil;
@@ -43,14 +46,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.List;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * File REST resources.
@@ -80,6 +85,7 @@ public class FileResource extends BaseResource {
      * @apiError (server) ErrorGuessMime Error guessing mime type
      * @apiError (client) QuotaReached Quota limit reached
      * @apiError (server) FileError Error adding a file
+     * @apiError (server) ProcessingSaturated Too many files are waiting to be processed, retry later
      * @apiPermission user
      * @apiVersion 1.5.0
      *
@@ -100,6 +106,11 @@ public class FileResource extends BaseResource {
         // Validate input data
         ValidationUtil.validateRequired(fileBodyPart, "file");
 
+        // Refuse new files while too many are waiting to be processed
+        if (AppContext.getInstance().getFileProcessingService().isSaturated()) {
+            return buildProcessingSaturatedResponse();
+        }
+
         // Get the document
         DocumentDto documentDto = null;
         if (Strings.isNullOrEmpty(documentId)) {
@@ -127,7 +138,7 @@ public class FileResource extends BaseResource {
 
         try {
             String fileId = FileUtil.createFile(name, previousFileId, unencryptedFile, fileSize, documentDto == null ?
-                    null : documentDto.getLanguage(), principal.getId(), documentId);
+                    null : documentDto.getLanguage(), principal.getId(), documentId, FileProcessingPriority.UPLOAD);
 
             // Always return OK
             JsonObjectBuilder response = Json.createObjectBuilder()
@@ -271,19 +282,23 @@ public class FileResource extends BaseResource {
      * @apiName PostFileProcess
      * @apiGroup File
      * @apiParam {String} id File ID
+     * @apiParam {Boolean} [force] If true, extract the content again instead of reading it from the cache
      * @apiSuccess {String} status Status OK
      * @apiError (client) ForbiddenError Access denied
      * @apiError (client) ValidationError Validation error
      * @apiError (server) ProcessingError Processing error
+     * @apiError (server) ProcessingSaturated Too many files are waiting to be processed, retry later
      * @apiPermission user
      * @apiVersion 1.6.0
      *
      * @param id File ID
+     * @param force Force a new extraction
      * @return Response
      */
     @POST
     @Path("{id: [a-z0-9\\-]+}/process")
-    public Response process(@PathParam("id") String id) {
+    public Response process(@PathParam("id") String id,
+                            @FormParam("force") Boolean force) {
         if (!authenticate()) {
             throw new ForbiddenClientException();
         }
@@ -300,6 +315,11 @@ public class FileResource extends BaseResource {
             throw new NotFoundException();
         }
 
+        // Refuse to process the file again while too many are waiting to be processed
+        if (AppContext.getInstance().getFileProcessingService().isSaturated()) {
+            return buildProcessingSaturatedResponse();
+        }
+
         // Get the creating user
         UserDao userDao = new UserDao();
         User user = userDao.getById(file.getUserId());
@@ -314,6 +334,8 @@ public class FileResource extends BaseResource {
             event.setLanguage(documentDto.getLanguage());
             event.setFileId(file.getId());
             event.setUnencryptedFile(unencryptedFile);
+            event.setPriority(FileProcessingPriority.REPROCESS);
+            event.setBypassCache(Boolean.TRUE.equals(force));
             ThreadLocalContext.get().addAsyncEvent(event);
         } catch (Exception e) {
             throw new ServerException("ProcessingError", "Error processing this file", e);
@@ -395,6 +417,7 @@ public class FileResource extends BaseResource {
      * @apiSuccess {Object[]} files List of files
      * @apiSuccess {String} files.id ID
      * @apiSuccess {String} files.processing True if the file is currently processing
+     * @apiSuccess {Number} files.processing_progress Progress in percent of the processing, null if the file is not processing
      * @apiSuccess {String} files.name File name
      * @apiSuccess {String} files.version Zero-based version number
      * @apiSuccess {String} files.mimetype MIME type
@@ -548,11 +571,15 @@ public class FileResource extends BaseResource {
      * @api {get} /file/:id/data Get a file data
      * @apiName GetFile
      * @apiGroup File
+     * @apiDescription A single byte range can be requested with the Range header, and made conditional with the If-Range header.
+     * The If-None-Match header is checked against the returned ETag.
      * @apiParam {String} id File ID
      * @apiParam {String} share Share ID
      * @apiParam {String="web","thumb","content"} [size] Size variation
      * @apiSuccess {Object} file The file data is the whole response
+     * @apiSuccess (206) {Object} file The requested range of the file data is the whole response
      * @apiError (client) SizeError Size must be web or thumb
+     * @apiError (client) RangeNotSatisfiable The range starts after the end of the file
      * @apiError (client) ForbiddenError Access denied or document not visible
      * @apiError (client) NotFound File not found
      * @apiError (server) ServiceUnavailable Error reading the file
@@ -608,37 +635,77 @@ public class FileResource extends BaseResource {
             decrypt = true; // Original files are encrypted
         }
         
+        // The decrypted file has the same length as the stored file
+        String etag;
+        long length;
+        try {
+            etag = HttpUtil.buildEtagHeader(size == null ? fileId : fileId + "_" + size, storedFile);
+            length = Files.size(storedFile);
+        } catch (IOException e) {
+            return Response.status(Status.SERVICE_UNAVAILABLE).build();
+        }
+        if (HttpUtil.matchEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag, true)) {
+            return Response.notModified()
+                    .header(HttpHeaders.ETAG, etag)
+                    .build();
+        }
+
+        // Requested range, the whole file if the range is for another version
+        long[] range = null;
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null || HttpUtil.matchEtag(ifRange, etag, false)) {
+            try {
+                range = HttpUtil.parseByteRange(request.getHeader("Range"), length);
+            } catch (IllegalArgumentException e) {
+                return Response.status(Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header("Content-Range", "bytes */" + length)
+                        .build();
+            }
+        }
+        long start = range == null ? 0 : range[0];
+        long count = range == null ? length : range[1] - range[0] + 1;
+
         // Stream the output and decrypt it if necessary
         StreamingOutput stream;
         
         // A file is always encrypted by the creator of it
         User user = userDao.getById(file.getUserId());
         
-        // Write the decrypted file to the output
+        // Write the decrypted file to the output, from the start of the range without decrypting what precedes it
         try {
-            InputStream fileInputStream = Files.newInputStream(storedFile);
-            final InputStream responseInputStream = decrypt ?
-                    EncryptionUtil.decryptInputStream(fileInputStream, user.getPrivateKey()) : fileInputStream;
-                    
-            stream = outputStream -> {
-                try {
-                    ByteStreams.copy(responseInputStream, outputStream);
-                } finally {
+            if (decrypt) {
+                final InputStream responseInputStream = openDecryptedRange(storedFile, user.getPrivateKey(), start, count);
+
+                stream = outputStream -> {
                     try {
-                        responseInputStream.close();
-                        outputStream.close();
-                    } catch (IOException e) {
-                        // Ignore
+                        ByteStreams.copy(responseInputStream, outputStream);
+                    } finally {
+                        try {
+                            responseInputStream.close();
+                            outputStream.close();
+                        } catch (IOException e) {
+                            // Ignore
+                        }
                     }
-                }
-            };
+                };
+            } else {
+                // Not encrypted, transferred from the file channel
+                stream = new FileStreamingOutput(storedFile, start, count);
+            }
         } catch (Exception e) {
             return Response.status(Status.SERVICE_UNAVAILABLE).build();
         }
 
         Response.ResponseBuilder builder = Response.ok(stream)
                 .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + file.getFullName("data") + "\"")
-                .header(HttpHeaders.CONTENT_TYPE, mimeType);
+                .header(HttpHeaders.CONTENT_TYPE, mimeType)
+                .header(HttpHeaders.CONTENT_LENGTH, count)
+                .header(HttpHeaders.ETAG, etag)
+                .header("Accept-Ranges", "bytes");
+        if (range != null) {
+            builder.status(Status.PARTIAL_CONTENT)
+                    .header("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+        }
         if (decrypt) {
             // Cache real files
             builder.header(HttpHeaders.CACHE_CONTROL, "private")
@@ -651,6 +718,27 @@ public class FileResource extends BaseResource {
         return builder.build();
     }
 
+    /**
+     * Open a range of an encrypted file, decrypted from its start without decrypting what precedes it.
+     *
+     * @param storedFile Encrypted file
+     * @param privateKey Private key
+     * @param start Start of the range
+     * @param count Length of the range
+     * @return Decrypted input stream, to close
+     * @throws Exception e
+     */
+    private InputStream openDecryptedRange(java.nio.file.Path storedFile, String privateKey, long start, long count) throws Exception {
+        SeekableByteChannel channel = Files.newByteChannel(storedFile);
+        try {
+            channel.position(start);
+            return ByteStreams.limit(EncryptionUtil.decryptInputStream(Channels.newInputStream(channel), privateKey, start), count);
+        } catch (Exception e) {
+            channel.close();
+            throw e;
+        }
+    }
+
     /**
      * Returns all files from a document, zipped.
      *
@@ -721,32 +809,17 @@ public class FileResource extends BaseResource {
      * Sent the content of a list of files.
      */
     private Response sendZippedFiles(String zipFileName, List<File> fileList) {
-        final UserDao userDao = new UserDao();
+        // Files are encrypted by the creator of them
+        final Map<String, String> privateKeyMap = new UserDao().getPrivateKeyMap(
+                fileList.stream().map(File::getUserId).collect(Collectors.toSet()));
 
         // Create the ZIP stream
         StreamingOutput stream = outputStream -> {
-            try (ZipOutputStream zipOutputStream = new ZipOutputStream(outputStream)) {
-                // Add each file to the ZIP stream
-                int index = 0;
-                for (File file : fileList) {
-                    java.nio.file.Path storedfile = DirectoryUtil.getStorageDirectory().resolve(file.getId());
-                    InputStream fileInputStream = Files.newInputStream(storedfile);
-
-                    // Add the decrypted file to the ZIP stream
-                    // Files are encrypted by the creator of them
-                    User user = userDao.getById(file.getUserId());
-                    try (InputStream decryptedStream = EncryptionUtil.decryptInputStream(fileInputStream, user.getPrivateKey())) {
-                        ZipEntry zipEntry = new ZipEntry(index + "-" + file.getFullName(Integer.toString(index)));
-                        zipOutputStream.putNextEntry(zipEntry);
-                        ByteStreams.copy(decryptedStream, zipOutputStream);
-                        zipOutputStream.closeEntry();
-                    } catch (Exception e) {
-                        throw new WebApplicationException(e);
-                    }
-                    index++;
-                }
+            try {
+                ZipUtil.writeZip(fileList, privateKeyMap, outputStream);
+            } catch (IOException e) {
+                throw new WebApplicationException(e);
             }
-            outputStream.close();
         };
         
         // Write to the output
@@ -19,6 +19,7 @@ import com.sismics.docs.rest.constant.BaseFunction;
 import com.sismics.rest.exception.ClientException;
 import com.sismics.rest.exception.ForbiddenClientException;
 import com.sismics.rest.util.ValidationUtil;
+import com.sismics.security.UserPrincipalCache;
 import com.sismics.util.JsonUtil;
 
 import jakarta.json.Json;
@@ -162,6 +163,7 @@ public class GroupResource extends BaseResource {
         // Update the group
         groupDao.update(group.setName(name)
                 .setParentId(parentId), principal.getId());
+        UserPrincipalCache.invalidateAll();
         
         // Always return OK
         JsonObjectBuilder response = Json.createObjectBuilder()
@@ -217,6 +219,7 @@ public class GroupResource extends BaseResource {
 
         // Delete the group
         groupDao.delete(group.getId(), principal.getId());
+        UserPrincipalCache.invalidateAll();
         
         // Always return OK
         JsonObjectBuilder response = Json.createObjectBuilder()
@@ -285,6 +288,7 @@ public class GroupResource extends BaseResource {
             userGroup.setGroupId(group.getId());
             userGroup.setUserId(user.getId());
             groupDao.addMember(userGroup);
+            UserPrincipalCache.invalidateUser(user.getId());
         }
         
         // Always return OK
@@ -341,6 +345,7 @@ public class GroupResource extends BaseResource {
         
         // Remove the membership
         groupDao.removeMember(group.getId(), user.getId());
+        UserPrincipalCache.invalidateUser(user.getId());
         
         // Always return OK
         JsonObjectBuilder response = Json.createObjectBuilder()
@@ -6,7 +6,9 @@ import com.sismics.docs.core.constant.PermType;
 import com.sismics.docs.core.dao.AclDao;
 import com.sismics.docs.core.dao.TagDao;
 import com.sismics.docs.core.dao.criteria.TagCriteria;
+import com.sismics.docs.core.dao.dto.AclDto;
 import com.sismics.docs.core.dao.dto.TagDto;
+import com.sismics.docs.core.event.AclDeletedAsyncEvent;
 import com.sismics.docs.core.model.jpa.Acl;
 import com.sismics.docs.core.model.jpa.Tag;
 import com.sismics.docs.core.util.jpa.SortCriteria;
@@ -14,6 +16,7 @@ import com.sismics.rest.exception.ClientException;
 import com.sismics.rest.exception.ForbiddenClientException;
 import com.sismics.rest.util.AclUtil;
 import com.sismics.rest.util.ValidationUtil;
+import com.sismics.util.context.ThreadLocalContext;
 import org.apache.commons.lang3.StringUtils;
 
 import jakarta.json.Json;
@@ -335,8 +338,21 @@ public class TagResource extends BaseResource {
         }
 
         // Delete the tag
+        List<AclDto> aclDtoList = aclDao.getBySourceId(id, null);
         TagDao tagDao = new TagDao();
         tagDao.delete(id, principal.getId());
+
+        // Raise an ACL deleted event for each read permission given by this tag
+        for (AclDto aclDto : aclDtoList) {
+            if (aclDto.getPerm() == PermType.READ) {
+                AclDeletedAsyncEvent event = new AclDeletedAsyncEvent();
+                event.setUserId(principal.getId());
+                event.setSourceId(id);
+                event.setPerm(aclDto.getPerm());
+                event.setTargetId(aclDto.getTargetId());
+                ThreadLocalContext.get().addAsyncEvent(event);
+            }
+        }
         
         // Always return OK
         JsonObjectBuilder response = Json.createObjectBuilder()
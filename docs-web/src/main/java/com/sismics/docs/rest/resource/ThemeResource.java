@@ -10,6 +10,7 @@ import com.sismics.docs.rest.constant.BaseFunction;
 import com.sismics.rest.exception.ClientException;
 import com.sismics.rest.exception.ForbiddenClientException;
 import com.sismics.rest.exception.ServerException;
+import com.sismics.rest.util.FileStreamingOutput;
 import com.sismics.rest.util.ValidationUtil;
 import com.sismics.util.HttpUtil;
 import com.sismics.util.JsonUtil;
@@ -24,8 +25,9 @@ import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.StreamingOutput;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.io.StringReader;
+import java.net.URL;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.Map;
@@ -209,36 +211,44 @@ public class ThemeResource extends BaseResource {
     @Produces("image/*")
     @Path("image/{type: logo|background}")
     public Response getImage(@PathParam("type") final String type) {
-        final java.nio.file.Path filePath = DirectoryUtil.getThemeDirectory().resolve(type);
-
-        // Copy the image to the response output
-        return Response.ok(new StreamingOutput() {
-            @Override
-            public void write(OutputStream outputStream) throws IOException, WebApplicationException {
-                InputStream inputStream = null;
-                try {
-                    if (Files.exists(filePath)) {
-                        inputStream = Files.newInputStream(filePath);
-                    } else {
-                        inputStream = getClass().getResource("/image/" + (type.equals("logo") ? "logo.png" : "background.jpg")).openStream();
-                    }
-                    ByteStreams.copy(inputStream, outputStream);
-                } finally {
-                    try {
-                        if (inputStream != null) {
-                            inputStream.close();
-                        }
-                        outputStream.close();
-                    } catch (IOException e) {
-                        // Ignore
+        // The image is sent again only if it has changed
+        java.nio.file.Path filePath = DirectoryUtil.getThemeDirectory().resolve(type);
+        String etag;
+        long length;
+        StreamingOutput output;
+        try {
+            if (Files.exists(filePath)) {
+                // Transfer the image from the file channel
+                etag = HttpUtil.buildEtagHeader(type, filePath);
+                length = Files.size(filePath);
+                output = new FileStreamingOutput(filePath, 0, length);
+            } else {
+                // The default image may be packaged in a JAR, copy it from the classpath
+                URL defaultImage = getClass().getResource("/image/" + (type.equals("logo") ? "logo.png" : "background.jpg"));
+                URLConnection connection = defaultImage.openConnection();
+                length = connection.getContentLengthLong();
+                etag = HttpUtil.buildEtagHeader(type + "-default", connection.getLastModified(), length);
+                output = outputStream -> {
+                    try (InputStream inputStream = defaultImage.openStream()) {
+                        ByteStreams.copy(inputStream, outputStream);
                     }
-                }
+                };
             }
-        })
-        .header(HttpHeaders.CONTENT_TYPE, "image/*")
-        .header(HttpHeaders.CACHE_CONTROL, "public")
-        .header(HttpHeaders.EXPIRES, HttpUtil.buildExpiresHeader(3_600_000L * 24L * 15L))
-        .build();
+        } catch (IOException e) {
+            throw new ServerException("ImageError", "Error reading the image", e);
+        }
+        Response.ResponseBuilder builder;
+        if (HttpUtil.matchEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag, true)) {
+            builder = Response.notModified();
+        } else {
+            builder = Response.ok(output)
+                    .header(HttpHeaders.CONTENT_TYPE, "image/*")
+                    .header(HttpHeaders.CONTENT_LENGTH, length < 0 ? null : length);
+        }
+        return builder.header(HttpHeaders.ETAG, etag)
+                .header(HttpHeaders.CACHE_CONTROL, "public")
+                .header(HttpHeaders.EXPIRES, HttpUtil.buildExpiresHeader(3_600_000L * 24L * 15L))
+                .build();
     }
 
     /**
@@ -25,6 +25,7 @@ import com.sismics.rest.exception.ForbiddenClientException;
 import com.sismics.rest.exception.ServerException;
 import com.sismics.rest.util.ValidationUtil;
 import com.sismics.security.UserPrincipal;
+import com.sismics.security.UserPrincipalCache;
 import com.sismics.util.JsonUtil;
 import com.sismics.util.context.ThreadLocalContext;
 import com.sismics.util.filter.TokenBasedSecurityFilter;
@@ -158,6 +159,7 @@ public class UserResource extends BaseResource {
             user.setEmail(email);
         }
         user = userDao.update(user, principal.getId());
+        UserPrincipalCache.invalidateUser(user.getId());
         
         // Change the password
         if (StringUtils.isNotBlank(password)) {
@@ -243,6 +245,7 @@ public class UserResource extends BaseResource {
             }
         }
         user = userDao.update(user, principal.getId());
+        UserPrincipalCache.invalidateUser(user.getId());
         
         // Change the password
         if (StringUtils.isNotBlank(password)) {
@@ -352,6 +355,7 @@ public class UserResource extends BaseResource {
         
         // Cleanup old session tokens
         authenticationTokenDao.deleteOldSessionToken(user.getId());
+        UserPrincipalCache.invalidateUser(user.getId());
 
         JsonObjectBuilder response = Json.createObjectBuilder();
         int maxAge = longLasted ? TokenBasedSecurityFilter.TOKEN_LONG_LIFETIME : -1;
@@ -398,6 +402,7 @@ public class UserResource extends BaseResource {
         // Deletes the server token
         try {
             authenticationTokenDao.delete(authToken);
+            UserPrincipalCache.invalidateToken(authToken);
         } catch (Exception e) {
             throw new ServerException("AuthenticationTokenError", "Error deleting the authentication token: " + authToken, e);
         }
@@ -449,6 +454,7 @@ public class UserResource extends BaseResource {
         // Delete the user
         UserDao userDao = new UserDao();
         userDao.delete(principal.getName(), principal.getId());
+        UserPrincipalCache.invalidateUser(principal.getId());
         
         sendDeletionEvents(documentList, fileList);
 
@@ -517,6 +523,7 @@ public class UserResource extends BaseResource {
         
         // Delete the user
         userDao.delete(user.getUsername(), principal.getId());
+        UserPrincipalCache.invalidateUser(user.getId());
 
         sendDeletionEvents(documentList, fileList);
 
@@ -847,6 +854,7 @@ public class UserResource extends BaseResource {
         // Remove other tokens
         AuthenticationTokenDao authenticationTokenDao = new AuthenticationTokenDao();
         authenticationTokenDao.deleteByUserId(principal.getId(), authToken);
+        UserPrincipalCache.invalidateUser(principal.getId());
         
         // Always return OK
         JsonObjectBuilder response = Json.createObjectBuilder()
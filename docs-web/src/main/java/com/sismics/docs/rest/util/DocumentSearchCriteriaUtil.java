@@ -4,8 +4,11 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import com.sismics.docs.core.constant.Constants;
+import com.sismics.docs.core.constant.MetadataType;
 import com.sismics.docs.core.dao.UserDao;
 import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.dao.criteria.DocumentMetadataCriteria;
+import com.sismics.docs.core.dao.dto.MetadataDto;
 import com.sismics.docs.core.dao.dto.TagDto;
 import com.sismics.docs.core.model.jpa.User;
 import org.joda.time.DateTime;
@@ -35,6 +38,7 @@ public class DocumentSearchCriteriaUtil {
     private static final DateTimeFormatter DATES_FORMATTER = new DateTimeFormatterBuilder().append(null, DATE_PARSERS).toFormatter();
 
     private static final String PARAMETER_WITH_MULTIPLE_VALUES_SEPARATOR = ",";
+    private static final String METADATA_RANGE_SEPARATOR = "..";
     private static final String WORKFLOW_ME = "me";
 
     /**
@@ -201,6 +205,52 @@ public class DocumentSearchCriteriaUtil {
         }
     }
 
+    /**
+     * Fill the document criteria with custom metadata values, eg.:
+     * <code>metadataId:value</code>, or <code>metadataId:min..max</code> on numeric and date metadata,
+     * where either bound can be omitted.
+     *
+     * @param documentCriteria    structure to be filled
+     * @param searchMetadataList  metadata values
+     * @param allMetadataDtoList  list of existing metadata
+     */
+    public static void addMetadataSearchParams(DocumentCriteria documentCriteria, List<String> searchMetadataList, List<MetadataDto> allMetadataDtoList) {
+        if (searchMetadataList == null) {
+            return;
+        }
+        for (String searchMetadata : searchMetadataList) {
+            int separatorIndex = searchMetadata.indexOf(':');
+            String metadataId = separatorIndex < 0 ? searchMetadata : searchMetadata.substring(0, separatorIndex);
+            String value = separatorIndex < 0 ? "" : searchMetadata.substring(separatorIndex + 1);
+            MetadataDto metadataDto = allMetadataDtoList.stream()
+                    .filter(metadata -> metadata.getId().equals(metadataId))
+                    .findFirst().orElse(null);
+            if (metadataDto == null || value.isEmpty()) {
+                // Unknown metadata, returns no documents
+                documentCriteria.getMetadataList().add(new DocumentMetadataCriteria()
+                        .setMetadataId(UUID.randomUUID().toString())
+                        .setType(MetadataType.STRING)
+                        .setValue(UUID.randomUUID().toString()));
+                continue;
+            }
+
+            DocumentMetadataCriteria metadataCriteria = new DocumentMetadataCriteria()
+                    .setMetadataId(metadataId)
+                    .setType(metadataDto.getType());
+            boolean numeric = metadataDto.getType() == MetadataType.INTEGER
+                    || metadataDto.getType() == MetadataType.FLOAT
+                    || metadataDto.getType() == MetadataType.DATE;
+            int rangeIndex = value.indexOf(METADATA_RANGE_SEPARATOR);
+            if (numeric && rangeIndex >= 0) {
+                metadataCriteria.setMin(Strings.emptyToNull(value.substring(0, rangeIndex)));
+                metadataCriteria.setMax(Strings.emptyToNull(value.substring(rangeIndex + METADATA_RANGE_SEPARATOR.length())));
+            } else {
+                metadataCriteria.setValue(value);
+            }
+            documentCriteria.getMetadataList().add(metadataCriteria);
+        }
+    }
+
     private static void parseDateCriteria(DocumentCriteria documentCriteria, String value, DateTimeFormatter formatter, boolean isUpdated, boolean isBefore) {
         try {
             DateTime date = formatter.parseDateTime(value);
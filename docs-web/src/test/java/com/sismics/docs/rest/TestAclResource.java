@@ -325,6 +325,14 @@ public class TestAclResource extends BaseJerseyTest {
         JsonArray documents = json.getJsonArray("documents");
         Assert.assertEquals(0, documents.size());
 
+        // acltag2 cannot find any document
+        json = target().path("/document/list")
+                .queryParam("search", "super")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, acltag2Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(0, json.getJsonNumber("total").intValue());
+
         // acltag2 cannot edit tag1
         response = target().path("/tag/" + tag1Id).request()
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, acltag2Token)
@@ -406,6 +414,15 @@ public class TestAclResource extends BaseJerseyTest {
         documents = json.getJsonArray("documents");
         Assert.assertEquals(1, documents.size());
 
+        // acltag2 can find exactly one document
+        json = target().path("/document/list")
+                .queryParam("search", "super")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, acltag2Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(1, json.getJsonNumber("total").intValue());
+        Assert.assertEquals(document1Id, json.getJsonArray("documents").getJsonObject(0).getString("id"));
+
         // Add an ACL WRITE for acltag2 with acltag1 on tag1
         target().path("/acl").request()
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, acltag1Token)
@@ -449,5 +466,26 @@ public class TestAclResource extends BaseJerseyTest {
                         .param("title", "My super document 1")
                         .param("tags", tag1Id)
                         .param("language", "eng")), JsonObject.class);
+
+        // Delete tag1 with acltag1
+        target().path("/tag/" + tag1Id).request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, acltag1Token)
+                .delete(JsonObject.class);
+
+        // acltag2 cannot find document1 anymore
+        json = target().path("/document/list")
+                .queryParam("search", "super")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, acltag2Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(0, json.getJsonNumber("total").intValue());
+
+        // acltag1 still finds document1
+        json = target().path("/document/list")
+                .queryParam("search", "super")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, acltag1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(1, json.getJsonNumber("total").intValue());
     }
-}
\ No newline at end of file
+}
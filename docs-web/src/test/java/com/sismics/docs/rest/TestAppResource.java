@@ -69,6 +69,19 @@ public class TestAppResource extends BaseJerseyTest {
                 .post(Entity.form(new Form()));
         Assert.assertEquals(Status.OK, Status.fromStatusCode(response.getStatus()));
 
+        // Check the index status
+        json = target().path("/app/index").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        JsonObject suggester = json.getJsonObject("suggester");
+        Assert.assertTrue(suggester.getJsonNumber("rebuild_interval").longValue() > 0);
+        Assert.assertTrue(suggester.containsKey("last_build_time"));
+        JsonObject rebuild = json.getJsonObject("rebuild");
+        Assert.assertFalse(rebuild.getBoolean("running"));
+        Assert.assertFalse(rebuild.getBoolean("failed"));
+        Assert.assertEquals(rebuild.getJsonNumber("document_total").longValue(), rebuild.getJsonNumber("document_indexed").longValue());
+        Assert.assertEquals(rebuild.getJsonNumber("file_total").longValue(), rebuild.getJsonNumber("file_indexed").longValue());
+
         // Clean storage
         response = target().path("/app/batch/clean_storage").request()
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
@@ -132,6 +145,68 @@ public class TestAppResource extends BaseJerseyTest {
         Assert.assertTrue(date3 >= date4);
     }
 
+    /**
+     * Test the cache resource.
+     */
+    @Test
+    public void testCacheResource() {
+        // Login admin
+        String adminToken = adminToken();
+
+        // Read the configuration twice, the second time from the cache
+        target().path("/app").request().get(JsonObject.class);
+        target().path("/app").request().get(JsonObject.class);
+
+        // Check the cache statistics
+        JsonObject json = target().path("/app/cache").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        Assert.assertTrue(json.getBoolean("enabled"));
+        Assert.assertTrue(json.getJsonNumber("max_size").longValue() > 0);
+        JsonObject configRegion = null;
+        for (JsonObject region : json.getJsonArray("regions").getValuesAs(JsonObject.class)) {
+            if (region.getString("name").equals("com.sismics.docs.core.model.jpa.Config")) {
+                configRegion = region;
+            }
+        }
+        Assert.assertNotNull(configRegion);
+        Assert.assertTrue(configRegion.getJsonNumber("size").longValue() > 0);
+        Assert.assertTrue(configRegion.getJsonNumber("hit_count").longValue() > 0);
+        Assert.assertTrue(configRegion.containsKey("miss_count"));
+        Assert.assertTrue(configRegion.containsKey("eviction_count"));
+
+        // Only for admins
+        Response response = target().path("/app/cache").request()
+                .get();
+        Assert.assertEquals(Status.FORBIDDEN, Status.fromStatusCode(response.getStatus()));
+    }
+
+    /**
+     * Test the database connection pool statistics.
+     */
+    @Test
+    public void testDatabaseResource() {
+        // Login admin
+        String adminToken = adminToken();
+
+        // Check the connection pool statistics
+        JsonObject json = target().path("/app/database").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        Assert.assertTrue(json.getBoolean("pooled"));
+        Assert.assertEquals(10, json.getInt("max_size"));
+        Assert.assertTrue(json.getInt("active") > 0);
+        Assert.assertTrue(json.getJsonNumber("borrowed_count").longValue() > 0);
+        Assert.assertEquals(0, json.getJsonNumber("timeout_count").longValue());
+        Assert.assertTrue(json.containsKey("waiting"));
+        Assert.assertTrue(json.containsKey("leak_count"));
+
+        // Only for admins
+        Response response = target().path("/app/database").request()
+                .get();
+        Assert.assertEquals(Status.FORBIDDEN, Status.fromStatusCode(response.getStatus()));
+    }
+
     /**
      * Test the guest login.
      */
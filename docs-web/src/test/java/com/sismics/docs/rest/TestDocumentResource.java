@@ -496,8 +496,30 @@ public class TestDocumentResource extends BaseJerseyTest {
         is = (InputStream) response.getEntity();
         byte[] pdfBytes = ByteStreams.toByteArray(is);
         Assert.assertTrue(pdfBytes.length > 0);
+
+        // Export the same document again, from the cache
+        response = target().path("/document/" + document1Id + "/pdf")
+                .queryParam("margin", "10")
+                .queryParam("metadata", "true")
+                .queryParam("comments", "true")
+                .queryParam("fitimagetopage", "true")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentOdtToken)
+                .get();
+        Assert.assertEquals(Status.OK, Status.fromStatusCode(response.getStatus()));
+        is = (InputStream) response.getEntity();
+        Assert.assertArrayEquals(pdfBytes, ByteStreams.toByteArray(is));
+
+        // Export with a margin out of range
+        response = target().path("/document/" + document1Id + "/pdf")
+                .queryParam("margin", "1000")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentOdtToken)
+                .get();
+        Assert.assertEquals(Status.BAD_REQUEST, Status.fromStatusCode(response.getStatus()));
+        Assert.assertEquals("ValidationError", response.readEntity(JsonObject.class).getString("type"));
     }
-    
+
     /**
      * Test DOCX extraction.
      * 
@@ -622,6 +644,16 @@ public class TestDocumentResource extends BaseJerseyTest {
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentPlainToken)
                 .get(JsonObject.class);
         Assert.assertEquals(1, json.getJsonArray("documents").size());
+        Assert.assertTrue(json.getJsonArray("documents").getJsonObject(0).getString("highlight").contains("<strong>love</strong>"));
+
+        // Search documents by a stemmed form in the document language
+        json = target().path("/document/list")
+                .queryParam("search", "full:loving")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, documentPlainToken)
+                .get(JsonObject.class);
+        Assert.assertEquals(1, json.getJsonArray("documents").size());
+        Assert.assertTrue(json.getJsonArray("documents").getJsonObject(0).getString("highlight").contains("<strong>love</strong>"));
 
         // Get the file thumbnail data
         Response response = target().path("/file/" + file1Id + "/data")
@@ -998,5 +1030,43 @@ public class TestDocumentResource extends BaseJerseyTest {
         Assert.assertEquals("4bool", meta.getString("name"));
         Assert.assertEquals("BOOLEAN", meta.getString("type"));
         Assert.assertTrue(meta.getBoolean("value"));
+
+        // Search by metadata range with facets
+        json = target().path("/document/list")
+                .queryParam("search[metadata]", metadataFloatId + ":10..20")
+                .queryParam("facets", true)
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, metadata1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(1, json.getJsonNumber("total").intValue());
+        Assert.assertEquals(document1Id, json.getJsonArray("documents").getJsonObject(0).getString("id"));
+        JsonArray metadataFacets = json.getJsonObject("facets").getJsonArray("metadata");
+        Assert.assertEquals(3, metadataFacets.size());
+        meta = metadataFacets.getJsonObject(0);
+        Assert.assertEquals(metadataFloatId, meta.getString("id"));
+        Assert.assertEquals(1, meta.getInt("count"));
+        Assert.assertEquals(14.4, meta.getJsonNumber("min").doubleValue(), 0);
+        Assert.assertEquals(14.4, meta.getJsonNumber("max").doubleValue(), 0);
+        meta = metadataFacets.getJsonObject(1);
+        Assert.assertEquals(metadataDateId, meta.getString("id"));
+        Assert.assertEquals(dateValue, meta.getJsonNumber("min").longValue());
+        meta = metadataFacets.getJsonObject(2);
+        Assert.assertEquals(metadataBoolId, meta.getString("id"));
+        Assert.assertEquals("true", meta.getJsonArray("values").getJsonObject(0).getString("value"));
+        Assert.assertEquals(1, meta.getJsonArray("values").getJsonObject(0).getInt("count"));
+
+        // Search by metadata with no match
+        json = target().path("/document/list")
+                .queryParam("search[metadata]", metadataFloatId + ":..10")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, metadata1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(0, json.getJsonNumber("total").intValue());
+        json = target().path("/document/list")
+                .queryParam("search[metadata]", metadataBoolId + ":false")
+                .request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, metadata1Token)
+                .get(JsonObject.class);
+        Assert.assertEquals(0, json.getJsonNumber("total").intValue());
     }
 }
@@ -2,6 +2,9 @@ package com.sismics.docs.rest;
 
 import com.google.common.io.ByteStreams;
 import com.google.common.io.Resources;
+import com.sismics.docs.core.constant.FileProcessingPriority;
+import com.sismics.docs.core.model.context.AppContext;
+import com.sismics.docs.core.service.FileProcessingService;
 import com.sismics.docs.core.util.DirectoryUtil;
 import com.sismics.util.filter.TokenBasedSecurityFilter;
 import com.sismics.util.mime.MimeType;
@@ -14,15 +17,22 @@ import org.junit.Test;
 
 import jakarta.json.JsonArray;
 import jakarta.json.JsonObject;
+import jakarta.ws.rs.client.Client;
+import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Form;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 /**
@@ -58,6 +68,50 @@ public class TestFileResource extends BaseJerseyTest {
         InputStream is = (InputStream) response.getEntity();
         byte[] fileBytes = ByteStreams.toByteArray(is);
         Assert.assertTrue(fileBytes.length > 0);
+        Assert.assertEquals("bytes", response.getHeaderString("Accept-Ranges"));
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(etag);
+
+        // Get the file data (not modified)
+        response = target().path("/file/" + file1Id + "/data").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, file1Token)
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get();
+        Assert.assertEquals(Status.NOT_MODIFIED, Status.fromStatusCode(response.getStatus()));
+
+        // Get a range of the file data, not aligned on the cipher blocks
+        response = target().path("/file/" + file1Id + "/data").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, file1Token)
+                .header("Range", "bytes=1000-2999")
+                .header("If-Range", etag)
+                .get();
+        Assert.assertEquals(Status.PARTIAL_CONTENT, Status.fromStatusCode(response.getStatus()));
+        Assert.assertEquals("bytes 1000-2999/" + fileBytes.length, response.getHeaderString("Content-Range"));
+        Assert.assertArrayEquals(Arrays.copyOfRange(fileBytes, 1000, 3000), ByteStreams.toByteArray((InputStream) response.getEntity()));
+
+        // Get the end of the file data
+        response = target().path("/file/" + file1Id + "/data").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, file1Token)
+                .header("Range", "bytes=-100")
+                .get();
+        Assert.assertEquals(Status.PARTIAL_CONTENT, Status.fromStatusCode(response.getStatus()));
+        Assert.assertArrayEquals(Arrays.copyOfRange(fileBytes, fileBytes.length - 100, fileBytes.length), ByteStreams.toByteArray((InputStream) response.getEntity()));
+
+        // Get a range of another version of the file data
+        response = target().path("/file/" + file1Id + "/data").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, file1Token)
+                .header("Range", "bytes=1000-2999")
+                .header("If-Range", "\"other\"")
+                .get();
+        Assert.assertEquals(Status.OK, Status.fromStatusCode(response.getStatus()));
+        Assert.assertEquals(fileBytes.length, ByteStreams.toByteArray((InputStream) response.getEntity()).length);
+
+        // Get a range after the end of the file data
+        response = target().path("/file/" + file1Id + "/data").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, file1Token)
+                .header("Range", "bytes=" + fileBytes.length + "-")
+                .get();
+        Assert.assertEquals(Status.REQUESTED_RANGE_NOT_SATISFIABLE, Status.fromStatusCode(response.getStatus()));
         
         // Get the thumbnail data
         response = target().path("/file/" + file1Id + "/data")
@@ -189,6 +243,12 @@ public class TestFileResource extends BaseJerseyTest {
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, file1Token)
                 .post(Entity.form(new Form()), JsonObject.class);
 
+        // Process a file again without the extraction cache
+        target().path("/file/" + file2Id + "/process").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, file1Token)
+                .post(Entity.form(new Form()
+                        .param("force", "true")), JsonObject.class);
+
         // Get all versions from a file
         json = target().path("/file/" + file2Id + "/versions")
                 .request()
@@ -254,6 +314,67 @@ public class TestFileResource extends BaseJerseyTest {
         Assert.assertEquals(1, files.getJsonObject(0).getInt("version"));
     }
     
+    /**
+     * Test the files refused while the processing is saturated.
+     *
+     * @throws Exception e
+     */
+    @Test
+    public void testProcessingSaturated() throws Exception {
+        // Login file_saturated
+        clientUtil.createUser("file_saturated");
+        String fileSaturatedToken = clientUtil.login("file_saturated");
+
+        // Create a document with a file
+        String documentId = clientUtil.createDocument(fileSaturatedToken);
+        String fileId = clientUtil.addFileToDocument(FILE_DOCUMENT_TXT, fileSaturatedToken, documentId);
+
+        // Saturate the file processing
+        FileProcessingService fileProcessingService = AppContext.getInstance().getFileProcessingService();
+        CountDownLatch release = new CountDownLatch(1);
+        Client client = ClientBuilder.newClient().register(MultiPartFeature.class);
+        try {
+            while (!fileProcessingService.isSaturated()) {
+                fileProcessingService.submit(FileProcessingPriority.UPLOAD, "file_saturated", () -> {
+                    try {
+                        release.await(1, TimeUnit.MINUTES);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            // Process a file, the test client waits for the processing to be over so a new one is used
+            Response response = client.target(target().getUri()).path("/file/" + fileId + "/process").request()
+                    .cookie(TokenBasedSecurityFilter.COOKIE_NAME, fileSaturatedToken)
+                    .post(Entity.form(new Form()));
+            Assert.assertEquals(Status.SERVICE_UNAVAILABLE, Status.fromStatusCode(response.getStatus()));
+            Assert.assertEquals("60", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+            Assert.assertEquals("ProcessingSaturated", response.readEntity(JsonObject.class).getString("type"));
+
+            // Import an email
+            try (InputStream is = Resources.getResource("file/test_mail.eml").openStream()) {
+                StreamDataBodyPart streamDataBodyPart = new StreamDataBodyPart("file", is, "test_mail.eml");
+                try (FormDataMultiPart multiPart = new FormDataMultiPart()) {
+                    response = client.target(target().getUri()).path("/document/eml").request()
+                            .cookie(TokenBasedSecurityFilter.COOKIE_NAME, fileSaturatedToken)
+                            .put(Entity.entity(multiPart.bodyPart(streamDataBodyPart),
+                                    MediaType.MULTIPART_FORM_DATA_TYPE));
+                }
+            }
+            Assert.assertEquals(Status.SERVICE_UNAVAILABLE, Status.fromStatusCode(response.getStatus()));
+            Assert.assertEquals("60", response.getHeaderString(HttpHeaders.RETRY_AFTER));
+        } finally {
+            release.countDown();
+            client.close();
+        }
+
+        // The file is processed again once the queue is emptied
+        target().path("/file/" + fileId + "/process").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, fileSaturatedToken)
+                .post(Entity.form(new Form()), JsonObject.class);
+    }
+
     @Test
     public void testFileResourceZip() throws Exception {
         // Login file_resources
@@ -275,7 +396,10 @@ public class TestFileResource extends BaseJerseyTest {
         Assert.assertEquals(Status.OK, Status.fromStatusCode(response.getStatus()));
         InputStream is = (InputStream) response.getEntity();
         ZipInputStream zipInputStream = new ZipInputStream(is);
-        Assert.assertEquals(zipInputStream.getNextEntry().getName(), "0-PIA00452.jpg");
+        ZipEntry zipEntry = zipInputStream.getNextEntry();
+        Assert.assertEquals(zipEntry.getName(), "0-PIA00452.jpg");
+        Assert.assertEquals(ZipEntry.STORED, zipEntry.getMethod());
+        Assert.assertArrayEquals(Resources.toByteArray(Resources.getResource(FILE_PIA_00452_JPG)), ByteStreams.toByteArray(zipInputStream));
         Assert.assertNull(zipInputStream.getNextEntry());
 
         // Fail if we don't have access to the document
@@ -288,21 +412,30 @@ public class TestFileResource extends BaseJerseyTest {
         // Create a document
         String document2Id = clientUtil.createDocument(file1Token);
 
-        // Add a file
+        // Add files
         String file2Id = clientUtil.addFileToDocument(FILE_EINSTEIN_ROOSEVELT_LETTER_PNG, file1Token, document2Id);
+        String file3Id = clientUtil.addFileToDocument(FILE_DOCUMENT_TXT, file1Token, document2Id);
 
-        // Get a ZIP from both files
+        // Get a ZIP from all files, the text file is compressed
         response = target().path("/file/zip")
                 .request()
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, file1Token)
                 .post(Entity.form(new Form()
                         .param("files", file1Id)
-                        .param("files", file2Id)));
+                        .param("files", file2Id)
+                        .param("files", file3Id)));
         Assert.assertEquals(Status.OK, Status.fromStatusCode(response.getStatus()));
         is = (InputStream) response.getEntity();
         zipInputStream = new ZipInputStream(is);
-        Assert.assertNotNull(zipInputStream.getNextEntry().getName());
-        Assert.assertNotNull(zipInputStream.getNextEntry().getName());
+        for (int i = 0; i < 3; i++) {
+            zipEntry = zipInputStream.getNextEntry();
+            if (zipEntry.getName().endsWith(".txt")) {
+                Assert.assertEquals(ZipEntry.DEFLATED, zipEntry.getMethod());
+                Assert.assertArrayEquals(Resources.toByteArray(Resources.getResource(FILE_DOCUMENT_TXT)), ByteStreams.toByteArray(zipInputStream));
+            } else {
+                Assert.assertEquals(ZipEntry.STORED, zipEntry.getMethod());
+            }
+        }
         Assert.assertNull(zipInputStream.getNextEntry());
         
         // Fail if we don't have access to the files
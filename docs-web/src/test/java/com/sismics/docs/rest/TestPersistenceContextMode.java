@@ -0,0 +1,90 @@
+package com.sismics.docs.rest;
+
+import com.sismics.docs.core.constant.PersistenceContextMode;
+import com.sismics.util.filter.TokenBasedSecurityFilter;
+import jakarta.json.JsonObject;
+import jakarta.ws.rs.client.Entity;
+import jakarta.ws.rs.client.Invocation;
+import jakarta.ws.rs.core.Form;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Statements executed by the document endpoints depending on the lifecycle of the persistence context.
+ *
+ * @author bgamard
+ */
+public class TestPersistenceContextMode extends BaseJerseyTest {
+    /**
+     * Test the statements executed in each mode.
+     */
+    @Test
+    public void testDocumentStatements() throws Exception {
+        // Login persistence1
+        clientUtil.createUser("persistence1");
+        String token = clientUtil.login("persistence1");
+
+        // Create a tag
+        JsonObject json = target().path("/tag").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, token)
+                .put(Entity.form(new Form()
+                        .param("name", "PersistenceTag")
+                        .param("color", "#ff0000")), JsonObject.class);
+        String tagId = json.getString("id");
+
+        // Create tagged documents, the last one with a file
+        String documentId = null;
+        for (int i = 0; i < 5; i++) {
+            json = target().path("/document").request()
+                    .cookie(TokenBasedSecurityFilter.COOKIE_NAME, token)
+                    .put(Entity.form(new Form()
+                            .param("title", "Persistence " + i)
+                            .param("language", "eng")
+                            .param("tags", tagId)), JsonObject.class);
+            documentId = json.getString("id");
+        }
+        clientUtil.addFileToDocument(FILE_DOCUMENT_TXT, token, documentId);
+
+        // Reading loads DTOs with native queries, keeping the entities doesn't add any statement
+        String path = "/document/" + documentId;
+        Consumer<Invocation.Builder> get = request -> request.get(JsonObject.class);
+        Assert.assertTrue(countStatements(PersistenceContextMode.REQUEST, token, path, get)
+                <= countStatements(PersistenceContextMode.CLEAR, token, path, get));
+        Assert.assertTrue(countStatements(PersistenceContextMode.REQUEST, token, "/document/list", get)
+                <= countStatements(PersistenceContextMode.CLEAR, token, "/document/list", get));
+
+        // Updating reuses the managed document and writes it once per transaction
+        Consumer<Invocation.Builder> post = request -> request.post(Entity.form(new Form()
+                .param("title", "Persistence updated")
+                .param("language", "eng")
+                .param("tags", tagId)), JsonObject.class);
+        Assert.assertTrue(countStatements(PersistenceContextMode.REQUEST, token, path, post)
+                < countStatements(PersistenceContextMode.CLEAR, token, path, post));
+    }
+
+    /**
+     * Count the statements prepared by a request once the caches are warm.
+     *
+     * @param mode Lifecycle of the persistence context
+     * @param token Authentication token
+     * @param path Path of the request
+     * @param method Method sending the request
+     * @return Number of statements
+     * @throws InterruptedException e
+     */
+    private long countStatements(PersistenceContextMode mode, String token, String path, Consumer<Invocation.Builder> method) throws InterruptedException {
+        Long count = null;
+        for (int i = 0; i < 2; i++) {
+            // The first request fills the second level cache
+            method.accept(target().path(path).request()
+                    .cookie(TokenBasedSecurityFilter.COOKIE_NAME, token)
+                    .header(PERSISTENCE_CONTEXT_MODE_HEADER, mode.name()));
+            count = statementCountQueue.poll(10, TimeUnit.SECONDS);
+            Assert.assertNotNull(count);
+        }
+        return count;
+    }
+}
@@ -14,6 +14,8 @@ import org.junit.Test;
 
 import com.sismics.util.filter.TokenBasedSecurityFilter;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Test of the security layer.
  * 
@@ -111,4 +113,82 @@ public class TestSecurity extends BaseJerseyTest {
                 .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
                 .delete();
     }
+
+    /**
+     * Test of the authenticated principal cache.
+     */
+    @Test
+    public void testPrincipalCache() throws Exception {
+        // Create a user and a group, the group can read a document
+        clientUtil.createUser("principal_cache");
+        clientUtil.createGroup("principalcache");
+        String adminToken = adminToken();
+        String documentId = clientUtil.createDocument(adminToken);
+        target().path("/acl").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .put(Entity.form(new Form()
+                        .param("source", documentId)
+                        .param("perm", "READ")
+                        .param("target", "principalcache")
+                        .param("type", "GROUP")), JsonObject.class);
+
+        // The user is not in the group yet
+        String principalCacheToken = clientUtil.login("principal_cache");
+        Response response = target().path("/document/" + documentId).request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, principalCacheToken)
+                .get();
+        Assert.assertEquals(Status.NOT_FOUND, Status.fromStatusCode(response.getStatus()));
+
+        // Adding the user to the group is seen on the next request
+        target().path("/group/principalcache").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .put(Entity.form(new Form()
+                        .param("username", "principal_cache")), JsonObject.class);
+        JsonObject json = target().path("/document/" + documentId).request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, principalCacheToken)
+                .get(JsonObject.class);
+        Assert.assertEquals(documentId, json.getString("id"));
+        json = target().path("/document/" + documentId).request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, principalCacheToken)
+                .get(JsonObject.class);
+        Assert.assertEquals(documentId, json.getString("id"));
+
+        // Removing the user from the group too
+        target().path("/group/principalcache/principal_cache").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .delete(JsonObject.class);
+        response = target().path("/document/" + documentId).request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, principalCacheToken)
+                .get();
+        Assert.assertEquals(Status.NOT_FOUND, Status.fromStatusCode(response.getStatus()));
+
+        // The principals have been served from the cache
+        json = target().path("/app/cache").request()
+                .cookie(TokenBasedSecurityFilter.COOKIE_NAME, adminToken)
+                .get(JsonObject.class);
+        JsonObject principals = json.getJsonObject("principals");
+        Assert.assertTrue(principals.getBoolean("enabled"));
+        Assert.assertTrue(principals.getJsonNumber("hit_count").longValue() > 0);
+        Assert.assertTrue(principals.getJsonNumber("hit_rate").doubleValue() > 0);
+
+        // The token is not accepted anymore after logout, even if it is used during the logout
+        AtomicBoolean loggedOut = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            while (!loggedOut.get()) {
+                target().path("/user").request()
+                        .cookie(TokenBasedSecurityFilter.COOKIE_NAME, principalCacheToken)
+                        .get(JsonObject.class);
+            }
+        });
+        reader.start();
+        clientUtil.logout(principalCacheToken);
+        loggedOut.set(true);
+        reader.join();
+        for (int i = 0; i < 3; i++) {
+            json = target().path("/user").request()
+                    .cookie(TokenBasedSecurityFilter.COOKIE_NAME, principalCacheToken)
+                    .get(JsonObject.class);
+            Assert.assertTrue(json.getBoolean("anonymous"));
+        }
+    }
 }
\ No newline at end of file
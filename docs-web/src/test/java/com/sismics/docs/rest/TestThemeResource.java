@@ -1,5 +1,6 @@
 package com.sismics.docs.rest;
 
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Resources;
 import com.sismics.util.filter.TokenBasedSecurityFilter;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
@@ -11,6 +12,7 @@ import org.junit.Test;
 import jakarta.json.JsonObject;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Form;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.io.InputStream;
@@ -65,6 +67,14 @@ public class TestThemeResource extends BaseJerseyTest {
         // Get the logo
         Response response = target().path("/theme/image/logo").request().get();
         Assert.assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        Assert.assertNotNull(etag);
+
+        // Get the logo (not modified)
+        response = target().path("/theme/image/logo").request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get();
+        Assert.assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
 
         // Get the background
         response = target().path("/theme/image/background").request().get();
@@ -96,9 +106,13 @@ public class TestThemeResource extends BaseJerseyTest {
             }
         }
 
-        // Get the logo
-        response = target().path("/theme/image/logo").request().get();
+        // Get the logo (modified)
+        response = target().path("/theme/image/logo").request()
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .get();
         Assert.assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+        Assert.assertArrayEquals(Resources.toByteArray(Resources.getResource("file/PIA00452.jpg")),
+                ByteStreams.toByteArray((InputStream) response.getEntity()));
 
         // Get the background
         response = target().path("/theme/image/background").request().get();
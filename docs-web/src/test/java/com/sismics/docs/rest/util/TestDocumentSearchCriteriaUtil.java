@@ -1,8 +1,11 @@
 package com.sismics.docs.rest.util;
 
+import com.sismics.docs.core.constant.MetadataType;
 import com.sismics.docs.core.dao.TagDao;
 import com.sismics.docs.core.dao.criteria.DocumentCriteria;
+import com.sismics.docs.core.dao.criteria.DocumentMetadataCriteria;
 import com.sismics.docs.core.dao.criteria.TagCriteria;
+import com.sismics.docs.core.dao.dto.MetadataDto;
 import com.sismics.docs.core.dao.dto.TagDto;
 import com.sismics.docs.core.model.jpa.Tag;
 import com.sismics.docs.core.model.jpa.User;
@@ -489,4 +492,34 @@ public class TestDocumentSearchCriteriaUtil extends BaseTransactionalTest {
         Assert.assertTrue(documentCriteria.getActiveRoute());
     }
 
+    @Test
+    public void testMetadataSearchParams() {
+        List<MetadataDto> metadataDtoList = Arrays.asList(
+                new MetadataDto().setId("str").setName("String").setType(MetadataType.STRING),
+                new MetadataDto().setId("int").setName("Integer").setType(MetadataType.INTEGER));
+
+        DocumentCriteria documentCriteria = new DocumentCriteria();
+        DocumentSearchCriteriaUtil.addMetadataSearchParams(
+                documentCriteria,
+                Arrays.asList("str:a..b", "int:10..20", "int:..5", "unknown:1"),
+                metadataDtoList);
+        List<DocumentMetadataCriteria> metadataCriteriaList = documentCriteria.getMetadataList();
+        Assert.assertEquals(4, metadataCriteriaList.size());
+
+        // Ranges are not supported on strings
+        Assert.assertEquals("str", metadataCriteriaList.get(0).getMetadataId());
+        Assert.assertEquals("a..b", metadataCriteriaList.get(0).getValue());
+        Assert.assertNull(metadataCriteriaList.get(0).getMin());
+
+        Assert.assertEquals(MetadataType.INTEGER, metadataCriteriaList.get(1).getType());
+        Assert.assertNull(metadataCriteriaList.get(1).getValue());
+        Assert.assertEquals("10", metadataCriteriaList.get(1).getMin());
+        Assert.assertEquals("20", metadataCriteriaList.get(1).getMax());
+
+        Assert.assertNull(metadataCriteriaList.get(2).getMin());
+        Assert.assertEquals("5", metadataCriteriaList.get(2).getMax());
+
+        // Unknown metadata matches nothing
+        Assert.assertNotEquals("unknown", metadataCriteriaList.get(3).getMetadataId());
+    }
 }